@@ -0,0 +1,181 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.events;
+
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.PersonScoreEvent;
+import org.matsim.api.core.v01.events.VehicleAbortsEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonMoneyEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonScoreEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleAbortsEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.EventsManagerConfigGroup.HandlerDispatch;
+import org.matsim.core.events.EventsManagerImpl;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.vehicles.Vehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the reflection based handler dispatch of {@link EventsManagerImpl} with the generated one.
+ * <p>
+ * <code>fastPath</code> uses link and money events, which the reflection based dispatch handles with its hard-coded
+ * callHandlerFast(), <code>reflective</code> uses person score and vehicle aborts events, which it calls through
+ * {@link java.lang.reflect.Method#invoke}. All events are also passed to a {@link BasicEventHandler}.
+ * <p>
+ * Run with <code>java -cp matsim-benchmark.jar org.matsim.benchmark.events.EventsManagerDispatchBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventsManagerDispatchBenchmark {
+
+	private static final int EVENTS = 1024;
+
+	@Param({"reflection", "generated"})
+	public HandlerDispatch dispatch;
+
+	@Param({"fastPath", "reflective"})
+	public String eventTypes;
+
+	private EventsManagerImpl eventsManager;
+	private Event[] events;
+
+	@Setup
+	public void setup(Blackhole blackhole) {
+		eventsManager = new EventsManagerImpl(dispatch);
+		eventsManager.addHandler(new LinkHandler(blackhole));
+		eventsManager.addHandler(new LinkHandler(blackhole));
+		eventsManager.addHandler(new PersonHandler(blackhole));
+		eventsManager.addHandler(new AllEventsHandler(blackhole));
+
+		events = new Event[EVENTS];
+		Id<Vehicle> vehicleId = Id.createVehicleId("v");
+		Id<Person> personId = Id.createPersonId("p");
+		for (int i = 0; i < EVENTS; i++) {
+			Id<Link> linkId = Id.createLinkId(i % 32);
+			if (eventTypes.equals("fastPath")) {
+				events[i] = switch (i % 3) {
+					case 0 -> new LinkEnterEvent(i, vehicleId, linkId);
+					case 1 -> new LinkLeaveEvent(i, vehicleId, linkId);
+					default -> new PersonMoneyEvent(i, personId, 1.0, "toll", null, null);
+				};
+			} else {
+				events[i] = switch (i % 2) {
+					case 0 -> new PersonScoreEvent(i, personId, 1.0, "score");
+					default -> new VehicleAbortsEvent(i, vehicleId, linkId);
+				};
+			}
+		}
+		eventsManager.initProcessing();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public void processEvents() {
+		for (Event event : events) {
+			eventsManager.processEvent(event);
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(EventsManagerDispatchBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	public static final class LinkHandler implements LinkEnterEventHandler, LinkLeaveEventHandler {
+		private final Blackhole blackhole;
+
+		LinkHandler(Blackhole blackhole) {
+			this.blackhole = blackhole;
+		}
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			blackhole.consume(event.getLinkId());
+		}
+
+		@Override
+		public void handleEvent(LinkLeaveEvent event) {
+			blackhole.consume(event.getLinkId());
+		}
+	}
+
+	public static final class PersonHandler implements PersonScoreEventHandler, PersonMoneyEventHandler, VehicleAbortsEventHandler {
+		private final Blackhole blackhole;
+
+		PersonHandler(Blackhole blackhole) {
+			this.blackhole = blackhole;
+		}
+
+		@Override
+		public void handleEvent(PersonScoreEvent event) {
+			blackhole.consume(event.getAmount());
+		}
+
+		@Override
+		public void handleEvent(PersonMoneyEvent event) {
+			blackhole.consume(event.getAmount());
+		}
+
+		@Override
+		public void handleEvent(VehicleAbortsEvent event) {
+			blackhole.consume(event.getLinkId());
+		}
+	}
+
+	public static final class AllEventsHandler implements BasicEventHandler {
+		private final Blackhole blackhole;
+
+		AllEventsHandler(Blackhole blackhole) {
+			this.blackhole = blackhole;
+		}
+
+		@Override
+		public void handleEvent(Event event) {
+			blackhole.consume(event.getTime());
+		}
+	}
+}
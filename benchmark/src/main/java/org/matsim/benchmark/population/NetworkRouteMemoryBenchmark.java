@@ -0,0 +1,157 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.population;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+
+/**
+ * Compares the heap used by the routes of a large population for the different
+ * {@link PlansConfigGroup.NetworkRouteType}s.  The routes are random walks on a grid network; a part of them is taken
+ * from a small set of popular routes, as many agents of real populations have the same routes.
+ * <p>
+ * This measures retained memory rather than time, so it is not a JMH benchmark.  Run with
+ * <code>java -Xmx8g -cp matsim-benchmark.jar org.matsim.benchmark.population.NetworkRouteMemoryBenchmark [routes]
+ * [share of popular routes]</code>.
+ */
+public class NetworkRouteMemoryBenchmark {
+
+	private static final int GRID_SIZE = 200;
+	private static final int POPULAR_ROUTES = 10_000;
+
+	public static void main(String[] args) {
+		int numberOfRoutes = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+		double popularShare = args.length > 1 ? Double.parseDouble(args[1]) : 0.5;
+
+		Network network = createGridNetwork();
+		String[] routeTypes = {
+				PlansConfigGroup.NetworkRouteType.LinkNetworkRoute,
+				PlansConfigGroup.NetworkRouteType.MediumCompressedNetworkRoute,
+				PlansConfigGroup.NetworkRouteType.HeavyCompressedNetworkRoute,
+				PlansConfigGroup.NetworkRouteType.InternedNetworkRoute};
+		for (String routeType : routeTypes) {
+			PlansConfigGroup plansConfig = ConfigUtils.createConfig().plans();
+			plansConfig.setNetworkRouteType(routeType);
+			RouteFactories routeFactories = PopulationUtils.createPopulation(plansConfig, network).getFactory().getRouteFactories();
+			// heavy compressed routes analyze the network when the first route is created, which is not counted
+			Id<Link> anyLinkId = network.getLinks().keySet().iterator().next();
+			routeFactories.createRoute(NetworkRoute.class, anyLinkId, anyLinkId);
+
+			long before = usedMemory();
+			long start = System.nanoTime();
+			List<NetworkRoute> routes = createRoutes(network, routeFactories, numberOfRoutes, popularShare);
+			long millis = (System.nanoTime() - start) / 1_000_000;
+			long bytes = usedMemory() - before;
+			System.out.printf("%-30s %,d routes: %,d MB, %.1f bytes per route, created in %,d ms%n", routeType,
+					routes.size(), bytes / 1024 / 1024, (double) bytes / routes.size(), millis);
+		}
+	}
+
+	private static List<NetworkRoute> createRoutes(Network network, RouteFactories routeFactories, int numberOfRoutes,
+			double popularShare) {
+		Random random = new Random(4711);
+		Link[] links = network.getLinks().values().toArray(new Link[0]);
+		List<List<Id<Link>>> popularRoutes = new ArrayList<>();
+		for (int i = 0; i < POPULAR_ROUTES; i++) {
+			popularRoutes.add(randomWalk(links, random));
+		}
+		List<NetworkRoute> routes = new ArrayList<>(numberOfRoutes);
+		for (int i = 0; i < numberOfRoutes; i++) {
+			// copied, like a router would return a new list for each route
+			List<Id<Link>> linkIds = random.nextDouble() < popularShare
+					? new ArrayList<>(popularRoutes.get(random.nextInt(POPULAR_ROUTES)))
+					: randomWalk(links, random);
+			Id<Link> startLinkId = linkIds.remove(0);
+			Id<Link> endLinkId = linkIds.remove(linkIds.size() - 1);
+			NetworkRoute route = routeFactories.createRoute(NetworkRoute.class, startLinkId, endLinkId);
+			route.setLinkIds(startLinkId, linkIds, endLinkId);
+			routes.add(route);
+		}
+		return routes;
+	}
+
+	/**
+	 * @return the links of a random walk through the grid, without u-turns, with 10 to 100 links.
+	 */
+	private static List<Id<Link>> randomWalk(Link[] links, Random random) {
+		int length = 10 + random.nextInt(91);
+		Link link = links[random.nextInt(links.length)];
+		List<Id<Link>> route = new ArrayList<>(length);
+		route.add(link.getId());
+		while (route.size() < length) {
+			List<Link> nextLinks = new ArrayList<>();
+			for (Link next : link.getToNode().getOutLinks().values()) {
+				if (next.getToNode() != link.getFromNode()) {
+					nextLinks.add(next);
+				}
+			}
+			link = nextLinks.get(random.nextInt(nextLinks.size()));
+			route.add(link.getId());
+		}
+		return route;
+	}
+
+	private static Network createGridNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[GRID_SIZE][GRID_SIZE];
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 100, y * 100));
+			}
+		}
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				if (x + 1 < GRID_SIZE) {
+					addLinks(network, nodes[x][y], nodes[x + 1][y]);
+				}
+				if (y + 1 < GRID_SIZE) {
+					addLinks(network, nodes[x][y], nodes[x][y + 1]);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLinks(Network network, Node node1, Node node2) {
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(node1.getId() + "-" + node2.getId()), node1, node2, 100, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(node2.getId() + "-" + node1.getId()), node2, node1, 100, 10, 1000, 1);
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,169 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.qsim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
+import org.matsim.core.mobsim.qsim.ActivityEngineModule;
+import org.matsim.core.mobsim.qsim.ActivityEngineWithCalendarQueue;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.mobsim.qsim.agents.WithinDayAgentUtils;
+import org.matsim.core.mobsim.qsim.components.QSimComponentsConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the default activity engine with {@link ActivityEngineWithCalendarQueue}, by simulating a day of a large
+ * population that only has activities and teleported legs, so the activity engine does most of the work.
+ * <code>reschedulesPerMinute</code> agents still at home get a new activity end time every simulated minute, like
+ * within-day replanning would do.
+ * <p>
+ * Run with <code>java -cp matsim-benchmark.jar org.matsim.benchmark.qsim.ActivityEngineBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ActivityEngineBenchmark {
+
+	@Param({ActivityEngineModule.COMPONENT_NAME, ActivityEngineWithCalendarQueue.COMPONENT_NAME})
+	public String activityEngine;
+
+	@Param({"1000000"})
+	public int agents;
+
+	@Param({"0", "100"})
+	public int reschedulesPerMinute;
+
+	private Scenario scenario;
+
+	@Setup(Level.Invocation)
+	public void setup() {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setEndTime(30 * 3600);
+		QSimComponentsConfigGroup componentsConfig = ConfigUtils.addOrGetModule(config, QSimComponentsConfigGroup.class);
+		List<String> components = new ArrayList<>(componentsConfig.getActiveComponents());
+		components.set(components.indexOf(ActivityEngineModule.COMPONENT_NAME), activityEngine);
+		componentsConfig.setActiveComponents(components);
+
+		scenario = ScenarioUtils.createScenario(config);
+		Network network = scenario.getNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.createNodeId(1), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.createNodeId(2), new Coord(1000, 0));
+		Link link1 = NetworkUtils.createAndAddLink(network, Id.createLinkId(1), node1, node2, 1000, 10, 3600, 1);
+		Link link2 = NetworkUtils.createAndAddLink(network, Id.createLinkId(2), node2, node1, 1000, 10, 3600, 1);
+
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		Random random = new Random(4711);
+		for (int i = 0; i < agents; i++) {
+			Person person = pf.createPerson(Id.createPersonId(i));
+			Plan plan = pf.createPlan();
+			Activity home = pf.createActivityFromLinkId("home", link1.getId());
+			home.setEndTime(5 * 3600 + random.nextInt(5 * 3600));
+			plan.addActivity(home);
+			plan.addLeg(createLeg(pf, link1, link2));
+			Activity work = pf.createActivityFromLinkId("work", link2.getId());
+			work.setEndTime(14 * 3600 + random.nextInt(5 * 3600));
+			plan.addActivity(work);
+			plan.addLeg(createLeg(pf, link2, link1));
+			plan.addActivity(pf.createActivityFromLinkId("home", link1.getId()));
+			person.addPlan(plan);
+			scenario.getPopulation().addPerson(person);
+		}
+	}
+
+	@Benchmark
+	public void simulate() {
+		QSim qsim = new QSimBuilder(scenario.getConfig()).useDefaults().build(scenario, EventsUtils.createEventsManager());
+		List<MobsimAgent> agentList = new ArrayList<>();
+		Random random = new Random(42);
+		qsim.addQueueSimulationListeners((MobsimBeforeSimStepListener) event -> {
+			double now = event.getSimulationTime();
+			if (reschedulesPerMinute == 0 || now % 60 != 0) {
+				return;
+			}
+			if (agentList.isEmpty()) {
+				agentList.addAll(qsim.getAgents().values());
+			}
+			for (int i = 0; i < reschedulesPerMinute; i++) {
+				MobsimAgent agent = agentList.get(random.nextInt(agentList.size()));
+				if (agent.getState() == MobsimAgent.State.ACTIVITY && WithinDayAgentUtils.getCurrentPlanElementIndex(agent) == 0) {
+					Activity home = (Activity) WithinDayAgentUtils.getModifiablePlan(agent).getPlanElements().get(0);
+					home.setEndTime(Math.max(now + 60, home.getEndTime().seconds() + random.nextInt(1800) - 900));
+					WithinDayAgentUtils.resetCaches(agent);
+					qsim.rescheduleActivityEnd(agent);
+				}
+			}
+		});
+		qsim.run();
+	}
+
+	private static Leg createLeg(PopulationFactory pf, Link from, Link to) {
+		Leg leg = pf.createLeg(TransportMode.walk);
+		GenericRouteImpl route = new GenericRouteImpl(from.getId(), to.getId());
+		route.setTravelTime(600);
+		route.setDistance(800);
+		leg.setRoute(route);
+		return leg;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(ActivityEngineBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,180 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.qsim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.TrafficDynamics;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Simulates a congested morning peak of a car-only population on a grid network, so the QSim spends its time moving
+ * vehicles over links and nodes. Run it with the GC profiler to see the allocation rate of the network simulation as
+ * well, i.e. with <code>java -cp matsim-benchmark.jar org.matsim.benchmark.qsim.CarQSimBenchmark -prof gc</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CarQSimBenchmark {
+
+	private static final int GRID_SIZE = 60;
+
+	@Param({"200000"})
+	public int agents;
+
+	@Param({"queue", "withHoles"})
+	public String trafficDynamics;
+
+	private Scenario scenario;
+
+	@Setup(Level.Invocation)
+	public void setup() {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setEndTime(24 * 3600);
+		config.qsim().setTrafficDynamics(TrafficDynamics.valueOf(trafficDynamics));
+		scenario = ScenarioUtils.createScenario(config);
+		createGridNetwork(scenario.getNetwork());
+		createPopulation(scenario, agents);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+	}
+
+	@Benchmark
+	public void simulate() {
+		new QSimBuilder(scenario.getConfig()).useDefaults().build(scenario, EventsUtils.createEventsManager()).run();
+	}
+
+	private static void createGridNetwork(Network network) {
+		for (int row = 0; row < GRID_SIZE; row++) {
+			for (int col = 0; col < GRID_SIZE; col++) {
+				NetworkUtils.createAndAddNode(network, Id.createNodeId(row + "_" + col), new Coord(col * 300, row * 300));
+			}
+		}
+		for (int row = 0; row < GRID_SIZE; row++) {
+			for (int col = 0; col < GRID_SIZE; col++) {
+				if (col + 1 < GRID_SIZE) {
+					addLinks(network, row + "_" + col, row + "_" + (col + 1));
+				}
+				if (row + 1 < GRID_SIZE) {
+					addLinks(network, row + "_" + col, (row + 1) + "_" + col);
+				}
+			}
+		}
+	}
+
+	private static void addLinks(Network network, String node1, String node2) {
+		Node from = network.getNodes().get(Id.createNodeId(node1));
+		Node to = network.getNodes().get(Id.createNodeId(node2));
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(node1 + "-" + node2), from, to, 300, 13.9, 1200, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(node2 + "-" + node1), to, from, 300, 13.9, 1200, 1);
+	}
+
+	/**
+	 * Every agent drives along a row and then along a column of the grid, and back in the evening.
+	 */
+	private static void createPopulation(Scenario scenario, int agents) {
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		Random random = new Random(4711);
+		for (int i = 0; i < agents; i++) {
+			int row = random.nextInt(GRID_SIZE);
+			int col = random.nextInt(GRID_SIZE);
+			int toRow = random.nextInt(GRID_SIZE);
+			int toCol = random.nextInt(GRID_SIZE);
+			if (Math.abs(col - toCol) < 2 || row == toRow) {
+				continue;
+			}
+			List<Id<Link>> route = new ArrayList<>();
+			for (int c = col; c != toCol; c += Integer.signum(toCol - col)) {
+				route.add(Id.createLinkId(row + "_" + c + "-" + row + "_" + (c + Integer.signum(toCol - col))));
+			}
+			for (int r = row; r != toRow; r += Integer.signum(toRow - row)) {
+				route.add(Id.createLinkId(r + "_" + toCol + "-" + (r + Integer.signum(toRow - row)) + "_" + toCol));
+			}
+			List<Id<Link>> returnRoute = new ArrayList<>();
+			for (int k = route.size() - 1; k >= 0; k--) {
+				String[] nodes = route.get(k).toString().split("-");
+				returnRoute.add(Id.createLinkId(nodes[1] + "-" + nodes[0]));
+			}
+
+			Person person = pf.createPerson(Id.createPersonId(i));
+			Plan plan = pf.createPlan();
+			Activity home = pf.createActivityFromLinkId("home", route.get(0));
+			home.setEndTime(6 * 3600 + random.nextInt(3 * 3600));
+			plan.addActivity(home);
+			plan.addLeg(createLeg(pf, route));
+			Activity work = pf.createActivityFromLinkId("work", route.get(route.size() - 1));
+			work.setEndTime(16 * 3600 + random.nextInt(3 * 3600));
+			plan.addActivity(work);
+			plan.addLeg(createLeg(pf, returnRoute));
+			plan.addActivity(pf.createActivityFromLinkId("home", returnRoute.get(returnRoute.size() - 1)));
+			person.addPlan(plan);
+			scenario.getPopulation().addPerson(person);
+		}
+	}
+
+	private static Leg createLeg(PopulationFactory pf, List<Id<Link>> route) {
+		Leg leg = pf.createLeg(TransportMode.car);
+		leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(route.get(0), route.subList(1, route.size() - 1), route.get(route.size() - 1)));
+		return leg;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(CarQSimBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,124 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.router;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.ControllerConfigGroup.RoutingAlgorithmType;
+import org.matsim.core.config.groups.ScoringConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.algorithms.NetworkCleaner;
+import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.speedy.SpeedyALTFactory;
+import org.matsim.core.router.speedy.SpeedyCHFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the query times of {@link org.matsim.core.router.speedy.SpeedyALT} and
+ * {@link org.matsim.core.router.speedy.SpeedyCH} on the car network of the kelheim scenario, for random pairs of nodes.
+ * The preprocessing of both is done in the setup and not measured.
+ * <p>
+ * Run with <code>java -cp matsim-benchmark.jar org.matsim.benchmark.router.SpeedyCHBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpeedyCHBenchmark {
+
+	private static final int QUERIES = 256;
+
+	@Param({"SpeedyALT", "SpeedyCH"})
+	public RoutingAlgorithmType algorithm;
+
+	private LeastCostPathCalculator router;
+	private Node[] fromNodes;
+	private Node[] toNodes;
+
+	@Setup
+	public void setup() {
+		URL url = IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("kelheim"), "network-with-pt.xml.gz");
+		Network fullNetwork = NetworkUtils.readNetwork(url.toString());
+		Network network = NetworkUtils.createNetwork();
+		new TransportModeNetworkFilter(fullNetwork).filter(network, Set.of(TransportMode.car));
+		new NetworkCleaner().run(network);
+
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+		LeastCostPathCalculatorFactory factory = switch (algorithm) {
+			case SpeedyALT -> new SpeedyALTFactory();
+			case SpeedyCH -> new SpeedyCHFactory();
+			default -> throw new IllegalArgumentException("unsupported algorithm: " + algorithm);
+		};
+		router = factory.createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		Random random = new Random(4711);
+		fromNodes = new Node[QUERIES];
+		toNodes = new Node[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			fromNodes[i] = nodes.get(random.nextInt(nodes.size()));
+			toNodes[i] = nodes.get(random.nextInt(nodes.size()));
+		}
+		// the first query customizes the edge weights of the hierarchy
+		router.calcLeastCostPath(fromNodes[0], toNodes[0], 8 * 3600, null, null);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void route(Blackhole blackhole) {
+		for (int i = 0; i < QUERIES; i++) {
+			blackhole.consume(router.calcLeastCostPath(fromNodes[i], toNodes[i], 8 * 3600, null, null));
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(SpeedyCHBenchmark.class.getSimpleName()).build()).run();
+	}
+}
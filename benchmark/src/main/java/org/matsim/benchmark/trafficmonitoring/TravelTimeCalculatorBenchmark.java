@@ -0,0 +1,140 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.trafficmonitoring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.SingleHandlerEventsManager;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Replays an events file into a {@link TravelTimeCalculator}, consolidates its data and reads the travel times of all
+ * links (and turns) once, as happens in every iteration.  Reading them also covers versions which consolidate the data
+ * lazily.  The events are read into memory before, so only the calculator is measured.
+ * <p>
+ * Without parameters, the output events of the equil example are used.  For meaningful numbers, use the network and
+ * events of a real scenario, i.e. run with <code>java -Xmx16g -cp matsim-benchmark.jar
+ * org.matsim.benchmark.trafficmonitoring.TravelTimeCalculatorBenchmark -p networkFile=network.xml.gz
+ * -p eventsFile=output_events.xml.gz</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TravelTimeCalculatorBenchmark {
+
+	@Param({""})
+	public String networkFile;
+
+	@Param({""})
+	public String eventsFile;
+
+	@Param({"false", "true"})
+	public boolean linkToLinkTravelTimes;
+
+	@Param({"1", "4"})
+	public int numberOfThreads;
+
+	private Network network;
+	private Event[] events;
+
+	@Setup
+	public void setup() {
+		network = NetworkUtils.createNetwork();
+		MatsimNetworkReader networkReader = new MatsimNetworkReader(network);
+		if (networkFile.isEmpty()) {
+			networkReader.readURL(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("equil"), "network.xml"));
+		} else {
+			networkReader.readFile(networkFile);
+		}
+
+		List<Event> eventList = new ArrayList<>();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		eventsManager.addHandler((BasicEventHandler) eventList::add);
+		eventsManager.initProcessing();
+		MatsimEventsReader eventsReader = new MatsimEventsReader(eventsManager);
+		if (eventsFile.isEmpty()) {
+			eventsReader.readURL(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("equil"), "output_events.xml.gz"));
+		} else {
+			eventsReader.readFile(eventsFile);
+		}
+		eventsManager.finishProcessing();
+		events = eventList.toArray(new Event[0]);
+		System.out.printf("%n%,d links, %,d events%n", network.getLinks().size(), events.length);
+	}
+
+	@Benchmark
+	public double replayEvents() {
+		TravelTimeCalculator.Builder builder = new TravelTimeCalculator.Builder(network);
+		builder.setCalculateLinkToLinkTravelTimes(linkToLinkTravelTimes);
+		TravelTimeCalculator calculator = builder.build();
+		EventsManager eventsManager = new SingleHandlerEventsManager(calculator);
+		for (Event event : events) {
+			eventsManager.processEvent(event);
+		}
+		calculator.consolidateAllData(numberOfThreads);
+
+		double sum = 0;
+		for (Link link : network.getLinks().values()) {
+			for (double time = 0; time < 30 * 3600; time += 900) {
+				sum += calculator.getLinkTravelTimes().getLinkTravelTime(link, time, null, null);
+			}
+			if (linkToLinkTravelTimes) {
+				for (Link toLink : link.getToNode().getOutLinks().values()) {
+					sum += calculator.getLinkToLinkTravelTimes().getLinkToLinkTravelTime(link, toLink, 8 * 3600, null, null);
+				}
+			}
+		}
+		return sum;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(TravelTimeCalculatorBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -42,13 +42,14 @@ import org.matsim.contrib.dvrp.fleet.DvrpVehicle;
 import org.matsim.contrib.dvrp.fleet.Fleet;
 import org.matsim.contrib.dvrp.optimizer.Request;
 import org.matsim.contrib.dvrp.schedule.ScheduleTimingUpdater;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
 import org.matsim.core.mobsim.framework.MobsimTimer;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
 
 /**
  * @author michalm
  */
-public class DefaultDrtOptimizer implements DrtOptimizer {
+public class DefaultDrtOptimizer implements DrtOptimizer, HasNextEventTime {
 	private static final Logger log = LogManager.getLogger(DefaultDrtOptimizer.class);
 
 	private final DrtConfigGroup drtCfg;
@@ -106,6 +107,27 @@ public class DefaultDrtOptimizer implements DrtOptimizer {
 		}
 	}
 
+	@Override
+	public double getNextEventTime() {
+		if (!unplannedRequests.isEmpty()) {
+			return Double.NEGATIVE_INFINITY;
+		}
+
+		double now = mobsimTimer.getTimeOfDay();
+		double nextEventTime = insertionRetryQueue.getNextRetryTime();
+		if (drtCfg.idleVehiclesReturnToDepots) {
+			nextEventTime = Math.min(nextEventTime, getNextMultiple(now, drtCfg.returnToDepotEvaluationInterval));
+		}
+		if (rebalancingInterval != null) {
+			nextEventTime = Math.min(nextEventTime, getNextMultiple(now, rebalancingInterval));
+		}
+		return nextEventTime;
+	}
+
+	private static double getNextMultiple(double time, double interval) {
+		return Math.ceil(time / interval) * interval;
+	}
+
 	private void rebalanceFleet() {
 		// right now we relocate only idle vehicles (vehicles that are being relocated cannot be relocated)
 		Stream<? extends DvrpVehicle> rebalancableVehicles = fleet.getVehicles().values().stream().filter(scheduleInquiry::isIdle);
@@ -53,6 +53,10 @@ public class DrtRequestInsertionRetryQueue {
 		return !requestQueue.isEmpty() && requestQueue.getFirst().lastAttemptTime <= maxLastAttemptTimeForRetry;
 	}
 
+	public double getNextRetryTime() {
+		return requestQueue.isEmpty() ? Double.POSITIVE_INFINITY : requestQueue.getFirst().lastAttemptTime + params.retryInterval;
+	}
+
 	public List<DrtRequest> getRequestsToRetryNow(double now) {
 		List<DrtRequest> requests = new ArrayList<>();
 		while (hasRequestsToRetryNow(now)) {
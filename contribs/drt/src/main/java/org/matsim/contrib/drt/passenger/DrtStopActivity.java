@@ -65,6 +65,12 @@ public class DrtStopActivity extends FirstLastSimStepDynActivity implements Pass
 		return passengersPickedUp == pickupRequests.size() && now >= endTime.get();
 	}
 
+	@Override
+	protected double getNextLastStepTime() {
+		// the passengers are picked up at the end time, late ones in notifyPassengersAreReadyForDeparture()
+		return endTime.get();
+	}
+
 	@Override
 	protected void beforeFirstStep(double now) {
 		// TODO probably we should simulate it more accurately (passenger by passenger, not all at once...)
@@ -19,6 +19,7 @@ import org.matsim.contrib.dvrp.optimizer.Request;
 import org.matsim.contrib.dvrp.optimizer.VrpOptimizer;
 import org.matsim.contrib.dvrp.passenger.*;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimAgent.State;
 import org.matsim.core.mobsim.framework.MobsimTimer;
@@ -50,8 +51,9 @@ import java.util.concurrent.atomic.AtomicInteger;
  *
  * @author Sebastian Hörl (sebhoerl), IRT SystemX
  */
-public class PrebookingManager implements MobsimEngine, MobsimAfterSimStepListener, AdvanceRequestProvider,
-		PassengerRequestScheduledEventHandler, PassengerRequestRejectedEventHandler, PersonStuckEventHandler {
+public class PrebookingManager implements MobsimEngine, MobsimAfterSimStepListener, HasNextEventTime,
+		AdvanceRequestProvider, PassengerRequestScheduledEventHandler, PassengerRequestRejectedEventHandler,
+		PersonStuckEventHandler {
 	private final String mode;
 
 	private final Network network;
@@ -447,6 +449,14 @@ public class PrebookingManager implements MobsimEngine, MobsimAfterSimStepListen
 		processBookingQueue(now);
 	}
 
+	@Override
+	public double getNextEventTime() {
+		// whatever came in after notifyMobsimAfterSimStep() is processed in the next time step
+		boolean idle = scheduledEvents.isEmpty() && rejectedEventIds.isEmpty() && stuckPersonsIds.isEmpty()
+				&& rejections.isEmpty() && bookingQueue.isEmpty() && cancelQueue.isEmpty() && abandonQueue.isEmpty();
+		return idle ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+	}
+
 	@Override
 	public void afterSim() {
 		eventsManager.removeHandler(this);
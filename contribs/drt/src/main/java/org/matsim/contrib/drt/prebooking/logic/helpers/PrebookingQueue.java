@@ -5,6 +5,7 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.contrib.drt.prebooking.PrebookingManager;
 import org.matsim.contrib.dvrp.passenger.PassengerGroupIdentifier;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimPassengerAgent;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
@@ -21,7 +22,7 @@ import java.util.*;
  *
  * @author Sebastian Hörl (sebhoerl), IRT SystemX
  */
-public class PrebookingQueue implements MobsimBeforeSimStepListener {
+public class PrebookingQueue implements MobsimBeforeSimStepListener, HasNextEventTime {
 	private final PrebookingManager prebookingManager;
 
 	private PriorityQueue<ScheduledSubmission> queue = new PriorityQueue<>();
@@ -41,6 +42,13 @@ public class PrebookingQueue implements MobsimBeforeSimStepListener {
 		performSubmissions(event.getSimulationTime());
 	}
 
+	@Override
+	public double getNextEventTime() {
+		synchronized (queue) {
+			return queue.isEmpty() ? Double.POSITIVE_INFINITY : queue.peek().submissionTime;
+		}
+	}
+
 	private void performSubmissions(double time) {
 		currentTime = time;
 
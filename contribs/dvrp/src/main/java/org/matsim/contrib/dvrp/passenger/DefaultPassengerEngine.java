@@ -34,6 +34,7 @@ import org.matsim.contrib.dvrp.optimizer.Request;
 import org.matsim.contrib.dvrp.optimizer.VrpOptimizer;
 import org.matsim.contrib.dvrp.run.DvrpModes;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimDriverAgent;
 import org.matsim.core.mobsim.framework.MobsimPassengerAgent;
@@ -50,7 +51,7 @@ import jakarta.inject.Provider;
 /**
  * @author Michal Maciejewski (michalm)
  */
-public final class DefaultPassengerEngine implements PassengerEngine, PassengerRequestRejectedEventHandler {
+public final class DefaultPassengerEngine implements PassengerEngine, PassengerRequestRejectedEventHandler, HasNextEventTime {
 
 	private final String mode;
 	private final Set<String> departureModes;
@@ -141,6 +142,21 @@ public final class DefaultPassengerEngine implements PassengerEngine, PassengerR
 		}
 	}
 
+	@Override
+	public double getNextEventTime() {
+		// group departures and rejections are handled in the time step after they came in
+		if (!groupDepartureStage.isEmpty()) {
+			return Double.NEGATIVE_INFINITY;
+		}
+		// rejections of prebooked requests wait until their passengers have departed
+		for (PassengerRequestRejectedEvent event : rejectedRequestsEvents) {
+			if (activePassengers.containsKey(event.getRequestId())) {
+				return Double.NEGATIVE_INFINITY;
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
 	private void handleGroupDepartures(double now) {
 
 		groupDepartureStage.values().forEach(g -> g.sort(Comparator.comparing(Identifiable::getId)));
@@ -50,6 +50,11 @@ public class MultiPassengerDropoffActivity extends FirstLastSimStepDynActivity {
 		return now >= departureTime;
 	}
 
+	@Override
+	protected double getNextLastStepTime() {
+		return departureTime;
+	}
+
 	@Override
 	protected void afterLastStep(double now) {
 		// dropoff at the end of stop activity
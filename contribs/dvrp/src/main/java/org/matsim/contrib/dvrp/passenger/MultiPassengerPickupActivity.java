@@ -56,6 +56,12 @@ public class MultiPassengerPickupActivity extends FirstLastSimStepDynActivity im
 		return requestsPickedUp == requests.size() && now >= expectedEndTime;
 	}
 
+	@Override
+	protected double getNextLastStepTime() {
+		// the remaining passengers board in notifyPassengersAreReadyForDeparture()
+		return requestsPickedUp == requests.size() ? expectedEndTime : Double.POSITIVE_INFINITY;
+	}
+
 	@Override
 	protected void beforeFirstStep(double now) {
 		for (PassengerRequest request : requests.values()) {
@@ -46,6 +46,11 @@ public class SinglePassengerDropoffActivity extends FirstLastSimStepDynActivity
 		return now >= departureTime;
 	}
 
+	@Override
+	protected double getNextLastStepTime() {
+		return departureTime;
+	}
+
 	@Override
 	protected void afterLastStep(double now) {
 		passengerHandler.dropOffPassengers(driver, request.getId(), now);
@@ -52,6 +52,12 @@ public class SinglePassengerPickupActivity extends FirstLastSimStepDynActivity i
 		return passengersAboard && now >= expectedEndTime;
 	}
 
+	@Override
+	protected double getNextLastStepTime() {
+		// the passengers board in notifyPassengersAreReadyForDeparture()
+		return passengersAboard ? expectedEndTime : Double.POSITIVE_INFINITY;
+	}
+
 	@Override
 	protected void beforeFirstStep(double now) {
 		passengersAboard = passengerHandler.tryPickUpPassengers(this, driver, request.getId(), now);
@@ -37,6 +37,7 @@ import org.matsim.api.core.v01.population.Route;
 import org.matsim.contrib.dvrp.optimizer.Request;
 import org.matsim.contrib.dvrp.run.DvrpModes;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimDriverAgent;
 import org.matsim.core.mobsim.framework.MobsimPassengerAgent;
@@ -56,7 +57,7 @@ import com.google.common.base.Verify;
 /**
  * @author Michal Maciejewski (michalm)
  */
-public class TeleportingPassengerEngine implements PassengerEngine, VisData {
+public class TeleportingPassengerEngine implements PassengerEngine, VisData, HasNextEventTime {
 	public static final String ORIGINAL_ROUTE_ATTRIBUTE = "originalRoute";
 
 	public interface TeleportedRouteCalculator {
@@ -128,6 +129,15 @@ public class TeleportingPassengerEngine implements PassengerEngine, VisData {
 		teleportationEngine.doSimStep(time);
 	}
 
+	@Override
+	public double getNextEventTime() {
+		double nextDropoffTime = teleportedRequests.isEmpty() ? Double.POSITIVE_INFINITY : teleportedRequests.peek().getLeft();
+		double nextArrivalTime = teleportationEngine instanceof HasNextEventTime hasNextEventTime ?
+				hasNextEventTime.getNextEventTime() :
+				Double.NEGATIVE_INFINITY;
+		return Math.min(nextDropoffTime, nextArrivalTime);
+	}
+
 	@Override
 	public void afterSim() {
 		teleportationEngine.afterSim();
@@ -52,4 +52,14 @@ public interface DynActivity extends DynAction {
 	// TODO this method may possibly be pulled up to DynAction since even when travelling (either by
 	// PuT or PrT) an agent may think, talk (also on the phone), collaborate etc.
 	void doSimStep(double now);
+
+	/**
+	 * Used by the QSim to skip idle time steps.
+	 *
+	 * @return the earliest time step in which doSimStep() may change the state of this activity, apart from reaching
+	 * {@link #getEndTime()}. By default, every time step.
+	 */
+	default double getNextEventTime() {
+		return Double.NEGATIVE_INFINITY;
+	}
 }
@@ -198,6 +198,10 @@ public final class DynAgent implements MobsimDriverPassengerAgent {
 		dynActivity.doSimStep(now);
 	}
 
+	public double getActivityNextEventTime() {
+		return dynActivity.getNextEventTime();
+	}
+
 	// MobsimAgent
 	@Override
 	public void notifyArrivalOnLinkByNonNetworkMode(Id<Link> linkId) {
@@ -60,8 +60,21 @@ public abstract class FirstLastSimStepDynActivity implements DynActivity {
 		}
 	}
 
+	@Override
+	public final double getNextEventTime() {
+		return beforeFirstStep || afterLastStep ? Double.NEGATIVE_INFINITY : getNextLastStepTime();
+	}
+
 	protected abstract boolean isLastStep(double now);
 
+	/**
+	 * @return the earliest time step in which isLastStep() may become true, or simStep() may act, without being notified
+	 * from outside. By default, every time step.
+	 */
+	protected double getNextLastStepTime() {
+		return Double.NEGATIVE_INFINITY;
+	}
+
 	protected void beforeFirstStep(double now) {
 	}
 
@@ -52,4 +52,9 @@ public final class IdleDynActivity implements DynActivity {
 	@Override
 	public final void doSimStep(double now) {
 	}
+
+	@Override
+	public final double getNextEventTime() {
+		return Double.POSITIVE_INFINITY;
+	}
 }
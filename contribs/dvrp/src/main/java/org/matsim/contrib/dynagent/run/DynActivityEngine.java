@@ -28,6 +28,7 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.contrib.dynagent.DynAgent;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimAgent.State;
 import org.matsim.core.mobsim.qsim.InternalInterface;
@@ -35,11 +36,12 @@ import org.matsim.core.mobsim.qsim.interfaces.ActivityHandler;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
 
 /**
  * DynActivityEngine is not an ActivityEngine (as only one is allowed)
  */
-public class DynActivityEngine implements MobsimEngine, ActivityHandler {
+public class DynActivityEngine implements MobsimEngine, ActivityHandler, HasNextEventTime {
 	public final static String COMPONENT_NAME = "DynActivityEngine";
 
 	private InternalInterface internalInterface;
@@ -77,6 +79,19 @@ public class DynActivityEngine implements MobsimEngine, ActivityHandler {
 		}
 	}
 
+	@Override
+	public double getNextEventTime() {
+		double nextEventTime = Double.POSITIVE_INFINITY;
+		for (DynAgent agent : Iterables.concat(dynAgents, newDynAgents)) {
+			double endTime = agent.getActivityEndTime();
+			if (endTime == Double.POSITIVE_INFINITY) {
+				return Double.NEGATIVE_INFINITY; // the agent is removed in the next time step
+			}
+			nextEventTime = Math.min(nextEventTime, Math.min(endTime, agent.getActivityNextEventTime()));
+		}
+		return nextEventTime;
+	}
+
 	@Override
 	public boolean handleActivity(MobsimAgent agent) {
 		if (!(agent instanceof DynAgent)) {
@@ -10,6 +10,7 @@ import org.matsim.core.utils.pb.*;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -115,10 +116,12 @@ public class EventWriterPB implements EventWriter, BasicEventHandler {
                     .setLegMode(((PersonArrivalEvent) event).getLegMode())
                     .setPersonId(convertId(((PersonArrivalEvent) event).getPersonId()));
         } else if (event instanceof PersonDepartureEvent) {
-            builder.getPersonDepartureBuilder()
+            ProtoEvents.PersonDepartureEvent.Builder departure = builder.getPersonDepartureBuilder()
                     .setLinkId(convertId(((PersonDepartureEvent) event).getLinkId()))
                     .setLegMode(((PersonDepartureEvent) event).getLegMode())
                     .setPersonId(convertId(((PersonDepartureEvent) event).getPersonId()));
+            if (((PersonDepartureEvent) event).getRoutingMode() != null)
+                departure.setRoutingMode(((PersonDepartureEvent) event).getRoutingMode());
         } else if (event instanceof PersonEntersVehicleEvent) {
             builder.getPersonEntersVehicleBuilder()
                     .setVehicleId(convertId(((PersonEntersVehicleEvent) event).getVehicleId()))
@@ -128,16 +131,22 @@ public class EventWriterPB implements EventWriter, BasicEventHandler {
                     .setVehicleId(convertId(((PersonLeavesVehicleEvent) event).getVehicleId()))
                     .setPersonId(convertId(((PersonLeavesVehicleEvent) event).getPersonId()));
         } else if (event instanceof PersonMoneyEvent) {
-            builder.getPersonMoneyBuilder()
+            // the optional strings are not set when missing, protobuf does not accept null
+            ProtoEvents.PersonMoneyEvent.Builder money = builder.getPersonMoneyBuilder()
                     .setPersonId(convertId(((PersonMoneyEvent) event).getPersonId()))
-                    .setAmount(((PersonMoneyEvent) event).getAmount())
-                    .setPurpose(((PersonMoneyEvent) event).getPurpose())
-                    .setTransactionPartner(((PersonMoneyEvent) event).getTransactionPartner());
+                    .setAmount(((PersonMoneyEvent) event).getAmount());
+            if (((PersonMoneyEvent) event).getPurpose() != null)
+                money.setPurpose(((PersonMoneyEvent) event).getPurpose());
+            if (((PersonMoneyEvent) event).getTransactionPartner() != null)
+                money.setTransactionPartner(((PersonMoneyEvent) event).getTransactionPartner());
+            if (((PersonMoneyEvent) event).getReference() != null)
+                money.setReference(((PersonMoneyEvent) event).getReference());
         } else if (event instanceof PersonStuckEvent) {
-            builder.getPersonStuckBuilder()
+            ProtoEvents.PersonStuckEvent.Builder stuck = builder.getPersonStuckBuilder()
                     .setLinkId(convertId(((PersonStuckEvent) event).getLinkId()))
-                    .setPersonId(convertId(((PersonStuckEvent) event).getPersonId()))
-                    .setLegMode(((PersonStuckEvent) event).getLegMode());
+                    .setPersonId(convertId(((PersonStuckEvent) event).getPersonId()));
+            if (((PersonStuckEvent) event).getLegMode() != null)
+                stuck.setLegMode(((PersonStuckEvent) event).getLegMode());
         } else if (event instanceof TransitDriverStartsEvent) {
             builder.getTransitDriverStartsBuilder()
                     .setDriverId(convertId(((TransitDriverStartsEvent) event).getDriverId()))
@@ -164,7 +173,8 @@ public class EventWriterPB implements EventWriter, BasicEventHandler {
                     .setNetworkMode(((VehicleLeavesTrafficEvent) event).getNetworkMode())
                     .setRelativePositionOnLink(((VehicleLeavesTrafficEvent) event).getRelativePositionOnLink());
         } else {
-            Map<String, String> attrs = event.getAttributes();
+            // GenericEvent returns its own map, which must not be modified
+            Map<String, String> attrs = new LinkedHashMap<>(event.getAttributes());
             // Checking references is safe here because they are constant
             attrs.keySet().removeIf(key -> key == Event.ATTRIBUTE_X || key == Event.ATTRIBUTE_Y ||
                     key == Event.ATTRIBUTE_TIME || key == Event.ATTRIBUTE_TYPE);
@@ -0,0 +1,307 @@
+package org.matsim.contrib.protobuf;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.*;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsReaderProvider.EventsStreamReader;
+import org.matsim.core.events.MatsimEventsReader.CustomEventMapper;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.pb.ContentType;
+import org.matsim.core.utils.pb.PBFileHeader;
+import org.matsim.core.utils.pb.ProtoEvents;
+import org.matsim.core.utils.pb.ProtoId;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.vehicles.Vehicle;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads events written by {@link EventWriterPB}.
+ * <p>
+ * The file is read as a stream of length-delimited {@link ProtoEvents.EventBatch} messages. The batches are parsed and
+ * converted on several threads, while the events are passed to the events manager on the calling thread, in the
+ * order they were written.
+ * <p>
+ * Ids that were written as empty string are read as <code>null</code>, as {@link EventWriterPB} writes missing ids
+ * this way. Events that have no message type of their own are read as {@link GenericEvent}, custom event mappers are
+ * applied to them as for the other events formats.
+ */
+public final class EventsReaderPB implements EventsStreamReader {
+
+    private static final Logger log = LogManager.getLogger(EventsReaderPB.class);
+
+    private final EventsManager events;
+
+    private final Map<String, CustomEventMapper> customEventMappers = new HashMap<>();
+
+    private int numberOfThreads = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    public EventsReaderPB(EventsManager events) {
+        this.events = events;
+    }
+
+    /**
+     * Used by {@link EventsReaderPBProvider}, so that {@link org.matsim.core.events.MatsimEventsReader} can read
+     * protobuf events.
+     */
+    public EventsReaderPB(EventsManager events, Map<String, CustomEventMapper> customEventMappers) {
+        this.events = events;
+        this.customEventMappers.putAll(customEventMappers);
+    }
+
+    public void addCustomEventMapper(String eventType, CustomEventMapper cem) {
+        this.customEventMappers.put(eventType, cem);
+    }
+
+    /**
+     * @param numberOfThreads number of threads converting batches, 1 converts them on the calling thread.
+     */
+    public void setNumberOfThreads(int numberOfThreads) {
+        if (numberOfThreads < 1)
+            throw new IllegalArgumentException("numberOfThreads must be positive: " + numberOfThreads);
+
+        this.numberOfThreads = numberOfThreads;
+    }
+
+    @Override
+    public void readFile(String filename) {
+        readURL(IOUtils.getFileUrl(filename));
+    }
+
+    @Override
+    public void readURL(URL url) {
+        try (InputStream in = IOUtils.getInputStream(url)) {
+            readStream(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads all events from the stream, which is not closed afterwards.
+     */
+    @Override
+    public void readStream(InputStream in) {
+        try {
+            PBFileHeader header = PBFileHeader.parseDelimitedFrom(in);
+            if (header == null || header.getContentType() != ContentType.EVENTS)
+                throw new IllegalArgumentException("Stream does not contain protobuf events.");
+            if (header.getVersion() > PBVersion.EVENTS)
+                throw new IllegalArgumentException("Unsupported events version " + header.getVersion() + ", supported up to " + PBVersion.EVENTS);
+
+            if (numberOfThreads == 1) {
+                byte[] batch;
+                while ((batch = nextBatch(in)) != null) {
+                    process(convertBatch(batch));
+                }
+            } else {
+                readParallel(in);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void readParallel(InputStream in) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads, r -> {
+            Thread thread = new Thread(r, "EventsReaderPB");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // only parse a few batches ahead, to limit the memory use
+            ArrayDeque<Future<Event[]>> pending = new ArrayDeque<>();
+            boolean endOfStream = false;
+            while (!endOfStream || !pending.isEmpty()) {
+                while (!endOfStream && pending.size() < 2 * numberOfThreads) {
+                    byte[] batch = nextBatch(in);
+                    if (batch == null)
+                        endOfStream = true;
+                    else
+                        pending.add(executor.submit(() -> convertBatch(batch)));
+                }
+                if (!pending.isEmpty())
+                    process(pending.poll().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the raw bytes of the next length-delimited batch.
+     *
+     * @return null at the end of the stream
+     */
+    private static byte[] nextBatch(InputStream in) throws IOException {
+        int first = in.read();
+        if (first == -1)
+            return null;
+
+        int size = CodedInputStream.readRawVarint32(first, in);
+        byte[] data = in.readNBytes(size);
+        if (data.length != size)
+            throw new IOException("Unexpected end of protobuf events stream.");
+
+        return data;
+    }
+
+    private static Event[] convertBatch(byte[] data) {
+        try {
+            ProtoEvents.EventBatch batch = ProtoEvents.EventBatch.parseFrom(data);
+            Event[] result = new Event[batch.getEventsCount()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = convertEvent(batch.getEvents(i));
+            }
+            return result;
+        } catch (InvalidProtocolBufferException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void process(Event[] batch) {
+        for (Event event : batch) {
+            if (event instanceof GenericEvent) {
+                CustomEventMapper cem = customEventMappers.get(event.getEventType());
+                if (cem != null)
+                    event = cem.apply((GenericEvent) event);
+            }
+            events.processEvent(event);
+        }
+    }
+
+    /**
+     * Converts a protobuf event back to a MATSim event, the counterpart of {@link EventWriterPB#convertEvent(Event)}.
+     */
+    public static Event convertEvent(ProtoEvents.Event event) {
+
+        double time = event.getTime();
+        Coord coord = event.hasCoords() ? new Coord(event.getCoords().getX(), event.getCoords().getY()) : null;
+
+        switch (event.getTypeCase()) {
+            case ACTIVITYEND: {
+                ProtoEvents.ActivityEndEvent e = event.getActivityEnd();
+                return new ActivityEndEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getLinkId(), Link.class),
+                        convertId(e.getFacilityId(), ActivityFacility.class), e.getActtype(), coord);
+            }
+            case ACTIVITYSTART: {
+                ProtoEvents.ActivityStartEvent e = event.getActivityStart();
+                return new ActivityStartEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getLinkId(), Link.class),
+                        convertId(e.getFacilityId(), ActivityFacility.class), e.getActtype(), coord);
+            }
+            case LINKENTER: {
+                ProtoEvents.LinkEnterEvent e = event.getLinkEnter();
+                return new LinkEnterEvent(time, convertId(e.getVehicleId(), Vehicle.class), convertId(e.getLinkId(), Link.class));
+            }
+            case LINKLEAVE: {
+                ProtoEvents.LinkLeaveEvent e = event.getLinkLeave();
+                return new LinkLeaveEvent(time, convertId(e.getVehicleId(), Vehicle.class), convertId(e.getLinkId(), Link.class));
+            }
+            case PERSONALARRIVAL: {
+                ProtoEvents.PersonArrivalEvent e = event.getPersonalArrival();
+                return new PersonArrivalEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getLinkId(), Link.class),
+                        e.getLegMode().intern());
+            }
+            case PERSONDEPARTURE: {
+                ProtoEvents.PersonDepartureEvent e = event.getPersonDeparture();
+                return new PersonDepartureEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getLinkId(), Link.class),
+                        e.getLegMode().intern(), convertString(e.getRoutingMode()));
+            }
+            case PERSONENTERSVEHICLE: {
+                ProtoEvents.PersonEntersVehicleEvent e = event.getPersonEntersVehicle();
+                return new PersonEntersVehicleEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getVehicleId(), Vehicle.class));
+            }
+            case PERSONLEAVESVEHICLE: {
+                ProtoEvents.PersonLeavesVehicleEvent e = event.getPersonLeavesVehicle();
+                return new PersonLeavesVehicleEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getVehicleId(), Vehicle.class));
+            }
+            case PERSONMONEY: {
+                ProtoEvents.PersonMoneyEvent e = event.getPersonMoney();
+                return new PersonMoneyEvent(time, convertId(e.getPersonId(), Person.class), e.getAmount(),
+                        convertString(e.getPurpose()), convertString(e.getTransactionPartner()), convertString(e.getReference()));
+            }
+            case PERSONSTUCK: {
+                ProtoEvents.PersonStuckEvent e = event.getPersonStuck();
+                return new PersonStuckEvent(time, convertId(e.getPersonId(), Person.class), convertId(e.getLinkId(), Link.class),
+                        convertString(e.getLegMode()));
+            }
+            case TRANSITDRIVERSTARTS: {
+                ProtoEvents.TransitDriverStartsEvent e = event.getTransitDriverStarts();
+                return new TransitDriverStartsEvent(time, convertId(e.getDriverId(), Person.class), convertId(e.getVehicleId(), Vehicle.class),
+                        convertId(e.getTransitLineId(), TransitLine.class), convertId(e.getTransitRouteId(), TransitRoute.class),
+                        convertId(e.getDepartureId(), Departure.class));
+            }
+            case VEHICLEABORTS: {
+                ProtoEvents.VehicleAbortsEvent e = event.getVehicleAborts();
+                return new VehicleAbortsEvent(time, convertId(e.getVehicleId(), Vehicle.class), convertId(e.getLinkId(), Link.class));
+            }
+            case VEHICLEENTERSTRAFFIC: {
+                ProtoEvents.VehicleEntersTrafficEvent e = event.getVehicleEntersTraffic();
+                return new VehicleEntersTrafficEvent(time, convertId(e.getDriverId(), Person.class), convertId(e.getLinkId(), Link.class),
+                        convertId(e.getVehicleId(), Vehicle.class), e.getNetworkMode().intern(), e.getRelativePositionOnLink());
+            }
+            case VEHICLELEAVESTRAFFIC: {
+                ProtoEvents.VehicleLeavesTrafficEvent e = event.getVehicleLeavesTraffic();
+                return new VehicleLeavesTrafficEvent(time, convertId(e.getDriverId(), Person.class), convertId(e.getLinkId(), Link.class),
+                        convertId(e.getVehicleId(), Vehicle.class), e.getNetworkMode().intern(), e.getRelativePositionOnLink());
+            }
+            case GENERIC: {
+                ProtoEvents.GenericEvent e = event.getGeneric();
+                GenericEvent generic = new GenericEvent(e.getType(), time);
+                generic.getAttributes().putAll(e.getAttrsMap());
+                if (coord != null) {
+                    generic.getAttributes().put(Event.ATTRIBUTE_X, Double.toString(coord.getX()));
+                    generic.getAttributes().put(Event.ATTRIBUTE_Y, Double.toString(coord.getY()));
+                }
+                return generic;
+            }
+            default:
+                log.warn("Event without type at time " + time + ", reading it as generic event.");
+                return new GenericEvent("unknown", time);
+        }
+    }
+
+    /**
+     * Convert a protobuf id back to an id of the given type.
+     *
+     * @return null for the default instance or an empty id, see {@link EventWriterPB#convertId(Id)}
+     */
+    public static <T> Id<T> convertId(ProtoId id, Class<T> type) {
+        if (id.getId().isEmpty())
+            return null;
+
+        return Id.create(id.getId(), type);
+    }
+
+    private static String convertString(String value) {
+        return value.isEmpty() ? null : value.intern();
+    }
+
+}
@@ -0,0 +1,24 @@
+package org.matsim.contrib.protobuf;
+
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ControllerConfigGroup.EventsFileFormat;
+import org.matsim.core.events.EventsReaderProvider;
+import org.matsim.core.events.MatsimEventsReader.CustomEventMapper;
+
+import java.util.Map;
+
+/**
+ * Lets {@link org.matsim.core.events.MatsimEventsReader} read protobuf events with {@link EventsReaderPB}.
+ */
+public final class EventsReaderPBProvider implements EventsReaderProvider {
+
+    @Override
+    public EventsFileFormat getFormat() {
+        return EventsFileFormat.pb;
+    }
+
+    @Override
+    public EventsStreamReader createReader(EventsManager events, Map<String, CustomEventMapper> customEventMappers) {
+        return new EventsReaderPB(events, customEventMappers);
+    }
+}
@@ -0,0 +1,117 @@
+package org.matsim.contrib.protobuf;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.*;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EventsReaderPBTest {
+
+    @RegisterExtension
+    public MatsimTestUtils utils = new MatsimTestUtils();
+
+    @Test
+    void roundTrip() throws IOException {
+        List<Event> events = createEvents();
+        String filename = write(events, "events.pb");
+
+        assertThat(toStrings(read(filename, 1))).isEqualTo(toStrings(events));
+        assertThat(toStrings(read(filename, 4))).isEqualTo(toStrings(events));
+    }
+
+    @Test
+    void matsimEventsReader() throws IOException {
+        List<Event> events = createEvents();
+        String filename = write(events, "events.pb.gz");
+
+        EventsManager manager = EventsUtils.createEventsManager();
+        EventsCollector collector = new EventsCollector();
+        manager.addHandler(collector);
+        manager.initProcessing();
+        MatsimEventsReader reader = new MatsimEventsReader(manager);
+        reader.addCustomEventMapper("custom", e -> new PersonStuckEvent(e.getTime(), Id.createPersonId(e.getAttributes().get("person")), null, null));
+        reader.readFile(filename);
+        manager.finishProcessing();
+
+        List<Event> read = new ArrayList<>(collector.getEvents());
+        assertThat(read).hasSize(events.size());
+        assertThat(read.get(read.size() - 1))
+                .isInstanceOf(PersonStuckEvent.class)
+                .extracting(e -> ((PersonStuckEvent) e).getPersonId().toString())
+                .isEqualTo("p7");
+    }
+
+    private String write(List<Event> events, String name) throws IOException {
+        File file = new File(utils.getOutputDirectory() + name);
+        EventWriterPB writer = new EventWriterPB(IOUtils.getOutputStream(file.toURI().toURL(), false));
+        events.forEach(writer::handleEvent);
+        writer.closeFile();
+        return file.getPath();
+    }
+
+    private static List<Event> read(String filename, int threads) {
+        EventsManager manager = EventsUtils.createEventsManager();
+        EventsCollector collector = new EventsCollector();
+        manager.addHandler(collector);
+        manager.initProcessing();
+        EventsReaderPB reader = new EventsReaderPB(manager);
+        reader.setNumberOfThreads(threads);
+        reader.readFile(filename);
+        manager.finishProcessing();
+        return new ArrayList<>(collector.getEvents());
+    }
+
+    /**
+     * More events than fit into one batch, so several batches are decoded.
+     */
+    private static List<Event> createEvents() {
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            Id<Person> person = Id.createPersonId("p" + (i % 17));
+            events.add(new LinkEnterEvent(i, Id.createVehicleId(i % 5), Id.createLinkId(i % 11)));
+            events.add(new LinkLeaveEvent(i + 0.5, Id.createVehicleId(i % 5), Id.createLinkId(i % 11)));
+            if (i % 100 == 0) {
+                events.add(new ActivityEndEvent(i, person, Id.createLinkId(1), Id.create("f", ActivityFacility.class), "home", new Coord(1, 2)));
+                events.add(new PersonDepartureEvent(i, person, Id.createLinkId(1), "car", "car"));
+                events.add(new VehicleEntersTrafficEvent(i, person, Id.createLinkId(1), Id.createVehicleId(1), "car", 1.0));
+                events.add(new VehicleLeavesTrafficEvent(i, person, Id.createLinkId(2), Id.createVehicleId(1), "car", 1.0));
+                events.add(new PersonArrivalEvent(i, person, Id.createLinkId(2), "car"));
+                events.add(new ActivityStartEvent(i, person, Id.createLinkId(2), null, "work", null));
+                events.add(new PersonMoneyEvent(i, person, -2.5, "toll", null, null));
+                events.add(new PersonStuckEvent(i, person, null, "walk"));
+                events.add(new PersonEntersVehicleEvent(i, person, Id.createVehicleId(1)));
+                events.add(new PersonLeavesVehicleEvent(i, person, Id.createVehicleId(1)));
+                events.add(new VehicleAbortsEvent(i, Id.createVehicleId(1), Id.createLinkId(2)));
+                events.add(new TransitDriverStartsEvent(i, person, Id.createVehicleId("bus"), Id.create("l", TransitLine.class),
+                        Id.create("r", TransitRoute.class), Id.create("d", Departure.class)));
+            }
+        }
+        GenericEvent custom = new GenericEvent("custom", 3000);
+        custom.getAttributes().put("person", "p7");
+        events.add(custom);
+        return events;
+    }
+
+    private static List<String> toStrings(List<Event> events) {
+        return events.stream().map(Event::toString).toList();
+    }
+}
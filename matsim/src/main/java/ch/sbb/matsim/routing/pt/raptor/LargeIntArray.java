@@ -0,0 +1,118 @@
+/* *********************************************************************** *
+ * project: org.matsim.* 												   *
+ *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package ch.sbb.matsim.routing.pt.raptor;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An array of ints, split into chunks so that it can hold more values than a Java array, and be backed either by the
+ * heap or by a read-only memory mapping of a file. The pages of a mapped file are shared by all processes that map it.
+ */
+final class LargeIntArray {
+
+    private static final int CHUNK_SHIFT = 28; // 1 GB per chunk, a single mapping must be smaller than 2 GB
+
+    private final IntBuffer[] chunks;
+    private final long length;
+    private final int chunkShift;
+    private final long chunkMask;
+
+    private LargeIntArray(IntBuffer[] chunks, long length, int chunkShift) {
+        this.chunks = chunks;
+        this.length = length;
+        this.chunkShift = chunkShift;
+        this.chunkMask = (1L << chunkShift) - 1;
+    }
+
+    static LargeIntArray allocate(long length) {
+        return allocate(length, CHUNK_SHIFT);
+    }
+
+    static LargeIntArray allocate(long length, int chunkShift) {
+        IntBuffer[] chunks = new IntBuffer[countChunks(length, chunkShift)];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = IntBuffer.wrap(new int[(int) chunkLength(length, i, chunkShift)]);
+        }
+        return new LargeIntArray(chunks, length, chunkShift);
+    }
+
+    /**
+     * Maps <code>length</code> little endian ints, starting at byte <code>position</code> of the file. The mapping stays
+     * valid after the channel is closed.
+     */
+    static LargeIntArray map(FileChannel channel, long position, long length) throws IOException {
+        return map(channel, position, length, CHUNK_SHIFT);
+    }
+
+    static LargeIntArray map(FileChannel channel, long position, long length, int chunkShift) throws IOException {
+        IntBuffer[] chunks = new IntBuffer[countChunks(length, chunkShift)];
+        for (int i = 0; i < chunks.length; i++) {
+            long chunkPosition = position + ((long) i << chunkShift) * Integer.BYTES;
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, chunkPosition, chunkLength(length, i, chunkShift) * Integer.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        }
+        return new LargeIntArray(chunks, length, chunkShift);
+    }
+
+    private static int countChunks(long length, int chunkShift) {
+        return (int) ((length + (1L << chunkShift) - 1) >>> chunkShift);
+    }
+
+    private static long chunkLength(long length, int chunk, int chunkShift) {
+        return Math.min(1L << chunkShift, length - ((long) chunk << chunkShift));
+    }
+
+    long length() {
+        return this.length;
+    }
+
+    int get(long index) {
+        return this.chunks[(int) (index >>> this.chunkShift)].get((int) (index & this.chunkMask));
+    }
+
+    void set(long index, int value) {
+        this.chunks[(int) (index >>> this.chunkShift)].put((int) (index & this.chunkMask), value);
+    }
+
+    /**
+     * Same as {@link java.util.Arrays#binarySearch(int[], int, int, int)} for values sorted ascending between
+     * <code>fromIndex</code> (inclusive) and <code>toIndex</code> (exclusive).
+     */
+    int binarySearch(int fromIndex, int toIndex, int key) {
+        int low = fromIndex;
+        int high = toIndex - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midValue = get(mid);
+            if (midValue < key) {
+                low = mid + 1;
+            } else if (midValue > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+}
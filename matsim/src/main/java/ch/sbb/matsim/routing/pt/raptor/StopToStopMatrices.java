@@ -0,0 +1,199 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package ch.sbb.matsim.routing.pt.raptor;
+
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorCore.TravelInfo;
+import org.matsim.api.core.v01.Id;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stop-to-stop matrices for a departure time window: the average travel time (including the waiting time at the
+ * departure stop), the average number of transfers, and the number of different connections.
+ * <p>
+ * One profile tree (see {@link SwissRailRaptorCore#calcLeastCostTreeProfile}) is calculated per departure stop, which
+ * covers all departure times within the time window at once. The departure stops are distributed over multiple threads,
+ * which all share the same {@link SwissRailRaptorData}.
+ * <p>
+ * <p>
+ * The averages are taken over all departure times within the time window for which the arrival stop can be reached.
+ * If it cannot be reached at all, the matrix cells contain "Infinity" for the travel time and transfers, and "0" for
+ * the number of connections.
+ */
+public final class StopToStopMatrices {
+
+    private final List<TransitStopFacility> fromStops;
+    private final List<TransitStopFacility> toStops;
+    private final float[] travelTimes;
+    private final float[] transferCounts;
+    private final float[] connectionCounts;
+
+    private StopToStopMatrices(List<TransitStopFacility> fromStops, List<TransitStopFacility> toStops) {
+        this.fromStops = fromStops;
+        this.toStops = toStops;
+        int size = Math.multiplyExact(fromStops.size(), toStops.size());
+        this.travelTimes = new float[size];
+        this.transferCounts = new float[size];
+        this.connectionCounts = new float[size];
+    }
+
+    /**
+     * Calculates the matrices with the default in-vehicle and transfer cost calculators, see
+     * {@link #calculate(SwissRailRaptorData, List, List, double, double, RaptorParameters, RaptorInVehicleCostCalculator, RaptorTransferCostCalculator, int)}.
+     */
+    public static StopToStopMatrices calculate(SwissRailRaptorData data, List<TransitStopFacility> fromStops, List<TransitStopFacility> toStops,
+            double earliestDepartureTime, double latestDepartureTime, RaptorParameters parameters, int numberOfThreads) {
+        return calculate(data, fromStops, toStops, earliestDepartureTime, latestDepartureTime, parameters,
+                new DefaultRaptorInVehicleCostCalculator(), new DefaultRaptorTransferCostCalculator(), numberOfThreads);
+    }
+
+    /**
+     * Calculates the matrices for all departure times between the earliest and latest departure time.
+     * <p>
+     * The calculation is single-criterion: as the profile only keeps the least cost journey per departure time, the
+     * matrices describe the least cost connections. Connections with e.g. fewer transfers but higher costs are not
+     * counted, so the results approximate, but are not, a full (Pareto) profile over travel time and transfers.
+     *
+     * @param inVehicleCostCalculator used by all threads, so it must be thread-safe.
+     * @param transferCostCalculator used by all threads, so it must be thread-safe.
+     * @throws ArithmeticException if the matrices have more than {@link Integer#MAX_VALUE} cells.
+     */
+    public static StopToStopMatrices calculate(SwissRailRaptorData data, List<TransitStopFacility> fromStops, List<TransitStopFacility> toStops,
+            double earliestDepartureTime, double latestDepartureTime, RaptorParameters parameters,
+            RaptorInVehicleCostCalculator inVehicleCostCalculator, RaptorTransferCostCalculator transferCostCalculator, int numberOfThreads) {
+        StopToStopMatrices matrices = new StopToStopMatrices(fromStops, toStops);
+        AtomicInteger nextRow = new AtomicInteger(0);
+
+        int threadCount = Math.max(1, numberOfThreads);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount, r -> {
+            Thread thread = new Thread(r, "StopToStopMatrices");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(threadCount);
+            for (int i = 0; i < threadCount; i++) {
+                // each thread needs its own core, but the data is shared
+                SwissRailRaptorCore raptor = new SwissRailRaptorCore(data, inVehicleCostCalculator, transferCostCalculator);
+                futures.add(executor.submit(() -> {
+                    int row;
+                    while ((row = nextRow.getAndIncrement()) < fromStops.size()) {
+                        matrices.calcRow(row, raptor, earliestDepartureTime, latestDepartureTime, parameters);
+                    }
+                }));
+            }
+            // wait until all threads have finished, and pass on the first failure
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return matrices;
+    }
+
+    private void calcRow(int row, SwissRailRaptorCore raptor, double earliestDepartureTime, double latestDepartureTime, RaptorParameters parameters) {
+        InitialStop fromStop = new InitialStop(this.fromStops.get(row), 0, 0, 0, null);
+        Map<Id<TransitStopFacility>, List<TravelInfo>> profile = raptor.calcLeastCostTreeProfile(earliestDepartureTime, latestDepartureTime, Collections.singletonList(fromStop), parameters, null);
+
+        for (int col = 0; col < this.toStops.size(); col++) {
+            int index = row * this.toStops.size() + col;
+            List<TravelInfo> journeys = profile.get(this.toStops.get(col).getId());
+            double duration = 0;
+            double travelTimeSum = 0;
+            double transferSum = 0;
+            int connections = 0;
+            if (journeys != null) {
+                // each journey is the best one for departures after the previous journey's departure up to its own one
+                double previousDepartureTime = earliestDepartureTime;
+                for (TravelInfo journey : journeys) {
+                    double departureTime = journey.ptDepartureTime - journey.waitingTime - journey.accessTime;
+                    double from = Math.max(previousDepartureTime, earliestDepartureTime);
+                    double to = Math.min(departureTime, latestDepartureTime);
+                    previousDepartureTime = departureTime;
+                    if (journey.isWalkOnly()) {
+                        // walking can start at any time, so there is no waiting
+                        if (to > from) {
+                            duration += to - from;
+                            travelTimeSum += (to - from) * (journey.ptArrivalTime - departureTime);
+                        }
+                        continue;
+                    }
+                    if (journey.ptDepartureTime <= latestDepartureTime) {
+                        connections++;
+                    }
+                    if (to > from) {
+                        duration += to - from;
+                        // integral of (arrival - t) for t from "from" to "to"
+                        travelTimeSum += (to - from) * (journey.ptArrivalTime - (from + to) / 2);
+                        transferSum += (to - from) * journey.transferCount;
+                    }
+                }
+            }
+            if (duration > 0) {
+                this.travelTimes[index] = (float) (travelTimeSum / duration);
+                this.transferCounts[index] = (float) (transferSum / duration);
+            } else {
+                this.travelTimes[index] = Float.POSITIVE_INFINITY;
+                this.transferCounts[index] = Float.POSITIVE_INFINITY;
+            }
+            this.connectionCounts[index] = connections;
+        }
+    }
+
+    public List<TransitStopFacility> getFromStops() {
+        return this.fromStops;
+    }
+
+    public List<TransitStopFacility> getToStops() {
+        return this.toStops;
+    }
+
+    /** @return the average travel time in seconds, including the waiting time at the departure stop. */
+    public float getTravelTime(int fromIndex, int toIndex) {
+        return this.travelTimes[fromIndex * this.toStops.size() + toIndex];
+    }
+
+    public float getTransferCount(int fromIndex, int toIndex) {
+        return this.transferCounts[fromIndex * this.toStops.size() + toIndex];
+    }
+
+    /** @return the number of different least cost connections departing within the time window. */
+    public float getConnectionCount(int fromIndex, int toIndex) {
+        return this.connectionCounts[fromIndex * this.toStops.size() + toIndex];
+    }
+}
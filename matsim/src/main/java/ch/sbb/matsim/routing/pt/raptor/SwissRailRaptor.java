@@ -60,6 +60,8 @@ public class SwissRailRaptor implements TransitRouter {
     private final RaptorParametersForPerson parametersForPerson;
     private final RaptorRouteSelector defaultRouteSelector;
     private final RaptorStopFinder stopFinder;
+    private final RaptorInVehicleCostCalculator inVehicleCostCalculator;
+    private final RaptorTransferCostCalculator transferCostCalculator;
 
     private boolean treeWarningShown = false;
 
@@ -74,6 +76,8 @@ public class SwissRailRaptor implements TransitRouter {
         this.parametersForPerson = parametersForPerson;
         this.defaultRouteSelector = routeSelector;
         this.stopFinder = stopFinder;
+        this.inVehicleCostCalculator = inVehicleCostCalculator;
+        this.transferCostCalculator = transferCostCalculator;
     }
 
     @Override
@@ -232,6 +236,31 @@ public class SwissRailRaptor implements TransitRouter {
         return this.calcLeastCostTree(accessStops, departureTime, parameters, person);
     }
 
+    /**
+     * Calculates the least cost journeys from the given stops to all stops for every departure time within the time
+     * window, see {@link SwissRailRaptorCore#calcLeastCostTreeProfile(double, double, Collection, RaptorParameters, Person)}.
+     */
+    public Map<Id<TransitStopFacility>, List<SwissRailRaptorCore.TravelInfo>> calcTreeProfile(Collection<TransitStopFacility> fromStops, double earliestDepartureTime, double latestDepartureTime, RaptorParameters parameters, Person person) {
+        if (this.data.config.getOptimization() != RaptorStaticConfig.RaptorOptimization.OneToAllRouting && !this.treeWarningShown) {
+            log.warn("SwissRailRaptorData was not initialized with full support for tree calculations and may result in unexpected results. Use `RaptorStaticConfig.setOptimization(RaptorOptimization.OneToAllRouting)` to fix this issue.");
+            this.treeWarningShown = true;
+        }
+        List<InitialStop> accessStops = new ArrayList<>();
+        for (TransitStopFacility stop : fromStops) {
+            accessStops.add(new InitialStop(stop, 0, 0, 0, null));
+        }
+        return this.raptor.calcLeastCostTreeProfile(earliestDepartureTime, latestDepartureTime, accessStops, parameters, person);
+    }
+
+    /**
+     * Calculates stop-to-stop matrices for the time window with the cost calculators of this router, see
+     * {@link StopToStopMatrices#calculate(SwissRailRaptorData, List, List, double, double, RaptorParameters, RaptorInVehicleCostCalculator, RaptorTransferCostCalculator, int)}.
+     */
+    public StopToStopMatrices calcStopToStopMatrices(List<TransitStopFacility> fromStops, List<TransitStopFacility> toStops, double earliestDepartureTime, double latestDepartureTime, RaptorParameters parameters, int numberOfThreads) {
+        return StopToStopMatrices.calculate(this.data, fromStops, toStops, earliestDepartureTime, latestDepartureTime, parameters,
+                this.inVehicleCostCalculator, this.transferCostCalculator, numberOfThreads);
+    }
+
     public Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo> calcTree(Facility fromFacility, double departureTime, Person person, Attributes routingAttributes) {
         RaptorParameters parameters = this.parametersForPerson.getRaptorParameters(person);
         List<InitialStop> accessStops = findAccessStops(fromFacility, fromFacility, person, departureTime, routingAttributes, parameters);
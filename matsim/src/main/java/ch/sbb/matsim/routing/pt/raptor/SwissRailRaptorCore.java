@@ -40,6 +40,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -171,7 +172,7 @@ public class SwissRailRaptorCore {
 
                 int departureIndex = findNextDepartureIndex(route, routeStop, arrivalTime);
                 if (departureIndex >= 0) {
-                    int nextDepartureTimeAtStop = this.data.departures[departureIndex] + depOffset;
+                    int nextDepartureTimeAtStop = this.data.departures.get(departureIndex) + depOffset;
                     int waitingTime = nextDepartureTimeAtStop - arrivalTime;
                     double waitingCost = waitingTime * -parameters.getMarginalUtilityOfWaitingPt_utl_s();
 
@@ -318,7 +319,7 @@ public class SwissRailRaptorCore {
                     RRoute route = this.data.routes[routeStop.transitRouteIndex];
                     int depOffset = routeStop.departureOffset;
                     for (int depIndex = route.indexFirstDeparture; depIndex < route.indexFirstDeparture + route.countDepartures; depIndex++) {
-                        int depTimeAtStart = this.data.departures[depIndex];
+                        int depTimeAtStart = this.data.departures.get(depIndex);
                         int depTimeAtStop = depTimeAtStart + depOffset;
                         if (depTimeAtStop >= earliestTimeAtStop && depTimeAtStop <= latestTimeAtStop) {
                             double costOffset = (depTimeAtStop - earliestTimeAtStop) * marginalUtilityOfWaitingPt_utl_s;
@@ -487,6 +488,24 @@ public class SwissRailRaptorCore {
 
     public Map<Id<TransitStopFacility>, TravelInfo> calcLeastCostTree(double depTime, Collection<InitialStop> startStops, RaptorParameters parameters, Person person) {
         reset();
+        calcTreeForDepartureTime(depTime, 0, startStops, parameters, person);
+
+        // collect information for each stop
+        Map<Id<TransitStopFacility>, TravelInfo> result = new HashMap<>();
+        for (Map.Entry<TransitStopFacility, Integer> e : this.data.stopFacilityIndices.entrySet()) {
+            TransitStopFacility stop = e.getKey();
+            int index = e.getValue();
+            PathElement destination = this.arrivalPathPerStop[index];
+            if (destination != null) {
+                TravelInfo ti = getTravelInfo(destination, parameters);
+                result.put(stop.getId(), ti);
+            }
+        }
+        return result;
+    }
+
+    private void calcTreeForDepartureTime(double depTime, double costOffset, Collection<InitialStop> startStops, RaptorParameters parameters, Person person) {
+        this.improvedRouteStopIndices.clear();
 
         BitSet initialRouteStopIndices = new BitSet();
         BitSet initialStopIndices = new BitSet();
@@ -494,7 +513,7 @@ public class SwissRailRaptorCore {
             int[] routeStopIndices = this.data.routeStopsPerStopFacility.get(stop.stop);
             for (int routeStopIndex : routeStopIndices) {
                 int arrivalTime = (int) (depTime + stop.accessTime);
-                double arrivalCost = stop.accessCost;
+                double arrivalCost = stop.accessCost + costOffset;
                 RRouteStop toRouteStop = this.data.routeStops[routeStopIndex];
                 PathElement pe = new PathElement(null, toRouteStop, TIME_UNDEFINED, TIME_UNDEFINED, arrivalTime, arrivalCost, 0, stop.distance, 0, true, null, stop);
                 this.arrivalPathPerRouteStop[routeStopIndex] = pe;
@@ -535,21 +554,98 @@ public class SwissRailRaptorCore {
                 break;
             }
         }
+    }
 
-        // collect information for each stop
-        Map<Id<TransitStopFacility>, TravelInfo> result = new HashMap<>();
+    /**
+     * Calculates the least cost trees for all departure times within a time window in one pass, similar to rRAPTOR.
+     * <p>
+     * The departures at the start stops are handled from the latest to the earliest one, and the labels of later
+     * departures are kept when handling earlier ones, so an earlier departure only needs to explore where it improves
+     * something. To make the costs of different departures comparable, the cost of a departure includes the waiting
+     * time since <code>earliestDepTime</code>, just like the cost of a later departure would for an agent ready to
+     * depart at <code>earliestDepTime</code>.
+     * <p>
+     * This is a single-criterion profile: per departure time, only the least cost journey is kept. Journeys which are
+     * better in another criterion, e.g. with fewer transfers or an earlier arrival, but have higher costs, are not part
+     * of the result, as they would be in the Pareto sets of a multi-criteria profile search.
+     *
+     * @return for each reached stop, the least cost journeys ordered by departure time. Each journey is the least cost
+     * one for departing at the start location after the previous journey's departure time (or <code>earliestDepTime</code>)
+     * up to its own departure time, which is <code>ptDepartureTime - waitingTime - accessTime</code>. The last journey of a stop
+     * departs at <code>latestDepTime</code> at the earliest.
+     */
+    public Map<Id<TransitStopFacility>, List<TravelInfo>> calcLeastCostTreeProfile(double earliestDepTime, double latestDepTime, Collection<InitialStop> startStops, RaptorParameters parameters, Person person) {
+        reset();
+
+        double waitingCostPerSecond = -parameters.getMarginalUtilityOfWaitingPt_utl_s();
+        TransitStopFacility[] stops = new TransitStopFacility[this.data.countStops];
         for (Map.Entry<TransitStopFacility, Integer> e : this.data.stopFacilityIndices.entrySet()) {
-            TransitStopFacility stop = e.getKey();
-            int index = e.getValue();
-            PathElement destination = this.arrivalPathPerStop[index];
-            if (destination != null) {
-                TravelInfo ti = getTravelInfo(destination, parameters);
-                result.put(stop.getId(), ti);
+            stops[e.getValue()] = e.getKey();
+        }
+        PathElement[] lastArrivalPathPerStop = new PathElement[this.data.countStops];
+        Map<Id<TransitStopFacility>, List<TravelInfo>> result = new HashMap<>();
+
+        int[] depTimes = collectDepartureTimes(earliestDepTime, latestDepTime, startStops);
+        for (int i = depTimes.length - 1; i >= 0; i--) {
+            int depTime = depTimes[i];
+            double costOffset = (depTime - earliestDepTime) * waitingCostPerSecond;
+            calcTreeForDepartureTime(depTime, costOffset, startStops, parameters, person);
+
+            // only stops with improved arrivals have a new least cost journey for this departure time
+            for (int stopIndex = 0; stopIndex < stops.length; stopIndex++) {
+                PathElement destination = this.arrivalPathPerStop[stopIndex];
+                if (destination != null && destination != lastArrivalPathPerStop[stopIndex]) {
+                    lastArrivalPathPerStop[stopIndex] = destination;
+                    result.computeIfAbsent(stops[stopIndex].getId(), id -> new ArrayList<>()).add(getTravelInfo(destination, parameters));
+                }
             }
         }
+        for (List<TravelInfo> journeys : result.values()) {
+            Collections.reverse(journeys);
+        }
         return result;
     }
 
+    /**
+     * @return the sorted, distinct times at which an agent has to leave the start location to catch a departure at one
+     * of the start stops, within the time window, and the end of the time window.
+     */
+    private int[] collectDepartureTimes(double earliestDepTime, double latestDepTime, Collection<InitialStop> startStops) {
+        int[] depTimes = new int[16];
+        int count = 0;
+        depTimes[count++] = (int) latestDepTime;
+        for (InitialStop stop : startStops) {
+            int[] routeStopIndices = this.data.routeStopsPerStopFacility.get(stop.stop);
+            if (routeStopIndices == null) {
+                continue;
+            }
+            for (int routeStopIndex : routeStopIndices) {
+                RRouteStop routeStop = this.data.routeStops[routeStopIndex];
+                RRoute route = this.data.routes[routeStop.transitRouteIndex];
+                if (routeStopIndex == route.indexFirstRouteStop + route.countRouteStops - 1) {
+                    continue; // no departures at the last stop of a route
+                }
+                for (int depIndex = route.indexFirstDeparture; depIndex < route.indexFirstDeparture + route.countDepartures; depIndex++) {
+                    double depTime = Math.floor(this.data.departures.get(depIndex) + routeStop.departureOffset - stop.accessTime);
+                    if (depTime >= earliestDepTime && depTime < latestDepTime) {
+                        if (count == depTimes.length) {
+                            depTimes = Arrays.copyOf(depTimes, count * 2);
+                        }
+                        depTimes[count++] = (int) depTime;
+                    }
+                }
+            }
+        }
+        Arrays.sort(depTimes, 0, count);
+        int distinctCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinctCount == 0 || depTimes[i] != depTimes[distinctCount - 1]) {
+                depTimes[distinctCount++] = depTimes[i];
+            }
+        }
+        return Arrays.copyOf(depTimes, distinctCount);
+    }
+
     private TravelInfo getTravelInfo(PathElement destination, RaptorParameters parameters) {
         PathElement firstStage = destination;
         PathElement secondStage = null;
@@ -609,7 +705,7 @@ public class SwissRailRaptorCore {
             int currentDepartureIndex = findNextDepartureIndex(route, firstRouteStop, agentFirstArrivalTime);
             if (currentDepartureIndex >= 0) {
                 Vehicle currentVehicle = this.data.departureVehicles[currentDepartureIndex];
-                int currentDepartureTime = this.data.departures[currentDepartureIndex];
+                int currentDepartureTime = this.data.departures.get(currentDepartureIndex);
                 int currentAgentBoardingTime;
                 double currentTravelCostWhenBoarding;
                 double currentTransferCostWhenBoarding;
@@ -660,7 +756,7 @@ public class SwissRailRaptorCore {
                         int alternativeAgentFirstArrivalTime = alternativeBoardingPE.arrivalTime;
                         int alternativeDepartureIndex = findNextDepartureIndex(route, toRouteStop, alternativeAgentFirstArrivalTime);
                         if (alternativeDepartureIndex >= 0) {
-                            int alternativeDepartureTime = this.data.departures[alternativeDepartureIndex];
+                            int alternativeDepartureTime = this.data.departures.get(alternativeDepartureIndex);
                             int alternativeVehicleArrivalTime = alternativeDepartureTime + toRouteStop.arrivalOffset;
                             int alternativeAgentBoardingTime = Math.max(alternativeAgentFirstArrivalTime, alternativeVehicleArrivalTime);
                             int alternativeWaitingTime = alternativeAgentBoardingTime - alternativeAgentFirstArrivalTime;
@@ -715,7 +811,7 @@ public class SwissRailRaptorCore {
         int depTimeAtRouteStart = time - routeStop.departureOffset;
         int fromIndex = route.indexFirstDeparture;
         int toIndex = fromIndex + route.countDepartures;
-        int pos = Arrays.binarySearch(this.data.departures, fromIndex, toIndex, depTimeAtRouteStart);
+        int pos = this.data.departures.binarySearch(fromIndex, toIndex, depTimeAtRouteStart);
         if (pos < 0) {
             // binarySearch returns (-(insertion point) - 1) if the element was not found, which will happen most of the times.
             // insertion_point points to the next larger element, which is the next departure in our case
@@ -755,7 +851,7 @@ public class SwissRailRaptorCore {
             int firstTransferIndex = fromRouteStop.indexFirstTransfer;
             int lastTransferIndex = firstTransferIndex + fromRouteStop.countTransfers;
             for (int transferIndex = firstTransferIndex; transferIndex < lastTransferIndex; transferIndex++) {
-                RTransfer transfer = this.data.transfers[transferIndex];
+                RTransfer transfer = this.data.getTransfer(transferIndex);
                 int toRouteStopIndex = transfer.toRouteStop;
                 transferProvider.reset(transfer);
                 int newArrivalTime = arrivalTime + transfer.transferTime;
@@ -832,10 +928,14 @@ public class SwissRailRaptorCore {
     }
 
     private static RaptorRoute createRaptorRoute(Facility fromFacility, Facility toFacility, PathElement destinationPathElement, double departureTime) {
+        return createRaptorRoute(fromFacility, toFacility, destinationPathElement, departureTime, 0);
+    }
+
+    private static RaptorRoute createRaptorRoute(Facility fromFacility, Facility toFacility, PathElement destinationPathElement, double departureTime, double costOffset) {
         LinkedList<PathElement> pes = new LinkedList<>();
         double arrivalCost = Double.POSITIVE_INFINITY;
         if (destinationPathElement != null) {
-            arrivalCost = destinationPathElement.arrivalTravelCost + destinationPathElement.arrivalTransferCost;
+            arrivalCost = destinationPathElement.arrivalTravelCost + destinationPathElement.arrivalTransferCost - costOffset;
             PathElement pe = destinationPathElement;
             while (pe.comingFrom != null) {
                 pes.addFirst(pe);
@@ -978,7 +1078,9 @@ public class SwissRailRaptorCore {
 
             Facility fromFacility = firstPath.toRouteStop.routeStop.getStopFacility();
             Facility toFacility = this.destinationPath.toRouteStop.routeStop.getStopFacility();
-            return createRaptorRoute(fromFacility, toFacility, this.destinationPath, firstPath.arrivalTime);
+            // journeys of a profile tree include the waiting time since the start of the time window in their cost
+            double costOffset = firstPath.initialStop == null ? 0 : firstPath.arrivalTravelCost - firstPath.initialStop.accessCost;
+            return createRaptorRoute(fromFacility, toFacility, this.destinationPath, firstPath.arrivalTime, costOffset);
         }
 
         public boolean isWalkOnly() {
@@ -1020,7 +1122,7 @@ public class SwissRailRaptorCore {
             this.fromRouteStopIndex = fromRouteStopIndex;
             this.toRouteStopIndex = toRouteStopIndex;
 
-            this.routeDepartureTime = this.data.departures[departureIndex];
+            this.routeDepartureTime = this.data.departures.get(departureIndex);
             this.currentRouteStopIndex = fromRouteStopIndex;
             this.currentInVehicleTime = -1;
             this.currentPassengerCount = -1;
@@ -42,6 +42,14 @@ import org.matsim.vehicles.Vehicle;
 import org.matsim.vehicles.Vehicles;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -61,15 +69,23 @@ public class SwissRailRaptorData {
 
     private static final Logger log = LogManager.getLogger(SwissRailRaptorData.class);
 
+    private static final int FILE_MAGIC = 0x53525244; // "SRRD"
+    private static final int FILE_VERSION = 2;
+    private static final int HEADER_SIZE = 32;
+    private static final int INTS_PER_ROUTE = 4;
+    private static final int INTS_PER_ROUTE_STOP = 8;
+    private static final int INTS_PER_TRANSFER = 4;
+
     final RaptorStaticConfig config;
     final int countStops;
     final int countRouteStops;
+    final int countTransfers;
     final RRoute[] routes;
-    final int[] departures; // in the RAPTOR paper, this is usually called "trips", but I stick with the MATSim nomenclature
+    final LargeIntArray departures; // in the RAPTOR paper, this is usually called "trips", but I stick with the MATSim nomenclature
     final Vehicle[] departureVehicles; // the vehicle used for each departure
     final Id<Departure>[] departureIds;
     final RRouteStop[] routeStops; // list of all route stops
-    final RTransfer[] transfers;
+    final LargeIntArray transfers; // INTS_PER_TRANSFER values per transfer, see getTransfer()
     final Map<TransitStopFacility, Integer> stopFacilityIndices;
     final Map<TransitStopFacility, int[]> routeStopsPerStopFacility;
     final QuadTree<TransitStopFacility> stopsQT;
@@ -77,13 +93,14 @@ public class SwissRailRaptorData {
     final OccupancyData occupancyData;
 
     private SwissRailRaptorData(RaptorStaticConfig config, int countStops,
-                                RRoute[] routes, int[] departures, Vehicle[] departureVehicles, Id<Departure>[] departureIds, RRouteStop[] routeStops,
-                                RTransfer[] transfers, Map<TransitStopFacility, Integer> stopFacilityIndices,
+                                RRoute[] routes, LargeIntArray departures, Vehicle[] departureVehicles, Id<Departure>[] departureIds, RRouteStop[] routeStops,
+                                LargeIntArray transfers, Map<TransitStopFacility, Integer> stopFacilityIndices,
                                 Map<TransitStopFacility, int[]> routeStopsPerStopFacility, QuadTree<TransitStopFacility> stopsQT,
                                 OccupancyData occupancyData) {
         this.config = config;
         this.countStops = countStops;
         this.countRouteStops = routeStops.length;
+        this.countTransfers = (int) (transfers.length() / INTS_PER_TRANSFER);
         this.routes = routes;
         this.departures = departures;
         this.departureVehicles = departureVehicles;
@@ -98,6 +115,17 @@ public class SwissRailRaptorData {
     }
 
     public static SwissRailRaptorData create(TransitSchedule schedule, @Nullable Vehicles transitVehicles, RaptorStaticConfig staticConfig, Network network, OccupancyData occupancyData) {
+        return create(schedule, transitVehicles, staticConfig, network, occupancyData, null);
+    }
+
+    /**
+     * Like {@link #create(TransitSchedule, Vehicles, RaptorStaticConfig, Network, OccupancyData)}, but the routes, route
+     * stops, departures and transfers are stored in the given file, and later runs memory-map the file instead of
+     * preparing them again. The departures and transfers are then read directly from the mapped file, so several
+     * processes on the same host share its pages. The file is only used if it was written for the same schedule,
+     * network and {@link RaptorStaticConfig}, otherwise the data is prepared again and the file replaced.
+     */
+    public static SwissRailRaptorData create(TransitSchedule schedule, @Nullable Vehicles transitVehicles, RaptorStaticConfig staticConfig, Network network, OccupancyData occupancyData, @Nullable Path dataFile) {
         log.info("Preparing data for SwissRailRaptor...");
         long startMillis = System.currentTimeMillis();
 
@@ -121,7 +149,10 @@ public class SwissRailRaptorData {
             throw new RuntimeException("TransitSchedule has too many Departures: " + countDepartures);
         }
 
-        int[] departures = new int[(int) countDepartures];
+        long fingerprint = dataFile == null ? 0 : fingerprint(schedule, network, staticConfig);
+        StoredData stored = dataFile == null ? null : readDataFile(dataFile, fingerprint, countRoutes, (int) countRouteStops, (int) countDepartures);
+
+        LargeIntArray departures = stored == null ? LargeIntArray.allocate(countDepartures) : stored.departures;
         Vehicle[] departureVehicles = new Vehicle[(int) countDepartures];
         Id<Departure>[] departureIds = new Id[(int) countDepartures];
         RRoute[] routes = new RRoute[countRoutes];
@@ -147,6 +178,9 @@ public class SwissRailRaptorData {
                     mode = staticConfig.getPassengerMode(route.getTransportMode());
                 }
                 RRoute rroute = new RRoute(indexRouteStops, route.getStops().size(), indexFirstDeparture, route.getDepartures().size());
+                if (stored != null && !stored.isSameRoute(indexRoutes, rroute)) {
+                    throw new RuntimeException("SwissRailRaptor data in " + dataFile + " does not match the schedule at transit route " + route.getId());
+                }
                 routes[indexRoutes] = rroute;
                 NetworkRoute networkRoute = route.getRoute();
                 List<Id<Link>> allLinkIds = new ArrayList<>();
@@ -159,19 +193,26 @@ public class SwissRailRaptorData {
                 Id<Link> currentLinkId = linkIdIterator.next();
                 double distanceAlongRoute = 0.0;
                 for (TransitRouteStop routeStop : route.getStops()) {
-                    while (!routeStop.getStopFacility().getLinkId().equals(currentLinkId)) {
-                        if (linkIdIterator.hasNext()) {
-                            currentLinkId = linkIdIterator.next();
-                            Link link = network.getLinks().get(currentLinkId);
-                            distanceAlongRoute += link.getLength();
-                        } else {
-                            distanceAlongRoute = Double.NaN;
-                            break;
+                    if (stored == null) {
+                        while (!routeStop.getStopFacility().getLinkId().equals(currentLinkId)) {
+                            if (linkIdIterator.hasNext()) {
+                                currentLinkId = linkIdIterator.next();
+                                Link link = network.getLinks().get(currentLinkId);
+                                distanceAlongRoute += link.getLength();
+                            } else {
+                                distanceAlongRoute = Double.NaN;
+                                break;
+                            }
                         }
+                    } else {
+                        distanceAlongRoute = stored.getDistanceAlongRoute(indexRouteStops);
                     }
                     int stopFacilityIndex = stopFacilityIndices.computeIfAbsent(routeStop.getStopFacility(), stop -> stopFacilityIndices.size());
                     final int thisRouteStopIndex = indexRouteStops;
                     RRouteStop rRouteStop = new RRouteStop(thisRouteStopIndex, routeStop, line, route, mode, indexRoutes, stopFacilityIndex, distanceAlongRoute);
+                    if (stored != null) {
+                        stored.setTransfers(rRouteStop);
+                    }
                     routeStops[thisRouteStopIndex] = rRouteStop;
                     routeStopsPerStopFacility.compute(routeStop.getStopFacility(), (stop, currentRouteStops) -> {
                         if (currentRouteStops == null) {
@@ -184,13 +225,19 @@ public class SwissRailRaptorData {
                     });
                     indexRouteStops++;
                 }
+                int[] departureTimes = new int[route.getDepartures().size()];
                 for (Departure dep : route.getDepartures().values()) {
-                    departures[indexDeparture] = (int) dep.getDepartureTime();
+                    departureTimes[indexDeparture - indexFirstDeparture] = (int) dep.getDepartureTime();
                     departureVehicles[indexDeparture] = vehicles.get(dep.getVehicleId());
                     departureIds[indexDeparture] = dep.getId();
                     indexDeparture++;
                 }
-                Arrays.sort(departures, indexFirstDeparture, indexDeparture);
+                if (stored == null) {
+                    Arrays.sort(departureTimes);
+                    for (int i = 0; i < departureTimes.length; i++) {
+                        departures.set(indexFirstDeparture + i, departureTimes[i]);
+                    }
+                }
                 indexRoutes++;
             }
         }
@@ -200,26 +247,46 @@ public class SwissRailRaptorData {
         QuadTree<TransitStopFacility> stopsQT = TransitScheduleUtils.createQuadTreeOfTransitStopFacilities(stops);
         int countStopFacilities = stops.size();
 
-        Map<Integer, RTransfer[]> allTransfers = calculateRouteStopTransfers(schedule, stopsQT, routeStopsPerStopFacility, routeStops, staticConfig);
-        long countTransfers = 0;
-        for (RTransfer[] transfers : allTransfers.values()) {
-            countTransfers += transfers.length;
-        }
-        if (countTransfers > Integer.MAX_VALUE) {
-            throw new RuntimeException("TransitSchedule has too many Transfers: " + countTransfers);
-        }
-        RTransfer[] transfers = new RTransfer[(int) countTransfers];
-        int indexTransfer = 0;
-        for (int routeStopIndex = 0; routeStopIndex < routeStops.length; routeStopIndex++) {
-            RTransfer[] stopTransfers = allTransfers.get(routeStopIndex);
-            int transferCount = stopTransfers == null ? 0 : stopTransfers.length;
-            if (transferCount > 0) {
-                RRouteStop routeStop = routeStops[routeStopIndex];
-                routeStop.indexFirstTransfer = indexTransfer;
-                routeStop.countTransfers = transferCount;
-                System.arraycopy(stopTransfers, 0, transfers, indexTransfer, transferCount);
-                indexTransfer += transferCount;
+        LargeIntArray transfers;
+        if (stored == null) {
+            Map<Integer, RTransfer[]> allTransfers = calculateRouteStopTransfers(schedule, stopsQT, routeStopsPerStopFacility, routeStops, staticConfig);
+            long countTransfers = 0;
+            for (RTransfer[] stopTransfers : allTransfers.values()) {
+                countTransfers += stopTransfers.length;
+            }
+            if (countTransfers > Integer.MAX_VALUE) {
+                throw new RuntimeException("TransitSchedule has too many Transfers: " + countTransfers);
             }
+            transfers = LargeIntArray.allocate(countTransfers * INTS_PER_TRANSFER);
+            int indexTransfer = 0;
+            for (int routeStopIndex = 0; routeStopIndex < routeStops.length; routeStopIndex++) {
+                RTransfer[] stopTransfers = allTransfers.get(routeStopIndex);
+                if (stopTransfers != null && stopTransfers.length > 0) {
+                    RRouteStop routeStop = routeStops[routeStopIndex];
+                    routeStop.indexFirstTransfer = indexTransfer;
+                    routeStop.countTransfers = stopTransfers.length;
+                    for (RTransfer transfer : stopTransfers) {
+                        long offset = (long) indexTransfer * INTS_PER_TRANSFER;
+                        transfers.set(offset, transfer.fromRouteStop);
+                        transfers.set(offset + 1, transfer.toRouteStop);
+                        transfers.set(offset + 2, transfer.transferTime);
+                        transfers.set(offset + 3, transfer.transferDistance);
+                        indexTransfer++;
+                    }
+                }
+            }
+            if (dataFile != null) {
+                writeDataFile(dataFile, fingerprint, routes, routeStops, departures, transfers);
+                // continue with the mapped file, so that the pages are shared with other processes and the arrays on the heap can be collected
+                stored = readDataFile(dataFile, fingerprint, countRoutes, routeStops.length, (int) countDepartures);
+                if (stored != null) {
+                    departures = stored.departures;
+                    transfers = stored.transfers;
+                }
+            }
+        } else {
+            transfers = stored.transfers;
+            log.info("SwissRailRaptor data loaded from " + dataFile);
         }
 
         SwissRailRaptorData data = new SwissRailRaptorData(staticConfig, countStopFacilities, routes, departures, departureVehicles, departureIds, routeStops, transfers, stopFacilityIndices, routeStopsPerStopFacility, stopsQT, occupancyData);
@@ -227,13 +294,226 @@ public class SwissRailRaptorData {
         long endMillis = System.currentTimeMillis();
         log.info("SwissRailRaptor data preparation done. Took " + (endMillis - startMillis) / 1000 + " seconds.");
         log.info("SwissRailRaptor statistics:  #routes = " + routes.length);
-        log.info("SwissRailRaptor statistics:  #departures = " + departures.length);
+        log.info("SwissRailRaptor statistics:  #departures = " + departures.length());
         log.info("SwissRailRaptor statistics:  #routeStops = " + routeStops.length);
         log.info("SwissRailRaptor statistics:  #stopFacilities = " + countStopFacilities);
-        log.info("SwissRailRaptor statistics:  #transfers (between routeStops) = " + transfers.length);
+        log.info("SwissRailRaptor statistics:  #transfers (between routeStops) = " + data.countTransfers);
         return data;
     }
 
+    /**
+     * The stored data depends on the schedule, including the order of its elements which determines the indices, on
+     * the lengths of the links along the transit routes, and on the transfer-related settings of the config.
+     */
+    static long fingerprint(TransitSchedule schedule, Network network, RaptorStaticConfig config) {
+        long hash = 1125899906842597L;
+        hash = 31 * hash + Double.hashCode(config.getBeelineWalkConnectionDistance());
+        hash = 31 * hash + Double.hashCode(config.getBeelineWalkSpeed());
+        hash = 31 * hash + Double.hashCode(config.getBeelineWalkDistanceFactor());
+        hash = 31 * hash + Double.hashCode(config.getMinimalTransferTime());
+        hash = 31 * hash + config.getOptimization().ordinal();
+        for (TransitLine line : schedule.getTransitLines().values()) {
+            hash = 31 * hash + line.getId().toString().hashCode();
+            for (TransitRoute route : line.getRoutes().values()) {
+                hash = 31 * hash + route.getId().toString().hashCode();
+                NetworkRoute networkRoute = route.getRoute();
+                List<Id<Link>> linkIds = new ArrayList<>();
+                linkIds.add(networkRoute.getStartLinkId());
+                linkIds.addAll(networkRoute.getLinkIds());
+                linkIds.add(networkRoute.getEndLinkId());
+                for (Id<Link> linkId : linkIds) {
+                    Link link = network.getLinks().get(linkId);
+                    hash = 31 * hash + linkId.toString().hashCode();
+                    hash = 31 * hash + (link == null ? 0 : Double.hashCode(link.getLength()));
+                }
+                for (TransitRouteStop routeStop : route.getStops()) {
+                    TransitStopFacility stop = routeStop.getStopFacility();
+                    hash = 31 * hash + stop.getId().toString().hashCode();
+                    hash = 31 * hash + stop.getLinkId().toString().hashCode();
+                    hash = 31 * hash + Double.hashCode(stop.getCoord().getX());
+                    hash = 31 * hash + Double.hashCode(stop.getCoord().getY());
+                    hash = 31 * hash + Double.hashCode(routeStop.getArrivalOffset().or(routeStop::getDepartureOffset).seconds());
+                    hash = 31 * hash + Double.hashCode(routeStop.getDepartureOffset().or(routeStop::getArrivalOffset).seconds());
+                }
+                for (Departure departure : route.getDepartures().values()) {
+                    hash = 31 * hash + Double.hashCode(departure.getDepartureTime());
+                }
+            }
+        }
+        MinimalTransferTimes.MinimalTransferTimesIterator iter = schedule.getMinimalTransferTimes().iterator();
+        while (iter.hasNext()) {
+            iter.next();
+            hash = 31 * hash + iter.getFromStopId().toString().hashCode();
+            hash = 31 * hash + iter.getToStopId().toString().hashCode();
+            hash = 31 * hash + Double.hashCode(iter.getSeconds());
+        }
+        return hash;
+    }
+
+    /**
+     * Format (little endian): a header with magic number, version, fingerprint, and the numbers of routes, route stops,
+     * departures and transfers, followed by
+     * <ul>
+     *     <li>4 ints per route: index of the first route stop, number of route stops, index of the first departure, number of departures,</li>
+     *     <li>8 ints per route stop: route index, stop facility index, arrival offset, departure offset, index of the first
+     *     transfer, number of transfers, and the distance along the route as a double,</li>
+     *     <li>1 int per departure: the departure time, sorted per route,</li>
+     *     <li>4 ints per transfer: from route stop, to route stop, transfer time, transfer distance.</li>
+     * </ul>
+     */
+    private static void writeDataFile(Path file, long fingerprint, RRoute[] routes, RRouteStop[] routeStops, LargeIntArray departures, LargeIntArray transfers) {
+        Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                DataFileWriter writer = new DataFileWriter(channel);
+                writer.putInt(FILE_MAGIC);
+                writer.putInt(FILE_VERSION);
+                writer.putLong(fingerprint);
+                writer.putInt(routes.length);
+                writer.putInt(routeStops.length);
+                writer.putInt((int) departures.length());
+                writer.putInt((int) (transfers.length() / INTS_PER_TRANSFER));
+                for (RRoute route : routes) {
+                    writer.putInt(route.indexFirstRouteStop);
+                    writer.putInt(route.countRouteStops);
+                    writer.putInt(route.indexFirstDeparture);
+                    writer.putInt(route.countDepartures);
+                }
+                for (RRouteStop routeStop : routeStops) {
+                    writer.putInt(routeStop.transitRouteIndex);
+                    writer.putInt(routeStop.stopFacilityIndex);
+                    writer.putInt(routeStop.arrivalOffset);
+                    writer.putInt(routeStop.departureOffset);
+                    writer.putInt(routeStop.indexFirstTransfer);
+                    writer.putInt(routeStop.countTransfers);
+                    writer.putLong(Double.doubleToRawLongBits(routeStop.distanceAlongRoute));
+                }
+                writer.putAll(departures);
+                writer.putAll(transfers);
+                writer.flush();
+            }
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("SwissRailRaptor data written to " + file);
+        } catch (IOException e) {
+            log.warn("could not write SwissRailRaptor data to " + file, e);
+        }
+    }
+
+    /**
+     * @return the memory-mapped data of the file, or <code>null</code> if there is no such file or it does not match
+     * the schedule and config.
+     */
+    private static StoredData readDataFile(Path file, long fingerprint, int countRoutes, int countRouteStops, int countDepartures) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                return null;
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != FILE_MAGIC || header.getInt() != FILE_VERSION || header.getLong() != fingerprint
+                    || header.getInt() != countRoutes || header.getInt() != countRouteStops || header.getInt() != countDepartures) {
+                log.info("SwissRailRaptor data in " + file + " does not match the schedule or config, preparing it again.");
+                return null;
+            }
+            int countTransfers = header.getInt();
+            long routesPosition = HEADER_SIZE;
+            long routeStopsPosition = routesPosition + (long) countRoutes * INTS_PER_ROUTE * Integer.BYTES;
+            long departuresPosition = routeStopsPosition + (long) countRouteStops * INTS_PER_ROUTE_STOP * Integer.BYTES;
+            long transfersPosition = departuresPosition + (long) countDepartures * Integer.BYTES;
+            if (countTransfers < 0 || channel.size() != transfersPosition + (long) countTransfers * INTS_PER_TRANSFER * Integer.BYTES) {
+                return null;
+            }
+            return new StoredData(
+                    LargeIntArray.map(channel, routesPosition, (long) countRoutes * INTS_PER_ROUTE),
+                    LargeIntArray.map(channel, routeStopsPosition, (long) countRouteStops * INTS_PER_ROUTE_STOP),
+                    LargeIntArray.map(channel, departuresPosition, countDepartures),
+                    LargeIntArray.map(channel, transfersPosition, (long) countTransfers * INTS_PER_TRANSFER));
+        } catch (IOException e) {
+            log.warn("could not read SwissRailRaptor data from " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * The arrays of a data file, mapped into memory.
+     */
+    private static final class StoredData {
+        final LargeIntArray routes;
+        final LargeIntArray routeStops;
+        final LargeIntArray departures;
+        final LargeIntArray transfers;
+
+        StoredData(LargeIntArray routes, LargeIntArray routeStops, LargeIntArray departures, LargeIntArray transfers) {
+            this.routes = routes;
+            this.routeStops = routeStops;
+            this.departures = departures;
+            this.transfers = transfers;
+        }
+
+        boolean isSameRoute(int index, RRoute route) {
+            long offset = (long) index * INTS_PER_ROUTE;
+            return this.routes.get(offset) == route.indexFirstRouteStop && this.routes.get(offset + 1) == route.countRouteStops
+                    && this.routes.get(offset + 2) == route.indexFirstDeparture && this.routes.get(offset + 3) == route.countDepartures;
+        }
+
+        double getDistanceAlongRoute(int routeStopIndex) {
+            long offset = (long) routeStopIndex * INTS_PER_ROUTE_STOP + 6;
+            return Double.longBitsToDouble(((long) this.routeStops.get(offset + 1) << 32) | (this.routeStops.get(offset) & 0xFFFFFFFFL));
+        }
+
+        void setTransfers(RRouteStop routeStop) {
+            long offset = (long) routeStop.index * INTS_PER_ROUTE_STOP + 4;
+            routeStop.indexFirstTransfer = this.routeStops.get(offset);
+            routeStop.countTransfers = this.routeStops.get(offset + 1);
+        }
+    }
+
+    /**
+     * Writes ints in little endian order to a channel, through a buffer.
+     */
+    private static final class DataFileWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+        DataFileWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            if (this.buffer.remaining() < Integer.BYTES) {
+                flush();
+            }
+            this.buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            if (this.buffer.remaining() < Long.BYTES) {
+                flush();
+            }
+            this.buffer.putLong(value);
+        }
+
+        void putAll(LargeIntArray values) throws IOException {
+            for (long i = 0; i < values.length(); i++) {
+                putInt(values.get(i));
+            }
+        }
+
+        void flush() throws IOException {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining()) {
+                this.channel.write(this.buffer);
+            }
+            this.buffer.clear();
+        }
+    }
+
     // calculate possible transfers between TransitRouteStops
     private static Map<Integer, RTransfer[]> calculateRouteStopTransfers(TransitSchedule schedule, QuadTree<TransitStopFacility> stopsQT, Map<TransitStopFacility, int[]> routeStopsPerStopFacility, RRouteStop[] routeStops, RaptorStaticConfig config) {
         Map<Integer, RTransfer[]> transfers = new HashMap<>(stopsQT.size() * 5);
@@ -485,6 +765,14 @@ public class SwissRailRaptorData {
         return this.stopsQT.getClosest(x, y);
     }
 
+    /**
+     * @return a new object with the values of the transfer, which are stored in {@link #transfers}.
+     */
+    RTransfer getTransfer(int index) {
+        long offset = (long) index * INTS_PER_TRANSFER;
+        return new RTransfer(this.transfers.get(offset), this.transfers.get(offset + 1), this.transfers.get(offset + 2), this.transfers.get(offset + 3));
+    }
+
     /**
      * "Translates" an internally used {@link RTransfer} into a publicly usable {@link Transfer} object.
      * @param transfer
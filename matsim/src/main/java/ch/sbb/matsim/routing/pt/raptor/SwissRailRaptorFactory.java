@@ -20,10 +20,12 @@
 
 package ch.sbb.matsim.routing.pt.raptor;
 
+import ch.sbb.matsim.config.SwissRailRaptorConfigGroup;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
 import org.matsim.pt.router.TransitScheduleChangedEventHandler;
 import org.matsim.pt.transitSchedule.api.TransitSchedule;
 import org.matsim.vehicles.Vehicles;
@@ -31,6 +33,8 @@ import org.matsim.vehicles.Vehicles;
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 import jakarta.inject.Singleton;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * @author mrieser / SBB
@@ -50,6 +54,7 @@ public class SwissRailRaptorFactory implements Provider<SwissRailRaptor> {
     private final RaptorTransferCostCalculator transferCostCalculator;
 
     private final Network network;
+    private final Path dataFile;
 
     @Inject
     public SwissRailRaptorFactory(final Scenario scenario, final Config config,
@@ -62,6 +67,8 @@ public class SwissRailRaptorFactory implements Provider<SwissRailRaptor> {
         this.transitVehicles = scenario.getTransitVehicles();
         this.raptorConfig = RaptorUtils.createStaticConfig(config);
         this.network = scenario.getNetwork();
+        String dataFile = ConfigUtils.addOrGetModule(config, SwissRailRaptorConfigGroup.class).getDataFile();
+        this.dataFile = dataFile == null ? null : Paths.get(dataFile);
         this.raptorParametersForPerson = raptorParametersForPerson;
         this.routeSelector = routeSelector;
         this.stopFinderProvider = stopFinderProvider;
@@ -93,7 +100,7 @@ public class SwissRailRaptorFactory implements Provider<SwissRailRaptor> {
             // prevent doing the work twice.
             return this.data;
         }
-        this.data = SwissRailRaptorData.create(this.schedule, this.transitVehicles, this.raptorConfig, this.network, this.occupancyData);
+        this.data = SwissRailRaptorData.create(this.schedule, this.transitVehicles, this.raptorConfig, this.network, this.occupancyData, this.dataFile);
         return this.data;
     }
 
@@ -28,6 +28,8 @@ import org.matsim.core.utils.misc.Time;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.text.DateFormat;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.Map.Entry;
@@ -72,9 +74,18 @@ public final class IterationStopWatch {
 	/** The position within <code>operations</code>, where the next identifier is expected. */
 	private int nextOperationPosition = 0;
 
+	/** Values of statistics recorded with {@link #addStatistic(String, double)}, per iteration. */
+	private final Map<Integer, Map<String, Double>> statistics;
+
+	/** A list of identifiers used to enumerate statistics, in the order they were first recorded. */
+	private final List<String> statisticIdentifiers;
+
 	/** A formatter for dates, used when writing out the data. */
 	private final DateFormat formatter = new SimpleDateFormat("HH:mm:ss");
 
+	/** A formatter for statistics, used when writing out the data. */
+	private final DecimalFormat statisticFormatter = new DecimalFormat("0.###", DecimalFormatSymbols.getInstance(Locale.US));
+
 	/** data structures to identify nested operations */
 	private Stack<String> currentMeasuredOperations;
 	private Map<String, List<String>> currentIterationChildren;
@@ -87,6 +98,8 @@ public final class IterationStopWatch {
 		this.operations = new LinkedList<>();
 		this.currentIterationValues = null;
 		this.children = new LinkedHashMap<>();
+		this.statistics = new LinkedHashMap<>();
+		this.statisticIdentifiers = new ArrayList<>();
 	}
 
 	/**
@@ -103,6 +116,8 @@ public final class IterationStopWatch {
 		this.currentMeasuredOperations.clear();
 		this.currentIterationChildren.clear();
 		this.children.clear();
+		this.statistics.clear();
+		this.statisticIdentifiers.clear();
 	}
 
 	/**
@@ -181,6 +196,21 @@ public final class IterationStopWatch {
 		this.currentIterationValues.put(identifier, System.currentTimeMillis());
 	}
 
+	/**
+	 * Remembers a value for the current iteration which is not a time, e.g. how well the work of an operation was
+	 * balanced between threads. Statistics are written after the operations by {@link #writeSeparatedFile(String, String)},
+	 * but not plotted. Recording the same identifier twice in an iteration overwrites the first value.
+	 *
+	 * @param identifier The name of the statistic.
+	 * @param value The value of the statistic in the current iteration.
+	 */
+	public void addStatistic(final String identifier, final double value) {
+		if (!this.statisticIdentifiers.contains(identifier)) {
+			this.statisticIdentifiers.add(identifier);
+		}
+		this.statistics.computeIfAbsent(this.iteration, k -> new HashMap<>()).put(identifier, value);
+	}
+
 	/**
 	 * Writes the gathered data into a file.
 	 *
@@ -201,6 +231,13 @@ public final class IterationStopWatch {
 				writer.write(delimiter);
 				writer.write(identifier);
 			}
+			if (!this.statisticIdentifiers.isEmpty()) {
+				writer.write(delimiter);
+				for (String identifier : this.statisticIdentifiers) {
+					writer.write(delimiter);
+					writer.write(identifier);
+				}
+			}
 			writer.write('\n');
 
 			// print data
@@ -227,6 +264,18 @@ public final class IterationStopWatch {
 						writer.write(Time.writeTime(diff));
 					}
 				}
+				// statistics, after another blank separator
+				if (!this.statisticIdentifiers.isEmpty()) {
+					Map<String, Double> values = this.statistics.getOrDefault(iteration, Collections.emptyMap());
+					writer.write(delimiter);
+					for (String identifier : this.statisticIdentifiers) {
+						Double value = values.get(identifier);
+						writer.write(delimiter);
+						if (value != null) {
+							writer.write(this.statisticFormatter.format(value));
+						}
+					}
+				}
 
 				// finish
 				writer.write("\n");
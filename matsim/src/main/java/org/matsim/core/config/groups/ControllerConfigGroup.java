@@ -34,11 +34,11 @@ import java.util.*;
 public final class ControllerConfigGroup extends ReflectiveConfigGroup {
 	private static final Logger log = LogManager.getLogger( ControllerConfigGroup.class );
 
-	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, SpeedyALT}
+	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, SpeedyALT, SpeedyCH}
 
 	public enum EventTypeToCreateScoringFunctions {IterationStarts, BeforeMobsim}
 
-	public enum EventsFileFormat {xml, pb, json}
+	public enum EventsFileFormat {xml, pb, json, binary}
 
 	public enum CompressionType {
 		none(""),
@@ -64,6 +64,8 @@ public final class ControllerConfigGroup extends ReflectiveConfigGroup {
 	private static final String FIRST_ITERATION = "firstIteration";
 	private static final String LAST_ITERATION = "lastIteration";
 	private static final String ROUTINGALGORITHM_TYPE = "routingAlgorithmType";
+	private static final String LANDMARKS_DIRECTORY = "landmarksDirectory";
+	private static final String LANDMARKS_REFRESH_THRESHOLD = "landmarksRefreshThreshold";
 	private static final String RUNID = "runId";
 	private static final String LINKTOLINK_ROUTING_ENABLED = "enableLinkToLinkRouting";
 	/*package*/ static final String EVENTS_FILE_FORMAT = "eventsFileFormat";
@@ -90,6 +92,8 @@ public final class ControllerConfigGroup extends ReflectiveConfigGroup {
 	private int firstIteration = 0;
 	private int lastIteration = 1000;
 	private RoutingAlgorithmType routingAlgorithmType = RoutingAlgorithmType.SpeedyALT;
+	private String landmarksDirectory = null;
+	private double landmarksRefreshThreshold = 0.05;
 	private EventTypeToCreateScoringFunctions eventTypeToCreateScoringFunctions = EventTypeToCreateScoringFunctions.IterationStarts;
 
 	private boolean linkToLinkRoutingEnabled = false;
@@ -121,6 +125,10 @@ public final class ControllerConfigGroup extends ReflectiveConfigGroup {
 	public final Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(ROUTINGALGORITHM_TYPE, "The type of routing (least cost path) algorithm used, may have the values: " + Arrays.toString(RoutingAlgorithmType.values()));
+		map.put(LANDMARKS_DIRECTORY, "Only used with " + RoutingAlgorithmType.SpeedyALT + ". Directory in which the landmark data is stored, so later runs with the same network "
+				+ "can memory-map it instead of calculating it again. Default=null, i.e. the landmark data is not stored.");
+		map.put(LANDMARKS_REFRESH_THRESHOLD, "Only used with " + RoutingAlgorithmType.SpeedyALT + ". Landmark data is reused for travel disutilities whose minimum link costs "
+				+ "differ at most by this fraction from the ones the landmarks were calculated with. Default=0.05.");
 		map.put(RUNID, "An identifier for the current run which is used as prefix for output files and mentioned in output xml files etc.");
 		map.put(EVENTS_FILE_FORMAT, "Default="+EventsFileFormat.xml+"; Specifies the file format for writing events. Currently supported: " + Arrays.toString(EventsFileFormat.values()) + IOUtils.NATIVE_NEWLINE+ "\t\t" +
 				"Multiple values can be specified separated by commas (',').");
@@ -150,7 +158,7 @@ public final class ControllerConfigGroup extends ReflectiveConfigGroup {
 				"Depending on the chosen mobsim, you'll have to add additional config modules to configure the corresponding mobsim." + IOUtils.NATIVE_NEWLINE + "\t\t" +
 				"For 'qsim', add a module 'qsim' to the config.");
 
-		map.put(SNAPSHOT_FORMAT, "Comma-separated list of visualizer output file formats. `transims' and `otfvis'.");
+		map.put(SNAPSHOT_FORMAT, "Comma-separated list of visualizer output file formats. `transims', `binary', `positionevents' and `otfvis'.");
 		map.put(WRITE_SNAPSHOTS_INTERVAL, "iterationNumber % " + WRITE_SNAPSHOTS_INTERVAL + " == 0 defines in which iterations snapshots are written " +
 				"to a file. `0' disables snapshots writing completely");
 		map.put(DUMP_DATA_AT_END, "true if at the end of a run, plans, network, config etc should be dumped to a file");
@@ -200,6 +208,26 @@ public final class ControllerConfigGroup extends ReflectiveConfigGroup {
 		this.routingAlgorithmType = type;
 	}
 
+	@StringGetter( LANDMARKS_DIRECTORY )
+	public String getLandmarksDirectory() {
+		return this.landmarksDirectory;
+	}
+
+	@StringSetter( LANDMARKS_DIRECTORY )
+	public void setLandmarksDirectory(final String landmarksDirectory) {
+		this.landmarksDirectory = landmarksDirectory;
+	}
+
+	@StringGetter( LANDMARKS_REFRESH_THRESHOLD )
+	public double getLandmarksRefreshThreshold() {
+		return this.landmarksRefreshThreshold;
+	}
+
+	@StringSetter( LANDMARKS_REFRESH_THRESHOLD )
+	public void setLandmarksRefreshThreshold(final double landmarksRefreshThreshold) {
+		this.landmarksRefreshThreshold = landmarksRefreshThreshold;
+	}
+
 	@StringGetter( COMPRESSION_TYPE )
 	public CompressionType getCompressionType() {
 		return this.compressionType;
@@ -285,7 +313,7 @@ public final class ControllerConfigGroup extends ReflectiveConfigGroup {
 		this.eventsFileFormats = Collections.unmodifiableSet(EnumSet.copyOf(eventsFileFormats));
 	}
 	// ---
-	public enum SnapshotFormat { transims, googleearth, otfvis, positionevents }
+	public enum SnapshotFormat { transims, googleearth, otfvis, positionevents, binary }
 	private Set<SnapshotFormat> snapshotFormat = Collections.emptySet();
 
 	@StringSetter( SNAPSHOT_FORMAT )
@@ -49,6 +49,20 @@ public final class EventsManagerConfigGroup extends ReflectiveConfigGroup {
 	private final static String EVENTS_QUEUE_SIZE_COMMENT = "Size of the events Queue. Increase for very large scenarios";
 	private int eventsQueueSize = 65536 * 2 ;
 
+	private final static String HANDLER_DISPATCH = "handlerDispatch";
+	private final static String HANDLER_DISPATCH_COMMENT = "How events are passed to the handleEvent methods of the event handlers. "
+			+ "reflection: calls the methods through reflection. "
+			+ "generated: creates a direct call path for each event class and handler when the handler is added, which avoids the reflection overhead. "
+			+ "Falls back to reflection for handler interfaces that are not accessible.";
+	public enum HandlerDispatch {reflection, generated}
+	private HandlerDispatch handlerDispatch = HandlerDispatch.reflection;
+
+	private final static String USE_RING_BUFFER = "useRingBuffer";
+	private final static String USE_RING_BUFFER_COMMENT = "If enabled, events are passed to the handler threads through a lock-free ring buffer, from which the handler threads "
+			+ "read the events without copying them. The ring buffer holds " + EVENTS_QUEUE_SIZE + " events (rounded up to a power of two). "
+			+ "Each handler gets its own thread, unless " + ONE_THREAD_PER_HANDLER + " is disabled and " + NUMBER_OF_THREADS + " is set. "
+			+ "Throughput and latency of each handler thread are written to the log after each iteration. This feature is still experimental!";
+	private boolean useRingBuffer = false;
 
 
 	private boolean locked = false;
@@ -67,6 +81,8 @@ public final class EventsManagerConfigGroup extends ReflectiveConfigGroup {
 		comments.put(ONE_THREAD_PER_HANDLER, "If enabled, each event handler is assigned to its own thread. Note that enabling this feature disabled the " + NUMBER_OF_THREADS + " option! "
 				+ "This feature is still experimental!");
 		comments.put(EVENTS_QUEUE_SIZE,EVENTS_QUEUE_SIZE_COMMENT);
+		comments.put(HANDLER_DISPATCH, HANDLER_DISPATCH_COMMENT);
+		comments.put(USE_RING_BUFFER, USE_RING_BUFFER_COMMENT);
 		return comments;
 	}
 
@@ -144,6 +160,46 @@ public final class EventsManagerConfigGroup extends ReflectiveConfigGroup {
 		}
 	}
 
+	/**
+	 * {@value #HANDLER_DISPATCH_COMMENT}
+	 */
+	@StringGetter( HANDLER_DISPATCH )
+	public HandlerDispatch getHandlerDispatch() {
+		return this.handlerDispatch;
+	}
+
+	/**
+	 * {@value #HANDLER_DISPATCH_COMMENT}
+	 */
+	@StringSetter( HANDLER_DISPATCH )
+	public void setHandlerDispatch(HandlerDispatch handlerDispatch) {
+		if ( !this.locked ) {
+			this.handlerDispatch = handlerDispatch;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
+	/**
+	 * {@value #USE_RING_BUFFER_COMMENT}
+	 */
+	@StringGetter( USE_RING_BUFFER )
+	public boolean getUseRingBuffer() {
+		return this.useRingBuffer;
+	}
+
+	/**
+	 * {@value #USE_RING_BUFFER_COMMENT}
+	 */
+	@StringSetter( USE_RING_BUFFER )
+	public void setUseRingBuffer(boolean useRingBuffer) {
+		if ( !this.locked ) {
+			this.useRingBuffer = useRingBuffer;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
 	public void makeLocked() {
 		this.locked = true;
 	}
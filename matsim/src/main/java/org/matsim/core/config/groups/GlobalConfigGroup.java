@@ -39,6 +39,7 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	@Override public Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_CMT ) ;
+		map.put(REPLANNING_THREAD_SCHEDULING, REPLANNING_THREAD_SCHEDULING_CMT ) ;
 		return map ;
 	}
 
@@ -94,6 +95,25 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.numberOfThreads = numberOfThreads;
 	}
 	// ---
+	public enum ReplanningThreadScheduling {roundRobin, workStealing}
+
+	private ReplanningThreadScheduling replanningThreadScheduling = ReplanningThreadScheduling.roundRobin;
+	private static final String REPLANNING_THREAD_SCHEDULING = "replanningThreadScheduling";
+	private static final String REPLANNING_THREAD_SCHEDULING_CMT = "How multi-threaded replanning modules distribute the plans to their threads.  "
+			+ ReplanningThreadScheduling.roundRobin + ": plans are assigned to the threads in turn, which is reproducible.  "
+			+ ReplanningThreadScheduling.workStealing + ": plans are assigned in small chunks, and threads which run out of work take chunks from the others.  "
+			+ "This balances the load if a few plans take much longer than the others (e.g. long pt routes), "
+			+ "but which thread (and thus which random number generator) handles a plan is no longer deterministic.";
+
+	@StringGetter( REPLANNING_THREAD_SCHEDULING )
+	public ReplanningThreadScheduling getReplanningThreadScheduling() {
+		return this.replanningThreadScheduling;
+	}
+	@StringSetter( REPLANNING_THREAD_SCHEDULING )
+	public void setReplanningThreadScheduling(final ReplanningThreadScheduling replanningThreadScheduling) {
+		this.replanningThreadScheduling = replanningThreadScheduling;
+	}
+	// ---
 	private String coordinateSystem = "Atlantis" ;
 	// see https://matsim.atlassian.net/browse/MATSIM-898
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
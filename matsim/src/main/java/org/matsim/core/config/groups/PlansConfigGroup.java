@@ -38,6 +38,7 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		@Deprecated public static final String CompressedNetworkRoute = "CompressedNetworkRoute";
 		public static final String MediumCompressedNetworkRoute = "MediumCompressedNetworkRoute";
 		public static final String HeavyCompressedNetworkRoute = "HeavyCompressedNetworkRoute";
+		public static final String InternedNetworkRoute = "InternedNetworkRoute";
 	}
 
 	public enum ActivityDurationInterpretation { minOfDurationAndEndTime, tryEndTimeThenDuration, @Deprecated endTimeOnly }
@@ -87,7 +88,8 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 				"Defines how routes are stored in memory. Currently supported: " +
 				NetworkRouteType.LinkNetworkRoute + ", " +
 				NetworkRouteType.MediumCompressedNetworkRoute + ", " +
-				NetworkRouteType.HeavyCompressedNetworkRoute + ".");
+				NetworkRouteType.HeavyCompressedNetworkRoute + ", " +
+				NetworkRouteType.InternedNetworkRoute + ".");
 //		comments.put(
 //				INPUT_PERSON_ATTRIBUTES_FILE,
 //				"Path to a file containing person attributes (required file format: ObjectAttributes).");
@@ -103,6 +105,9 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		comments.put(ACTIVITY_DURATION_INTERPRETATION, "String:" + str + ". Anything besides " 
 				+ PlansConfigGroup.ActivityDurationInterpretation.minOfDurationAndEndTime + " will internally use a different " +
 		"(simpler) version of the TimeAllocationMutator.") ;
+		comments.put(STORING_NON_SELECTED_PLANS_OFF_HEAP, "If true, the non-selected plans are serialized into direct " +
+				"memory before the mobsim and read back when replanning or writing uses them. Reduces the heap used by " +
+				"populations with many plans per person.");
 		comments.put(TRIP_DURATION_HANDLING, "Defines how departure times are interpreted in rerouting applications. If set to '" + TripDurationHandling.ignoreDelays + "', " + 
 				"the departure time of a trip when routing along a plan will always be the nominal (plan-based) activity end time. If set to '" + TripDurationHandling.shiftActivityEndTimes + "', " + 
 				"routing along a plan will accumulate travel times and shift activity end times if necessary");
@@ -247,6 +252,17 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 	}
 
 
+	private static final String STORING_NON_SELECTED_PLANS_OFF_HEAP = "storingNonSelectedPlansOffHeap";
+	private boolean storingNonSelectedPlansOffHeap = false;
+	@StringGetter(STORING_NON_SELECTED_PLANS_OFF_HEAP)
+	public boolean isStoringNonSelectedPlansOffHeap() {
+		return this.storingNonSelectedPlansOffHeap;
+	}
+	@StringSetter(STORING_NON_SELECTED_PLANS_OFF_HEAP)
+	public void setStoringNonSelectedPlansOffHeap(final boolean storingNonSelectedPlansOffHeap) {
+		this.storingNonSelectedPlansOffHeap = storingNonSelectedPlansOffHeap;
+	}
+
 	@StringGetter( INPUT_CRS )
 	public String getInputCRS() {
 		return inputCRS;
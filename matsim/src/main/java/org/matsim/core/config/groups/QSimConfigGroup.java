@@ -23,6 +23,7 @@ package org.matsim.core.config.groups;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.TransportMode;
+import org.matsim.core.config.Config;
 import org.matsim.core.config.ReflectiveConfigGroup;
 import org.matsim.core.utils.collections.CollectionUtils;
 import org.matsim.core.utils.misc.OptionalTime;
@@ -58,6 +59,8 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 	private static final String STUCK_TIME = "stuckTime";
 	private static final String REMOVE_STUCK_VEHICLES = "removeStuckVehicles";
 	private static final String NUMBER_OF_THREADS = "numberOfThreads";
+	private static final String LOAD_BALANCING_INTERVAL = "loadBalancingInterval";
+	private static final String SKIP_IDLE_TIME_STEPS = "skipIdleTimeSteps";
 	private static final String TRAFFIC_DYNAMICS = "trafficDynamics";
 	private static final String SIM_STARTTIME_INTERPRETATION = "simStarttimeInterpretation";
 	private static final String USE_PERSON_ID_FOR_MISSING_VEHICLE_ID = "usePersonIdForMissingVehicleId";
@@ -65,6 +68,11 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 	/* package */ final static String STUCK_TIME_STRING =
 			"time in seconds.  Time after which the frontmost vehicle on a link is called `stuck' if it does not move.";
 	private static final String FILTER_SNAPSHOTS = "filterSnapshots";
+	private static final String BINARY_SNAPSHOT_RESOLUTION = "binarySnapshotResolution";
+	private static final String BINARY_SNAPSHOT_PERIOD = "binarySnapshotPeriod";
+	private static final String CHECKPOINT_TIME = "checkpointTime";
+	private static final String CHECKPOINT_FILE = "checkpointFile";
+	private static final String RESTART_FROM_CHECKPOINT_FILE = "restartFromCheckpointFile";
 	private static final String LINK_DYNAMICS = "linkDynamics";
 	private InflowCapacitySetting inflowCapacitySetting = InflowCapacitySetting.INFLOW_FROM_FDIAG;
 
@@ -91,11 +99,21 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 	private boolean usePersonIdForMissingVehicleId = true;
 	@Positive
 	private int numberOfThreads = 1;
+	@PositiveOrZero
+	private double loadBalancingInterval = 3600;
+	private boolean skipIdleTimeSteps = false;
 	//	private static final String CREATING_VEHICLES_FOR_ALL_NETWORK_MODES = "creatingVehiclesForAllNetworkModes";
 //	private boolean creatingVehiclesForAllNetworkModes = true;
 	// ---
 	private static final String IS_SEEP_MODE_STORAGE_FREE = "isSeepModeStorageFree";
 	private FilterSnapshots filterSnapshots = FilterSnapshots.no; // include all vehicles by default
+	@Positive
+	private double binarySnapshotResolution = 1.0;
+	@PositiveOrZero
+	private double binarySnapshotPeriod = 0; // every snapshot
+	private OptionalTime checkpointTime = OptionalTime.undefined();
+	private String checkpointFile = null;
+	private String restartFromCheckpointFile = null;
 
 	private StarttimeInterpretation simStarttimeInterpretation = StarttimeInterpretation.maxOfStarttimeAndEarliestActivityEnd;
 
@@ -171,6 +189,13 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		map.put(NUMBER_OF_THREADS, "Number of threads used for the QSim.  "
 				+ "Note that this setting is independent from the \"global\" threads setting.  "
 				+ "In contrast to earlier versions, the non-parallel special version is no longer there.");
+		map.put(LOAD_BALANCING_INTERVAL, "time in seconds.  With more than one thread, the network is split into parts of neighbouring nodes, "
+				+ "one per thread, which are resized according to the measured run time of the threads at this interval during the simulation "
+				+ "and after each simulation.  0 means to only resize them after each simulation.");
+		map.put(SKIP_IDLE_TIME_STEPS, "If true, the simulation jumps over time steps in which nothing happens, e.g. at night.  This only has an effect "
+				+ "if all mobsim engines and all sim step listeners can tell when they have something to do next, otherwise all time steps are "
+				+ "simulated.  The results are the same either way.  DRT supports this with its default optimizer, while other DVRP "
+				+ "services, e.g. taxi, still need every time step.");
 		map.put(REMOVE_STUCK_VEHICLES, REMOVE_STUCK_VEHICLES_STRING);
 		map.put(STUCK_TIME, STUCK_TIME_STRING);
 
@@ -227,6 +252,19 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		map.put(IS_SEEP_MODE_STORAGE_FREE, "If link dynamics is set as " + LinkDynamics.SeepageQ + ", set to true if seep mode do not consumes any space on the link. Default is false.");
 		map.put(IS_RESTRICTING_SEEPAGE, "If link dynamics is set as " + LinkDynamics.SeepageQ + ", set to false if all seep modes should perform seepage. Default is true (better option).");
 		map.put(FILTER_SNAPSHOTS, "If set to " + FilterSnapshots.withLinkAttributes + " snapshots will only be generated for links which include " + SnapshotWritersModule.GENERATE_SNAPSHOT_FOR_LINK_KEY + " as attribute key. Default is no filtering.");
+		map.put(BINARY_SNAPSHOT_RESOLUTION, "distance in meters.  Positions in the binary snapshot format are rounded to multiples of it, and an agent "
+				+ "which has not moved by that much since the previous snapshot is written as unchanged.");
+		map.put(BINARY_SNAPSHOT_PERIOD, "time in seconds.  The binary snapshot format only contains snapshots which are at least this far apart.  "
+				+ "0 means every snapshot, i.e. one per " + SNAPSHOT_PERIOD + ".");
+		map.put(CHECKPOINT_TIME, "time of day at which the state of the mobsim is written to " + CHECKPOINT_FILE + ", so that other runs can be "
+				+ "restarted from that point in time with " + RESTART_FROM_CHECKPOINT_FILE + ".  Lanes, signals, DVRP services and "
+				+ "within-day replanning are not supported, and neither are agents waiting on links to be picked up by a car.  Components "
+				+ "other than the network which draw random numbers after the checkpoint do not draw the same ones in restarted runs.  "
+				+ "Default is no checkpoint.");
+		map.put(CHECKPOINT_FILE, "file which the checkpoint is written to, see " + CHECKPOINT_TIME + ".");
+		map.put(RESTART_FROM_CHECKPOINT_FILE, "If set, the mobsim starts with the state from this checkpoint file instead of at the start of the day.  "
+				+ "Population, network and configuration must be the same as in the run which wrote it, except for changes which "
+				+ "take effect after the checkpoint, e.g. network change events.  Events before the checkpoint are not generated again.");
 //		map.put(CREATING_VEHICLES_FOR_ALL_NETWORK_MODES, "If set to true, creates a vehicle for each person corresponding to every network mode. However, " +
 //				"this will be overridden if vehicle source is "+ VehiclesSource.fromVehiclesData+".");
 
@@ -328,6 +366,89 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.filterSnapshots = value;
 	}
 
+	@StringGetter(BINARY_SNAPSHOT_RESOLUTION)
+	public double getBinarySnapshotResolution() {
+		return this.binarySnapshotResolution;
+	}
+
+	@StringSetter(BINARY_SNAPSHOT_RESOLUTION)
+	public void setBinarySnapshotResolution(final double binarySnapshotResolution) {
+		this.binarySnapshotResolution = binarySnapshotResolution;
+	}
+
+	@StringGetter(BINARY_SNAPSHOT_PERIOD)
+	public double getBinarySnapshotPeriod() {
+		return this.binarySnapshotPeriod;
+	}
+
+	@StringSetter(BINARY_SNAPSHOT_PERIOD)
+	public void setBinarySnapshotPeriod(final double binarySnapshotPeriod) {
+		this.binarySnapshotPeriod = binarySnapshotPeriod;
+	}
+
+	@StringGetter(CHECKPOINT_TIME)
+	private String getCheckpointTimeAsString() {
+		return Time.writeTime(this.checkpointTime);
+	}
+
+	@StringSetter(CHECKPOINT_TIME)
+	private void setCheckpointTime(String value) {
+		this.checkpointTime = Time.parseOptionalTime(value);
+	}
+
+	public OptionalTime getCheckpointTime() {
+		return this.checkpointTime;
+	}
+
+	public void setCheckpointTime(final double checkpointTime) {
+		this.checkpointTime = OptionalTime.defined(checkpointTime);
+	}
+
+	@StringGetter(CHECKPOINT_FILE)
+	public String getCheckpointFile() {
+		return this.checkpointFile;
+	}
+
+	@StringSetter(CHECKPOINT_FILE)
+	public void setCheckpointFile(final String checkpointFile) {
+		this.checkpointFile = checkpointFile;
+	}
+
+	@StringGetter(RESTART_FROM_CHECKPOINT_FILE)
+	public String getRestartFromCheckpointFile() {
+		return this.restartFromCheckpointFile;
+	}
+
+	@StringSetter(RESTART_FROM_CHECKPOINT_FILE)
+	public void setRestartFromCheckpointFile(final String restartFromCheckpointFile) {
+		this.restartFromCheckpointFile = restartFromCheckpointFile;
+	}
+
+	@Override
+	protected void checkConsistency(Config config) {
+		super.checkConsistency(config);
+		if (this.checkpointTime.isUndefined() && this.restartFromCheckpointFile == null) {
+			return;
+		}
+		if (this.checkpointTime.isDefined() && this.checkpointFile == null) {
+			throw new IllegalStateException(CHECKPOINT_TIME + " is set, but no " + CHECKPOINT_FILE + ".");
+		}
+		List<String> unsupported = new ArrayList<>();
+		if (this.useLanes) {
+			unsupported.add("lanes");
+		}
+		// the modules of contribs which come with mobsim engines of their own
+		for (String module : new String[]{"signalsystems", "dvrp", "withinDay"}) {
+			if (config.getModules().containsKey(module)) {
+				unsupported.add(module);
+			}
+		}
+		if (!unsupported.isEmpty()) {
+			throw new IllegalStateException("Checkpoints of the mobsim, i.e. " + CHECKPOINT_TIME + " or " + RESTART_FROM_CHECKPOINT_FILE
+					+ ", are not supported with " + String.join(", ", unsupported) + ".");
+		}
+	}
+
 	@StringGetter(FAST_CAPACITY_UPDATE)
 	public final boolean isUsingFastCapacityUpdate() {
 		return this.usingFastCapacityUpdate;
@@ -469,6 +590,26 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.numberOfThreads = numberOfThreads;
 	}
 
+	@StringGetter(LOAD_BALANCING_INTERVAL)
+	public double getLoadBalancingInterval() {
+		return this.loadBalancingInterval;
+	}
+
+	@StringSetter(LOAD_BALANCING_INTERVAL)
+	public void setLoadBalancingInterval(final double loadBalancingInterval) {
+		this.loadBalancingInterval = loadBalancingInterval;
+	}
+
+	@StringGetter(SKIP_IDLE_TIME_STEPS)
+	public boolean isSkipIdleTimeSteps() {
+		return this.skipIdleTimeSteps;
+	}
+
+	@StringSetter(SKIP_IDLE_TIME_STEPS)
+	public void setSkipIdleTimeSteps(final boolean skipIdleTimeSteps) {
+		this.skipIdleTimeSteps = skipIdleTimeSteps;
+	}
+
 	@StringGetter(SIM_STARTTIME_INTERPRETATION)
 	public StarttimeInterpretation getSimStarttimeInterpretation() {
 		return simStarttimeInterpretation;
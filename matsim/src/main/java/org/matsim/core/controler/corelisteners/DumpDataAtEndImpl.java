@@ -156,6 +156,11 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 					case json:
 						file = Controler.DefaultFiles.eventsJson;
 						break;
+					case binary:
+						// written without compression, see EventsHandlingImpl
+						IOUtils.copyFile(this.controlerIO.getIterationFilename(iteration, Controler.DefaultFiles.eventsBinary, ControllerConfigGroup.CompressionType.none),
+								this.controlerIO.getOutputFilename(Controler.DefaultFiles.eventsBinary, ControllerConfigGroup.CompressionType.none));
+						continue;
 					default:
 						continue;
 				}
@@ -20,12 +20,18 @@
 
 package org.matsim.core.events;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -40,6 +46,7 @@ import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
 import org.matsim.core.api.experimental.events.handler.AgentWaitingForPtEventHandler;
 import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
 import org.matsim.core.api.experimental.events.handler.VehicleDepartsAtFacilityEventHandler;
+import org.matsim.core.config.groups.EventsManagerConfigGroup.HandlerDispatch;
 import org.matsim.core.events.handler.BasicEventHandler;
 import org.matsim.core.events.handler.EventHandler;
 
@@ -54,6 +61,8 @@ import org.matsim.core.events.handler.EventHandler;
  * <li>(optional) add an appropriate line in callHandlerFast() for speeding
  * up execution!</li>
  * </ol>
+ * With {@link HandlerDispatch#generated}, a call path for each (event class, handler) pair is generated with
+ * {@link LambdaMetafactory} when the handlers are looked up, so neither reflection nor callHandlerFast() is used.
  *
  * @author dstrippgen
  * @author mrieser
@@ -82,15 +91,33 @@ public final class EventsManagerImpl implements EventsManager {
 		protected final Class<? extends Event> eventClass;
 		protected final EventHandler eventHandler;
 		protected final Method method;
+		// null if the handler is called through callHandlerFast() or reflection
+		protected final EventDispatcher dispatcher;
 
 		protected HandlerInfo(final Class<? extends Event> eventClass, final EventHandler eventHandler,
-				final Method method) {
+				final Method method, final EventDispatcher dispatcher) {
 			this.eventClass = eventClass;
 			this.eventHandler = eventHandler;
 			this.method = method;
+			this.dispatcher = dispatcher;
 		}
 	}
 
+	/**
+	 * Calls the handleEvent method of one handler, implementations are generated by {@link LambdaMetafactory}.
+	 */
+	@FunctionalInterface
+	interface EventDispatcher {
+		void dispatch(Event event);
+	}
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	// (HandlerInterface)EventDispatcher factories per handleEvent method, empty if the method is not accessible
+	private static final Map<Method, Optional<MethodHandle>> dispatcherFactories = new ConcurrentHashMap<>();
+
+	private final HandlerDispatch handlerDispatch;
+
 	private final List<HandlerData> handlerData = new ArrayList<>();
 
 	private final Map<Class<? extends Event>, HandlerInfo[]> cacheHandlers = new ConcurrentHashMap<>(15);
@@ -98,6 +125,14 @@ public final class EventsManagerImpl implements EventsManager {
 	private long counter = 0;
 	private long nextCounterMsg = 1;
 
+	public EventsManagerImpl() {
+		this(HandlerDispatch.reflection);
+	}
+
+	public EventsManagerImpl(HandlerDispatch handlerDispatch) {
+		this.handlerDispatch = handlerDispatch;
+	}
+
 	private HandlerData findHandler(final Class<? extends Event> evklass) {
 		for (HandlerData handler : this.handlerData) {
 			if (handler.eventClass == evklass) {
@@ -116,6 +151,10 @@ public final class EventsManagerImpl implements EventsManager {
 		}
 		for (HandlerInfo info : getHandlersForClass( event.getClass() )) {
 			synchronized(info.eventHandler) {
+				if (info.dispatcher != null) {
+					info.dispatcher.dispatch(event);
+					continue;
+				}
 				if (callHandlerFast(info.eventClass, event, info.eventHandler )) {
 					continue;
 				}
@@ -228,7 +267,8 @@ public final class EventsManagerImpl implements EventsManager {
 			HandlerData dat = findHandler(eventKlass);
 			if (dat != null) {
 				for (EventHandler handler : dat.handlerList) {
-					info.add(new HandlerInfo(eventKlass, handler, dat.method));
+					EventDispatcher dispatcher = this.handlerDispatch == HandlerDispatch.generated ? createDispatcher(handler, dat.method) : null;
+					info.add(new HandlerInfo(eventKlass, handler, dat.method, dispatcher));
 				}
 			}
 			klass = klass.getSuperclass();
@@ -239,6 +279,37 @@ public final class EventsManagerImpl implements EventsManager {
 		return cache;
 	}
 
+	/**
+	 * @return a dispatcher calling <code>method</code> on <code>handler</code>, or null if none can be generated, in
+	 * which case the handler is called through reflection.
+	 */
+	private static EventDispatcher createDispatcher(final EventHandler handler, final Method method) {
+		Optional<MethodHandle> factory = dispatcherFactories.computeIfAbsent(method, EventsManagerImpl::createDispatcherFactory);
+		if (factory.isEmpty() || !method.getDeclaringClass().isInstance(handler)) {
+			return null;
+		}
+		try {
+			return (EventDispatcher) factory.get().invoke(handler);
+		} catch (Throwable e) {
+			throw new RuntimeException("problem creating dispatcher for EventHandler " + handler.getClass().getCanonicalName() + " and method " + method, e);
+		}
+	}
+
+	private static Optional<MethodHandle> createDispatcherFactory(final Method method) {
+		try {
+			MethodHandle target = LOOKUP.unreflect(method);
+			CallSite site = LambdaMetafactory.metafactory(LOOKUP, "dispatch",
+					MethodType.methodType(EventDispatcher.class, method.getDeclaringClass()),
+					MethodType.methodType(void.class, Event.class),
+					target,
+					MethodType.methodType(void.class, method.getParameterTypes()[0]));
+			return Optional.of(site.getTarget());
+		} catch (Exception | LinkageError e) {
+			log.warn("cannot generate event dispatcher for " + method + ", using reflection instead: " + e.getMessage());
+			return Optional.empty();
+		}
+	}
+
 	// this method is purely for performance reasons and need not be implemented
 	private static boolean callHandlerFast(final Class<? extends Event> klass, final Event ev,
 			final EventHandler handler) {
@@ -34,7 +34,9 @@ public final class EventsManagerModule extends AbstractModule {
 
 	@Override
 	public void install() {
-		if (BooleanUtils.isTrue(getConfig().eventsManager().getOneThreadPerHandler())) {
+		if (getConfig().eventsManager().getUseRingBuffer()) {
+			bindEventsManager().to(RingBufferEventsManager.class).in(Singleton.class);
+		} else if (BooleanUtils.isTrue(getConfig().eventsManager().getOneThreadPerHandler())) {
 			bindEventsManager().to(ParallelEventsManager.class).in(Singleton.class);
 		} else if (getConfig().eventsManager().getNumberOfThreads() != null) {
 			if (BooleanUtils.isTrue(getConfig().eventsManager().getSynchronizeOnSimSteps())) {
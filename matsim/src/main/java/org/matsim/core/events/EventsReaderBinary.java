@@ -0,0 +1,154 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.MatsimEventsReader.CustomEventMapper;
+import org.matsim.core.events.algorithms.BinaryEventsFormat;
+import org.matsim.core.events.algorithms.BinaryEventsFormat.ChunkInfo;
+
+/**
+ * Reads events files in the {@link BinaryEventsFormat}.
+ * <p>
+ * Chunks are decoded on several threads, but the events are passed to the events manager on the calling thread and in
+ * the order they were written. With {@link #readFile(String, double, double)}, only the chunks overlapping the given
+ * time window are read.
+ */
+public final class EventsReaderBinary {
+
+	private final static Logger LOG = LogManager.getLogger(EventsReaderBinary.class);
+
+	private final EventsManager events;
+	private final Map<String, CustomEventMapper> customEventMappers = new HashMap<>();
+	private int numberOfThreads = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+	public EventsReaderBinary(final EventsManager events) {
+		this.events = events;
+	}
+
+	public void addCustomEventMapper(String eventType, CustomEventMapper cem) {
+		this.customEventMappers.put(eventType, cem);
+	}
+
+	/**
+	 * @param numberOfThreads number of threads decoding chunks, 1 decodes them on the calling thread.
+	 */
+	public void setNumberOfThreads(int numberOfThreads) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("numberOfThreads must be positive: " + numberOfThreads);
+		}
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	public void readFile(final String filename) {
+		readFile(filename, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Reads the events with <code>fromTime &lt;= time &lt; toTime</code>.
+	 */
+	public void readFile(final String filename, final double fromTime, final double toTime) {
+		try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+			BinaryEventsFormat.Footer footer = BinaryEventsFormat.readFooter(channel);
+			List<ChunkInfo> chunks = new ArrayList<>();
+			for (ChunkInfo chunk : footer.getChunks()) {
+				if (chunk.getMaxTime() >= fromTime && chunk.getMinTime() < toTime) {
+					chunks.add(chunk);
+				}
+			}
+			LOG.info("reading " + chunks.size() + " of " + footer.getChunks().size() + " chunks from " + filename);
+
+			if (this.numberOfThreads == 1 || chunks.size() <= 1) {
+				for (ChunkInfo chunk : chunks) {
+					process(BinaryEventsFormat.readChunk(channel, footer, chunk), fromTime, toTime);
+				}
+			} else {
+				readParallel(channel, footer, chunks, fromTime, toTime);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void readParallel(FileChannel channel, BinaryEventsFormat.Footer footer, List<ChunkInfo> chunks, double fromTime, double toTime) {
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads, r -> {
+			Thread thread = new Thread(r, "EventsReaderBinary");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			// decode a few chunks ahead, but not the whole file, to limit the memory use
+			ArrayDeque<Future<Event[]>> pending = new ArrayDeque<>();
+			int next = 0;
+			while (next < chunks.size() || !pending.isEmpty()) {
+				while (next < chunks.size() && pending.size() < 2 * this.numberOfThreads) {
+					ChunkInfo chunk = chunks.get(next++);
+					pending.add(executor.submit(() -> BinaryEventsFormat.readChunk(channel, footer, chunk)));
+				}
+				process(pending.poll().get(), fromTime, toTime);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void process(Event[] chunk, double fromTime, double toTime) {
+		for (Event event : chunk) {
+			double time = event.getTime();
+			if (time < fromTime || time >= toTime) {
+				continue;
+			}
+			if (event instanceof GenericEvent) {
+				CustomEventMapper cem = this.customEventMappers.get(event.getEventType());
+				if (cem != null) {
+					event = cem.apply((GenericEvent) event);
+				}
+			}
+			this.events.processEvent(event);
+		}
+	}
+}
@@ -0,0 +1,59 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderProvider.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.InputStream;
+import java.util.Map;
+
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.config.groups.ControllerConfigGroup;
+import org.matsim.core.events.MatsimEventsReader.CustomEventMapper;
+
+/**
+ * Provides a reader for an events format that is not implemented in core, e.g. protobuf, so that
+ * {@link MatsimEventsReader} can read it.
+ * <p>
+ * Instances of this class are created automatically using Java's SPI functionality. To make a reader available, add
+ * the fully qualified name of the provider to a file named:
+ * <code>
+ * META-INF/services/org.matsim.core.events.EventsReaderProvider
+ * </code>
+ * <p>
+ * Every implementation of this interface needs to have a default constructor with no argument.
+ */
+public interface EventsReaderProvider {
+
+	/**
+	 * @return the format read by the readers of this provider.
+	 */
+	ControllerConfigGroup.EventsFileFormat getFormat();
+
+	EventsStreamReader createReader(EventsManager events, Map<String, CustomEventMapper> customEventMappers);
+
+	interface EventsStreamReader extends MatsimReader {
+
+		/**
+		 * Reads all events from the stream, which is not closed afterwards.
+		 */
+		void readStream(InputStream stream);
+	}
+}
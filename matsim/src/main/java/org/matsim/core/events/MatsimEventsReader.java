@@ -21,10 +21,14 @@
 package org.matsim.core.events;
 
 import java.io.InputStream;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Path;
 import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.ServiceLoader;
 import java.util.Stack;
 
 import org.apache.logging.log4j.LogManager;
@@ -82,6 +86,12 @@ public final class MatsimEventsReader implements MatsimReader {
 			EventsReaderJson reader = new EventsReaderJson(this.events);
 			customEventMappers.forEach(reader::addCustomEventMapper);
 			reader.parse(filename);
+		} else if (isPbFile(lcFilename)) {
+			createReader(ControllerConfigGroup.EventsFileFormat.pb).readFile(filename);
+		} else if (lcFilename.endsWith(".bin")) {
+			EventsReaderBinary reader = new EventsReaderBinary(this.events);
+			customEventMappers.forEach(reader::addCustomEventMapper);
+			reader.readFile(filename);
 		} else if (lcFilename.endsWith(".txt") || lcFilename.endsWith(".txt.gz")) {
 			throw new RuntimeException("text events are no longer supported. Please use MATSim 0.6.1 or earlier to read text events.");
 		} else {
@@ -100,13 +110,16 @@ public final class MatsimEventsReader implements MatsimReader {
 				new XmlEventsReader(this.events, this.customEventMappers).parse(stream);
 				break;
 			case pb:
-				throw new UnsupportedOperationException(
-						"PB (Protobuf) is currently not supported to read from a stream");
+				createReader(format).readStream(stream);
+				break;
 			case json:
 				EventsReaderJson reader = new EventsReaderJson(this.events);
 				customEventMappers.forEach(reader::addCustomEventMapper);
 				reader.parse(stream);
 				break;
+			case binary:
+				throw new UnsupportedOperationException(
+						"The binary events format needs random access and can only be read from a file");
 		}
 	}
 
@@ -118,7 +131,33 @@ public final class MatsimEventsReader implements MatsimReader {
 			EventsReaderJson reader = new EventsReaderJson(this.events);
 			customEventMappers.forEach(reader::addCustomEventMapper);
 			reader.parse(url);
+		} else if (isPbFile(url.getFile().toLowerCase(Locale.ROOT))) {
+			createReader(ControllerConfigGroup.EventsFileFormat.pb).readURL(url);
+		} else if (url.getFile().endsWith(".bin")) {
+			try {
+				readFile(Path.of(url.toURI()).toString());
+			} catch (URISyntaxException | IllegalArgumentException | FileSystemNotFoundException e) {
+				throw new UnsupportedOperationException("The binary events format needs random access and can only be read from a file: " + url, e);
+			}
+		}
+	}
+
+	private static boolean isPbFile(String lcFilename) {
+		return lcFilename.endsWith(".pb") || lcFilename.endsWith(".pb.gz") || lcFilename.endsWith(".pb.zst") || lcFilename.endsWith(".pb.lz4");
+	}
+
+	/**
+	 * Readers of formats which are not implemented in core, e.g. protobuf in the protobuf contrib, are registered as
+	 * {@link EventsReaderProvider}.
+	 */
+	private EventsReaderProvider.EventsStreamReader createReader(ControllerConfigGroup.EventsFileFormat format) {
+		for (EventsReaderProvider provider : ServiceLoader.load(EventsReaderProvider.class)) {
+			if (provider.getFormat() == format) {
+				return provider.createReader(this.events, this.customEventMappers);
+			}
 		}
+		throw new RuntimeException("No reader for the events format " + format + " found. Please make sure the contrib providing it, "
+				+ "e.g. the protobuf contrib, is on the classpath.");
 	}
 
 	private static class XmlEventsReader extends MatsimXmlParser {
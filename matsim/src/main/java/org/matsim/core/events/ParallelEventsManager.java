@@ -33,6 +33,7 @@ import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.EventsManagerConfigGroup.HandlerDispatch;
 import org.matsim.core.events.handler.EventHandler;
 
 /**
@@ -54,13 +55,14 @@ public final class ParallelEventsManager implements EventsManager {
 	private final BlockingQueue<EventArray> eventQueue;
 
 	private final int eventsQueueSize;
+	private HandlerDispatch handlerDispatch = HandlerDispatch.reflection;
 	//private final int eventsQueueSize = 1048576 * 32;
 	private final int eventsArraySize;
 
 	@Inject
 	ParallelEventsManager(Config config) {
 		this(config.eventsManager().getSynchronizeOnSimSteps() != null ? config.eventsManager().getSynchronizeOnSimSteps() : true, config.eventsManager().getEventsQueueSize());
-
+		this.handlerDispatch = config.eventsManager().getHandlerDispatch();
 	}
 
 	public ParallelEventsManager(final boolean syncOnTimeSteps) {
@@ -100,7 +102,7 @@ public final class ParallelEventsManager implements EventsManager {
 		} else {
 			// TODO - check if this slow path is correct
 			for (int i = 0; i < this.numOfThreads; i++) {
-				this.eventsManagers.add(new EventsManagerImpl());
+				this.eventsManagers.add(new EventsManagerImpl(this.handlerDispatch));
 			}
 			for (int i = 0; i < this.eventsHandlers.size(); i++) {
 				this.eventsManagers.get(i % numOfThreads).addHandler(this.eventsHandlers.get(i));
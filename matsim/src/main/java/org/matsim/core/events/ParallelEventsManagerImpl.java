@@ -28,6 +28,7 @@ import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.EventsManagerConfigGroup.HandlerDispatch;
 import org.matsim.core.events.handler.EventHandler;
 
 /**
@@ -62,6 +63,7 @@ public final class ParallelEventsManagerImpl implements EventsManager {
 
 	private boolean parallelMode = true;
 	private int numberOfThreads;
+	private HandlerDispatch handlerDispatch = HandlerDispatch.reflection;
 	private EventsManagerImpl[] events = null;
 	private ProcessEventThread[] eventsProcessThread = null;
 	private Thread[] threads = null;
@@ -82,6 +84,7 @@ public final class ParallelEventsManagerImpl implements EventsManager {
 
 	@Inject
 	ParallelEventsManagerImpl(Config config) {
+		this.handlerDispatch = config.eventsManager().getHandlerDispatch();
 		if (config.eventsManager().getEstimatedNumberOfEvents() != null) {
 			preInputBufferMaxLength = (int) (config.eventsManager().getEstimatedNumberOfEvents() / 10);
 		}
@@ -164,7 +167,7 @@ public final class ParallelEventsManagerImpl implements EventsManager {
 		this.threads = new Thread[numberOfThreads];
 		// the additional 1 is for the simulation barrier
 		for (int i = 0; i < numberOfThreads; i++) {
-			events[i] = new EventsManagerImpl();
+			events[i] = new EventsManagerImpl(this.handlerDispatch);
 		}
 	}
 
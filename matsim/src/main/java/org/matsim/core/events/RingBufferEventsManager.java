@@ -0,0 +1,459 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import jakarta.inject.Inject;
+import org.apache.commons.lang3.BooleanUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.EventsManagerConfigGroup.HandlerDispatch;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * An events manager that passes events to the handler threads through a single-producer/multi-consumer ring buffer.
+ * <p>
+ * The producer writes each event once into the ring and then publishes its sequence number. Every handler thread
+ * follows the published sequence on its own and reads the events directly from the ring, so events are neither
+ * copied nor handed over by an extra distributor thread. The producer does not overwrite a slot before the slowest
+ * handler thread has processed it (backpressure). Threads waiting for events or for free slots spin shortly, then
+ * yield and finally park for a few microseconds; no locks are involved.
+ * <p>
+ * There must only be one producer at a time. Use {@link EventsUtils#getParallelFeedableInstance(EventsManager)} if
+ * events are created by several threads.
+ * <p>
+ * For every handler thread, the number of events, the time spent in the handlers and the latency between publishing
+ * events and having them processed are recorded, see {@link #getHandlerStatistics()}. They are written to the log
+ * after each iteration.
+ */
+public final class RingBufferEventsManager implements EventsManager {
+
+	private final static Logger log = LogManager.getLogger(RingBufferEventsManager.class);
+
+	private final static int SPIN_TRIES = 100;
+	private final static int YIELD_TRIES = 100;
+	private final static long PARK_NANOS = 10_000;
+
+	private final boolean syncOnTimeSteps;
+	private final boolean oneThreadPerHandler;
+	private final int numOfThreads;
+	private final HandlerDispatch handlerDispatch;
+	private final List<EventHandler> eventsHandlers = new ArrayList<>();
+
+	private final Event[] ring;
+	private final long[] publishTimes;
+	private final int mask;
+	private final int maxBatchSize;
+
+	/** the sequence of the last published event, written by the producer only */
+	private final AtomicLong cursor = new AtomicLong(-1);
+	/** the sequence of the next event, only accessed by the producer */
+	private long nextSequence = 0;
+	/** the smallest sequence processed by all handler threads when the producer last checked */
+	private long cachedGatingSequence = -1;
+
+	private final AtomicReference<Throwable> failure = new AtomicReference<>();
+	private List<HandlerThread> threads = Collections.emptyList();
+	private List<EventsManager> eventsManagers = Collections.emptyList();
+	private volatile boolean running = false;
+	private boolean init = false;
+	private int iteration = 0;
+
+	@Inject
+	RingBufferEventsManager(Config config) {
+		this(BooleanUtils.isNotFalse(config.eventsManager().getSynchronizeOnSimSteps()),
+				BooleanUtils.isTrue(config.eventsManager().getOneThreadPerHandler()) || config.eventsManager().getNumberOfThreads() == null ?
+						-1 : config.eventsManager().getNumberOfThreads(),
+				config.eventsManager().getEventsQueueSize(),
+				config.eventsManager().getHandlerDispatch());
+	}
+
+	/**
+	 * Creates an events manager with one thread per handler.
+	 */
+	public RingBufferEventsManager(boolean syncOnTimeSteps, int ringBufferSize) {
+		this(syncOnTimeSteps, -1, ringBufferSize, HandlerDispatch.reflection);
+	}
+
+	/**
+	 * @param numOfThreads number of handler threads, the handlers are assigned round-robin. Use -1 for one thread per
+	 *                     handler.
+	 * @param ringBufferSize number of events the ring buffer can hold, rounded up to the next power of two.
+	 */
+	public RingBufferEventsManager(boolean syncOnTimeSteps, int numOfThreads, int ringBufferSize, HandlerDispatch handlerDispatch) {
+		if (numOfThreads == 0 || numOfThreads < -1) {
+			throw new IllegalArgumentException("number of threads must be positive, or -1 for one thread per handler: " + numOfThreads);
+		}
+		if (ringBufferSize < 1 || ringBufferSize > (1 << 30)) {
+			throw new IllegalArgumentException("ring buffer size must be between 1 and 2^30: " + ringBufferSize);
+		}
+		this.syncOnTimeSteps = syncOnTimeSteps;
+		this.oneThreadPerHandler = numOfThreads == -1;
+		this.numOfThreads = numOfThreads;
+		this.handlerDispatch = handlerDispatch;
+		int capacity = Integer.highestOneBit(ringBufferSize);
+		if (capacity < ringBufferSize) {
+			capacity <<= 1;
+		}
+		this.ring = new Event[capacity];
+		this.publishTimes = new long[capacity];
+		this.mask = capacity - 1;
+		// handler threads give slots back in smaller steps, so the producer does not have to wait for a whole ring
+		this.maxBatchSize = Math.max(1, capacity / 8);
+	}
+
+	@Override
+	public void processEvent(final Event event) {
+		if (!init) throw new IllegalStateException(".initProcessing() has to be called before processing events!");
+
+		long sequence = this.nextSequence;
+		waitForCapacity(sequence);
+		int slot = (int) sequence & this.mask;
+		this.ring[slot] = event;
+		this.publishTimes[slot] = System.nanoTime();
+		this.nextSequence = sequence + 1;
+		this.cursor.lazySet(sequence);
+	}
+
+	@Override
+	public void processEvents(final EventArray events) {
+		if (!init) throw new IllegalStateException(".initProcessing() has to be called before processing events!");
+
+		int size = events.size();
+		int offset = 0;
+		while (offset < size) {
+			int chunk = Math.min(size - offset, this.maxBatchSize);
+			long first = this.nextSequence;
+			long last = first + chunk - 1;
+			waitForCapacity(last);
+			long now = System.nanoTime();
+			for (int i = 0; i < chunk; i++) {
+				int slot = (int) (first + i) & this.mask;
+				this.ring[slot] = events.get(offset + i);
+				this.publishTimes[slot] = now;
+			}
+			this.nextSequence = last + 1;
+			this.cursor.lazySet(last);
+			offset += chunk;
+		}
+	}
+
+	/**
+	 * Waits until the slot of the given sequence is no longer needed by any handler thread.
+	 */
+	private void waitForCapacity(long sequence) {
+		long wrapPoint = sequence - this.ring.length;
+		if (wrapPoint <= this.cachedGatingSequence) {
+			return;
+		}
+		int idle = 0;
+		long gatingSequence;
+		while (wrapPoint > (gatingSequence = minimumProcessedSequence())) {
+			idle = backOff(idle);
+		}
+		this.cachedGatingSequence = gatingSequence;
+	}
+
+	private long minimumProcessedSequence() {
+		long minimum = this.cursor.get();
+		for (HandlerThread thread : this.threads) {
+			minimum = Math.min(minimum, thread.processed.get());
+		}
+		return minimum;
+	}
+
+	private static int backOff(int idle) {
+		if (idle < SPIN_TRIES) {
+			Thread.onSpinWait();
+		} else if (idle < SPIN_TRIES + YIELD_TRIES) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+		return idle + 1;
+	}
+
+	/**
+	 * Waits until all published events are processed by all handlers.
+	 */
+	public void flush() {
+		long published = this.cursor.get();
+		int idle = 0;
+		while (minimumProcessedSequence() < published) {
+			idle = backOff(idle);
+		}
+		this.cachedGatingSequence = published;
+	}
+
+	@Override
+	public void addHandler(final EventHandler handler) {
+		if (init)
+			throw new IllegalStateException("Handlers can not be added after .initProcessing() was called!");
+
+		// this will be used the next time we start an iteration
+		this.eventsHandlers.add(handler);
+	}
+
+	@Override
+	public void removeHandler(final EventHandler handler) {
+		// this will be used the next time we start an iteration
+		this.eventsHandlers.remove(handler);
+	}
+
+	@Override
+	public void resetHandlers(int iteration) {
+		for (EventsManager eventsManager : this.eventsManagers) {
+			eventsManager.resetHandlers(iteration);
+		}
+	}
+
+	@Override
+	public void initProcessing() {
+		List<EventsManager> managers = new ArrayList<>();
+		List<String> names = new ArrayList<>();
+		if (this.oneThreadPerHandler) {
+			for (EventHandler handler : this.eventsHandlers) {
+				SingleHandlerEventsManager manager = new SingleHandlerEventsManager(handler);
+				managers.add(manager);
+				names.add(manager.getEventHandlerClassName());
+			}
+		} else {
+			int threads = Math.min(this.numOfThreads, this.eventsHandlers.size());
+			for (int i = 0; i < threads; i++) {
+				managers.add(new EventsManagerImpl(this.handlerDispatch));
+				names.add("");
+			}
+			for (int i = 0; i < this.eventsHandlers.size(); i++) {
+				EventHandler handler = this.eventsHandlers.get(i);
+				managers.get(i % threads).addHandler(handler);
+				String name = names.get(i % threads);
+				names.set(i % threads, (name.isEmpty() ? "" : name + ", ") + handler.getClass().getName());
+			}
+		}
+		this.eventsManagers = managers;
+
+		for (EventsManager eventsManager : this.eventsManagers) {
+			eventsManager.initProcessing();
+		}
+		resetHandlers(this.iteration);
+
+		this.failure.set(null);
+		long start = this.cursor.get();
+		this.cachedGatingSequence = start;
+		this.running = true;
+		List<HandlerThread> handlerThreads = new ArrayList<>(managers.size());
+		for (int i = 0; i < managers.size(); i++) {
+			HandlerThread thread = new HandlerThread(managers.get(i), new HandlerStatistics(names.get(i)), start);
+			thread.setName("RingBufferEventsManager: " + names.get(i));
+			thread.setDaemon(true);
+			thread.setUncaughtExceptionHandler((t, e) -> {
+				this.failure.compareAndSet(null, e);
+				log.error("Thread " + t.getName() + " died with exception while handling events.", e);
+			});
+			handlerThreads.add(thread);
+		}
+		this.threads = handlerThreads;
+		for (HandlerThread thread : handlerThreads) {
+			thread.start();
+		}
+		this.init = true;
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		if (this.syncOnTimeSteps) {
+			flush();
+		}
+		checkForFailure();
+	}
+
+	@Override
+	public void finishProcessing() {
+		flush();
+
+		this.running = false;
+		try {
+			for (HandlerThread thread : this.threads) {
+				LockSupport.unpark(thread);
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Exception while waiting on join...", e);
+		}
+		this.init = false;
+		// do not keep the events of the last iteration alive
+		Arrays.fill(this.ring, null);
+
+		for (EventsManager eventsManager : this.eventsManagers) {
+			eventsManager.finishProcessing();
+		}
+		logStatistics();
+		checkForFailure();
+
+		iteration += 1;
+	}
+
+	private void checkForFailure() {
+		if (this.failure.get() != null) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", this.failure.get());
+		}
+	}
+
+	private void logStatistics() {
+		for (HandlerThread thread : this.threads) {
+			HandlerStatistics stats = thread.statistics;
+			log.info(String.format("handler thread [%s]: %d events in %d batches, busy %.3fs (%.0f events/s), latency mean %.3fms, max %.3fms",
+					stats.getHandlerName(), stats.getEvents(), stats.getBatches(), stats.getBusyNanos() / 1e9, stats.getThroughput(),
+					stats.getMeanLatencyNanos() / 1e6, stats.getMaxLatencyNanos() / 1e6));
+		}
+	}
+
+	/**
+	 * @return the statistics of each handler thread of the current or, after {@link #finishProcessing()}, the last
+	 * iteration. They are only consistent after {@link #finishProcessing()}.
+	 */
+	public List<HandlerStatistics> getHandlerStatistics() {
+		List<HandlerStatistics> statistics = new ArrayList<>(this.threads.size());
+		for (HandlerThread thread : this.threads) {
+			statistics.add(thread.statistics);
+		}
+		return statistics;
+	}
+
+	private final class HandlerThread extends Thread {
+
+		private final EventsManager eventsManager;
+		private final HandlerStatistics statistics;
+		/** the sequence of the last event this thread processed */
+		private final AtomicLong processed;
+
+		HandlerThread(EventsManager eventsManager, HandlerStatistics statistics, long start) {
+			this.eventsManager = eventsManager;
+			this.statistics = statistics;
+			this.processed = new AtomicLong(start);
+		}
+
+		@Override
+		public void run() {
+			try {
+				long next = this.processed.get() + 1;
+				int idle = 0;
+				while (true) {
+					long available = cursor.get();
+					if (available < next) {
+						if (!running) {
+							return;
+						}
+						idle = backOff(idle);
+						continue;
+					}
+					idle = 0;
+					long last = Math.min(available, next + maxBatchSize - 1);
+					// the producer does not touch these slots before we give them back below
+					long published = publishTimes[(int) next & mask];
+					long start = System.nanoTime();
+					for (long sequence = next; sequence <= last; sequence++) {
+						this.eventsManager.processEvent(ring[(int) sequence & mask]);
+					}
+					long end = System.nanoTime();
+					this.processed.lazySet(last);
+					this.statistics.record(last - next + 1, end - start, end - published);
+					next = last + 1;
+				}
+			} finally {
+				// never block the producer, even if a handler failed
+				this.processed.set(Long.MAX_VALUE);
+			}
+		}
+	}
+
+	/**
+	 * Throughput and latency of one handler thread. The latency is measured per batch of events the thread takes from
+	 * the ring buffer, from publishing the oldest event of the batch until the handlers have processed the whole batch.
+	 */
+	public static final class HandlerStatistics {
+
+		private final String handlerName;
+		private long events = 0;
+		private long batches = 0;
+		private long busyNanos = 0;
+		private long latencyNanos = 0;
+		private long maxLatencyNanos = 0;
+
+		HandlerStatistics(String handlerName) {
+			this.handlerName = handlerName;
+		}
+
+		void record(long events, long busyNanos, long latencyNanos) {
+			this.events += events;
+			this.batches++;
+			this.busyNanos += busyNanos;
+			this.latencyNanos += latencyNanos;
+			this.maxLatencyNanos = Math.max(this.maxLatencyNanos, latencyNanos);
+		}
+
+		/**
+		 * @return the class names of the handlers processed by this thread.
+		 */
+		public String getHandlerName() {
+			return this.handlerName;
+		}
+
+		public long getEvents() {
+			return this.events;
+		}
+
+		public long getBatches() {
+			return this.batches;
+		}
+
+		/**
+		 * @return the time spent in the handlers.
+		 */
+		public long getBusyNanos() {
+			return this.busyNanos;
+		}
+
+		/**
+		 * @return events per second of time spent in the handlers.
+		 */
+		public double getThroughput() {
+			return this.busyNanos == 0 ? 0 : this.events * 1e9 / this.busyNanos;
+		}
+
+		public double getMeanLatencyNanos() {
+			return this.batches == 0 ? 0 : (double) this.latencyNanos / this.batches;
+		}
+
+		public long getMaxLatencyNanos() {
+			return this.maxLatencyNanos;
+		}
+	}
+}
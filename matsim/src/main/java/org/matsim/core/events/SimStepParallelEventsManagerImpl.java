@@ -37,6 +37,7 @@ import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.groups.EventsManagerConfigGroup;
+import org.matsim.core.config.groups.EventsManagerConfigGroup.HandlerDispatch;
 import org.matsim.core.events.handler.EventHandler;
 import org.matsim.core.gbl.Gbl;
 
@@ -53,6 +54,7 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 	private final static Logger log = LogManager.getLogger(SimStepParallelEventsManagerImpl.class);
 
 	private final int numOfThreads;
+	private final HandlerDispatch handlerDispatch;
 	private CyclicBarrier simStepEndBarrier;
 	private CyclicBarrier iterationEndBarrier;
     private ProcessEventsRunnable[] runnables;
@@ -68,7 +70,7 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 
 	@Inject
 	SimStepParallelEventsManagerImpl(EventsManagerConfigGroup config) {
-		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1);
+		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1, config.getHandlerDispatch());
 	}
 
     public SimStepParallelEventsManagerImpl() {
@@ -76,7 +78,12 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 	}
 
 	public SimStepParallelEventsManagerImpl(int numOfThreads) {
+		this(numOfThreads, HandlerDispatch.reflection);
+	}
+
+	public SimStepParallelEventsManagerImpl(int numOfThreads, HandlerDispatch handlerDispatch) {
 		this.numOfThreads = numOfThreads;
+		this.handlerDispatch = handlerDispatch;
 		log.info("number of threads=" + numOfThreads );
 		init();
 	}
@@ -87,10 +94,10 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 		this.simStepEndBarrier = new CyclicBarrier(this.numOfThreads + 1);
 		this.iterationEndBarrier = new CyclicBarrier(this.numOfThreads + 1);
 
-		this.delegate = new EventsManagerImpl();
+		this.delegate = new EventsManagerImpl(this.handlerDispatch);
 
 		this.eventsManagers = new EventsManagerImpl[this.numOfThreads];
-		for (int i = 0; i < numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl();
+		for (int i = 0; i < numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl(this.handlerDispatch);
 	}
 
 	@Override
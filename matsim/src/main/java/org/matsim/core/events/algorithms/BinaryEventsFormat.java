@@ -0,0 +1,894 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.PersonScoreEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.events.VehicleAbortsEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
+import org.matsim.core.api.experimental.events.BoardingDeniedEvent;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * The binary events format written by {@link EventWriterBinary} and read by
+ * {@link org.matsim.core.events.EventsReaderBinary}.
+ * <p>
+ * A file starts with a short header and is followed by chunks of (by default) 65536 events and a footer. Every chunk
+ * is compressed on its own and contains
+ * <ul>
+ *     <li>the type of each event,</li>
+ *     <li>the time of each event, as difference to the previous event for whole seconds,</li>
+ *     <li>one set of columns per event type, e.g. the vehicle ids and the link ids of all link enter events.</li>
+ * </ul>
+ * Ids and recurring strings like modes and activity types are stored as numbers, the footer contains the
+ * dictionaries to translate them back. The footer also lists all chunks with their position and time range, so
+ * readers can jump to a time window and decode several chunks in parallel.
+ * <p>
+ * The core event types are stored with their own columns and are read back as the same classes. All other events are
+ * stored by their attributes and read back as {@link GenericEvent}, like with the xml format.
+ * <p>
+ * The file can only be read after it was closed properly, as the dictionaries are written at the end.
+ */
+public final class BinaryEventsFormat {
+
+	private static final byte[] MAGIC = "MATSIMEV".getBytes(StandardCharsets.US_ASCII);
+	static final int VERSION = 1;
+	static final int HEADER_LENGTH = MAGIC.length + 4;
+	private static final int TAIL_LENGTH = 8 + 4 + 4 + MAGIC.length;
+
+	// the position in this array is the code of the id type in the file, so only append new types
+	private static final Class<?>[] ID_TYPES = {Person.class, Link.class, Vehicle.class, ActivityFacility.class,
+			TransitStopFacility.class, TransitLine.class, TransitRoute.class, Departure.class};
+	private static final int PERSON = 0;
+	private static final int LINK = 1;
+	private static final int VEHICLE = 2;
+	private static final int FACILITY = 3;
+	private static final int STOP = 4;
+	private static final int LINE = 5;
+	private static final int ROUTE = 6;
+	private static final int DEPARTURE = 7;
+
+	private static final int GENERIC = 0;
+	private static final int GENERIC_COLUMNS = 4;
+
+	// the position in this list is the code of the event type in the file, so only append new types
+	private static final List<EventCodec<?>> CODECS = List.of(
+			new EventCodec<>(Event.class, GENERIC_COLUMNS, BinaryEventsFormat::encodeGeneric, BinaryEventsFormat::decodeGeneric),
+			new EventCodec<>(LinkEnterEvent.class, 2,
+					(e, out) -> {
+						out.id(0, VEHICLE, e.getVehicleId());
+						out.id(1, LINK, e.getLinkId());
+					},
+					(time, in) -> new LinkEnterEvent(time, in.id(0, VEHICLE), in.id(1, LINK))),
+			new EventCodec<>(LinkLeaveEvent.class, 2,
+					(e, out) -> {
+						out.id(0, VEHICLE, e.getVehicleId());
+						out.id(1, LINK, e.getLinkId());
+					},
+					(time, in) -> new LinkLeaveEvent(time, in.id(0, VEHICLE), in.id(1, LINK))),
+			new EventCodec<>(VehicleEntersTrafficEvent.class, 5,
+					(e, out) -> {
+						out.id(0, PERSON, e.getPersonId());
+						out.id(1, LINK, e.getLinkId());
+						out.id(2, VEHICLE, e.getVehicleId());
+						out.string(3, e.getNetworkMode());
+						out.number(4, e.getRelativePositionOnLink());
+					},
+					(time, in) -> new VehicleEntersTrafficEvent(time, in.id(0, PERSON), in.id(1, LINK), in.id(2, VEHICLE), in.string(3), in.number(4))),
+			new EventCodec<>(VehicleLeavesTrafficEvent.class, 5,
+					(e, out) -> {
+						out.id(0, PERSON, e.getPersonId());
+						out.id(1, LINK, e.getLinkId());
+						out.id(2, VEHICLE, e.getVehicleId());
+						out.string(3, e.getNetworkMode());
+						out.number(4, e.getRelativePositionOnLink());
+					},
+					(time, in) -> new VehicleLeavesTrafficEvent(time, in.id(0, PERSON), in.id(1, LINK), in.id(2, VEHICLE), in.string(3), in.number(4))),
+			new EventCodec<>(ActivityEndEvent.class, 6,
+					(e, out) -> {
+						out.id(0, PERSON, e.getPersonId());
+						out.id(1, LINK, e.getLinkId());
+						out.id(2, FACILITY, e.getFacilityId());
+						out.string(3, e.getActType());
+						out.coord(4, e.getCoord());
+					},
+					(time, in) -> new ActivityEndEvent(time, in.id(0, PERSON), in.id(1, LINK), in.id(2, FACILITY), in.string(3), in.coord(4))),
+			new EventCodec<>(ActivityStartEvent.class, 6,
+					(e, out) -> {
+						out.id(0, PERSON, e.getPersonId());
+						out.id(1, LINK, e.getLinkId());
+						out.id(2, FACILITY, e.getFacilityId());
+						out.string(3, e.getActType());
+						out.coord(4, e.getCoord());
+					},
+					(time, in) -> new ActivityStartEvent(time, in.id(0, PERSON), in.id(1, LINK), in.id(2, FACILITY), in.string(3), in.coord(4))),
+			new EventCodec<>(PersonArrivalEvent.class, 3,
+					(e, out) -> {
+						out.id(0, PERSON, e.getPersonId());
+						out.id(1, LINK, e.getLinkId());
+						out.string(2, e.getLegMode());
+					},
+					(time, in) -> new PersonArrivalEvent(time, in.id(0, PERSON), in.id(1, LINK), in.string(2))),
+			new EventCodec<>(PersonDepartureEvent.class, 4,
+					(e, out) -> {
+						out.id(0, PERSON, e.getPersonId());
+						out.id(1, LINK, e.getLinkId());
+						out.string(2, e.getLegMode());
+						out.string(3, e.getRoutingMode());
+					},
+					(time, in) -> new PersonDepartureEvent(time, in.id(0, PERSON), in.id(1, LINK), in.string(2), in.string(3))),
+			new EventCodec<>(PersonStuckEvent.class, 3,
+					(e, out) -> {
+						out.id(0, PERSON, e.getPersonId());
+						out.id(1, LINK, e.getLinkId());
+						out.string(2, e.getLegMode());
+					},
+					(time, in) -> new PersonStuckEvent(time, in.id(0, PERSON), in.id(1, LINK), in.string(2))),
+			new EventCodec<>(VehicleAbortsEvent.class, 2,
+					(e, out) -> {
+						out.id(0, VEHICLE, e.getVehicleId());
+						out.id(1, LINK, e.getLinkId());
+					},
+					(time, in) -> new VehicleAbortsEvent(time, in.id(0, VEHICLE), in.id(1, LINK))),
+			new EventCodec<>(PersonMoneyEvent.class, 5,
+					(e, out) -> {
+						out.id(0, PERSON, e.getPersonId());
+						out.number(1, e.getAmount());
+						out.string(2, e.getPurpose());
+						out.string(3, e.getTransactionPartner());
+						out.text(4, e.getReference());
+					},
+					(time, in) -> new PersonMoneyEvent(time, in.id(0, PERSON), in.number(1), in.string(2), in.string(3), in.text(4))),
+			new EventCodec<>(PersonScoreEvent.class, 3,
+					(e, out) -> {
+						out.id(0, PERSON, e.getPersonId());
+						out.number(1, e.getAmount());
+						out.string(2, e.getKind());
+					},
+					(time, in) -> new PersonScoreEvent(time, in.id(0, PERSON), in.number(1), in.string(2))),
+			new EventCodec<>(PersonEntersVehicleEvent.class, 2,
+					(e, out) -> {
+						out.id(0, PERSON, e.getPersonId());
+						out.id(1, VEHICLE, e.getVehicleId());
+					},
+					(time, in) -> new PersonEntersVehicleEvent(time, in.id(0, PERSON), in.id(1, VEHICLE))),
+			new EventCodec<>(PersonLeavesVehicleEvent.class, 2,
+					(e, out) -> {
+						out.id(0, PERSON, e.getPersonId());
+						out.id(1, VEHICLE, e.getVehicleId());
+					},
+					(time, in) -> new PersonLeavesVehicleEvent(time, in.id(0, PERSON), in.id(1, VEHICLE))),
+			new EventCodec<>(TeleportationArrivalEvent.class, 3,
+					(e, out) -> {
+						out.id(0, PERSON, e.getPersonId());
+						out.number(1, e.getDistance());
+						out.string(2, e.getMode());
+					},
+					(time, in) -> new TeleportationArrivalEvent(time, in.id(0, PERSON), in.number(1), in.string(2))),
+			new EventCodec<>(VehicleArrivesAtFacilityEvent.class, 3,
+					(e, out) -> {
+						out.id(0, VEHICLE, e.getVehicleId());
+						out.id(1, STOP, e.getFacilityId());
+						out.number(2, e.getDelay());
+					},
+					(time, in) -> new VehicleArrivesAtFacilityEvent(time, in.id(0, VEHICLE), in.id(1, STOP), in.number(2))),
+			new EventCodec<>(VehicleDepartsAtFacilityEvent.class, 3,
+					(e, out) -> {
+						out.id(0, VEHICLE, e.getVehicleId());
+						out.id(1, STOP, e.getFacilityId());
+						out.number(2, e.getDelay());
+					},
+					(time, in) -> new VehicleDepartsAtFacilityEvent(time, in.id(0, VEHICLE), in.id(1, STOP), in.number(2))),
+			new EventCodec<>(TransitDriverStartsEvent.class, 5,
+					(e, out) -> {
+						out.id(0, PERSON, e.getDriverId());
+						out.id(1, VEHICLE, e.getVehicleId());
+						out.id(2, LINE, e.getTransitLineId());
+						out.id(3, ROUTE, e.getTransitRouteId());
+						out.id(4, DEPARTURE, e.getDepartureId());
+					},
+					(time, in) -> new TransitDriverStartsEvent(time, in.id(0, PERSON), in.id(1, VEHICLE), in.id(2, LINE), in.id(3, ROUTE), in.id(4, DEPARTURE))),
+			new EventCodec<>(BoardingDeniedEvent.class, 2,
+					(e, out) -> {
+						out.id(0, PERSON, e.getPersonId());
+						out.id(1, VEHICLE, e.getVehicleId());
+					},
+					(time, in) -> new BoardingDeniedEvent(time, in.id(0, PERSON), in.id(1, VEHICLE))),
+			new EventCodec<>(AgentWaitingForPtEvent.class, 3,
+					(e, out) -> {
+						out.id(0, PERSON, e.getPersonId());
+						out.id(1, STOP, e.getWaitingAtStopId());
+						out.id(2, STOP, e.getDestinationStopId());
+					},
+					(time, in) -> new AgentWaitingForPtEvent(time, in.id(0, PERSON), in.id(1, STOP), in.id(2, STOP)))
+	);
+
+	private static final Map<Class<?>, Integer> CODE_BY_CLASS = new HashMap<>();
+
+	static {
+		for (int code = GENERIC + 1; code < CODECS.size(); code++) {
+			CODE_BY_CLASS.put(CODECS.get(code).eventClass, code);
+		}
+	}
+
+	private BinaryEventsFormat() {
+	}
+
+	private static void encodeGeneric(Event event, Encoder out) {
+		out.string(0, event.getEventType());
+		Map<String, String> attributes = event.getAttributes();
+		int count = 0;
+		for (Map.Entry<String, String> e : attributes.entrySet()) {
+			if (isGenericAttribute(e.getKey())) {
+				count++;
+			}
+		}
+		out.columns[1].writeVarint(count);
+		for (Map.Entry<String, String> e : attributes.entrySet()) {
+			if (isGenericAttribute(e.getKey())) {
+				out.string(2, e.getKey());
+				out.text(3, e.getValue());
+			}
+		}
+	}
+
+	private static boolean isGenericAttribute(String key) {
+		return !key.equals(Event.ATTRIBUTE_TIME) && !key.equals(Event.ATTRIBUTE_TYPE);
+	}
+
+	private static Event decodeGeneric(double time, Decoder in) {
+		GenericEvent event = new GenericEvent(in.string(0), time);
+		int count = (int) in.columns[1].readVarint();
+		for (int i = 0; i < count; i++) {
+			event.getAttributes().put(in.string(2), in.text(3));
+		}
+		return event;
+	}
+
+	private interface EventDecoder {
+		Event decode(double time, Decoder in);
+	}
+
+	private static final class EventCodec<E extends Event> {
+		private final Class<E> eventClass;
+		private final int columns;
+		private final BiConsumer<E, Encoder> encoder;
+		private final EventDecoder decoder;
+
+		EventCodec(Class<E> eventClass, int columns, BiConsumer<E, Encoder> encoder, EventDecoder decoder) {
+			this.eventClass = eventClass;
+			this.columns = columns;
+			this.encoder = encoder;
+			this.decoder = decoder;
+		}
+
+		void encode(Event event, Encoder out) {
+			this.encoder.accept(this.eventClass.cast(event), out);
+		}
+	}
+
+	/**
+	 * Position and time range of one chunk in the file.
+	 */
+	public static final class ChunkInfo {
+		private final long offset;
+		private final int length;
+		private final int uncompressedLength;
+		private final int events;
+		private final double minTime;
+		private final double maxTime;
+
+		ChunkInfo(long offset, int length, int uncompressedLength, int events, double minTime, double maxTime) {
+			this.offset = offset;
+			this.length = length;
+			this.uncompressedLength = uncompressedLength;
+			this.events = events;
+			this.minTime = minTime;
+			this.maxTime = maxTime;
+		}
+
+		public int getEvents() {
+			return this.events;
+		}
+
+		public double getMinTime() {
+			return this.minTime;
+		}
+
+		public double getMaxTime() {
+			return this.maxTime;
+		}
+	}
+
+	/**
+	 * Collects the events of one chunk column by column. Also keeps the dictionaries for the whole file.
+	 */
+	static final class Encoder {
+		private final int[][] idCodes = new int[ID_TYPES.length][];
+		private final List<List<String>> ids = new ArrayList<>();
+		private final Map<String, Integer> stringCodes = new HashMap<>();
+		private final List<String> strings = new ArrayList<>();
+
+		private final ByteSink types = new ByteSink(1024);
+		private final ByteSink times = new ByteSink(1024);
+		private final ByteSink[][] columnsByType = new ByteSink[CODECS.size()][];
+		private ByteSink[] columns;
+		private int events = 0;
+		private long previousTime = 0;
+		private double minTime = Double.POSITIVE_INFINITY;
+		private double maxTime = Double.NEGATIVE_INFINITY;
+		private final ByteSink payload = new ByteSink(1 << 16);
+
+		Encoder() {
+			for (int i = 0; i < ID_TYPES.length; i++) {
+				this.idCodes[i] = new int[0];
+				this.ids.add(new ArrayList<>());
+			}
+		}
+
+		void add(Event event) {
+			int code = CODE_BY_CLASS.getOrDefault(event.getClass(), GENERIC);
+			EventCodec<?> codec = CODECS.get(code);
+			this.types.writeVarint(code);
+			writeTime(event.getTime());
+			this.columns = this.columnsByType[code];
+			if (this.columns == null) {
+				this.columns = new ByteSink[codec.columns];
+				for (int i = 0; i < this.columns.length; i++) {
+					this.columns[i] = new ByteSink(1024);
+				}
+				this.columnsByType[code] = this.columns;
+			}
+			codec.encode(event, this);
+			this.events++;
+		}
+
+		private void writeTime(double time) {
+			this.minTime = Math.min(this.minTime, time);
+			this.maxTime = Math.max(this.maxTime, time);
+			long seconds = (long) time;
+			if (seconds == time && Math.abs(time) < 1e15) {
+				// whole seconds are stored as (zig-zag encoded) difference to the previous whole second, the lowest bit is 0
+				long delta = seconds - this.previousTime;
+				this.times.writeVarint(((delta << 1) ^ (delta >> 63)) << 1);
+				this.previousTime = seconds;
+			} else {
+				this.times.writeVarint(1);
+				this.times.writeDouble(time);
+			}
+		}
+
+		int size() {
+			return this.events;
+		}
+
+		double minTime() {
+			return this.minTime;
+		}
+
+		double maxTime() {
+			return this.maxTime;
+		}
+
+		void id(int column, int idType, Id<?> id) {
+			if (id == null) {
+				this.columns[column].writeVarint(0);
+				return;
+			}
+			int index = id.index();
+			int[] codes = this.idCodes[idType];
+			if (index >= codes.length) {
+				codes = Arrays.copyOf(codes, Math.max(index + 1, codes.length * 2));
+				this.idCodes[idType] = codes;
+			}
+			int code = codes[index];
+			if (code == 0) {
+				List<String> dictionary = this.ids.get(idType);
+				dictionary.add(id.toString());
+				code = dictionary.size();
+				codes[index] = code;
+			}
+			this.columns[column].writeVarint(code);
+		}
+
+		void string(int column, String value) {
+			if (value == null) {
+				this.columns[column].writeVarint(0);
+				return;
+			}
+			Integer code = this.stringCodes.get(value);
+			if (code == null) {
+				this.strings.add(value);
+				code = this.strings.size();
+				this.stringCodes.put(value, code);
+			}
+			this.columns[column].writeVarint(code);
+		}
+
+		void text(int column, String value) {
+			ByteSink sink = this.columns[column];
+			if (value == null) {
+				sink.writeVarint(0);
+				return;
+			}
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			sink.writeVarint(bytes.length + 1);
+			sink.write(bytes, 0, bytes.length);
+		}
+
+		void number(int column, double value) {
+			this.columns[column].writeDouble(value);
+		}
+
+		void coord(int column, Coord coord) {
+			number(column, coord == null ? Double.NaN : coord.getX());
+			number(column + 1, coord == null ? Double.NaN : coord.getY());
+		}
+
+		/**
+		 * @return the uncompressed chunk, which is valid until the next call.
+		 */
+		ByteSink finishChunk() {
+			ByteSink out = this.payload;
+			out.reset();
+			out.writeVarint(this.events);
+			out.writeVarint(this.types.size());
+			out.write(this.types);
+			out.writeVarint(this.times.size());
+			out.write(this.times);
+			int typesPresent = 0;
+			for (ByteSink[] c : this.columnsByType) {
+				if (c != null) {
+					typesPresent++;
+				}
+			}
+			out.writeVarint(typesPresent);
+			for (int code = 0; code < this.columnsByType.length; code++) {
+				ByteSink[] c = this.columnsByType[code];
+				if (c != null) {
+					out.writeVarint(code);
+					out.writeVarint(c.length);
+					for (ByteSink column : c) {
+						out.writeVarint(column.size());
+						out.write(column);
+					}
+				}
+			}
+
+			this.types.reset();
+			this.times.reset();
+			Arrays.fill(this.columnsByType, null);
+			this.events = 0;
+			this.previousTime = 0;
+			this.minTime = Double.POSITIVE_INFINITY;
+			this.maxTime = Double.NEGATIVE_INFINITY;
+			return out;
+		}
+
+		ByteSink dictionaries() {
+			ByteSink out = new ByteSink(1 << 16);
+			out.writeVarint(ID_TYPES.length);
+			for (List<String> dictionary : this.ids) {
+				writeStrings(out, dictionary);
+			}
+			writeStrings(out, this.strings);
+			return out;
+		}
+
+		private static void writeStrings(ByteSink out, List<String> strings) {
+			out.writeVarint(strings.size());
+			for (String s : strings) {
+				byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				out.writeVarint(bytes.length);
+				out.write(bytes, 0, bytes.length);
+			}
+		}
+	}
+
+	static byte[] header() {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+		header.put(MAGIC).putInt(VERSION);
+		return header.array();
+	}
+
+	/**
+	 * @param chunkIndex entries of {@link ChunkInfo}, already serialized with {@link #writeChunkInfo}
+	 */
+	static byte[] footer(Deflater deflater, Encoder encoder, ByteSink chunkIndex, int chunks, long footerOffset) {
+		ByteSink footer = encoder.dictionaries();
+		footer.writeVarint(chunks);
+		footer.write(chunkIndex);
+		byte[] compressed = compress(deflater, footer);
+		ByteBuffer out = ByteBuffer.allocate(compressed.length + TAIL_LENGTH);
+		out.put(compressed);
+		out.putLong(footerOffset).putInt(compressed.length).putInt(footer.size()).put(MAGIC);
+		return out.array();
+	}
+
+	static void writeChunkInfo(ByteSink out, long offset, int length, int uncompressedLength, int events, double minTime, double maxTime) {
+		out.writeVarint(offset);
+		out.writeVarint(length);
+		out.writeVarint(uncompressedLength);
+		out.writeVarint(events);
+		out.writeDouble(minTime);
+		out.writeDouble(maxTime);
+	}
+
+	static byte[] compress(Deflater deflater, ByteSink data) {
+		deflater.reset();
+		deflater.setInput(data.buffer, 0, data.size);
+		deflater.finish();
+		ByteSink out = new ByteSink(Math.max(64, data.size / 4));
+		while (!deflater.finished()) {
+			out.ensureCapacity(out.size + 8192);
+			out.size += deflater.deflate(out.buffer, out.size, out.buffer.length - out.size);
+		}
+		return Arrays.copyOf(out.buffer, out.size);
+	}
+
+	/**
+	 * The dictionaries and chunks of a file.
+	 */
+	public static final class Footer {
+		private final Id<?>[][] ids;
+		private final String[] strings;
+		private final List<ChunkInfo> chunks;
+
+		private Footer(Id<?>[][] ids, String[] strings, List<ChunkInfo> chunks) {
+			this.ids = ids;
+			this.strings = strings;
+			this.chunks = chunks;
+		}
+
+		public List<ChunkInfo> getChunks() {
+			return this.chunks;
+		}
+	}
+
+	public static Footer readFooter(FileChannel channel) throws IOException {
+		long size = channel.size();
+		if (size < HEADER_LENGTH + TAIL_LENGTH) {
+			throw new IOException("file is too short to be a binary events file");
+		}
+		ByteBuffer header = read(channel, 0, HEADER_LENGTH);
+		checkMagic(header, "header");
+		int version = header.getInt();
+		if (version != VERSION) {
+			throw new IOException("unsupported binary events file version " + version + ", expected " + VERSION);
+		}
+		ByteBuffer tail = read(channel, size - TAIL_LENGTH, TAIL_LENGTH);
+		long footerOffset = tail.getLong();
+		int length = tail.getInt();
+		int uncompressedLength = tail.getInt();
+		checkMagic(tail, "footer, the file was probably not closed properly");
+
+		ByteSource in = new ByteSource(decompress(read(channel, footerOffset, length).array(), length, uncompressedLength));
+		int idTypes = (int) in.readVarint();
+		Id<?>[][] ids = new Id<?>[idTypes][];
+		for (int t = 0; t < idTypes; t++) {
+			String[] values = readStrings(in);
+			Id<?>[] dictionary = new Id<?>[values.length + 1];
+			for (int i = 0; i < values.length; i++) {
+				dictionary[i + 1] = Id.create(values[i], ID_TYPES[t]);
+			}
+			ids[t] = dictionary;
+		}
+		String[] values = readStrings(in);
+		String[] strings = new String[values.length + 1];
+		for (int i = 0; i < values.length; i++) {
+			strings[i + 1] = values[i].intern();
+		}
+		int chunkCount = (int) in.readVarint();
+		List<ChunkInfo> chunks = new ArrayList<>(chunkCount);
+		for (int i = 0; i < chunkCount; i++) {
+			chunks.add(new ChunkInfo(in.readVarint(), (int) in.readVarint(), (int) in.readVarint(), (int) in.readVarint(),
+					in.readDouble(), in.readDouble()));
+		}
+		return new Footer(ids, strings, Collections.unmodifiableList(chunks));
+	}
+
+	private static void checkMagic(ByteBuffer buffer, String where) throws IOException {
+		byte[] magic = new byte[MAGIC.length];
+		buffer.get(magic);
+		if (!Arrays.equals(magic, MAGIC)) {
+			throw new IOException("not a binary events file, unexpected " + where);
+		}
+	}
+
+	private static String[] readStrings(ByteSource in) {
+		String[] strings = new String[(int) in.readVarint()];
+		for (int i = 0; i < strings.length; i++) {
+			int length = (int) in.readVarint();
+			strings[i] = new String(in.buffer, in.position, length, StandardCharsets.UTF_8);
+			in.position += length;
+		}
+		return strings;
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("unexpected end of binary events file");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private static byte[] decompress(byte[] data, int length, int uncompressedLength) throws IOException {
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(data, 0, length);
+			byte[] result = new byte[uncompressedLength];
+			int n = 0;
+			while (n < uncompressedLength && !inflater.finished()) {
+				int read = inflater.inflate(result, n, uncompressedLength - n);
+				if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				n += read;
+			}
+			if (n != uncompressedLength) {
+				throw new IOException("corrupt chunk in binary events file");
+			}
+			return result;
+		} catch (DataFormatException e) {
+			throw new IOException("corrupt chunk in binary events file", e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Reads and decodes one chunk. Can be called from several threads at the same time.
+	 *
+	 * @return the events of the chunk in the order they were written.
+	 */
+	public static Event[] readChunk(FileChannel channel, Footer footer, ChunkInfo chunk) {
+		try {
+			byte[] data = decompress(read(channel, chunk.offset, chunk.length).array(), chunk.length, chunk.uncompressedLength);
+			return new Decoder(footer).decode(new ByteSource(data));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads the columns of one chunk.
+	 */
+	static final class Decoder {
+		private final Id<?>[][] ids;
+		private final String[] strings;
+		private ByteSource[] columns;
+
+		Decoder(Footer footer) {
+			this.ids = footer.ids;
+			this.strings = footer.strings;
+		}
+
+		Event[] decode(ByteSource in) {
+			int events = (int) in.readVarint();
+			ByteSource types = in.slice((int) in.readVarint());
+			ByteSource times = in.slice((int) in.readVarint());
+			ByteSource[][] columnsByType = new ByteSource[CODECS.size()][];
+			int typesPresent = (int) in.readVarint();
+			for (int t = 0; t < typesPresent; t++) {
+				int code = (int) in.readVarint();
+				ByteSource[] c = new ByteSource[(int) in.readVarint()];
+				for (int i = 0; i < c.length; i++) {
+					c[i] = in.slice((int) in.readVarint());
+				}
+				if (code >= CODECS.size()) {
+					throw new IllegalStateException("unknown event type code " + code + " in binary events file");
+				}
+				columnsByType[code] = c;
+			}
+
+			Event[] result = new Event[events];
+			long previousTime = 0;
+			for (int i = 0; i < events; i++) {
+				int code = (int) types.readVarint();
+				long encoded = times.readVarint();
+				double time;
+				if ((encoded & 1) == 0) {
+					long zigzag = encoded >>> 1;
+					previousTime += (zigzag >>> 1) ^ -(zigzag & 1);
+					time = previousTime;
+				} else {
+					time = times.readDouble();
+				}
+				this.columns = columnsByType[code];
+				result[i] = CODECS.get(code).decoder.decode(time, this);
+			}
+			return result;
+		}
+
+		@SuppressWarnings("unchecked")
+		<T> Id<T> id(int column, int idType) {
+			return (Id<T>) this.ids[idType][(int) this.columns[column].readVarint()];
+		}
+
+		String string(int column) {
+			return this.strings[(int) this.columns[column].readVarint()];
+		}
+
+		String text(int column) {
+			ByteSource in = this.columns[column];
+			int length = (int) in.readVarint();
+			if (length == 0) {
+				return null;
+			}
+			String value = new String(in.buffer, in.position, length - 1, StandardCharsets.UTF_8);
+			in.position += length - 1;
+			return value;
+		}
+
+		double number(int column) {
+			return this.columns[column].readDouble();
+		}
+
+		Coord coord(int column) {
+			double x = number(column);
+			double y = number(column + 1);
+			return Double.isNaN(x) ? null : new Coord(x, y);
+		}
+	}
+
+	/**
+	 * A growable byte array with variable length integers.
+	 */
+	static final class ByteSink {
+		private byte[] buffer;
+		private int size = 0;
+
+		ByteSink(int capacity) {
+			this.buffer = new byte[capacity];
+		}
+
+		private void ensureCapacity(int capacity) {
+			if (capacity > this.buffer.length) {
+				this.buffer = Arrays.copyOf(this.buffer, Math.max(capacity, this.buffer.length * 2));
+			}
+		}
+
+		void writeVarint(long value) {
+			ensureCapacity(this.size + 10);
+			while ((value & ~0x7FL) != 0) {
+				this.buffer[this.size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.buffer[this.size++] = (byte) value;
+		}
+
+		void writeDouble(double value) {
+			ensureCapacity(this.size + 8);
+			long bits = Double.doubleToRawLongBits(value);
+			for (int i = 0; i < 8; i++) {
+				this.buffer[this.size++] = (byte) (bits >>> (i * 8));
+			}
+		}
+
+		void write(byte[] bytes, int offset, int length) {
+			ensureCapacity(this.size + length);
+			System.arraycopy(bytes, offset, this.buffer, this.size, length);
+			this.size += length;
+		}
+
+		void write(ByteSink other) {
+			write(other.buffer, 0, other.size);
+		}
+
+		int size() {
+			return this.size;
+		}
+
+		void reset() {
+			this.size = 0;
+		}
+	}
+
+	static final class ByteSource {
+		private final byte[] buffer;
+		private int position;
+		private final int end;
+
+		ByteSource(byte[] buffer) {
+			this(buffer, 0, buffer.length);
+		}
+
+		private ByteSource(byte[] buffer, int position, int end) {
+			this.buffer = buffer;
+			this.position = position;
+			this.end = end;
+		}
+
+		ByteSource slice(int length) {
+			if (this.position + length > this.end) {
+				throw new IllegalStateException("corrupt chunk in binary events file");
+			}
+			ByteSource slice = new ByteSource(this.buffer, this.position, this.position + length);
+			this.position += length;
+			return slice;
+		}
+
+		long readVarint() {
+			long value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = this.buffer[this.position++];
+				value |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			return value;
+		}
+
+		double readDouble() {
+			long bits = 0;
+			for (int i = 0; i < 8; i++) {
+				bits |= (this.buffer[this.position++] & 0xFFL) << (i * 8);
+			}
+			return Double.longBitsToDouble(bits);
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.Deflater;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.handler.BasicEventHandler;
+
+/**
+ * Writes events in the {@link BinaryEventsFormat}. The file is not compressed as a whole, as readers need to jump to
+ * single chunks, but every chunk is.
+ */
+public class EventWriterBinary implements EventWriter, BasicEventHandler {
+
+	public static final int DEFAULT_EVENTS_PER_CHUNK = 1 << 16;
+
+	private final OutputStream out;
+	private final int eventsPerChunk;
+	private final BinaryEventsFormat.Encoder encoder = new BinaryEventsFormat.Encoder();
+	private final BinaryEventsFormat.ByteSink chunkIndex = new BinaryEventsFormat.ByteSink(1024);
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+	private int chunks = 0;
+	private long position = 0;
+
+	public EventWriterBinary(final String filename) {
+		this(filename, DEFAULT_EVENTS_PER_CHUNK);
+	}
+
+	/**
+	 * @param eventsPerChunk smaller chunks allow to jump to a time window more precisely, larger chunks compress better.
+	 */
+	public EventWriterBinary(final String filename, final int eventsPerChunk) {
+		if (eventsPerChunk < 1) {
+			throw new IllegalArgumentException("eventsPerChunk must be positive: " + eventsPerChunk);
+		}
+		this.eventsPerChunk = eventsPerChunk;
+		try {
+			this.out = new BufferedOutputStream(new FileOutputStream(filename), 1 << 16);
+			write(BinaryEventsFormat.header());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		this.encoder.add(event);
+		if (this.encoder.size() >= this.eventsPerChunk) {
+			writeChunk();
+		}
+	}
+
+	private void writeChunk() {
+		int events = this.encoder.size();
+		double minTime = this.encoder.minTime();
+		double maxTime = this.encoder.maxTime();
+		BinaryEventsFormat.ByteSink chunk = this.encoder.finishChunk();
+		byte[] compressed = BinaryEventsFormat.compress(this.deflater, chunk);
+		BinaryEventsFormat.writeChunkInfo(this.chunkIndex, this.position, compressed.length, chunk.size(), events, minTime, maxTime);
+		this.chunks++;
+		write(compressed);
+	}
+
+	private void write(byte[] data) {
+		try {
+			this.out.write(data);
+			this.position += data.length;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void closeFile() {
+		if (this.encoder.size() > 0) {
+			writeChunk();
+		}
+		write(BinaryEventsFormat.footer(this.deflater, this.encoder, this.chunkIndex, this.chunks, this.position));
+		this.deflater.end();
+		try {
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void reset(final int iter) {
+	}
+
+}
@@ -0,0 +1,45 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HasNextEventTime.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.mobsim.framework;
+
+/**
+ * Optional interface for mobsim engines and sim step listeners that know when they will have something to do next.
+ * <p>
+ * If {@link org.matsim.core.config.groups.QSimConfigGroup#isSkipIdleTimeSteps()} is switched on, and all mobsim engines
+ * as well as all before and after sim step listeners of the QSim implement this interface, the QSim jumps over the time
+ * steps before the earliest of their next event times.  Since none of them would have done anything in these time steps,
+ * the results are the same as when simulating every time step.
+ */
+public interface HasNextEventTime {
+
+	/**
+	 * Called by the mobsim after a time step has been completed.  Other components may still hand over work to this one in
+	 * the time step starting at the returned time, or in any later one, which will be taken into account afterwards.
+	 * <p>
+	 * The result may be too early, which only costs a time step that is simulated without need, but it must never be too
+	 * late.
+	 *
+	 * @return the earliest time at which this component may have something to do.  A time that is not after the time step
+	 * just completed means that the next time step must be simulated.  <code>Double.POSITIVE_INFINITY</code> if there is
+	 * nothing to do until some other component hands over something.
+	 */
+	double getNextEventTime();
+
+}
@@ -20,7 +20,6 @@
 package org.matsim.core.mobsim.hermes;
 
 import org.matsim.api.core.v01.Id;
-import org.matsim.core.events.EventArray;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 
 import java.util.ArrayList;
@@ -97,7 +96,8 @@ class Agent {
     // <0110> StopDepartType  | 4 bits unused | 16 bit event id  | 8 bits unused   | 16 bit route id | 16 station id
     protected final PlanArray plan; // TODO - use a byte buffer instead of a long[]...
 
-    protected final EventArray events;
+    // Events of the plan, their indices are the event ids of the plan elements.
+    protected final EventTemplates events;
 
     // Current position in plan. Using this index in the plan will yield what
     // the agent is doing currently. Note that we trigger the corresponding
@@ -123,7 +123,7 @@ class Agent {
 
     private final static List<Agent> NO_PASSENGERS = Collections.emptyList();
 
-    public Agent(int id, int capacity, PlanArray plan, EventArray events) {
+    public Agent(int id, int capacity, PlanArray plan, EventTemplates events) {
         this.id = id;
         this.plan = plan;
         this.events = events;
@@ -159,7 +159,7 @@ class Agent {
         return this.plan;
     }
 
-    public EventArray events() {
+    public EventTemplates events() {
         return this.events;
     }
 
@@ -342,6 +342,19 @@ class Agent {
         }
     }
 
+    /**
+     * Prepares the agent to execute the same plan again, i.e. keeps the plan, the events and the stops to serve.
+     */
+    public void restart() {
+        planIndex = 0;
+        eventsIndex = 0;
+        linkFinishTime = 0;
+        if (this.passengersByStop != null) {
+            passengersInside = 0;
+            this.passengersByStop.restart();
+        }
+    }
+
     public static long prepareLinkEntry(int eventid, int linkid, double velocity, int pcecategory) {
         long l = preparePlanEventEntry(LinkType, eventid, prepareLinkEntryElement(linkid, velocity, pcecategory));
         return l;
@@ -428,6 +441,13 @@ class Agent {
             this.currentStopIdx = -1;
         }
 
+        public void restart() {
+            for (int i = 0; i < this.size; i++) {
+                this.passengers[i].clear();
+            }
+            this.currentStopIdx = -1;
+        }
+
         public void addStop(int stopId) {
             if (this.size == this.stopIds.length) {
                 this.stopIds = Arrays.copyOf(this.stopIds, this.stopIds.length * 2);
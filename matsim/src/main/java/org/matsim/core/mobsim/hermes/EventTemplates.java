@@ -0,0 +1,334 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.mobsim.hermes;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.*;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The events of an agent's plan, without their times. Instead of one {@link Event} object per event, only the type and
+ * the id indices, strings and numbers needed to create the event are kept in an int array. The realms refer to the
+ * templates by their index (see {@link PendingEvents}), and the events are only created with {@link #toEvent(int, int)}
+ * when they are passed to the events manager.
+ * <p>
+ * Each event is stored as a header (<code>&lt;8 bit type&gt;&lt;24 bit offset&gt;</code>) and
+ * its fields starting at the offset in the data array. Id fields hold the index of the id, <code>-1</code> for null,
+ * string fields the index in a table shared by all agents, and doubles take two ints.
+ */
+final class EventTemplates {
+
+	private static final int ActivityStartType        =  0;
+	private static final int ActivityEndType          =  1;
+	private static final int DepartureType            =  2;
+	private static final int ArrivalType              =  3;
+	private static final int EntersVehicleType        =  4;
+	private static final int LeavesVehicleType        =  5;
+	private static final int VehicleEntersTrafficType =  6;
+	private static final int VehicleLeavesTrafficType =  7;
+	private static final int LinkEnterType            =  8;
+	private static final int LinkLeaveType            =  9;
+	private static final int WaitingForPtType         = 10;
+	private static final int TeleportationArrivalType = 11;
+	private static final int ArrivesAtFacilityType    = 12;
+	private static final int DepartsAtFacilityType    = 13;
+	private static final int TransitDriverStartsType  = 14;
+
+	private static final int MAX_OFFSET = (1 << 24) - 1;
+
+	// Activity types and modes of all agents, there are only a few distinct ones.
+	// Only extended while importing the plans, which happens before the realms start.
+	private static final Map<String, Integer> stringIndices = new ConcurrentHashMap<>();
+	private static String[] strings = new String[16];
+
+	private int[] headers;
+	private int[] data;
+	private int size;
+	private int dataSize;
+
+	EventTemplates() {
+		this.headers = new int[32];
+		this.data = new int[64];
+	}
+
+	int size() {
+		return size;
+	}
+
+	void clear() {
+		size = 0;
+		dataSize = 0;
+	}
+
+	boolean isActivityEnd(int index) {
+		return type(index) == ActivityEndType;
+	}
+
+	void addActivityStart(Id<Person> person, Id<Link> link, Id<ActivityFacility> facility, String actType, Coord coord) {
+		addActivity(ActivityStartType, person, link, facility, actType, coord);
+	}
+
+	void addActivityEnd(Id<Person> person, Id<Link> link, Id<ActivityFacility> facility, String actType, Coord coord) {
+		addActivity(ActivityEndType, person, link, facility, actType, coord);
+	}
+
+	private void addActivity(int type, Id<Person> person, Id<Link> link, Id<ActivityFacility> facility, String actType, Coord coord) {
+		add(type, person.index(), index(link), index(facility), stringIndex(actType));
+		if (coord == null) {
+			addData(0);
+		} else if (coord.hasZ()) {
+			addData(3);
+			addDouble(coord.getX());
+			addDouble(coord.getY());
+			addDouble(coord.getZ());
+		} else {
+			addData(2);
+			addDouble(coord.getX());
+			addDouble(coord.getY());
+		}
+	}
+
+	void addDeparture(Id<Person> person, Id<Link> link, String mode, String routingMode) {
+		add(DepartureType, person.index(), index(link), stringIndex(mode), stringIndex(routingMode));
+	}
+
+	void addArrival(Id<Person> person, Id<Link> link, String mode) {
+		add(ArrivalType, person.index(), index(link), stringIndex(mode));
+	}
+
+	void addPersonEntersVehicle(Id<Person> person, Id<Vehicle> vehicle) {
+		add(EntersVehicleType, person.index(), vehicle.index());
+	}
+
+	void addPersonLeavesVehicle(Id<Person> person, Id<Vehicle> vehicle) {
+		add(LeavesVehicleType, person.index(), vehicle.index());
+	}
+
+	void addVehicleEntersTraffic(Id<Person> driver, Id<Link> link, Id<Vehicle> vehicle, String mode) {
+		add(VehicleEntersTrafficType, driver.index(), index(link), vehicle.index(), stringIndex(mode));
+	}
+
+	void addVehicleLeavesTraffic(Id<Person> driver, Id<Link> link, Id<Vehicle> vehicle, String mode) {
+		add(VehicleLeavesTrafficType, driver.index(), index(link), vehicle.index(), stringIndex(mode));
+	}
+
+	void addLinkEnter(Id<Vehicle> vehicle, Id<Link> link) {
+		add(LinkEnterType, vehicle.index(), link.index());
+	}
+
+	void addLinkLeave(Id<Vehicle> vehicle, Id<Link> link) {
+		add(LinkLeaveType, vehicle.index(), link.index());
+	}
+
+	void addWaitingForPt(Id<Person> person, Id<TransitStopFacility> accessStop, Id<TransitStopFacility> egressStop) {
+		add(WaitingForPtType, person.index(), index(accessStop), index(egressStop));
+	}
+
+	void addTeleportationArrival(Id<Person> person, double distance, String mode) {
+		add(TeleportationArrivalType, person.index(), stringIndex(mode));
+		addDouble(distance);
+	}
+
+	/**
+	 * @param scheduledTime the arrival time of the schedule, the delay is computed when the event is created.
+	 */
+	void addVehicleArrivesAtFacility(Id<Vehicle> vehicle, Id<TransitStopFacility> stop, double scheduledTime) {
+		add(ArrivesAtFacilityType, vehicle.index(), stop.index());
+		addDouble(scheduledTime);
+	}
+
+	/**
+	 * @param scheduledTime the departure time of the schedule, the delay is computed when the event is created.
+	 */
+	void addVehicleDepartsAtFacility(Id<Vehicle> vehicle, Id<TransitStopFacility> stop, double scheduledTime) {
+		add(DepartsAtFacilityType, vehicle.index(), stop.index());
+		addDouble(scheduledTime);
+	}
+
+	void addTransitDriverStarts(Id<Person> driver, Id<Vehicle> vehicle, Id<TransitLine> line, Id<TransitRoute> route, Id<Departure> departure) {
+		add(TransitDriverStartsType, driver.index(), vehicle.index(), line.index(), route.index(), departure.index());
+	}
+
+	/**
+	 * Replaces the vehicle of a person entering or leaving a vehicle, used for pt passengers once their vehicle is known.
+	 */
+	void setVehicle(int index, int vehicleIndex) {
+		int type = type(index);
+		if (type != EntersVehicleType && type != LeavesVehicleType) {
+			throw new RuntimeException(String.format("vehicle id could not be set for event: %d", index));
+		}
+		data[offset(index) + 1] = vehicleIndex;
+	}
+
+	/**
+	 * Creates the event with the given index, happening at the given time.
+	 */
+	Event toEvent(int index, int time) {
+		int o = offset(index);
+		switch (type(index)) {
+			case ActivityStartType:
+				return new ActivityStartEvent(time, person(o), link(o + 1), id(o + 2, ActivityFacility.class), string(o + 3), coord(o + 4));
+			case ActivityEndType:
+				return new ActivityEndEvent(time, person(o), link(o + 1), id(o + 2, ActivityFacility.class), string(o + 3), coord(o + 4));
+			case DepartureType:
+				return new PersonDepartureEvent(time, person(o), link(o + 1), string(o + 2), string(o + 3));
+			case ArrivalType:
+				return new PersonArrivalEvent(time, person(o), link(o + 1), string(o + 2));
+			case EntersVehicleType:
+				return new PersonEntersVehicleEvent(time, person(o), vehicle(o + 1));
+			case LeavesVehicleType:
+				return new PersonLeavesVehicleEvent(time, person(o), vehicle(o + 1));
+			case VehicleEntersTrafficType:
+				return new VehicleEntersTrafficEvent(time, person(o), link(o + 1), vehicle(o + 2), string(o + 3), 1);
+			case VehicleLeavesTrafficType:
+				return new VehicleLeavesTrafficEvent(time, person(o), link(o + 1), vehicle(o + 2), string(o + 3), 1);
+			case LinkEnterType:
+				return new LinkEnterEvent(time, vehicle(o), link(o + 1));
+			case LinkLeaveType:
+				return new LinkLeaveEvent(time, vehicle(o), link(o + 1));
+			case WaitingForPtType:
+				return new AgentWaitingForPtEvent(time, person(o), stop(o + 1), stop(o + 2));
+			case TeleportationArrivalType:
+				return new TeleportationArrivalEvent(time, person(o), getDouble(o + 2), string(o + 1));
+			case ArrivesAtFacilityType:
+				return new VehicleArrivesAtFacilityEvent(time, vehicle(o), stop(o + 1), time - getDouble(o + 2));
+			case DepartsAtFacilityType:
+				return new VehicleDepartsAtFacilityEvent(time, vehicle(o), stop(o + 1), time - getDouble(o + 2));
+			case TransitDriverStartsType:
+				return new TransitDriverStartsEvent(time, person(o), vehicle(o + 1), id(o + 2, TransitLine.class),
+						id(o + 3, TransitRoute.class), id(o + 4, Departure.class));
+			default:
+				throw new RuntimeException(String.format("unknown event type %d of event %d", type(index), index));
+		}
+	}
+
+	private int type(int index) {
+		return headers[index] >>> 24;
+	}
+
+	private int offset(int index) {
+		return headers[index] & MAX_OFFSET;
+	}
+
+	private Id<Person> person(int position) {
+		return id(position, Person.class);
+	}
+
+	private Id<Link> link(int position) {
+		return id(position, Link.class);
+	}
+
+	private Id<Vehicle> vehicle(int position) {
+		return id(position, Vehicle.class);
+	}
+
+	private Id<TransitStopFacility> stop(int position) {
+		return id(position, TransitStopFacility.class);
+	}
+
+	private <T> Id<T> id(int position, Class<T> type) {
+		int index = data[position];
+		return index == -1 ? null : Id.get(index, type);
+	}
+
+	private String string(int position) {
+		int index = data[position];
+		return index == -1 ? null : strings[index];
+	}
+
+	private Coord coord(int position) {
+		switch (data[position]) {
+			case 0: return null;
+			case 2: return new Coord(getDouble(position + 1), getDouble(position + 3));
+			default: return new Coord(getDouble(position + 1), getDouble(position + 3), getDouble(position + 5));
+		}
+	}
+
+	private double getDouble(int position) {
+		return Double.longBitsToDouble(((long) data[position] << 32) | (data[position + 1] & 0xFFFFFFFFL));
+	}
+
+	private void add(int type, int... fields) {
+		if (dataSize > MAX_OFFSET) {
+			throw new RuntimeException("exceeded maximum size of agent events");
+		}
+		if (size == headers.length) {
+			headers = Arrays.copyOf(headers, headers.length * 2);
+		}
+		headers[size++] = (type << 24) | dataSize;
+		for (int field : fields) {
+			addData(field);
+		}
+	}
+
+	private void addDouble(double value) {
+		long bits = Double.doubleToRawLongBits(value);
+		addData((int) (bits >>> 32));
+		addData((int) bits);
+	}
+
+	private void addData(int value) {
+		if (dataSize == data.length) {
+			data = Arrays.copyOf(data, data.length * 2);
+		}
+		data[dataSize++] = value;
+	}
+
+	private static int index(Id<?> id) {
+		return id == null ? -1 : id.index();
+	}
+
+	private static int stringIndex(String string) {
+		if (string == null) {
+			return -1;
+		}
+		Integer index = stringIndices.get(string);
+		if (index != null) {
+			return index;
+		}
+		synchronized (stringIndices) {
+			index = stringIndices.get(string);
+			if (index == null) {
+				index = stringIndices.size();
+				if (index == strings.length) {
+					strings = Arrays.copyOf(strings, strings.length * 2);
+				}
+				strings[index] = string;
+				stringIndices.put(string, index);
+			}
+			return index;
+		}
+	}
+}
@@ -30,7 +30,8 @@ import org.matsim.core.mobsim.framework.Mobsim;
 final class Hermes implements Mobsim {
 
 	final private static Logger log = LogManager.getLogger(Hermes.class);
-	private Realm realm;
+	private Realm[] realms;
+	private ParallelRealms parallelRealms;
 	private Agent[] agents;
 	private ScenarioImporter scenarioImporter;
 	private final Scenario scenario;
@@ -44,12 +45,17 @@ final class Hermes implements Mobsim {
 	private void importScenario() throws Exception {
 		scenarioImporter = ScenarioImporter.instance(scenario, eventsManager);
 		scenarioImporter.generate();
-		this.realm = scenarioImporter.realm;
+		this.realms = scenarioImporter.realms;
+		this.parallelRealms = realms.length > 1 ? new ParallelRealms(realms, eventsManager, scenarioImporter.hermesAgents) : null;
 		this.agents = scenarioImporter.hermesAgents;
 	}
 
 	private void processEvents() {
-        eventsManager.processEvents(realm.getSortedEvents());
+		if (parallelRealms != null) {
+			parallelRealms.getSortedEvents().flush(eventsManager, agents);
+		} else {
+			realms[0].getSortedEvents().flush(eventsManager, agents);
+		}
 
 		for (Agent agent : agents) {
 			if (agent != null && !agent.finished() && !agent.isTransitVehicle()) {
@@ -72,9 +78,13 @@ final class Hermes implements Mobsim {
 			eventsManager.initProcessing();
 
 			time = System.currentTimeMillis();
-			realm.run();
+			if (parallelRealms != null) {
+				parallelRealms.run();
+			} else {
+				realms[0].run();
+			}
 			log.info(String.format(
-					"Hermes took %d ms", System.currentTimeMillis() - time));
+					"Hermes took %d ms (%d realms)", System.currentTimeMillis() - time, realms.length));
 
 			time = System.currentTimeMillis();
 			processEvents();
@@ -0,0 +1,166 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.mobsim.hermes;
+
+import org.matsim.core.api.experimental.events.EventsManager;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs several realms, each on its own thread, in lock step. Every simulated second consists of these phases:
+ * <ol>
+ *     <li>each realm processes its own agents and links, and queues agents entering a link of another realm;</li>
+ *     <li>after all realms finished the first phase, each realm lets the agents handed over to it enter their link
+ *     (or rejects them if the link is full);</li>
+ *     <li>after all realms finished the second phase, each realm releases the links the accepted agents left. These
+ *     links continue to release agents as far as their flow capacity allows, which may hand over further agents.</li>
+ * </ol>
+ * The second and third phase are repeated until no realm handed over or accepted an agent, as a full link may
+ * release agents to another realm and then accept an agent that was rejected before. Only then the remaining
+ * agents are finally rejected, and their links wait for the next second.
+ * Realms only touch their own links in each phase, and handoffs are processed in a fixed order, so the results do
+ * not depend on thread scheduling. Events of all realms are merged by time, ties are resolved by the realm index.
+ */
+final class ParallelRealms {
+
+	private final Realm[] realms;
+	private final EventsManager eventsManager;
+	private final Agent[] agents;
+	private PendingEvents sortedEvents = new PendingEvents();
+	// Set by the barrier action when a realm handed over or accepted agents in the last phase, read by all realms after it.
+	private volatile boolean handoffsPending;
+
+	ParallelRealms(Realm[] realms, EventsManager eventsManager, Agent[] agents) {
+		this.realms = realms;
+		this.eventsManager = eventsManager;
+		this.agents = agents;
+		for (Realm realm : realms) {
+			realm.setRealms(realms);
+		}
+	}
+
+	void run() throws Exception {
+		CyclicBarrier handoffBarrier = new CyclicBarrier(realms.length, this::finishRound);
+		CyclicBarrier decisionBarrier = new CyclicBarrier(realms.length);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		Thread[] threads = new Thread[realms.length];
+		for (int i = 0; i < realms.length; i++) {
+			Realm realm = realms[i];
+			threads[i] = new Thread(() -> {
+				try {
+					while (realm.time() != HermesConfigGroup.SIM_STEPS) {
+						realm.processTick();
+						handoffBarrier.await();
+						while (handoffsPending) {
+							realm.processHandoffs();
+							decisionBarrier.await();
+							realm.finishHandoffs();
+							handoffBarrier.await();
+						}
+						realm.advanceTime();
+					}
+				} catch (BrokenBarrierException e) {
+					// another realm failed, its exception is reported
+				} catch (Throwable t) {
+					failure.compareAndSet(null, t);
+					handoffBarrier.reset();
+					decisionBarrier.reset();
+				}
+			}, "hermes-realm-" + i);
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (failure.get() != null) {
+			throw new RuntimeException("Hermes realm failed", failure.get());
+		}
+	}
+
+	/**
+	 * Runs after each phase in which realms may hand over agents, before any realm continues.
+	 */
+	private void finishRound() {
+		boolean pending = false;
+		for (Realm realm : realms) {
+			pending |= realm.takeHandoffsChanged();
+		}
+		handoffsPending = pending;
+		if (!pending) {
+			for (Realm realm : realms) {
+				realm.rejectHandoffs();
+			}
+			finishTick();
+		}
+	}
+
+	/**
+	 * Runs once per simulated second, after all realms processed their handoffs and before any realm continues.
+	 */
+	private void finishTick() {
+		int secs = realms[0].time();
+		if (secs % 3600 != 0) {
+			return;
+		}
+		mergeSortedEvents();
+		if (HermesConfigGroup.CONCURRENT_EVENT_PROCESSING) {
+			sortedEvents.flush(eventsManager, agents);
+		}
+	}
+
+	/**
+	 * Appends the events of all realms to {@link #sortedEvents}.
+	 */
+	private void mergeSortedEvents() {
+		PendingEvents[] parts = new PendingEvents[realms.length];
+		int[] next = new int[realms.length];
+		int total = 0;
+		for (int i = 0; i < realms.length; i++) {
+			parts[i] = realms[i].takeSortedEvents();
+			total += parts[i].size();
+		}
+		for (int n = 0; n < total; n++) {
+			int best = -1;
+			int bestTime = Integer.MAX_VALUE;
+			for (int i = 0; i < parts.length; i++) {
+				if (next[i] < parts[i].size()) {
+					int time = parts[i].time(next[i]);
+					if (time < bestTime) {
+						best = i;
+						bestTime = time;
+					}
+				}
+			}
+			sortedEvents.add(parts[best], next[best]++);
+		}
+	}
+
+	/**
+	 * @return the events that were not yet passed to the events manager, sorted by time.
+	 */
+	PendingEvents getSortedEvents() {
+		mergeSortedEvents();
+		PendingEvents result = sortedEvents;
+		sortedEvents = new PendingEvents();
+		return result;
+	}
+}
@@ -0,0 +1,161 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.mobsim.hermes;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventArray;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.Arrays;
+
+/**
+ * Events that were simulated but not yet passed to the events manager, in the order in which they happened. Each
+ * event is a time and a reference to one of the {@link EventTemplates} of an agent, or a link event of a
+ * deterministic pt vehicle, so no event objects are created before {@link #flush(EventsManager, Agent[])}.
+ * <p>
+ * Entries have the following structure:
+ * <pre>
+ * agent event: &lt;0&gt;&lt;31 bit agent id&gt;&lt;32 bit event index&gt;
+ * link event:  &lt;1&gt;&lt;1 bit enter&gt;&lt;6 bits unused&gt;&lt;32 bit vehicle id&gt;&lt;24 bit link id&gt;
+ * </pre>
+ */
+final class PendingEvents {
+
+	// Events are passed to the events manager in arrays of at most this size, so there are never many event objects.
+	private static final int FLUSH_SIZE = 1 << 16;
+
+	private static final long LinkEventFlag = 1L << 63;
+	private static final long LinkEnterFlag = 1L << 62;
+
+	private int[] times;
+	private long[] entries;
+	private int size;
+
+	PendingEvents() {
+		this.times = new int[32];
+		this.entries = new long[32];
+	}
+
+	int size() {
+		return size;
+	}
+
+	int time(int index) {
+		return times[index];
+	}
+
+	void addAgentEvent(int time, int agentId, int eventIndex) {
+		add(time, ((long) agentId << 32) | eventIndex);
+	}
+
+	void addLinkEvent(int time, int vehicleId, int linkId, boolean enter) {
+		if (linkId > HermesConfigGroup.MAX_LINK_ID) {
+			throw new RuntimeException("exceeded maximum number of links");
+		}
+		add(time, LinkEventFlag | (enter ? LinkEnterFlag : 0) | (((long) vehicleId & 0xFFFFFFFFL) << 24) | linkId);
+	}
+
+	/**
+	 * Appends the event with the given index of another instance.
+	 */
+	void add(PendingEvents other, int index) {
+		add(other.times[index], other.entries[index]);
+	}
+
+	void removeLast() {
+		size--;
+	}
+
+	void clear() {
+		size = 0;
+	}
+
+	Event toEvent(int index, Agent[] agents) {
+		long entry = entries[index];
+		int time = times[index];
+		if ((entry & LinkEventFlag) == 0) {
+			return agents[(int) (entry >>> 32)].events().toEvent((int) entry, time);
+		}
+		Id<Vehicle> vehicleId = Id.get((int) (entry >>> 24), Vehicle.class);
+		Id<Link> linkId = Id.get((int) (entry & 0xFFFFFFL), Link.class);
+		if ((entry & LinkEnterFlag) != 0) {
+			return new LinkEnterEvent(time, vehicleId, linkId);
+		} else {
+			return new LinkLeaveEvent(time, vehicleId, linkId);
+		}
+	}
+
+	/**
+	 * Creates the events and passes them to the events manager, and removes them afterwards.
+	 */
+	void flush(EventsManager eventsManager, Agent[] agents) {
+		for (int from = 0; from < size; from += FLUSH_SIZE) {
+			int to = Math.min(size, from + FLUSH_SIZE);
+			// a new array each time, as the events manager may still process the previous one in the background
+			EventArray events = new EventArray(to - from);
+			for (int i = from; i < to; i++) {
+				events.add(toEvent(i, agents));
+			}
+			eventsManager.processEvents(events);
+		}
+		clear();
+	}
+
+	/**
+	 * Sorts the events by time, keeping the order of events with the same time.
+	 */
+	void sortByTime() {
+		int maxTime = 0;
+		for (int i = 0; i < size; i++) {
+			maxTime = Math.max(maxTime, times[i]);
+		}
+		// counting sort, i.e. stable and linear in the number of events and seconds
+		int[] starts = new int[maxTime + 2];
+		for (int i = 0; i < size; i++) {
+			starts[times[i] + 1]++;
+		}
+		for (int t = 1; t < starts.length; t++) {
+			starts[t] += starts[t - 1];
+		}
+		int[] sortedTimes = new int[times.length];
+		long[] sortedEntries = new long[entries.length];
+		for (int i = 0; i < size; i++) {
+			int position = starts[times[i]]++;
+			sortedTimes[position] = times[i];
+			sortedEntries[position] = entries[i];
+		}
+		this.times = sortedTimes;
+		this.entries = sortedEntries;
+	}
+
+	private void add(int time, long entry) {
+		if (size == times.length) {
+			times = Arrays.copyOf(times, times.length * 2);
+			entries = Arrays.copyOf(entries, entries.length * 2);
+		}
+		times[size] = time;
+		entries[size] = entry;
+		size++;
+	}
+}
@@ -20,26 +20,44 @@ package org.matsim.core.mobsim.hermes;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.IdMap;
-import org.matsim.api.core.v01.events.ActivityEndEvent;
-import org.matsim.api.core.v01.events.Event;
-import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
-import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.core.api.experimental.events.EventsManager;
-import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
-import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
-import org.matsim.core.events.EventArray;
 import org.matsim.core.utils.collections.IntArrayMap;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
-import org.matsim.vehicles.Vehicle;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 
 class Realm {
 	private final ScenarioImporter si;
+    // Index of this realm.
+    private final int realmId;
+    // Realm that simulates each link (indexed by link id), null if there is only one realm.
+    private final int[] realmOfLink;
+    // All realms, used to hand over agents that enter a link of another realm.
+    private Realm[] realms;
+    // Agents handed over to this realm in the current tick, one list per source realm.
+    // Each list is only written by its source realm, and only read by this realm after all realms finished the tick.
+    private final ArrayList<ArrayList<Handoff>> inbox;
+    // Agents this realm handed over from one of its links in the current tick.
+    private ArrayList<Handoff> outbox;
+    // Handoffs of the previous round whose links are being released, swapped with the outbox.
+    private ArrayList<Handoff> released;
+    // Links that wait in the current tick, either for a handoff of their head agent to be accepted, or for the full
+    // link their head agent wants to enter to release agents.
+    private final LinkedHashSet<HLink> waitingLinks;
+    // The links that wait for each link.
+    private final HashMap<HLink, ArrayList<HLink>> waitersOf;
+    // Links that wake up in the current tick and were not processed yet.
+    private final BitSet linksToProcess;
+    // Set when the last call to processAgent handed the agent over to another realm.
+    private boolean handedOff;
+    // Set when this realm handed over agents, or accepted agents handed over to it, since the last round of handoffs.
+    private boolean handoffsChanged;
     // Global array of links.
     // Note: the id of the link is its index in the array.
     private final HLink[] links;
@@ -56,7 +74,7 @@ class Realm {
     // line id of a particular route
     private final int[] line_of_route;
     // queue of sorted events by time
-    private EventArray sortedEvents;
+    private PendingEvents sortedEvents;
     // MATSim event manager.
     private final EventsManager eventsManager;
     // Current timestamp
@@ -64,7 +82,20 @@ class Realm {
     Logger log = LogManager.getLogger(Realm.class);
 
     public Realm(ScenarioImporter scenario, EventsManager eventsManager) {
+        this(scenario, eventsManager, 0, null);
+    }
+
+    public Realm(ScenarioImporter scenario, EventsManager eventsManager, int realmId, int[] realmOfLink) {
         this.si = scenario;
+        this.realmId = realmId;
+        this.realmOfLink = realmOfLink;
+        this.realms = new Realm[] { this };
+        this.inbox = new ArrayList<>();
+        this.outbox = new ArrayList<>();
+        this.released = new ArrayList<>();
+        this.waitingLinks = new LinkedHashSet<>();
+        this.waitersOf = new HashMap<>();
+        this.linksToProcess = new BitSet();
         this.links = scenario.hermesLinks;
         // The plus one is necessary because we peek into the next slot on each tick.
         this.delayedLinksByWakeupTime = new ArrayList<>();
@@ -72,16 +103,29 @@ class Realm {
         this.agent_stops = scenario.agentStops;
         this.route_stops_by_route_no = scenario.routeStopsByRouteNo;
         this.line_of_route = scenario.lineOfRoute;
-        this.sortedEvents = new EventArray();
+        this.sortedEvents = new PendingEvents();
         this.eventsManager = eventsManager;
 
         // the last position is to store events that will not happen...
+        // Slots are allocated lazily as most seconds are empty, especially when the network is split into many realms.
         for (int i = 0; i <= HermesConfigGroup.SIM_STEPS + 1; i++) {
-            delayedLinksByWakeupTime.add(new ArrayDeque<>());
-            delayedAgentsByWakeupTime.add(new ArrayDeque<>());
+            delayedLinksByWakeupTime.add(null);
+            delayedAgentsByWakeupTime.add(null);
+        }
+    }
+
+    void setRealms(Realm[] realms) {
+        this.realms = realms;
+        this.inbox.clear();
+        for (int i = 0; i < realms.length; i++) {
+            this.inbox.add(new ArrayList<>());
         }
     }
 
+    int realmOfLink(int linkId) {
+        return realmOfLink == null ? 0 : realmOfLink[linkId];
+    }
+
     public void log(int time, String s) {
         if (HermesConfigGroup.DEBUG_REALMS) {
             log.debug(String.format("Hermes [ time = %d ] %s", time, s));
@@ -90,13 +134,22 @@ class Realm {
 
     private void addDelayedAgent(Agent agent, int until) {
         if (HermesConfigGroup.DEBUG_REALMS) log(secs, String.format("agent %d delayed until %d", agent.id, until));
-        delayedAgentsByWakeupTime.get(Math.min(until, HermesConfigGroup.SIM_STEPS + 1)).add(agent);
+        slot(delayedAgentsByWakeupTime, Math.min(until, HermesConfigGroup.SIM_STEPS + 1)).add(agent);
     }
 
     private void addDelayedLink(HLink link, int until) {
         if (HermesConfigGroup.DEBUG_REALMS)
             log(secs, String.format("link %d delayed until %d size %d peek agent %d", link.id(), until, link.queue().size(), link.queue().peek().id));
-        delayedLinksByWakeupTime.get(Math.min(until, HermesConfigGroup.SIM_STEPS + 1)).add(link);
+        slot(delayedLinksByWakeupTime, Math.min(until, HermesConfigGroup.SIM_STEPS + 1)).add(link);
+    }
+
+    private static <T> ArrayDeque<T> slot(ArrayList<ArrayDeque<T>> byWakeupTime, int time) {
+        ArrayDeque<T> queue = byWakeupTime.get(time);
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            byWakeupTime.set(time, queue);
+        }
+        return queue;
     }
 
     private void advanceAgentandSetEventTime(Agent agent) {
@@ -119,6 +172,18 @@ class Realm {
 
     protected boolean processAgentLink(Agent agent, long planentry, int currLinkId) {
         int linkid = Agent.getLinkPlanEntry(planentry);
+        int targetRealm = realmOfLink(linkid);
+        if (targetRealm != realmId) {
+            // The link is simulated by another realm, which decides whether the agent can enter after this tick.
+            Handoff handoff = new Handoff(agent, currLinkId == -1 ? null : links[currLinkId]);
+            realms[targetRealm].inbox.get(realmId).add(handoff);
+            if (handoff.from != null) {
+                outbox.add(handoff);
+            }
+            handedOff = true;
+            handoffsChanged = true;
+            return false;
+        }
         double velocity = Agent.getVelocityPlanEntry(planentry);
         HLink next = links[linkid];
         int prev_finishtime = agent.linkFinishTime;
@@ -281,6 +346,10 @@ class Realm {
         }
         // -1 is used in the processAgent because the agent is not in a link currently.
         if (!finished && !processAgent(agent, -1)) {
+            if (handedOff) {
+                handedOff = false;
+                return 1;
+            }
             addDelayedAgent(agent, secs + 1);
             return 0;
         }
@@ -288,9 +357,20 @@ class Realm {
     }
 
     protected int processLinks(HLink link) {
+        return processLinks(link, false);
+    }
+
+    /**
+     * @param headHasFlow whether the head agent already got the flow capacity to leave the link in this tick.
+     */
+    private int processLinks(HLink link, boolean headHasFlow) {
         int routed = 0;
         Agent agent = link.queue().peek();
-        while (agent.linkFinishTime <= secs && link.flow(secs, agent.getFlowCapacityPCUE())) {
+        if (agent == null) {
+            return routed;
+        }
+        while (agent.linkFinishTime <= secs && (headHasFlow || link.flow(secs, agent.getFlowCapacityPCUE()))) {
+            headHasFlow = false;
             boolean finished = agent.finished();
             // if finished, install times on last event.
             if (finished) {
@@ -303,6 +383,18 @@ class Realm {
                 if ((agent = link.queue().peek()) == null) {
                     break;
                 }
+            } else if (handedOff) {
+                // The link is blocked until the other realm accepts or rejects the agent, see finishHandoffs.
+                handedOff = false;
+                waitingLinks.add(link);
+                return routed;
+            } else if (realms.length > 1 && mayReleaseAgents(nextLink(agent))) {
+                // The next link is full, but may still release agents in this tick, possibly to another realm.
+                // Waiting for it makes the result independent of the order in which the links are processed, and
+                // thereby of the partitioning. A single realm keeps the original behavior.
+                waitersOf.computeIfAbsent(nextLink(agent), l -> new ArrayList<>()).add(link);
+                waitingLinks.add(link);
+                return routed;
             } else {
                 break;
             }
@@ -315,71 +407,198 @@ class Realm {
         return routed;
     }
 
+    private HLink nextLink(Agent agent) {
+        long planentry = agent.plan.get(agent.planIndex + 1);
+        return Agent.getPlanHeader(planentry) == Agent.LinkType ? links[Agent.getLinkPlanEntry(planentry)] : null;
+    }
+
+    private boolean mayReleaseAgents(HLink link) {
+        return link != null && (linksToProcess.get(link.id()) || waitingLinks.contains(link));
+    }
+
+    /**
+     * Lets the links that wait for the given link continue, unless the link still waits itself.
+     */
+    private void releaseWaiters(HLink link) {
+        if (waitingLinks.contains(link)) {
+            return;
+        }
+        ArrayList<HLink> waiters = waitersOf.remove(link);
+        if (waiters != null) {
+            for (HLink waiter : waiters) {
+                waitingLinks.remove(waiter);
+                processLinks(waiter, true);
+                releaseWaiters(waiter);
+            }
+        }
+    }
+
     public void run() throws Exception {
+        while (secs != HermesConfigGroup.SIM_STEPS) {
+            processTick();
+            if (HermesConfigGroup.CONCURRENT_EVENT_PROCESSING && secs % 3600 == 0 && sortedEvents.size() > 0) {
+                sortedEvents.flush(eventsManager, si.hermesAgents);
+            }
+            secs += 1;
+        }
+    }
+
+    /**
+     * Processes the agents and links that wake up in the current second. Agents entering a link of another
+     * realm are only queued for that realm, see {@link #processHandoffs()} and {@link #finishHandoffs()}.
+     */
+    void processTick() {
         int routed = 0;
         Agent agent;
         HLink link;
 
-        while (secs != HermesConfigGroup.SIM_STEPS) {
-            if (secs % 3600 == 0) {
-                log.info("Hermes running at " + Time.writeTime(secs));
+        if (secs % 3600 == 0 && realmId == 0) {
+            log.info("Hermes running at " + Time.writeTime(secs));
+        }
+        ArrayDeque<Agent> wakingAgents = delayedAgentsByWakeupTime.get(secs);
+        while (wakingAgents != null && (agent = wakingAgents.poll()) != null) {
+            if (HermesConfigGroup.DEBUG_REALMS) {
+                log(secs, String.format("Processing agent %d", agent.id));
             }
-            while ((agent = delayedAgentsByWakeupTime.get(secs).poll()) != null) {
-                if (HermesConfigGroup.DEBUG_REALMS) {
-                    log(secs, String.format("Processing agent %d", agent.id));
-                }
-                routed += processAgentActivities(agent);
+            routed += processAgentActivities(agent);
+
+        }
+        delayedAgentsByWakeupTime.set(secs, null);
+        if (si.isDeterministicPt() && realmId == 0) {
+            si.takeDeterministicPtEvents(secs, sortedEvents);
+        }
 
+        ArrayDeque<HLink> wakingLinks = delayedLinksByWakeupTime.get(secs);
+        if (wakingLinks != null && realms.length > 1) {
+            for (HLink wakingLink : wakingLinks) {
+                linksToProcess.set(wakingLink.id());
             }
-            delayedAgentsByWakeupTime.set(secs, null);
-            if (si.isDeterministicPt()) {
-                for (Event e : si.getDeterministicPtEvents().get(secs)) {
-                    sortedEvents.add(e);
-                }
-                si.getDeterministicPtEvents().get(secs).clear();
+        }
+        while (wakingLinks != null && (link = wakingLinks.poll()) != null) {
+            if (HermesConfigGroup.DEBUG_REALMS) {
+                log(secs, String.format("Processing link %d", link.id()));
+            }
+            if (realms.length == 1) {
+                routed += processLinks(link);
+            } else {
+                linksToProcess.clear(link.id());
+                routed += processLinks(link);
+                releaseWaiters(link);
             }
+        }
+        delayedLinksByWakeupTime.set(secs, null);
+        if (HermesConfigGroup.DEBUG_REALMS && routed > 0) {
+            log(secs, String.format("Processed %d agents", routed));
+        }
+    }
 
-            while ((link = delayedLinksByWakeupTime.get(secs).poll()) != null) {
-                if (HermesConfigGroup.DEBUG_REALMS) {
-                    log(secs, String.format("Processing link %d", link.id()));
+    /**
+     * Lets the agents handed over by other realms in the current second enter their link. Handoffs are processed
+     * in the order of the source realms, so the outcome does not depend on thread scheduling. Agents that cannot
+     * enter their link stay in the inbox, as the link may still release agents in this second, see
+     * {@link #finishHandoffs()}.
+     */
+    void processHandoffs() {
+        for (ArrayList<Handoff> handoffs : inbox) {
+            for (int i = 0; i < handoffs.size(); i++) {
+                Handoff handoff = handoffs.get(i);
+                if (handoff.accepted) {
+                    continue;
                 }
-                routed += processLinks(link);
+                Agent agent = handoff.agent;
+                long planentry = agent.plan.get(agent.planIndex + 1);
+                handoff.accepted = processAgentLink(agent, planentry, handoff.from == null ? -1 : handoff.from.id());
+                handoffsChanged |= handoff.accepted;
             }
-            delayedLinksByWakeupTime.set(secs, null);
-            if (HermesConfigGroup.DEBUG_REALMS && routed > 0) {
-                log(secs, String.format("Processed %d agents", routed));
+        }
+    }
+
+    /**
+     * Releases the links from which agents were handed over to other realms and accepted there. These links continue
+     * to release agents as long as their flow capacity allows, as they would in a single realm, which may hand over
+     * further agents. Only touches links of this realm, so it does not need to wait for the other realms.
+     */
+    void finishHandoffs() {
+        ArrayList<Handoff> handoffs = outbox;
+        outbox = released;
+        released = handoffs;
+        for (Handoff handoff : handoffs) {
+            if (handoff.accepted) {
+                HLink link = handoff.from;
+                link.pop(handoff.storageCapacityPCUE);
+                waitingLinks.remove(link);
+                processLinks(link);
+                releaseWaiters(link);
+            } else {
+                // the other realm may still accept the agent in this second
+                outbox.add(handoff);
             }
-            if (HermesConfigGroup.CONCURRENT_EVENT_PROCESSING && secs % 3600 == 0 && sortedEvents.size() > 0) {
-                eventsManager.processEvents(sortedEvents);
-                sortedEvents = new EventArray();
+        }
+        handoffs.clear();
+    }
+
+    /**
+     * Ends the handoffs of the current second, once no realm handed over or accepted an agent in the last round:
+     * the links whose agent was rejected, and the links waiting for them, wait for the next second, as do rejected
+     * agents that come from an activity.
+     * Must not run concurrently with other realms.
+     */
+    void rejectHandoffs() {
+        for (ArrayList<Handoff> handoffs : inbox) {
+            for (Handoff handoff : handoffs) {
+                if (!handoff.accepted && handoff.from == null) {
+                    // The agent comes from an activity, it now waits in this realm.
+                    addDelayedAgent(handoff.agent, secs + 1);
+                }
             }
+            handoffs.clear();
+        }
+        outbox.clear();
+        delayWaitingLinks();
+    }
 
-            routed = 0;
-            secs += 1;
+    private void delayWaitingLinks() {
+        for (HLink link : waitingLinks) {
+            addDelayedLink(link, Math.max(link.queue().peek().linkFinishTime, secs + 1));
         }
+        waitingLinks.clear();
+        waitersOf.clear();
+    }
+
+    /**
+     * @return whether this realm handed over or accepted agents since the last call.
+     */
+    boolean takeHandoffsChanged() {
+        boolean changed = this.handoffsChanged;
+        this.handoffsChanged = false;
+        return changed;
+    }
+
+    void advanceTime() {
+        secs += 1;
+    }
+
+    int time() {
+        return secs;
+    }
+
+    PendingEvents takeSortedEvents() {
+        PendingEvents events = this.sortedEvents;
+        this.sortedEvents = new PendingEvents();
+        return events;
     }
 
     public void setEventTime(Agent agent, int agentId, int time, boolean lastEvent) {
         if (agentId != 0) {
-            EventArray agentEvents = agent.events();
-            Event event = agentEvents.get(agentId);
-
             for (; agent.eventsIndex <= agentId; agent.eventsIndex++) {
-                agentEvents.get(agent.eventsIndex).setTime(time);
                 if (HermesConfigGroup.DEBUG_REALMS)
-                    log(secs, String.format("agent %d setEventTime (eventsIndex=%d) %s", agent.id, agent.eventsIndex, agentEvents.get(agent.eventsIndex).toString()));
-                sortedEvents.add(agentEvents.get(agent.eventsIndex));
+                    log(secs, String.format("agent %d setEventTime (eventsIndex=%d) %s", agent.id, agent.eventsIndex, agent.events().toEvent(agent.eventsIndex, time).toString()));
+                sortedEvents.addAgentEvent(time, agent.id, agent.eventsIndex);
             }
 
-            // Fix delay for PT events.
-            if (event instanceof VehicleArrivesAtFacilityEvent vaafe) {
-                vaafe.setDelay(vaafe.getTime() - vaafe.getDelay());
-
-            } else if (event instanceof VehicleDepartsAtFacilityEvent vdafe) {
-                vdafe.setDelay(vdafe.getTime() - vdafe.getDelay());
-            }
             // This removes actend that is not issued by QSim.
-            else if (lastEvent && event instanceof ActivityEndEvent) {
+            // The delay of PT events is computed when the events are created.
+            if (lastEvent && agent.events().isActivityEnd(agentId)) {
                 sortedEvents.removeLast();
             }
         }
@@ -387,26 +606,34 @@ class Realm {
 
     public void setEventVehicle(Agent agent, int eventId, int vehicleId) {
         if (eventId != 0) {
-            Event event = agent.events().get(eventId);
-            Id<Vehicle> vid = Id.get(si.matsim_id(vehicleId, true), Vehicle.class);
-            if (event instanceof PersonEntersVehicleEvent) {
-                ((PersonEntersVehicleEvent) event).setVehicleId(vid);
-            } else if (event instanceof PersonLeavesVehicleEvent) {
-                ((PersonLeavesVehicleEvent) event).setVehicleId(vid);
-            } else {
-                throw new RuntimeException(
-                        String.format("vehicle id could not be set for event: %d", eventId));
-            }
+            agent.events().setVehicle(eventId, si.matsim_id(vehicleId, true));
         }
     }
 
-    ArrayList<ArrayDeque<HLink>> delayedLinks() { return this.delayedLinksByWakeupTime; }
+    ArrayDeque<HLink> delayedLinks(int time) {
+        return slot(this.delayedLinksByWakeupTime, time);
+    }
 
-    ArrayList<ArrayDeque<Agent>> delayedAgents() {
-        return this.delayedAgentsByWakeupTime;
+    ArrayDeque<Agent> delayedAgents(int time) {
+        return slot(this.delayedAgentsByWakeupTime, time);
     }
 
-    EventArray getSortedEvents() {
+    PendingEvents getSortedEvents() {
         return this.sortedEvents;
     }
+
+    private static final class Handoff {
+        private final Agent agent;
+        // Link the agent leaves, null if the agent comes from an activity.
+        private final HLink from;
+        // Storage the agent occupies on the link it leaves. Kept here as the agent belongs to the other realm afterwards.
+        private final float storageCapacityPCUE;
+        private boolean accepted;
+
+        private Handoff(Agent agent, HLink from) {
+            this.agent = agent;
+            this.from = from;
+            this.storageCapacityPCUE = agent.getStorageCapacityPCUE();
+        }
+    }
 }
@@ -25,13 +25,12 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.TransportMode;
-import org.matsim.api.core.v01.events.*;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.*;
-import org.matsim.core.api.experimental.events.*;
-import org.matsim.core.events.EventArray;
+import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.mobsim.hermes.Agent.PlanArray;
+import org.matsim.core.network.algorithms.NetworkPartitioner;
 import org.matsim.core.population.routes.GenericRouteImpl;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.router.TripStructureUtils;
@@ -47,6 +46,7 @@ import org.matsim.vehicles.VehicleType;
 import org.matsim.vehicles.VehicleUtils;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 class ScenarioImporter {
 
@@ -77,7 +77,9 @@ class ScenarioImporter {
 	// Array of links that define the network.
 	protected HLink[] hermesLinks;
 
-	protected Realm realm;
+	protected Realm[] realms;
+	// Realm of each link (indexed by link id), null if the network is simulated by a single realm.
+	private int[] realmOfLink;
 	private final boolean deterministicPt;
 	// Agents waiting in pt stations. Should be used as follows:
 	// agent_stops.get(curr station id).get(line id) -> queue of agents
@@ -88,25 +90,32 @@ class ScenarioImporter {
 	// Array of agents that participate in the simulation.
 	// Note: in order to make MATSim Agent ids, some positions in the array might be null.
 	protected Agent[] hermesAgents;
+	// Selected plan each person agent was generated from (indexed by hermes id), and a checksum of its content, so that
+	// agents whose selected plan did not change since the last iteration are not generated again. Plan strategies modify
+	// a copy of the plan, but others may change the selected plan in place (e.g. PersonPrepareForSim when rerouting), so
+	// the plan must be the same object with the same checksum. Changes outside the plan (e.g. the link of a facility or
+	// the vehicles of a person) are not detected, they need a complete import with flush().
+	private Plan[] generatedPlans;
+	private long[] generatedPlanChecksums;
+	// The schedule does not change, so the plans of the transit vehicles are only generated once.
+	private boolean transitVehiclePlansGenerated = false;
 	protected final EventsManager eventsManager;
 	private final int numberOfThreads;
-	private final List<List<Event>> deterministicPtEvents;
+	// Link events of deterministic pt vehicles, sorted by time, and the next one to be simulated.
+	private final PendingEvents deterministicPtEvents;
+	private int nextDeterministicPtEvent;
+	private final int endTime;
 
 	private ScenarioImporter(Scenario scenario, EventsManager eventsManager) {
 		numberOfThreads = Math.min(scenario.getConfig().global().getNumberOfThreads(), Runtime.getRuntime().availableProcessors());
 		this.deterministicPt = scenario.getConfig().hermes().isDeterministicPt();
-		if (deterministicPt) {
-			deterministicPtEvents = new ArrayList<>(scenario.getConfig().hermes().getEndTime());
-			for (int i = 0; i < scenario.getConfig().hermes().getEndTime(); i++) {
-				deterministicPtEvents.add(new ArrayList<>(16));
-			}
-		} else {
-			deterministicPtEvents = Collections.EMPTY_LIST;
-		}
+		this.deterministicPtEvents = new PendingEvents();
+		this.endTime = scenario.getConfig().hermes().getEndTime();
 		this.scenario = scenario;
 		this.eventsManager = eventsManager;
 		generateVehicleCategories();
 		generateLinks();
+		partitionLinks();
 		generatePT();
 		generateAgents();
 
@@ -172,12 +181,13 @@ class ScenarioImporter {
 						link.reset();
 					}
 				}
-				// reset agent plans and events
+				// restart agents, their plans and events are kept until the selected plan changes
 				for (Agent hermes_agent : hermesAgents) {
 					if (hermes_agent != null) {
-						hermes_agent.reset();
+						hermes_agent.restart();
 					}
 				}
+				nextDeterministicPtEvent = 0;
 				// reset agent_stops
 				for (IntArrayMap<ArrayDeque<Agent>> station_id : agentStops) {
 					for (ArrayDeque<Agent> agents_per_line : station_id.values()) {
@@ -213,6 +223,48 @@ class ScenarioImporter {
 		}
 	}
 
+	private void partitionLinks() {
+		int numberOfRealms = scenario.getConfig().hermes().getNumberOfRealms();
+		if (numberOfRealms > 1 && !scenario.getTransitSchedule().getTransitLines().isEmpty()) {
+			// passengers waiting at stops are shared between all vehicles serving the stop, which would need to be
+			// synchronized across realms.
+			log.warn("Hermes does not support multiple realms for scenarios with transit, using a single realm.");
+			numberOfRealms = 1;
+		}
+		if (numberOfRealms > 1) {
+			realmOfLink = NetworkPartitioner.partition(scenario.getNetwork(), numberOfRealms);
+			log.info(String.format("Hermes partitioned the network into %d realms", numberOfRealms));
+		}
+	}
+
+	private int numberOfRealms() {
+		int realms = 1;
+		if (realmOfLink != null) {
+			for (int realm : realmOfLink) {
+				realms = Math.max(realms, realm + 1);
+			}
+		}
+		return realms;
+	}
+
+	private int initialRealm(Agent agent) {
+		if (realmOfLink == null) {
+			return 0;
+		}
+		// agents start in the realm of the first link they use, so that departing does not require a handoff.
+		for (int i = 0; i < agent.plan.size(); i++) {
+			long planentry = agent.plan.get(i);
+			if (Agent.getPlanHeader(planentry) == Agent.LinkType) {
+				return realmOfLink[Agent.getLinkPlanEntry(planentry)];
+			}
+		}
+		return 0;
+	}
+
+	private int realmOf(HLink link) {
+		return realmOfLink == null ? 0 : realmOfLink[link.id()];
+	}
+
 	private void initRoutesStations() {
 		TransitSchedule ts = this.scenario.getTransitSchedule();
 
@@ -272,7 +324,10 @@ class ScenarioImporter {
 	}
 
 	private void generateRealms() {
-		realm = new Realm(this, eventsManager);
+		realms = new Realm[numberOfRealms()];
+		for (int i = 0; i < realms.length; i++) {
+			realms[i] = new Realm(this, eventsManager, i, realmOfLink);
+		}
 
 		// Put agents in their initial location (link or activity center)
 		for (Agent agent : hermesAgents) {
@@ -294,7 +349,7 @@ class ScenarioImporter {
 				case Agent.SleepForType:
 				case Agent.SleepUntilType:
 					int sleep = Agent.getSleepPlanEntry(planentry);
-					realm.delayedAgents().get(Math.min(sleep, scenario.getConfig().hermes().getEndTime() + 1)).add(agent);
+					realms[initialRealm(agent)].delayedAgents(Math.min(sleep, scenario.getConfig().hermes().getEndTime() + 1)).add(agent);
 					break;
 				default:
 					LogManager.getLogger(getClass()).error(String.format("ERROR -> unknown plan element type %d", type));
@@ -305,7 +360,7 @@ class ScenarioImporter {
 			if (link != null) {
 				int nextwakeup = link.nexttime();
 				if (nextwakeup > 0) {
-					realm.delayedLinks().get(nextwakeup).add(link);
+					realms[realmOf(link)].delayedLinks(nextwakeup).add(link);
 				}
 			}
 		}
@@ -314,7 +369,7 @@ class ScenarioImporter {
 	private void processPlanActivity(
 			Id<Person> id,
 			PlanArray flatplan,
-			EventArray events,
+			EventTemplates events,
 			Activity act) {
 		int time = 0;
 		int eventid = 0;
@@ -338,7 +393,7 @@ class ScenarioImporter {
 
 		// hack to avoid a actstart as first event (hermes does not have it).
 		if (flatplan.size() != 0) {
-			events.add(new ActivityStartEvent(0, id, linkid, facid, type, act.getCoord()));
+			events.addActivityStart(id, linkid, facid, type, act.getCoord());
 			eventid = events.size() - 1;
 		} else {
 			eventid = 0;
@@ -354,13 +409,13 @@ class ScenarioImporter {
 			// TODO - better way to handle this?
 			flatplan.add(Agent.prepareSleepForEntry(eventid, 0));
 		}
-		events.add(new ActivityEndEvent(0, id, linkid, facid, type, act.getCoord()));
+		events.addActivityEnd(id, linkid, facid, type, act.getCoord());
 	}
 
 	private void processPlanNetworkRoute(
 			Person person,
 			PlanArray flatplan,
-			EventArray events,
+			EventTemplates events,
 			Leg leg,
 			NetworkRoute netroute,
 			Agent agent) {
@@ -383,23 +438,23 @@ class ScenarioImporter {
 		if (agent.getStorageCapacityPCUE() == -1) {
 			agent.setStorageCapacityPCUE(getStorageCapacityPCE(pcuCategory));
 		}
-		events.add(new PersonEntersVehicleEvent(0, id, vid));
-		events.add(new VehicleEntersTrafficEvent(0, id, startLId, vid, leg.getMode(), 1));
+		events.addPersonEntersVehicle(id, vid);
+		events.addVehicleEntersTraffic(id, startLId, vid, leg.getMode());
 		if (netroute.getLinkIds().size() > 1 || !startLId.equals(endLId)) {
-			events.add(new LinkLeaveEvent(0, vid, startLId));
+			events.addLinkLeave(vid, startLId);
 		}
 		for (Id<org.matsim.api.core.v01.network.Link> linkid : netroute.getLinkIds()) {
 			int linkId = linkid.index();
-			events.add(new LinkEnterEvent(0, vid, linkid));
+			events.addLinkEnter(vid, linkid);
 			flatplan.add(Agent.prepareLinkEntry(events.size() - 1, linkId, velocity, pcuCategory));
-			events.add(new LinkLeaveEvent(0, vid, linkid));
+			events.addLinkLeave(vid, linkid);
 		}
 		if (netroute.getLinkIds().size() > 1 || !startLId.equals(endLId)) {
-			events.add(new LinkEnterEvent(0, vid, endLId));
+			events.addLinkEnter(vid, endLId);
 			flatplan.add(Agent.prepareLinkEntry(events.size() - 1, egressId, velocity, pcuCategory));
 		}
-		events.add(new VehicleLeavesTrafficEvent(0, id, endLId, vid, leg.getMode(), 1));
-		events.add(new PersonLeavesVehicleEvent(0, id, vid));
+		events.addVehicleLeavesTraffic(id, endLId, vid, leg.getMode());
+		events.addPersonLeavesVehicle(id, vid);
 	}
 
 	private void populateStops(int srcStopId, int lineId) {
@@ -410,7 +465,7 @@ class ScenarioImporter {
 	private void processPlanTransitRoute(
 			Id<Person> id,
 			PlanArray flatplan,
-			EventArray events,
+			EventTemplates events,
 			TransitPassengerRoute troute) {
 		Id<TransitStopFacility> access = troute.getAccessStopId();
 		Id<TransitStopFacility> egress = troute.getEgressStopId();
@@ -424,18 +479,18 @@ class ScenarioImporter {
 		// this will be replaced dynamically
 		Id<Vehicle> vid = Id.createVehicleId("tr_X");
 		// Add public transport access
-		events.add(new AgentWaitingForPtEvent(0, id, access, egress));
+		events.addWaitingForPt(id, access, egress);
 		flatplan.add(Agent.prepareWaitEntry(events.size() - 1, routeNo, accessid));
-		events.add(new PersonEntersVehicleEvent(0, id, vid));
+		events.addPersonEntersVehicle(id, vid);
 		flatplan.add(Agent.prepareAccessEntry(events.size() - 1, routeNo, accessid));
-		events.add(new PersonLeavesVehicleEvent(0, id, vid));
+		events.addPersonLeavesVehicle(id, vid);
 		flatplan.add(Agent.prepareEgressEntry(events.size() - 1, routeNo, egressid));
 	}
 
 	private void processPlanElement(
 			Person person,
 			PlanArray flatplan,
-			EventArray events,
+			EventTemplates events,
 			PlanElement element,
 			Agent agent) {
 		var id = person.getId();
@@ -448,7 +503,7 @@ class ScenarioImporter {
 				return;
 			}
 
-			events.add(new PersonDepartureEvent(0, id, route.getStartLinkId(), leg.getMode(), TripStructureUtils.getRoutingMode(leg)));
+			events.addDeparture(id, route.getStartLinkId(), leg.getMode(), TripStructureUtils.getRoutingMode(leg));
 			if (route instanceof NetworkRoute) {
 				if (scenario.getConfig().hermes().getMainModes().contains(leg.getMode())) {
 					processPlanNetworkRoute(person, flatplan, events, leg, (NetworkRoute) route, agent);
@@ -464,7 +519,7 @@ class ScenarioImporter {
 				throw new RuntimeException("Route type not supported by Hermes: " + route.getRouteType() + "\n Person:" + id + "\n Leg" + leg + "\n Leg" + route);
 			}
 
-			events.add(new PersonArrivalEvent(0, id, route.getEndLinkId(), leg.getMode()));
+			events.addArrival(id, route.getEndLinkId(), leg.getMode());
 
 		} else if (element instanceof Activity) {
 			processPlanActivity(id, flatplan, events, (Activity) element);
@@ -473,20 +528,20 @@ class ScenarioImporter {
 		}
 	}
 
-	private void processTeleport(Id<Person> id, PlanArray flatplan, EventArray events, Leg element, Route route, String mode) {
+	private void processTeleport(Id<Person> id, PlanArray flatplan, EventTemplates events, Leg element, Route route, String mode) {
 		double routeTravelTime = route.getTravelTime().orElse(0.0);
 		double legTravelTime = element.getTravelTime().orElse(0.0);
 		int time = Math.max(0, (int) Math.round(Math.max(routeTravelTime, legTravelTime)) - 2);
 		//2 second is deducted as this is the maximum possible loss during interaction activities
 		flatplan.add(Agent.prepareSleepForEntry(events.size() - 1, time));
-		events.add(new TeleportationArrivalEvent(0, id, route.getDistance(), mode));
+		events.addTeleportationArrival(id, route.getDistance(), mode);
 	}
 
 	private void generateAgent(
 			int agentId,
 			int capacity,
 			PlanArray flatplan,
-			EventArray events) {
+			EventTemplates events) {
 
 		if (events.size() >= HermesConfigGroup.MAX_EVENTS_AGENT) {
 			throw new RuntimeException("exceeded maximum number of agent events");
@@ -516,7 +571,7 @@ class ScenarioImporter {
 	private static class TransitRouteContext {
 		final Agent agent;
 		final PlanArray flatplan;
-		final EventArray flatevents;
+		final EventTemplates flatevents;
 		final TransitLine tl;
 		final TransitRoute tr;
 		final int routeNo;
@@ -602,8 +657,8 @@ class ScenarioImporter {
 
 	private void generateDeterministicVehicleOnLink(TransitRouteContext c, Id<Link> linkId, boolean generateLinkEnterEvent, boolean generateLinkLeaveEvent) {
 		if (generateLinkEnterEvent) {
-			if (c.time < this.deterministicPtEvents.size()) {
-				this.deterministicPtEvents.get(c.time).add(new LinkEnterEvent(c.time, c.vehId, linkId));
+			if (c.time < this.endTime) {
+				this.deterministicPtEvents.addLinkEvent(c.time, c.vehId.index(), linkId.index(), true);
 			}
 		}
 
@@ -644,14 +699,14 @@ class ScenarioImporter {
 					c.flatplan.add(Agent.prepareSleepUntilEntry(0, (int) arrivalTime));
 				}
 
-				c.flatevents.add(new VehicleArrivesAtFacilityEvent(0, c.vehId, stopId, arrivalTime));
+				c.flatevents.addVehicleArrivesAtFacility(c.vehId, stopId, arrivalTime);
 				c.flatplan.add(Agent.prepareStopArrivalEntry(c.flatevents.size() - 1, c.routeNo, stopIdIndex));
 				c.agent.setServeStop(stopIdIndex);
 
 				// no event associated to stop delay
 				c.flatplan.add(Agent.prepareStopDelayEntry((int) departureTime, c.routeNo, stopIdIndex));
 
-				c.flatevents.add(new VehicleDepartsAtFacilityEvent(0, c.vehId, stopId, departureTime));
+				c.flatevents.addVehicleDepartsAtFacility(c.vehId, stopId, departureTime);
 				c.flatplan.add(Agent.prepareStopDepartureEntry(c.flatevents.size() - 1, c.routeNo, stopIdIndex));
 
 				c.time = (int) departureTime;
@@ -683,8 +738,8 @@ class ScenarioImporter {
 				}
 			}
 
-			if (c.time < this.deterministicPtEvents.size()) {
-				this.deterministicPtEvents.get(c.time).add(new LinkLeaveEvent(c.time, c.vehId, linkId));
+			if (c.time < this.endTime) {
+				this.deterministicPtEvents.addLinkEvent(c.time, c.vehId.index(), linkId.index(), false);
 			}
 		} else if (stopsToHandle == 0) { // last link, which did not have any stop on it
 			// make sure to adapt the time, so the driver does not exit the vehicle too early
@@ -705,7 +760,7 @@ class ScenarioImporter {
 
 		TransitRouteContext context = new TransitRouteContext(agent, tl, tr, routeNo, depart, this.scenario.getNetwork());
 		PlanArray flatplan = agent.plan;
-		EventArray flatevents = agent.events;
+		EventTemplates flatevents = agent.events;
 
 		VehicleType vt = v.getType();
 		NetworkRoute nr = tr.getRoute();
@@ -715,11 +770,11 @@ class ScenarioImporter {
 		String routingmode = TransportMode.pt;
 
 		// Prepare to leave
-		flatevents.add(new TransitDriverStartsEvent(0, driverid, v.getId(), tl.getId(), tr.getId(), depart.getId()));
-		flatevents.add(new PersonDepartureEvent(0, driverid, nr.getStartLinkId(), legmode, routingmode));
-		flatevents.add(new PersonEntersVehicleEvent(0, driverid, v.getId()));
+		flatevents.addTransitDriverStarts(driverid, v.getId(), tl.getId(), tr.getId(), depart.getId());
+		flatevents.addDeparture(driverid, nr.getStartLinkId(), legmode, routingmode);
+		flatevents.addPersonEntersVehicle(driverid, v.getId());
 
-		flatevents.add(new VehicleEntersTrafficEvent(context.time, driverid, nr.getStartLinkId(), v.getId(), legmode, 1));
+		flatevents.addVehicleEntersTraffic(driverid, nr.getStartLinkId(), v.getId(), legmode);
 
 		// Sleep until the time of departure
 		//  the very first flat plan entry does not handle events, so actually add two entries, so the events are correctly handled
@@ -737,14 +792,14 @@ class ScenarioImporter {
 		// last link
 		generateDeterministicVehicleOnLink(context, nr.getEndLinkId(), true, false);
 
-		flatevents.add(new VehicleLeavesTrafficEvent(0, driverid, nr.getEndLinkId(), v.getId(), legmode, 1));
-		flatevents.add(new PersonLeavesVehicleEvent(0, driverid, v.getId()));
-		flatevents.add(new PersonArrivalEvent(0, driverid, nr.getEndLinkId(), legmode));
+		flatevents.addVehicleLeavesTraffic(driverid, nr.getEndLinkId(), v.getId(), legmode);
+		flatevents.addPersonLeavesVehicle(driverid, v.getId());
+		flatevents.addArrival(driverid, nr.getEndLinkId(), legmode);
 	}
 
 	private void generateNondeterministicVehicleOnLink(TransitRouteContext c, Id<Link> linkId, boolean generateLinkEnterEvent, boolean generateLinkLeaveEvent, int velocity, int pcuCategory) {
 		if (generateLinkEnterEvent) {
-			c.flatevents.add(new LinkEnterEvent(0, c.vehId, linkId));
+			c.flatevents.addLinkEnter(c.vehId, linkId);
 			c.flatplan.add(Agent.prepareLinkEntry(c.flatevents.size() - 1, linkId.index(), velocity, pcuCategory));
 		}
 
@@ -760,14 +815,14 @@ class ScenarioImporter {
 				double arrivalTime = arrivalOffsetHelper(c.depart, routeStop);
 				double departureTime = departureOffsetHelper(c.depart, routeStop);
 
-				c.flatevents.add(new VehicleArrivesAtFacilityEvent(0, c.vehId, stopId, arrivalTime));
+				c.flatevents.addVehicleArrivesAtFacility(c.vehId, stopId, arrivalTime);
 				c.flatplan.add(Agent.prepareStopArrivalEntry(c.flatevents.size() - 1, c.routeNo, stopIdIndex));
 				c.agent.setServeStop(stopIdIndex);
 
 				// no event associated to stop delay
 				c.flatplan.add(Agent.prepareStopDelayEntry((int) departureTime, c.routeNo, stopIdIndex));
 
-				c.flatevents.add(new VehicleDepartsAtFacilityEvent(0, c.vehId, stopId, departureTime));
+				c.flatevents.addVehicleDepartsAtFacility(c.vehId, stopId, departureTime);
 				c.flatplan.add(Agent.prepareStopDepartureEntry(c.flatevents.size() - 1, c.routeNo, stopIdIndex));
 
 				c.stopidx++;
@@ -777,7 +832,7 @@ class ScenarioImporter {
 		}
 
 		if (generateLinkLeaveEvent) {
-			c.flatevents.add(new LinkLeaveEvent(0, c.vehId, linkId));
+			c.flatevents.addLinkLeave(c.vehId, linkId);
 		}
 	}
 
@@ -790,7 +845,7 @@ class ScenarioImporter {
 		int routeNo = this.routeNumbers.get(tl.getId()).get(tr.getId());
 		TransitRouteContext context = new TransitRouteContext(agent, tl, tr, routeNo, depart, this.scenario.getNetwork());
 		PlanArray flatplan = agent.plan;
-		EventArray flatevents = agent.events;
+		EventTemplates flatevents = agent.events;
 		Vehicle v = this.scenario.getTransitVehicles().getVehicles().get(depart.getVehicleId());
 		VehicleType vt = v.getType();
 		NetworkRoute nr = tr.getRoute();
@@ -806,10 +861,10 @@ class ScenarioImporter {
 		flatplan.add(Agent.prepareSleepUntilEntry(0, (int) Math.round(depart.getDepartureTime())));
 
 		// Prepare to leave
-		flatevents.add(new TransitDriverStartsEvent(0, driverid, v.getId(), tl.getId(), tr.getId(), depart.getId()));
-		flatevents.add(new PersonDepartureEvent(0, driverid, nr.getStartLinkId(), legmode, routingmode));
-		flatevents.add(new PersonEntersVehicleEvent(0, driverid, v.getId()));
-		flatevents.add(new VehicleEntersTrafficEvent(0, driverid, nr.getStartLinkId(), v.getId(), legmode, 1));
+		flatevents.addTransitDriverStarts(driverid, v.getId(), tl.getId(), tr.getId(), depart.getId());
+		flatevents.addDeparture(driverid, nr.getStartLinkId(), legmode, routingmode);
+		flatevents.addPersonEntersVehicle(driverid, v.getId());
+		flatevents.addVehicleEntersTraffic(driverid, nr.getStartLinkId(), v.getId(), legmode);
 
 		generateNondeterministicVehicleOnLink(context, nr.getStartLinkId(), false, true, velocity, pcuCategory);
 
@@ -819,12 +874,15 @@ class ScenarioImporter {
 
 		generateNondeterministicVehicleOnLink(context, nr.getEndLinkId(), true, false, velocity, pcuCategory);
 
-		flatevents.add(new VehicleLeavesTrafficEvent(0, driverid, nr.getEndLinkId(), v.getId(), legmode, 1));
-		flatevents.add(new PersonLeavesVehicleEvent(0, driverid, v.getId()));
-		flatevents.add(new PersonArrivalEvent(0, driverid, nr.getEndLinkId(), legmode));
+		flatevents.addVehicleLeavesTraffic(driverid, nr.getEndLinkId(), v.getId(), legmode);
+		flatevents.addPersonLeavesVehicle(driverid, v.getId());
+		flatevents.addArrival(driverid, nr.getEndLinkId(), legmode);
 	}
 
 	private void generateTransitVehiclePlans() {
+		if (transitVehiclePlansGenerated) {
+			return;
+		}
 		Map<Id<Vehicle>, Vehicle> vehicles = scenario.getTransitVehicles().getVehicles();
 		scenario.getTransitSchedule().getTransitLines().values().stream().forEach((tl) -> {
 			for (TransitRoute tr : tl.getRoutes().values()) {
@@ -845,19 +903,89 @@ class ScenarioImporter {
 				}
 			}
 		});
-
+		deterministicPtEvents.sortByTime();
+		transitVehiclePlansGenerated = true;
 	}
 
 	private void generatePersonPlans() {
 		Population population = scenario.getPopulation();
+		boolean[] inPopulation = new boolean[agentPersons];
+		AtomicInteger generated = new AtomicInteger();
 		population.getPersons().values().parallelStream().forEach((person) -> {
 			int hermes_id = hermes_id(person.getId().index(), false);
-			PlanArray plan = hermesAgents[hermes_id].plan();
-			EventArray events = hermesAgents[hermes_id].events();
-			for (PlanElement element : person.getSelectedPlan().getPlanElements()) {
-				processPlanElement(person, plan, events, element, hermesAgents[hermes_id]);
+			Plan selectedPlan = person.getSelectedPlan();
+			inPopulation[hermes_id] = true;
+			long checksum = planChecksum(selectedPlan);
+			if (selectedPlan == generatedPlans[hermes_id] && checksum == generatedPlanChecksums[hermes_id]) {
+				return;
+			}
+			Agent agent = hermesAgents[hermes_id];
+			agent.reset();
+			PlanArray plan = agent.plan();
+			EventTemplates events = agent.events();
+			for (PlanElement element : selectedPlan.getPlanElements()) {
+				processPlanElement(person, plan, events, element, agent);
 			}
+			generatedPlans[hermes_id] = selectedPlan;
+			generatedPlanChecksums[hermes_id] = checksum;
+			generated.incrementAndGet();
 		});
+		// persons removed from the population must not be simulated anymore
+		for (int hermes_id = 0; hermes_id < agentPersons; hermes_id++) {
+			if (!inPopulation[hermes_id] && generatedPlans[hermes_id] != null) {
+				hermesAgents[hermes_id].reset();
+				generatedPlans[hermes_id] = null;
+			}
+		}
+		log.info(String.format("Hermes generated the plans of %d of %d persons", generated.get(), population.getPersons().size()));
+	}
+
+	/**
+	 * Combines everything of the plan the agent is generated from, without creating any objects.
+	 */
+	private static long planChecksum(Plan plan) {
+		long hash = 17;
+		for (PlanElement element : plan.getPlanElements()) {
+			if (element instanceof Activity) {
+				Activity act = (Activity) element;
+				hash = 31 * hash + act.getType().hashCode();
+				hash = 31 * hash + idIndex(act.getLinkId());
+				hash = 31 * hash + idIndex(act.getFacilityId());
+				hash = 31 * hash + Double.hashCode(act.getEndTime().orElse(Double.NaN));
+				hash = 31 * hash + Double.hashCode(act.getMaximumDuration().orElse(Double.NaN));
+				hash = 31 * hash + Objects.hashCode(act.getCoord());
+			} else if (element instanceof Leg) {
+				Leg leg = (Leg) element;
+				hash = 31 * hash + leg.getMode().hashCode();
+				hash = 31 * hash + Objects.hashCode(TripStructureUtils.getRoutingMode(leg));
+				hash = 31 * hash + Double.hashCode(leg.getTravelTime().orElse(Double.NaN));
+				Route route = leg.getRoute();
+				if (route == null) {
+					continue;
+				}
+				hash = 31 * hash + route.getClass().hashCode();
+				hash = 31 * hash + idIndex(route.getStartLinkId());
+				hash = 31 * hash + idIndex(route.getEndLinkId());
+				hash = 31 * hash + Double.hashCode(route.getTravelTime().orElse(Double.NaN));
+				hash = 31 * hash + Double.hashCode(route.getDistance());
+				if (route instanceof NetworkRoute) {
+					for (Id<Link> linkId : ((NetworkRoute) route).getLinkIds()) {
+						hash = 31 * hash + linkId.index();
+					}
+				} else if (route instanceof TransitPassengerRoute) {
+					TransitPassengerRoute troute = (TransitPassengerRoute) route;
+					hash = 31 * hash + idIndex(troute.getAccessStopId());
+					hash = 31 * hash + idIndex(troute.getEgressStopId());
+					hash = 31 * hash + idIndex(troute.getLineId());
+					hash = 31 * hash + idIndex(troute.getRouteId());
+				}
+			}
+		}
+		return hash;
+	}
+
+	private static int idIndex(Id<?> id) {
+		return id == null ? -1 : id.index();
 	}
 
 	private void generateAgents() {
@@ -866,12 +994,14 @@ class ScenarioImporter {
 		agentPersons = Id.getNumberOfIds(Person.class);
 		int nagents = agentPersons + Id.getNumberOfIds(Vehicle.class);
 		hermesAgents = new Agent[nagents];
+		generatedPlans = new Plan[agentPersons];
+		generatedPlanChecksums = new long[agentPersons];
 
 		// Generate persons
 		for (Person person : population.getPersons().values()) {
 			int hermes_id = hermes_id(person.getId().index(), false);
 			assert hermesAgents[hermes_id] == null;
-			generateAgent(hermes_id, 0, new PlanArray(), new EventArray());
+			generateAgent(hermes_id, 0, new PlanArray(), new EventTemplates());
 		}
 
 		// Generate vehicles
@@ -880,7 +1010,7 @@ class ScenarioImporter {
 			int capacity = vc.getSeats() + vc.getStandingRoom();
 			int hermes_id = hermes_id(vehicle.getId().index(), true);
 			assert hermesAgents[hermes_id] == null;
-			generateAgent(hermes_id, capacity, new PlanArray(), new EventArray());
+			generateAgent(hermes_id, capacity, new PlanArray(), new EventTemplates());
 		}
 	}
 
@@ -913,8 +1043,13 @@ class ScenarioImporter {
 		return storageCapacityPCEs[index];
 	}
 
-	public List<List<Event>> getDeterministicPtEvents() {
-		return deterministicPtEvents;
+	/**
+	 * Appends the link events of deterministic pt vehicles up to the given time to the given events.
+	 */
+	void takeDeterministicPtEvents(int time, PendingEvents events) {
+		while (nextDeterministicPtEvent < deterministicPtEvents.size() && deterministicPtEvents.time(nextDeterministicPtEvent) <= time) {
+			events.add(deterministicPtEvents, nextDeterministicPtEvent++);
+		}
 	}
 
 	public boolean isDeterministicPt() {
@@ -0,0 +1,226 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CalendarMessageQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * A faster {@link MessageQueue}, used if {@link JDEQSimConfigGroup#isUsingCalendarQueue()} is switched on.
+ * <p>
+ * The queue is a calendar queue: messages are put into one bucket per second of simulation time in O(1), and only the
+ * bucket that is due is sorted.  Messages more than {@link #NUMBER_OF_BUCKETS} seconds ahead wait in an overflow
+ * priority queue.  Messages with the same arrival time and priority are returned in the order in which they were put
+ * into the queue.  The {@link MessageQueue} returns such messages in an order given by its heap, so the results of the
+ * two queues differ where such ties decide e.g. which vehicle enters a road first.
+ */
+public class CalendarMessageQueue extends MessageQueue {
+
+
+	static final Comparator<Message> ORDER = Comparator.<Message>naturalOrder()
+			.thenComparingLong(m -> m.sequenceNumber);
+
+	private static final double BUCKET_WIDTH = 1.0;
+	private static final int NUMBER_OF_BUCKETS = 1 << 12;
+	// messages after this time (e.g. infinity) are never put into a bucket, but returned from the overflow queue directly
+	private static final double MAX_BUCKET_TIME = 1L << 50;
+
+	// the sorted messages of the current bucket, and the ones which were put into it after it had been sorted
+	private Message[] current = new Message[0];
+	private int currentIndex = 0;
+	private final PriorityQueue<Message> lateMessages = new PriorityQueue<>(ORDER);
+	private long currentBucket = Long.MIN_VALUE / 2;
+
+	// the following buckets, as a ring buffer
+	@SuppressWarnings("unchecked")
+	private final ArrayList<Message>[] buckets = new ArrayList[NUMBER_OF_BUCKETS];
+	private int messagesInBuckets = 0;
+
+	private final PriorityQueue<Message> overflow = new PriorityQueue<>(ORDER);
+
+	private long sequenceNumber = 0;
+	// including the removed messages which have not been skipped yet
+	private int size = 0;
+	private int queueSize = 0;
+
+	@Override
+	public void putMessage(Message m) {
+		m.sequenceNumber = sequenceNumber++;
+		putNumberedMessage(m);
+	}
+
+	/**
+	 * Puts a message into the queue, which already got its sequence number, see {@link PartitionedScheduler}.
+	 */
+	void putNumberedMessage(Message m) {
+		add(m);
+		size++;
+		queueSize++;
+	}
+
+	@Override
+	public void removeMessage(Message m) {
+		m.killMessage();
+		queueSize--;
+	}
+
+	@Override
+	public Message getNextMessage() {
+		Message m;
+		// skip over dead messages
+		while ((m = poll()) != null && !m.isAlive()) {
+
+		}
+		// only decrement, if message fetched
+		if (m != null) {
+			queueSize--;
+		}
+		return m;
+	}
+
+	/**
+	 * @return the message which {@link #getNextMessage()} would return, or null if the queue is empty.
+	 */
+	Message peekNextMessage() {
+		Message m;
+		// drop dead messages, they have already been subtracted from the queue size
+		while ((m = peek()) != null && !m.isAlive()) {
+			poll();
+		}
+		return m;
+	}
+
+	@Override
+	public double getNextMessageArrivalTime() {
+		Message m = peek();
+		return m == null ? Double.POSITIVE_INFINITY : m.getMessageArrivalTime();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	private void add(Message m) {
+		double time = m.getMessageArrivalTime();
+		// compared as double first, so that infinite or huge times do not overflow
+		if (time < (currentBucket + 1) * BUCKET_WIDTH) {
+			lateMessages.add(m);
+		} else if (time < (currentBucket + NUMBER_OF_BUCKETS) * BUCKET_WIDTH) {
+			addToBucket(m, getBucket(time));
+		} else {
+			overflow.add(m);
+		}
+	}
+
+	private void addToBucket(Message m, long bucket) {
+		int index = (int) (bucket & (NUMBER_OF_BUCKETS - 1));
+		ArrayList<Message> messages = buckets[index];
+		if (messages == null) {
+			messages = new ArrayList<>();
+			buckets[index] = messages;
+		}
+		messages.add(m);
+		messagesInBuckets++;
+	}
+
+	private Message peek() {
+		if (!prepareCurrentBucket()) {
+			return overflow.peek();
+		}
+		Message sorted = currentIndex < current.length ? current[currentIndex] : null;
+		Message late = lateMessages.peek();
+		if (sorted == null || (late != null && ORDER.compare(late, sorted) < 0)) {
+			return late;
+		}
+		return sorted;
+	}
+
+	private Message poll() {
+		Message m = peek();
+		if (m != null) {
+			if (currentIndex < current.length && current[currentIndex] == m) {
+				current[currentIndex++] = null;
+			} else if (lateMessages.peek() == m) {
+				lateMessages.poll();
+			} else {
+				overflow.poll();
+			}
+			size--;
+		}
+		return m;
+	}
+
+	/**
+	 * Moves on to the next non-empty bucket if all messages of the current one have been returned.
+	 *
+	 * @return whether there is any message left in the buckets, i.e. not only in the overflow queue after {@link #MAX_BUCKET_TIME}
+	 */
+	private boolean prepareCurrentBucket() {
+		if (currentIndex < current.length || !lateMessages.isEmpty()) {
+			return true;
+		}
+		if (messagesInBuckets == 0 && (overflow.isEmpty() || overflow.peek().getMessageArrivalTime() >= MAX_BUCKET_TIME)) {
+			return false;
+		}
+		long bucket;
+		if (messagesInBuckets > 0) {
+			// the buckets only contain messages before the ones in the overflow queue
+			bucket = currentBucket + 1;
+			while (buckets[(int) (bucket & (NUMBER_OF_BUCKETS - 1))] == null
+					|| buckets[(int) (bucket & (NUMBER_OF_BUCKETS - 1))].isEmpty()) {
+				bucket++;
+			}
+		} else {
+			bucket = getBucket(overflow.peek().getMessageArrivalTime());
+		}
+		currentBucket = bucket;
+
+		ArrayList<Message> messages = buckets[(int) (bucket & (NUMBER_OF_BUCKETS - 1))];
+		if (messages != null && !messages.isEmpty()) {
+			current = messages.toArray(new Message[messages.size()]);
+			messagesInBuckets -= messages.size();
+			messages.clear();
+			Arrays.sort(current, ORDER);
+		} else {
+			current = new Message[0];
+		}
+		currentIndex = 0;
+
+		// the buckets now reach further into the future
+		while (!overflow.isEmpty() && overflow.peek().getMessageArrivalTime() < (currentBucket + NUMBER_OF_BUCKETS) * BUCKET_WIDTH) {
+			add(overflow.poll());
+		}
+		return true;
+	}
+
+	private static long getBucket(double time) {
+		return (long) Math.floor(time / BUCKET_WIDTH);
+	}
+
+}
@@ -19,6 +19,8 @@
 
 package org.matsim.core.mobsim.jdeqsim;
 
+import java.util.Map;
+
 import org.matsim.core.config.ReflectiveConfigGroup;
 import org.matsim.core.utils.misc.OptionalTime;
 import org.matsim.core.utils.misc.Time;
@@ -58,6 +60,8 @@ public class JDEQSimConfigGroup extends ReflectiveConfigGroup {
 	public final static String CAR_SIZE = "carSize";
 	public final static String GAP_TRAVEL_SPEED = "gapTravelSpeed";
 	public final static String END_TIME = "endTime";
+	public final static String USE_CALENDAR_QUEUE = "useCalendarQueue";
+	public final static String NUMBER_OF_THREADS = "numberOfThreads";
 
 	// INPUT
 	private OptionalTime simulationEndTime = OptionalTime.undefined();
@@ -72,6 +76,8 @@ public class JDEQSimConfigGroup extends ReflectiveConfigGroup {
 	 * 'stuckTime' for entering next road, it will enter the next. in seconds
 	 */
 	private double squeezeTime = 1800;
+	private boolean useCalendarQueue = false;
+	private int numberOfThreads = 1;
 
 	public JDEQSimConfigGroup() {
 		super(NAME);
@@ -162,4 +168,43 @@ public class JDEQSimConfigGroup extends ReflectiveConfigGroup {
 		this.squeezeTime = squeezeTime;
 	}
 
+	@StringGetter(USE_CALENDAR_QUEUE)
+	public boolean isUsingCalendarQueue() {
+		return useCalendarQueue;
+	}
+
+	@StringSetter(USE_CALENDAR_QUEUE)
+	public void setUsingCalendarQueue(boolean useCalendarQueue) {
+		this.useCalendarQueue = useCalendarQueue;
+	}
+
+	@StringGetter(NUMBER_OF_THREADS)
+	public int getNumberOfThreads() {
+		return numberOfThreads;
+	}
+
+	@StringSetter(NUMBER_OF_THREADS)
+	public void setNumberOfThreads(int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	@Override
+	public Map<String, String> getComments() {
+		Map<String, String> comments = super.getComments();
+		comments.put(USE_CALENDAR_QUEUE, "If true, a calendar queue is used for the messages, which is faster than the default priority queue.  "
+				+ "Messages with the same time and priority are then handled in the order in which they were scheduled, so the results "
+				+ "differ slightly from the ones with the default queue.");
+		comments.put(NUMBER_OF_THREADS, "If larger than 1, the roads are split into this many partitions, which are simulated on parallel threads.  "
+				+ "The results are the same as with " + USE_CALENDAR_QUEUE + " and a single thread.  Networks with network change events "
+				+ "are always simulated on a single thread.");
+		return comments;
+	}
+
+	/**
+	 * @return the message queue to use, see {@link #isUsingCalendarQueue()}
+	 */
+	public MessageQueue createMessageQueue() {
+		return useCalendarQueue ? new CalendarMessageQueue() : new MessageQueue();
+	}
+
 }
@@ -29,10 +29,13 @@ import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.mobsim.framework.Mobsim;
 import org.matsim.core.mobsim.jdeqsim.util.Timer;
+import org.matsim.core.network.TimeDependentNetwork;
+import org.matsim.core.network.algorithms.NetworkPartitioner;
 import org.matsim.core.utils.timing.TimeInterpretation;
 
 
@@ -66,7 +69,7 @@ public class JDEQSimulation implements Mobsim {
 		Timer t = new Timer();
 		t.startTimer();
 
-		Scheduler scheduler = new Scheduler(new MessageQueue(), config.getSimulationEndTime().orElse(Double.MAX_VALUE));
+		Scheduler scheduler = createScheduler();
 		Road.setAllRoads(new HashMap<Id<Link>, Road>());
 
 		// initialize network
@@ -86,4 +89,20 @@ public class JDEQSimulation implements Mobsim {
 		log.info("Time needed for one iteration (only JDEQSimulation part): " + t.getMeasuredTime() + "[ms]");
 		events.finishProcessing();
 	}
+
+	private Scheduler createScheduler() {
+		double simulationEndTime = config.getSimulationEndTime().orElse(Double.MAX_VALUE);
+		Network network = this.scenario.getNetwork();
+		int numberOfThreads = config.getNumberOfThreads();
+		if (numberOfThreads > 1 && network instanceof TimeDependentNetwork
+				&& !((TimeDependentNetwork) network).getNetworkChangeEvents().isEmpty()) {
+			// the lookahead relies on the free speed, which network change events may increase
+			log.warn("JDEQSimulation does not support multiple threads for networks with network change events, using a single thread.");
+			numberOfThreads = 1;
+		}
+		if (numberOfThreads > 1) {
+			return new PartitionedScheduler(NetworkPartitioner.partition(network, numberOfThreads), numberOfThreads, simulationEndTime);
+		}
+		return new Scheduler(config.createMessageQueue(), simulationEndTime);
+	}
 }
@@ -40,6 +40,8 @@ public abstract class Message implements Comparable<Message> {
 	private SimUnit receivingUnit;
 	protected int priority = 0;
 	private boolean isAlive = true;
+	// set by the calendar message queue, to return messages with the same time and priority in this order
+	long sequenceNumber;
 
 	public Message() {
 	}
@@ -28,6 +28,9 @@ import java.util.PriorityQueue;
  * <br/>
  * Via injection, one can currently get hold both of {@link MessageQueue} and {@link SteppableScheduler}.  Seems to me that the intendet API is actually the latter??  But I
  * don't actually know.
+ * <br/>
+ * See {@link CalendarMessageQueue} for a faster queue, which returns messages with the same time and priority in another
+ * order.
  *
  * @author rashid_waraich
  */
@@ -85,6 +88,17 @@ public class MessageQueue {
 		return m;
 	}
 
+	/**
+	 * The first message may have been removed from the queue, so the next message returned by {@link #getNextMessage()}
+	 * may arrive later.
+	 *
+	 * @return the arrival time of the first message in the queue, or <code>Double.POSITIVE_INFINITY</code> if the queue is empty.
+	 */
+	public double getNextMessageArrivalTime() {
+		Message m = queue1.peek();
+		return m == null ? Double.POSITIVE_INFINITY : m.getMessageArrivalTime();
+	}
+
 	public boolean isEmpty() {
 		return queue1.size() == 0;
 	}
@@ -0,0 +1,475 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PartitionedScheduler.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.population.routes.NetworkRoute;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * A scheduler, which splits the roads into partitions and simulates each partition on its own thread, used if
+ * {@link JDEQSimConfigGroup#getNumberOfThreads()} is larger than 1.
+ * <p>
+ * The partitions are synchronized conservatively: they handle their messages in time windows, which are at most as long
+ * as the lookahead, i.e. the minimum over all roads of the free speed travel time, the inverse out flow capacity and the
+ * gap travel time (see {@link Road#getLookahead()}).  A message handled within a window only schedules messages for
+ * roads of other partitions at least one lookahead later, so these are only exchanged after the window.
+ * <p>
+ * Some messages move a vehicle to a road of another partition without any delay: at the end of a road, a vehicle
+ * requests to enter the next road, which lets it leave its road at the same time, and legs without a route end on the
+ * link of the next activity.  A window ends before the first such message, and all messages at its time are handled by
+ * a single thread.
+ * <p>
+ * Messages with the same time and priority are handled in the order in which they were scheduled, as by the
+ * {@link CalendarMessageQueue}.  After each window, the messages scheduled in it are numbered, and the events are passed
+ * on in the order, in which a single calendar queue would have returned the messages.  So the results are the same as
+ * the ones of a single thread with {@link JDEQSimConfigGroup#isUsingCalendarQueue()}.
+ */
+final class PartitionedScheduler extends Scheduler {
+
+	private final Partition[] partitions;
+	private final int[] partitionOfLink;
+	private final double simulationEndTime;
+	private final ThreadLocal<Partition> currentPartition = new ThreadLocal<>();
+	private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+	private double lookahead;
+	private EventsManager eventsManager;
+	// like the sequence number of the calendar message queue, for all partitions
+	private long sequenceNumber = 0;
+	private double simTime = 0;
+	private double windowEnd;
+	private volatile boolean finished = false;
+
+	/**
+	 * @param partitionOfLink the partition of each road, indexed by {@link Id#index()} of the link id
+	 */
+	PartitionedScheduler(int[] partitionOfLink, int numberOfPartitions, double simulationEndTime) {
+		// every partition has its own queue
+		super(null, simulationEndTime);
+		this.partitionOfLink = partitionOfLink;
+		this.simulationEndTime = simulationEndTime;
+		this.partitions = new Partition[numberOfPartitions];
+		for (int i = 0; i < numberOfPartitions; i++) {
+			this.partitions[i] = new Partition();
+		}
+	}
+
+	@Override
+	public void schedule(Message m) {
+		Partition target = getPartition(m);
+		Partition partition = this.currentPartition.get();
+		if (partition == null) {
+			// between the windows, a single thread handles the messages of all partitions
+			m.sequenceNumber = this.sequenceNumber++;
+			target.put(m);
+		} else {
+			partition.scheduled(m, target);
+		}
+	}
+
+	@Override
+	public void unschedule(Message m) {
+		// only roads unschedule messages, and only their own ones
+		getPartition(m).queue.removeMessage(m);
+	}
+
+	@Override
+	public void startSimulation() {
+		this.lookahead = Road.getAllRoads().values().stream().mapToDouble(Road::getLookahead).min().orElse(0);
+		this.eventsManager = Message.eventsManager;
+		Message.setEventsManager(new PartitionedEventsManager());
+		try {
+			nextWindow();
+			runPartitions();
+		} finally {
+			Message.setEventsManager(this.eventsManager);
+		}
+	}
+
+	@Override
+	public double getSimTime() {
+		return this.simTime;
+	}
+
+	private void runPartitions() {
+		CyclicBarrier barrier = new CyclicBarrier(this.partitions.length, this::finishWindow);
+
+		Thread[] threads = new Thread[this.partitions.length];
+		for (int i = 0; i < this.partitions.length; i++) {
+			Partition partition = this.partitions[i];
+			threads[i] = new Thread(() -> {
+				try {
+					while (!this.finished) {
+						try {
+							partition.handleWindow();
+						} catch (Throwable t) {
+							this.failure.compareAndSet(null, t);
+							this.finished = true;
+						}
+						// also after a failure, so that the other partitions stop after this window
+						barrier.await();
+					}
+				} catch (BrokenBarrierException e) {
+					// finishing the window failed in another partition, its exception is reported
+				} catch (Throwable t) {
+					this.failure.compareAndSet(null, t);
+				}
+			}, "jdeqsim-partition-" + i);
+			threads[i].start();
+		}
+		try {
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		if (this.failure.get() != null) {
+			throw new RuntimeException("JDEQSim partition failed", this.failure.get());
+		}
+	}
+
+	/**
+	 * Runs after each window, before any partition continues.
+	 */
+	private void finishWindow() {
+		if (this.failure.get() != null) {
+			return;
+		}
+		passOnWindow();
+		nextWindow();
+		printLog();
+	}
+
+	/**
+	 * Handles the messages, which must be handled by a single thread, until the partitions can handle a window in
+	 * parallel again, or the simulation is finished.
+	 */
+	private void nextWindow() {
+		while (true) {
+			Partition next = getPartitionOfNextMessage();
+			if (next == null || this.simTime >= this.simulationEndTime) {
+				this.finished = true;
+				return;
+			}
+			double time = next.queue.peekNextMessage().getMessageArrivalTime();
+			if (time >= this.simulationEndTime) {
+				// like the sequential scheduler, handle the first message after the end of the simulation
+				handle(next);
+				this.finished = true;
+				return;
+			}
+			double end = Math.min(Math.min(time + this.lookahead, this.simulationEndTime), getNextSynchronizationTime());
+			if (end > time) {
+				this.windowEnd = end;
+				return;
+			}
+			handle(next);
+		}
+	}
+
+	private void handle(Partition partition) {
+		Message m = partition.poll();
+		this.simTime = m.getMessageArrivalTime();
+		m.processEvent();
+		m.handleMessage();
+	}
+
+	/**
+	 * Passes on the events of the last window, in the order in which a single queue would have returned the messages,
+	 * numbers the messages scheduled in the window in that order, and hands the messages for other partitions over.
+	 */
+	private void passOnWindow() {
+		int[] handled = new int[this.partitions.length];
+		int total = 0;
+		for (Partition partition : this.partitions) {
+			total += partition.handledMessages.size();
+		}
+		for (int n = 0; n < total; n++) {
+			// the messages of a partition are already numbered when they are compared, as they were scheduled before
+			int next = -1;
+			for (int i = 0; i < this.partitions.length; i++) {
+				if (handled[i] < this.partitions[i].handledMessages.size() && (next == -1 || CalendarMessageQueue.ORDER.compare(
+						this.partitions[i].handledMessages.get(handled[i]), this.partitions[next].handledMessages.get(handled[next])) < 0)) {
+					next = i;
+				}
+			}
+			Partition partition = this.partitions[next];
+			int index = handled[next]++;
+			this.simTime = partition.handledMessages.get(index).getMessageArrivalTime();
+			for (int i = index == 0 ? 0 : partition.eventsEnd.getInt(index - 1); i < partition.eventsEnd.getInt(index); i++) {
+				this.eventsManager.processEvent(partition.events.get(i));
+			}
+			for (int i = index == 0 ? 0 : partition.scheduledEnd.getInt(index - 1); i < partition.scheduledEnd.getInt(index); i++) {
+				partition.scheduledMessages.get(i).sequenceNumber = this.sequenceNumber++;
+			}
+		}
+		for (Partition partition : this.partitions) {
+			for (Message m : partition.scheduledMessages) {
+				Partition target = getPartition(m);
+				if (target != partition) {
+					target.put(m);
+				}
+			}
+			partition.clearWindow();
+		}
+	}
+
+	private Partition getPartitionOfNextMessage() {
+		Partition next = null;
+		for (Partition partition : this.partitions) {
+			Message m = partition.queue.peekNextMessage();
+			if (m != null && (next == null || CalendarMessageQueue.ORDER.compare(m, next.queue.peekNextMessage()) < 0)) {
+				next = partition;
+			}
+		}
+		return next;
+	}
+
+	private double getNextSynchronizationTime() {
+		double time = Double.POSITIVE_INFINITY;
+		for (Partition partition : this.partitions) {
+			time = Math.min(time, partition.getNextSynchronizationTime());
+		}
+		return time;
+	}
+
+	private Partition getPartition(Message m) {
+		return getPartition(((Road) m.getReceivingUnit()).getLink().getId());
+	}
+
+	private Partition getPartition(Id<Link> linkId) {
+		return this.partitions[this.partitionOfLink[linkId.index()]];
+	}
+
+	/**
+	 * @return whether handling the message may, without any delay, schedule a message for a road of another partition,
+	 *         or a message which does so, so that it must be handled by a single thread.
+	 */
+	private boolean isSynchronizing(Message m) {
+		if (!(m instanceof EventMessage)) {
+			return false;
+		}
+		Vehicle vehicle = ((EventMessage) m).vehicle;
+		Partition partition = getPartition(m);
+		if (m instanceof EndRoadMessage) {
+			// the vehicle requests to enter the next road, or to end its leg on the link of the next activity
+			if (vehicle.isCurrentLegFinished()) {
+				return reachesOtherPartitionAfterLeg(vehicle, vehicle.getLegIndex(), partition);
+			}
+			return getPartition(vehicle.getCurrentLinkRoute()[vehicle.getLinkIndex() + 1]) != partition;
+		} else if (m instanceof DeadlockPreventionMessage) {
+			// the vehicle leaves its previous road, see Vehicle.scheduleLeavePreviousRoadMessage
+			if (vehicle.getLinkIndex() == 0 && getPartition(((Activity) getPlanElements(vehicle).get(vehicle.getLegIndex() - 1)).getLinkId()) != partition) {
+				return true;
+			}
+			if (vehicle.getLinkIndex() >= 1 && getPartition(vehicle.getCurrentLinkRoute()[vehicle.getLinkIndex() - 1]) != partition) {
+				return true;
+			}
+			return vehicle.isEndingLegMode() && reachesOtherPartitionAfterLeg(vehicle, vehicle.getLegIndex(), partition);
+		} else if (m instanceof StartingLegMessage) {
+			return !isSimulatedOnRoads(vehicle.getCurrentLeg()) && reachesOtherPartitionAfterLeg(vehicle, vehicle.getLegIndex(), partition);
+		} else if (m instanceof EndLegMessage) {
+			int nextLegIndex = vehicle.getLegIndex() + 2;
+			List<? extends PlanElement> planElements = getPlanElements(vehicle);
+			return nextLegIndex < planElements.size() && !isSimulatedOnRoads((Leg) planElements.get(nextLegIndex))
+					&& reachesOtherPartitionAfterLeg(vehicle, nextLegIndex, partition);
+		}
+		return false;
+	}
+
+	/**
+	 * @return whether the vehicle reaches a road of another partition after the given leg, before it drives on a road
+	 *         again, i.e. at the end of the leg or of one of the following legs which are not simulated on roads.
+	 */
+	private boolean reachesOtherPartitionAfterLeg(Vehicle vehicle, int legIndex, Partition partition) {
+		List<? extends PlanElement> planElements = getPlanElements(vehicle);
+		for (int i = legIndex; i + 1 < planElements.size(); i += 2) {
+			if (getPartition(((Activity) planElements.get(i + 1)).getLinkId()) != partition) {
+				return true;
+			}
+			if (i + 2 >= planElements.size() || isSimulatedOnRoads((Leg) planElements.get(i + 2))) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	private static List<? extends PlanElement> getPlanElements(Vehicle vehicle) {
+		return vehicle.getOwnerPerson().getSelectedPlan().getPlanElements();
+	}
+
+	// see StartingLegMessage
+	private static boolean isSimulatedOnRoads(Leg leg) {
+		return leg.getMode().equals(TransportMode.car) && leg.getRoute() instanceof NetworkRoute
+				&& !((NetworkRoute) leg.getRoute()).getLinkIds().isEmpty();
+	}
+
+	private final class Partition {
+
+		private final CalendarMessageQueue queue = new CalendarMessageQueue();
+		// the messages in the queue, which end a window, see isSynchronizing
+		private final PriorityQueue<Message> synchronizingMessages = new PriorityQueue<>(CalendarMessageQueue.ORDER);
+
+		// the messages handled in the current window, with the end of their events and scheduled messages
+		private final List<Message> handledMessages = new ArrayList<>();
+		private final IntArrayList eventsEnd = new IntArrayList();
+		private final IntArrayList scheduledEnd = new IntArrayList();
+		private final List<Event> events = new ArrayList<>();
+		private final List<Message> scheduledMessages = new ArrayList<>();
+		private long nextSequenceNumber;
+
+		/**
+		 * @return whether the message ends a window
+		 */
+		boolean put(Message m) {
+			this.queue.putNumberedMessage(m);
+			if (isSynchronizing(m)) {
+				this.synchronizingMessages.add(m);
+				return true;
+			}
+			return false;
+		}
+
+		void scheduled(Message m, Partition target) {
+			// numbered in the order of this partition, which is kept when they are numbered after the window
+			m.sequenceNumber = this.nextSequenceNumber++;
+			this.scheduledMessages.add(m);
+			// the lookahead makes sure that neither is due within the window
+			if (target == this) {
+				if (put(m) && m.getMessageArrivalTime() < windowEnd) {
+					throw new IllegalStateException("message ending a window at " + m.getMessageArrivalTime()
+							+ " within the window ending at " + windowEnd);
+				}
+			} else if (m.getMessageArrivalTime() < windowEnd) {
+				throw new IllegalStateException("message for another partition at " + m.getMessageArrivalTime()
+						+ " within the window ending at " + windowEnd);
+			}
+		}
+
+		Message poll() {
+			Message m = this.queue.getNextMessage();
+			getNextSynchronizationTime();
+			if (this.synchronizingMessages.peek() == m) {
+				this.synchronizingMessages.poll();
+			}
+			return m;
+		}
+
+		double getNextSynchronizationTime() {
+			// messages of leaving vehicles are removed from the queue, see Road.leaveRoad
+			while (!this.synchronizingMessages.isEmpty() && !this.synchronizingMessages.peek().isAlive()) {
+				this.synchronizingMessages.poll();
+			}
+			Message m = this.synchronizingMessages.peek();
+			return m == null ? Double.POSITIVE_INFINITY : m.getMessageArrivalTime();
+		}
+
+		void handleWindow() {
+			this.nextSequenceNumber = sequenceNumber;
+			currentPartition.set(this);
+			try {
+				Message m;
+				while ((m = this.queue.peekNextMessage()) != null && m.getMessageArrivalTime() < windowEnd) {
+					poll();
+					this.handledMessages.add(m);
+					m.processEvent();
+					m.handleMessage();
+					this.eventsEnd.add(this.events.size());
+					this.scheduledEnd.add(this.scheduledMessages.size());
+				}
+			} finally {
+				currentPartition.remove();
+			}
+		}
+
+		void clearWindow() {
+			this.handledMessages.clear();
+			this.eventsEnd.clear();
+			this.scheduledEnd.clear();
+			this.events.clear();
+			this.scheduledMessages.clear();
+		}
+	}
+
+	/**
+	 * Collects the events of the partitions within a window, and passes on the other ones.
+	 */
+	private final class PartitionedEventsManager implements EventsManager {
+
+		@Override
+		public void processEvent(Event event) {
+			Partition partition = currentPartition.get();
+			if (partition == null) {
+				eventsManager.processEvent(event);
+			} else {
+				partition.events.add(event);
+			}
+		}
+
+		@Override
+		public void addHandler(EventHandler handler) {
+			eventsManager.addHandler(handler);
+		}
+
+		@Override
+		public void removeHandler(EventHandler handler) {
+			eventsManager.removeHandler(handler);
+		}
+
+		@Override
+		public void resetHandlers(int iteration) {
+			eventsManager.resetHandlers(iteration);
+		}
+
+		@Override
+		public void initProcessing() {
+			eventsManager.initProcessing();
+		}
+
+		@Override
+		public void afterSimStep(double time) {
+			eventsManager.afterSimStep(time);
+		}
+
+		@Override
+		public void finishProcessing() {
+			eventsManager.finishProcessing();
+		}
+	}
+}
@@ -320,6 +320,15 @@ public class Road extends SimUnit {
 		return this.link;
 	}
 
+	/**
+	 * @return a lower bound of the time between entering or leaving this road and the time of the messages, which this
+	 *         road schedules then, see {@link PartitionedScheduler}
+	 */
+	double getLookahead() {
+		return Math.min(Math.min(this.link.getLength() / this.link.getFreespeed(), this.inverseOutFlowCapacity),
+				this.gapTravelTime);
+	}
+
 	public void setTimeOfLastEnteringVehicle(double timeOfLastEnteringVehicle) {
 		this.timeOfLastEnteringVehicle = timeOfLastEnteringVehicle;
 	}
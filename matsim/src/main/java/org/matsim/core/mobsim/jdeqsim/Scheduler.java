@@ -71,7 +71,8 @@ public class Scheduler {
 		return simTime;
 	}
 
-	private void printLog() {
+	protected void printLog() {
+		double simTime = getSimTime();
 
 		// print output each hour
 		if (simTime / hourlyLogTime > 1) {
@@ -19,8 +19,10 @@
 
 package org.matsim.core.mobsim.qsim;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.Queue;
+import java.util.List;
 import java.util.concurrent.PriorityBlockingQueue;
 
 import jakarta.inject.Inject;
@@ -32,10 +34,11 @@ import org.matsim.api.core.v01.events.PersonStuckEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimAgent.State;
 
-class ActivityEngineDefaultImpl implements ActivityEngine {
+class ActivityEngineDefaultImpl implements ActivityEngine, HasNextEventTime, Checkpointable {
 	private static final Logger log = LogManager.getLogger( ActivityEngineDefaultImpl.class ) ;
 
 	private final EventsManager eventsManager;
@@ -73,7 +76,7 @@ class ActivityEngineDefaultImpl implements ActivityEngine {
 	 * This list needs to be a "blocking" queue since this is needed for
 	 * thread-safety in the parallel qsim. cdobler, oct'10
 	 */
-	private final Queue<AgentEntry> activityEndsList = new PriorityBlockingQueue<>(500, (e0, e1) -> {
+	private final PriorityBlockingQueue<AgentEntry> activityEndsList = new PriorityBlockingQueue<>(500, (e0, e1) -> {
 		int cmp = Double.compare(e0.activityEndTime, e1.activityEndTime);
 		if (cmp == 0) {
 			// Both depart at the same time -> let the one with the larger id be first (=smaller)
@@ -113,6 +116,12 @@ class ActivityEngineDefaultImpl implements ActivityEngine {
 		}
 	}
 
+	@Override
+	public double getNextEventTime() {
+		AgentEntry entry = activityEndsList.peek();
+		return entry == null ? Double.POSITIVE_INFINITY : entry.activityEndTime;
+	}
+
 	@Override
 	public void afterSim() {
 		double now = this.internalInterface.getMobsim().getSimTimer().getTimeOfDay();
@@ -131,6 +140,28 @@ class ActivityEngineDefaultImpl implements ActivityEngine {
 		this.internalInterface = internalInterface;
 	}
 
+	@Override
+	public void writeCheckpoint(CheckpointWriter out) throws IOException {
+		List<AgentEntry> entries = new ArrayList<>(activityEndsList);
+		entries.sort(activityEndsList.comparator());
+		out.writeInt(entries.size());
+		for (AgentEntry entry : entries) {
+			out.writeAgent(entry.agent);
+			out.writeDouble(entry.activityEndTime);
+		}
+	}
+
+	@Override
+	public void readCheckpoint(CheckpointReader in) throws IOException {
+		beforeFirstSimStep = false;
+		int numberOfEntries = in.readInt();
+		for (int i = 0; i < numberOfEntries; i++) {
+			MobsimAgent agent = in.readAgent();
+			activityEndsList.add(new AgentEntry(agent, in.readDouble()));
+			internalInterface.registerAdditionalAgentOnLink(agent);
+		}
+	}
+
 
 	/**
 	 *
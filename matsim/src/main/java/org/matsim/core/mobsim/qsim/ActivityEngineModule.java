@@ -30,5 +30,8 @@ public class ActivityEngineModule extends AbstractQSimModule {
 	protected void configureQSim() {
 		bind( ActivityEngineDefaultImpl.class ).in( Singleton.class );
 		addQSimComponentBinding( COMPONENT_NAME ).to( ActivityEngineDefaultImpl.class );
+
+		bind( ActivityEngineWithCalendarQueue.class ).in( Singleton.class );
+		addQSimComponentBinding( ActivityEngineWithCalendarQueue.COMPONENT_NAME ).to( ActivityEngineWithCalendarQueue.class );
 	}
 }
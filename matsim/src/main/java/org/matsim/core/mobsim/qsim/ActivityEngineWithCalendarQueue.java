@@ -0,0 +1,337 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ActivityEngineWithCalendarQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import jakarta.inject.Inject;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.framework.MobsimAgent.State;
+
+/**
+ * An {@link ActivityEngine} that behaves like the default one, but keeps the pending activity ends in one bucket per
+ * second of simulation time (a calendar queue) instead of a priority queue. Adding an activity end is O(1), and every
+ * agent's entry is indexed, so removing or rescheduling an activity end (within-day replanning, prebooking) is O(1) as
+ * well instead of a scan over all agents at activities. Only the activity ends that are due in a time step are sorted,
+ * so agents end their activities in the same order as with the default engine.
+ * <p>
+ * Select it by replacing {@link ActivityEngineModule#COMPONENT_NAME} with {@link #COMPONENT_NAME} in the active
+ * components of the {@link org.matsim.core.mobsim.qsim.components.QSimComponentsConfigGroup}.
+ */
+public final class ActivityEngineWithCalendarQueue implements ActivityEngine, HasNextEventTime, Checkpointable {
+	public static final String COMPONENT_NAME = "ActivityEngineWithCalendarQueue";
+
+	/** activity ends later than this are kept in a priority queue instead, so the buckets cannot grow without limits */
+	private static final int MAX_BUCKETS = 14 * 24 * 3600;
+	private static final int OVERFLOW = -1;
+	private static final int DUE = -2;
+
+	// same order as in the default engine: by time, then the agent with the larger id first
+	private static final Comparator<AgentEntry> ORDER = (e0, e1) -> {
+		int cmp = Double.compare(e0.activityEndTime, e1.activityEndTime);
+		return cmp != 0 ? cmp : e1.agent.getId().compareTo(e0.agent.getId());
+	};
+
+	private final EventsManager eventsManager;
+	private InternalInterface internalInterface;
+
+	@SuppressWarnings("unchecked")
+	private ArrayList<AgentEntry>[] buckets = new ArrayList[3600];
+	private int currentBucket = 0;
+	private final PriorityQueue<AgentEntry> overflow = new PriorityQueue<>(ORDER);
+	private final Map<MobsimAgent, AgentEntry> entryPerAgent = new IdentityHashMap<>();
+	private final List<AgentEntry> dueEntries = new ArrayList<>();
+
+	// See ActivityEngineDefaultImpl.handleActivity for the reason for this.
+	private boolean beforeFirstSimStep = true;
+
+	@Inject
+	ActivityEngineWithCalendarQueue(EventsManager eventsManager) {
+		this.eventsManager = eventsManager;
+	}
+
+	private static final class AgentEntry {
+		private final MobsimAgent agent;
+		private final double activityEndTime;
+		private int bucket;
+		private int position;
+
+		AgentEntry(MobsimAgent agent, double activityEndTime) {
+			this.agent = agent;
+			this.activityEndTime = activityEndTime;
+		}
+	}
+
+	@Override
+	public void onPrepareSim() {
+		// Nothing to do here
+	}
+
+	@Override
+	public void doSimStep(double time) {
+		beforeFirstSimStep = false;
+		// ending an activity may reschedule other agents to end their activities now, so repeat until nothing is due
+		while (collectDueEntries(time)) {
+			for (AgentEntry entry : dueEntries) {
+				// the entry may have been removed or replaced by within-day replanning of an agent processed before
+				if (claim(entry)) {
+					MobsimAgent agent = entry.agent;
+					unregisterAgentAtActivityLocation(agent);
+					agent.endActivityAndComputeNextState(time);
+					internalInterface.arrangeNextAgentState(agent);
+				}
+			}
+		}
+		dueEntries.clear();
+	}
+
+	/**
+	 * @return the start of the first bucket that is not empty, which is good enough since time steps are rarely shorter
+	 * than a second.
+	 */
+	@Override
+	public synchronized double getNextEventTime() {
+		double nextEventTime = overflow.isEmpty() ? Double.POSITIVE_INFINITY : overflow.peek().activityEndTime;
+		for (int bucketIndex = currentBucket; bucketIndex < Math.min(buckets.length, nextEventTime); bucketIndex++) {
+			if (buckets[bucketIndex] != null && !buckets[bucketIndex].isEmpty()) {
+				return bucketIndex;
+			}
+		}
+		return nextEventTime;
+	}
+
+	@Override
+	public void afterSim() {
+		double now = this.internalInterface.getMobsim().getSimTimer().getTimeOfDay();
+		List<AgentEntry> entries;
+		synchronized (this) {
+			entries = new ArrayList<>(entryPerAgent.values());
+			entryPerAgent.clear();
+			Arrays.fill(buckets, null);
+			overflow.clear();
+		}
+		entries.sort(ORDER);
+		for (AgentEntry entry : entries) {
+			// since we are at an activity, it is not plausible to assume that the agents know mode or destination
+			// link id.  Thus generating the event with ``null'' in the corresponding entries.  kai, mar'12
+			eventsManager.processEvent(new PersonStuckEvent(now, entry.agent.getId(), null, null));
+		}
+	}
+
+	@Override
+	public void setInternalInterface(InternalInterface internalInterface) {
+		this.internalInterface = internalInterface;
+	}
+
+	@Override
+	public synchronized void writeCheckpoint(CheckpointWriter out) throws IOException {
+		List<AgentEntry> entries = new ArrayList<>(entryPerAgent.values());
+		entries.sort(ORDER);
+		out.writeInt(currentBucket);
+		out.writeInt(entries.size());
+		for (AgentEntry entry : entries) {
+			out.writeAgent(entry.agent);
+			out.writeDouble(entry.activityEndTime);
+		}
+	}
+
+	@Override
+	public void readCheckpoint(CheckpointReader in) throws IOException {
+		beforeFirstSimStep = false;
+		currentBucket = in.readInt();
+		int numberOfEntries = in.readInt();
+		for (int i = 0; i < numberOfEntries; i++) {
+			MobsimAgent agent = in.readAgent();
+			add(new AgentEntry(agent, in.readDouble()));
+			internalInterface.registerAdditionalAgentOnLink(agent);
+		}
+	}
+
+	/**
+	 * Called by the QSim to pass in agents starting an activity, see {@link ActivityEngineDefaultImpl#handleActivity(MobsimAgent)}.
+	 * Like there, this method must be reentrant and thread-safe.
+	 */
+	@Override
+	public boolean handleActivity(MobsimAgent agent) {
+		if (agent.getActivityEndTime() == Double.POSITIVE_INFINITY) {
+			// This is the last planned activity.
+			// So the agent goes to sleep.
+			internalInterface.getMobsim().getAgentCounter().decLiving();
+		} else if (agent.getActivityEndTime() <= internalInterface.getMobsim().getSimTimer().getTimeOfDay() && !beforeFirstSimStep) {
+			// This activity is already over (planned for 0 duration)
+			// So we proceed immediately.
+			agent.endActivityAndComputeNextState(internalInterface.getMobsim().getSimTimer().getTimeOfDay());
+			internalInterface.arrangeNextAgentState(agent);
+		} else {
+			// The agent commences an activity on this link.
+			add(new AgentEntry(agent, agent.getActivityEndTime()));
+			internalInterface.registerAdditionalAgentOnLink(agent);
+		}
+		return true;
+	}
+
+	/**
+	 * For within-day replanning, see {@link ActivityEngineDefaultImpl#rescheduleActivityEnd(MobsimAgent)}.
+	 */
+	@Override
+	public void rescheduleActivityEnd(final MobsimAgent agent) {
+		if (agent.getState() != State.ACTIVITY) {
+			return;
+		}
+
+		double newActivityEndTime = agent.getActivityEndTime();
+		AgentEntry oldEntry = remove(agent);
+
+		if (oldEntry == null) {
+			if (newActivityEndTime != Double.POSITIVE_INFINITY) {
+				// re-activate the agent
+				add(new AgentEntry(agent, newActivityEndTime));
+				internalInterface.registerAdditionalAgentOnLink(agent);
+				((org.matsim.core.mobsim.qsim.AgentCounter) internalInterface.getMobsim().getAgentCounter()).incLiving();
+			}
+		} else if (newActivityEndTime == Double.POSITIVE_INFINITY) {
+			// the agent's current activity has become its last activity, so it is de-activated
+			unregisterAgentAtActivityLocation(agent);
+			internalInterface.getMobsim().getAgentCounter().decLiving();
+		} else {
+			// the activity is just rescheduled during the day, so we keep the agent active
+			add(new AgentEntry(agent, newActivityEndTime));
+		}
+	}
+
+	private synchronized void add(AgentEntry entry) {
+		AgentEntry previous = entryPerAgent.put(entry.agent, entry);
+		if (previous != null) {
+			removeFromBuckets(previous);
+		}
+		double bucketTime = Math.floor(entry.activityEndTime);
+		if (bucketTime >= MAX_BUCKETS) {
+			entry.bucket = OVERFLOW;
+			overflow.add(entry);
+			return;
+		}
+		// activity ends in the past are due in the next time step
+		int bucketIndex = Math.max(currentBucket, (int) bucketTime);
+		if (bucketIndex >= buckets.length) {
+			buckets = Arrays.copyOf(buckets, Math.min(MAX_BUCKETS, Math.max(bucketIndex + 1, buckets.length * 2)));
+		}
+		ArrayList<AgentEntry> bucket = buckets[bucketIndex];
+		if (bucket == null) {
+			bucket = new ArrayList<>();
+			buckets[bucketIndex] = bucket;
+		}
+		entry.bucket = bucketIndex;
+		entry.position = bucket.size();
+		bucket.add(entry);
+	}
+
+	private synchronized AgentEntry remove(MobsimAgent agent) {
+		AgentEntry entry = entryPerAgent.remove(agent);
+		if (entry != null) {
+			removeFromBuckets(entry);
+		}
+		return entry;
+	}
+
+	private void removeFromBuckets(AgentEntry entry) {
+		if (entry.bucket == OVERFLOW) {
+			overflow.remove(entry);
+		} else if (entry.bucket >= 0) {
+			removeFromBucket(buckets[entry.bucket], entry);
+		}
+		entry.bucket = DUE;
+	}
+
+	private static void removeFromBucket(ArrayList<AgentEntry> bucket, AgentEntry entry) {
+		// move the last entry into the gap, the order within a bucket does not matter
+		AgentEntry last = bucket.remove(bucket.size() - 1);
+		if (last != entry) {
+			last.position = entry.position;
+			bucket.set(entry.position, last);
+		}
+	}
+
+	private synchronized boolean claim(AgentEntry entry) {
+		if (entryPerAgent.get(entry.agent) == entry) {
+			entryPerAgent.remove(entry.agent);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Takes all entries with an activity end time up to <code>time</code> out of the buckets and orders them.
+	 * They stay indexed until they are claimed, so they can still be rescheduled until then.
+	 */
+	private synchronized boolean collectDueEntries(double time) {
+		dueEntries.clear();
+		// the current bucket is always checked, as it also holds activity ends from before it
+		int lastBucket = Math.max(currentBucket, (int) Math.min(Math.floor(time), buckets.length - 1));
+		for (int bucketIndex = currentBucket; bucketIndex <= lastBucket; bucketIndex++) {
+			ArrayList<AgentEntry> bucket = buckets[bucketIndex];
+			if (bucket == null) {
+				continue;
+			}
+			for (int i = bucket.size() - 1; i >= 0; i--) {
+				AgentEntry entry = bucket.get(i);
+				if (entry.activityEndTime <= time) {
+					removeFromBucket(bucket, entry);
+					entry.bucket = DUE;
+					dueEntries.add(entry);
+				}
+			}
+			if (bucket.isEmpty() && bucketIndex < time) {
+				buckets[bucketIndex] = null;
+			}
+		}
+		currentBucket = lastBucket;
+		while (!overflow.isEmpty() && overflow.peek().activityEndTime <= time) {
+			AgentEntry entry = overflow.poll();
+			entry.bucket = DUE;
+			dueEntries.add(entry);
+		}
+		dueEntries.sort(ORDER);
+		return !dueEntries.isEmpty();
+	}
+
+	private void unregisterAgentAtActivityLocation(final MobsimAgent agent) {
+		Id<Person> agentId = agent.getId();
+		Id<Link> linkId = agent.getCurrentLinkId();
+		if (linkId != null) { // may be bushwacking
+			internalInterface.unregisterAdditionalAgentOnLink(agentId, linkId);
+		}
+	}
+
+}
@@ -32,15 +32,16 @@ import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.api.core.v01.events.HasPersonId;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.PlanAgent;
 
-public final class ActivityEngineWithWakeup implements ActivityEngine {
+public final class ActivityEngineWithWakeup implements ActivityEngine, HasNextEventTime {
 	public static final String COMPONENT_NAME = "ActivityEngineWithWakeup";
 
 	private final EventsManager eventsManager;
 	private final PreplanningEngine preplanningEngine;
-	private final ActivityEngine delegate;
+	private final ActivityEngineDefaultImpl delegate;
 
 	private final Queue<AgentEntry> wakeUpList = new PriorityBlockingQueue<>(500,
 			Comparator.comparingDouble((AgentEntry o) -> o.time).thenComparing(o -> o.agent.getId()));
@@ -68,6 +69,12 @@ public final class ActivityEngineWithWakeup implements ActivityEngine {
 		delegate.doSimStep(now);
 	}
 
+	@Override
+	public double getNextEventTime() {
+		AgentEntry entry = wakeUpList.peek();
+		return Math.min(entry == null ? Double.POSITIVE_INFINITY : entry.time, delegate.getNextEventTime());
+	}
+
 	@Override
 	public void afterSim() {
 		delegate.afterSim();
@@ -58,4 +58,9 @@ class AgentCounter implements org.matsim.core.mobsim.qsim.interfaces.AgentCounte
     @Override
     public final void decLiving() {living.decrementAndGet();}
 
+    final void set(int living, int lost) {
+        this.living.set(living);
+        this.lost.set(lost);
+    }
+
 }
@@ -0,0 +1,95 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CheckpointReader.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Reads what a {@link CheckpointWriter} has written.  Agents and vehicles are looked up by their ids in the {@link QSim}
+ * which is restarted.
+ */
+public final class CheckpointReader extends DataInputStream {
+
+	private final QSim qsim;
+	private double time;
+	private long randomSeed;
+
+	CheckpointReader(InputStream in, QSim qsim) {
+		super(in);
+		this.qsim = qsim;
+	}
+
+	public <T> Id<T> readId(Class<T> type) throws IOException {
+		return readBoolean() ? Id.create(readUTF(), type) : null;
+	}
+
+	public MobsimAgent readAgent() throws IOException {
+		Id<Person> id = readId(Person.class);
+		if (id == null) {
+			return null;
+		}
+		MobsimAgent agent = this.qsim.getAgents().get(id);
+		if (agent == null) {
+			throw new IllegalStateException("agent " + id + " of the checkpoint is not in the mobsim");
+		}
+		return agent;
+	}
+
+	public MobsimVehicle readVehicle() throws IOException {
+		Id<Vehicle> id = readId(Vehicle.class);
+		if (id == null) {
+			return null;
+		}
+		MobsimVehicle vehicle = this.qsim.getVehicles().get(id);
+		if (vehicle == null) {
+			throw new IllegalStateException("vehicle " + id + " of the checkpoint is not in the mobsim");
+		}
+		return vehicle;
+	}
+
+	/**
+	 * @return the time step of the checkpoint, at which the simulation continues.
+	 */
+	public double getTime() {
+		return this.time;
+	}
+
+	/**
+	 * @see CheckpointWriter#getRandomSeed()
+	 */
+	public long getRandomSeed() {
+		return this.randomSeed;
+	}
+
+	void setHeader(double time, long randomSeed) {
+		this.time = time;
+		this.randomSeed = randomSeed;
+	}
+
+}
@@ -0,0 +1,81 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CheckpointWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
+
+/**
+ * Writes the state of the {@link QSim} for a {@link CheckpointReader}.  Besides the primitive values, it writes ids,
+ * and agents and vehicles by their ids.  Each of these may be <code>null</code>.
+ */
+public final class CheckpointWriter extends DataOutputStream {
+
+	static final int MAGIC_NUMBER = 0x4d434b50;
+	static final int VERSION = 1;
+
+	private final double time;
+	private final long randomSeed;
+
+	CheckpointWriter(OutputStream out, double time, long randomSeed) {
+		super(out);
+		this.time = time;
+		this.randomSeed = randomSeed;
+	}
+
+	public void writeId(Id<?> id) throws IOException {
+		writeBoolean(id != null);
+		if (id != null) {
+			writeUTF(id.toString());
+		}
+	}
+
+	public void writeAgent(MobsimAgent agent) throws IOException {
+		writeId(agent == null ? null : agent.getId());
+	}
+
+	public void writeVehicle(MobsimVehicle vehicle) throws IOException {
+		writeId(vehicle == null ? null : vehicle.getId());
+	}
+
+	/**
+	 * @return the time step of the checkpoint.
+	 */
+	public double getTime() {
+		return this.time;
+	}
+
+	/**
+	 * @return the seed with which the random number generators are reset after the checkpoint, both in the simulation
+	 * which writes it and in the one which restarts from it.  Each component resets the generators it draws from; the
+	 * nodes and lanes of the network do so with seeds of their own.  {@link org.matsim.core.gbl.MatsimRandom} is not
+	 * reset, so that what other components draw from it after the checkpoint differs in restarted runs.
+	 */
+	public long getRandomSeed() {
+		return this.randomSeed;
+	}
+
+}
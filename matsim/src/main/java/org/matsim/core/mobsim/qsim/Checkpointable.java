@@ -0,0 +1,48 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * Checkpointable.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.io.IOException;
+
+/**
+ * A part of the {@link QSim}, i.e. a mobsim engine or an agent, whose state can be written to a checkpoint, so that
+ * the simulation can later be restarted from the point in time at which the checkpoint was written.  See
+ * {@link org.matsim.core.config.groups.QSimConfigGroup#getCheckpointTime()}.
+ * <p>
+ * The QSim only writes a checkpoint if all its engines and agents implement this interface.  Agents and vehicles are
+ * created as usual when the restarted simulation is prepared; the checkpoint only restores their state and where they
+ * are, so it refers to them by their ids.
+ */
+public interface Checkpointable {
+
+	/**
+	 * Called between two time steps, before anything happens in the time step of the checkpoint.
+	 */
+	void writeCheckpoint(CheckpointWriter out) throws IOException;
+
+	/**
+	 * Called instead of putting the agents into their first activities, i.e. after
+	 * {@link org.matsim.core.mobsim.qsim.interfaces.MobsimEngine#onPrepareSim()}, with the data in the same order as it
+	 * was written.
+	 */
+	void readCheckpoint(CheckpointReader in) throws IOException;
+
+}
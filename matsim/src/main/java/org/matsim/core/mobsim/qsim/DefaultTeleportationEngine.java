@@ -21,11 +21,14 @@
 
  package org.matsim.core.mobsim.qsim;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.PriorityQueue;
-import java.util.Queue;
 
 import jakarta.inject.Inject;
 
@@ -39,6 +42,7 @@ import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.utils.collections.Tuple;
@@ -49,25 +53,30 @@ import org.matsim.vis.snapshotwriters.TeleportationVisData;
 /**
  * Includes all agents that have transportation modes unknown to the
  * NetsimEngine (often all != "car") or have two activities on the same link
+ * <p>
+ * The agents are kept in one bucket per second of their arrival time, so that a departure is O(1) and only the
+ * arrivals which are due in a time step are ordered.
  */
-public final class DefaultTeleportationEngine implements TeleportationEngine {
+public final class DefaultTeleportationEngine implements TeleportationEngine, HasNextEventTime, Checkpointable {
 	private static final Logger log = LogManager.getLogger( DefaultTeleportationEngine.class ) ;
 
-	private final Queue<Tuple<Double, MobsimAgent>> teleportationList = new PriorityQueue<>(
-			30, new Comparator<Tuple<Double, MobsimAgent>>() {
-
-		@Override
-		public int compare(Tuple<Double, MobsimAgent> o1, Tuple<Double, MobsimAgent> o2) {
-			int ret = o1.getFirst().compareTo(o2.getFirst()); // first compare time information
-			if (ret == 0) {
-				ret = o2.getSecond()
-						.getId()
-						.compareTo(o1.getSecond()
-								.getId()); // if they're equal, compare the Ids: the one with the larger Id should be first
-			}
-			return ret;
-		}
-	});
+	/** arrivals later than this are kept in a priority queue instead, so the buckets cannot grow without limits */
+	private static final int MAX_BUCKETS = 14 * 24 * 3600;
+
+	// by time, then the agent with the larger id first
+	private static final Comparator<Tuple<Double, MobsimAgent>> ORDER = (o1, o2) -> {
+		int ret = o1.getFirst().compareTo(o2.getFirst());
+		return ret != 0 ? ret : o2.getSecond().getId().compareTo(o1.getSecond().getId());
+	};
+
+	// the teleported agents by their arrival time, in one bucket per second of simulation time
+	@SuppressWarnings("unchecked")
+	private ArrayList<Tuple<Double, MobsimAgent>>[] buckets = new ArrayList[3600];
+	private int currentBucket = 0;
+	private final PriorityQueue<Tuple<Double, MobsimAgent>> overflow = new PriorityQueue<>(ORDER);
+	// arrivals up to the time of the last time step, taken out of the buckets and ordered
+	private final PriorityQueue<Tuple<Double, MobsimAgent>> dueArrivals = new PriorityQueue<>(ORDER);
+	private double dueUntil = Double.NEGATIVE_INFINITY;
 	private final LinkedHashMap<Id<Person>, TeleportationVisData> teleportationData = new LinkedHashMap<>();
 	private InternalInterface internalInterface;
 	private Scenario scenario;
@@ -103,9 +112,15 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 		}
 
 		double arrivalTime = now + travelTime ;
-		this.teleportationList.add(new Tuple<>(arrivalTime, agent));
+		addArrival(new Tuple<>(arrivalTime, agent));
 
 		// === below here is only visualization, no dynamics ===
+		addVisData(now, agent, linkId, travelTime);
+
+		return true;
+	}
+
+	private void addVisData(double now, MobsimAgent agent, Id<Link> linkId, double travelTime) {
 		Id<Person> agentId = agent.getId();
 		Link currLink = this.scenario .getNetwork().getLinks().get(linkId);
 		Link destLink = this.scenario .getNetwork().getLinks().get(agent.getDestinationLinkId());
@@ -113,8 +128,6 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 		Coord toCoord = destLink.getToNode().getCoord();
 		TeleportationVisData agentInfo = new TeleportationVisData(now, agentId, fromCoord, toCoord, travelTime);
 		this.teleportationData.put(agentId, agentInfo);
-
-		return true;
 	}
 
 	@Override
@@ -133,22 +146,97 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 	}
 
 	private void handleTeleportationArrivals(double now) {
-		while (!teleportationList.isEmpty()) {
-			Tuple<Double, MobsimAgent> entry = teleportationList.peek();
-			if (entry.getFirst() <= now) {
-				teleportationList.poll();
-				MobsimAgent personAgent = entry.getSecond();
-				personAgent.notifyArrivalOnLinkByNonNetworkMode(personAgent.getDestinationLinkId());
-				double distance = personAgent.getExpectedTravelDistance();
-				this.eventsManager.processEvent(
-						new TeleportationArrivalEvent(now, personAgent.getId(), distance, personAgent.getMode()));
-				personAgent.endLegAndComputeNextState(now);
-				this.teleportationData.remove(personAgent.getId());
-				internalInterface.arrangeNextAgentState(personAgent);
+		collectDueArrivals(now);
+		// agents arriving here may depart again with a travel time of 0, and are then added to the due arrivals
+		while (!dueArrivals.isEmpty()) {
+			MobsimAgent personAgent = dueArrivals.poll().getSecond();
+			personAgent.notifyArrivalOnLinkByNonNetworkMode(personAgent.getDestinationLinkId());
+			double distance = personAgent.getExpectedTravelDistance();
+			this.eventsManager.processEvent(
+					new TeleportationArrivalEvent(now, personAgent.getId(), distance, personAgent.getMode()));
+			personAgent.endLegAndComputeNextState(now);
+			this.teleportationData.remove(personAgent.getId());
+			internalInterface.arrangeNextAgentState(personAgent);
+		}
+	}
+
+	private void addArrival(Tuple<Double, MobsimAgent> entry) {
+		double arrivalTime = entry.getFirst();
+		if (arrivalTime <= dueUntil) {
+			dueArrivals.add(entry);
+			return;
+		}
+		double bucketTime = Math.floor(arrivalTime);
+		if (bucketTime >= MAX_BUCKETS) {
+			overflow.add(entry);
+			return;
+		}
+		int bucketIndex = Math.max(currentBucket, (int) bucketTime);
+		if (bucketIndex >= buckets.length) {
+			buckets = Arrays.copyOf(buckets, Math.min(MAX_BUCKETS, Math.max(bucketIndex + 1, buckets.length * 2)));
+		}
+		ArrayList<Tuple<Double, MobsimAgent>> bucket = buckets[bucketIndex];
+		if (bucket == null) {
+			bucket = new ArrayList<>();
+			buckets[bucketIndex] = bucket;
+		}
+		bucket.add(entry);
+	}
+
+	/**
+	 * Moves all arrivals up to <code>now</code> out of the buckets into the due arrivals, which are handled in the same
+	 * order as they would be with a single priority queue.
+	 */
+	private void collectDueArrivals(double now) {
+		dueUntil = now;
+		int lastBucket = Math.max(currentBucket, (int) Math.min(Math.floor(now), buckets.length - 1));
+		for (int bucketIndex = currentBucket; bucketIndex <= lastBucket; bucketIndex++) {
+			ArrayList<Tuple<Double, MobsimAgent>> bucket = buckets[bucketIndex];
+			if (bucket == null) {
+				continue;
+			}
+			if (bucketIndex < lastBucket) {
+				dueArrivals.addAll(bucket);
+				buckets[bucketIndex] = null;
 			} else {
-				break;
+				// the last bucket may contain arrivals later within the second
+				bucket.removeIf(entry -> entry.getFirst() <= now && dueArrivals.add(entry));
 			}
 		}
+		currentBucket = lastBucket;
+		while (!overflow.isEmpty() && overflow.peek().getFirst() <= now) {
+			dueArrivals.add(overflow.poll());
+		}
+	}
+
+	@Override
+	public double getNextEventTime() {
+		if (!dueArrivals.isEmpty()) {
+			return dueArrivals.peek().getFirst();
+		}
+		double nextEventTime = overflow.isEmpty() ? Double.POSITIVE_INFINITY : overflow.peek().getFirst();
+		for (int bucketIndex = currentBucket; bucketIndex < Math.min(buckets.length, nextEventTime); bucketIndex++) {
+			ArrayList<Tuple<Double, MobsimAgent>> bucket = buckets[bucketIndex];
+			if (bucket != null && !bucket.isEmpty()) {
+				for (Tuple<Double, MobsimAgent> entry : bucket) {
+					nextEventTime = Math.min(nextEventTime, entry.getFirst());
+				}
+				return nextEventTime;
+			}
+		}
+		return nextEventTime;
+	}
+
+	private List<Tuple<Double, MobsimAgent>> getAllArrivals() {
+		List<Tuple<Double, MobsimAgent>> entries = new ArrayList<>(dueArrivals);
+		for (ArrayList<Tuple<Double, MobsimAgent>> bucket : buckets) {
+			if (bucket != null) {
+				entries.addAll(bucket);
+			}
+		}
+		entries.addAll(overflow);
+		entries.sort(ORDER);
+		return entries;
 	}
 
 	@Override
@@ -158,11 +246,13 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 	@Override
 	public void afterSim() {
 		double now = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
-		for (Tuple<Double, MobsimAgent> entry : teleportationList) {
+		for (Tuple<Double, MobsimAgent> entry : getAllArrivals()) {
 			MobsimAgent agent = entry.getSecond();
 			eventsManager.processEvent(new PersonStuckEvent(now, agent.getId(), agent.getDestinationLinkId(), agent.getMode()));
 		}
-		teleportationList.clear();
+		Arrays.fill(buckets, null);
+		overflow.clear();
+		dueArrivals.clear();
 	}
 
 	@Override
@@ -170,6 +260,31 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 		this.internalInterface = internalInterface;
 	}
 
+	@Override
+	public void writeCheckpoint(CheckpointWriter out) throws IOException {
+		List<Tuple<Double, MobsimAgent>> entries = getAllArrivals();
+		out.writeInt(entries.size());
+		for (Tuple<Double, MobsimAgent> entry : entries) {
+			out.writeDouble(entry.getFirst());
+			out.writeAgent(entry.getSecond());
+		}
+	}
+
+	/**
+	 * The visualization of the restored agents starts again at their departure link, as if they departed at the time of
+	 * the checkpoint.
+	 */
+	@Override
+	public void readCheckpoint(CheckpointReader in) throws IOException {
+		int numberOfEntries = in.readInt();
+		for (int i = 0; i < numberOfEntries; i++) {
+			double arrivalTime = in.readDouble();
+			MobsimAgent agent = in.readAgent();
+			addArrival(new Tuple<>(arrivalTime, agent));
+			addVisData(in.getTime(), agent, agent.getCurrentLinkId(), arrivalTime - in.getTime());
+		}
+	}
+
 	private static Double travelTimeCheck(Double travelTime, Double speed, Facility dpfac, Facility arfac) {
 		if ( speed==null ) {
 			// if we don't have a bushwhacking speed, the only thing we can do is trust the router
@@ -23,6 +23,7 @@ package org.matsim.core.mobsim.qsim;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.matsim.core.api.internal.MatsimManager;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
 import org.matsim.core.mobsim.framework.Mobsim;
 import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
@@ -32,6 +33,11 @@ import org.matsim.core.mobsim.framework.listeners.*;
 import org.matsim.core.utils.misc.ClassUtils;
 
 import javax.swing.event.EventListenerList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 class MobsimListenerManager implements MatsimManager {
 
@@ -100,6 +106,32 @@ class MobsimListenerManager implements MatsimManager {
         }
 	}
 
+	/**
+	 * @return the earliest next event time of all before and after sim step listeners, or <code>Double.NEGATIVE_INFINITY</code>
+	 * if one of them does not implement {@link HasNextEventTime}, i.e. needs to be called in every time step.
+	 */
+	double getNextSimStepListenerTime() {
+		double nextEventTime = Double.POSITIVE_INFINITY;
+		Object[] listeners = this.listenerList.getListenerList();
+		// the list consists of pairs of listener type and listener
+		for (int i = 0; i < listeners.length; i += 2) {
+			if (listeners[i] == MobsimBeforeSimStepListener.class || listeners[i] == MobsimAfterSimStepListener.class) {
+				if (!(listeners[i + 1] instanceof HasNextEventTime)) {
+					return Double.NEGATIVE_INFINITY;
+				}
+				nextEventTime = Math.min(nextEventTime, ((HasNextEventTime) listeners[i + 1]).getNextEventTime());
+			}
+		}
+		return nextEventTime;
+	}
+
+	List<MobsimListener> getSimStepListeners() {
+		Set<MobsimListener> listeners = new LinkedHashSet<>();
+		listeners.addAll(Arrays.asList(this.listenerList.getListeners(MobsimBeforeSimStepListener.class)));
+		listeners.addAll(Arrays.asList(this.listenerList.getListeners(MobsimAfterSimStepListener.class)));
+		return new ArrayList<>(listeners);
+	}
+
 	public void fireQueueSimulationBeforeSimStepEvent(double time) {
 		MobsimBeforeSimStepEvent<Mobsim> event = new MobsimBeforeSimStepEvent<>(sim, time);
 		MobsimBeforeSimStepListener[] listener = this.listenerList.getListeners(MobsimBeforeSimStepListener.class);
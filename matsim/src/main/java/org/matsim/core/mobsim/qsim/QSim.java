@@ -33,11 +33,14 @@ import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.ConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup.EndtimeInterpretation;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.gbl.Gbl;
+import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.mobsim.framework.AgentSource;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
 import org.matsim.core.mobsim.framework.HasPerson;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimTimer;
@@ -51,6 +54,7 @@ import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngineI;
 import org.matsim.core.network.NetworkChangeEvent;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vehicles.VehicleType;
@@ -63,6 +67,9 @@ import org.matsim.vis.snapshotwriters.VisNetwork;
 import org.matsim.withinday.mobsim.WithinDayEngine;
 
 import jakarta.inject.Inject;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.atomic.AtomicLong;
@@ -121,6 +128,9 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 
 	private final Date realWorldStarttime = new Date();
 	private double stopTime; // initialised in initSimTimer()
+	private final boolean skipIdleTimeSteps;
+	private double checkpointTime; // infinite once the checkpoint is written
+	private CheckpointReader restartCheckpoint = null;
 	private final MobsimListenerManager listenerManager;
 	private final Scenario scenario;
 	private final List<ActivityHandler> activityHandlers = new ArrayList<>();
@@ -221,6 +231,8 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 		this.listenerManager = new MobsimListenerManager( this );
 		this.agentCounter = new org.matsim.core.mobsim.qsim.AgentCounter();
 		this.simTimer = new MobsimTimer( sc.getConfig().qsim().getTimeStepSize());
+		this.skipIdleTimeSteps = sc.getConfig().qsim().isSkipIdleTimeSteps();
+		this.checkpointTime = sc.getConfig().qsim().getCheckpointTime().orElse(Double.POSITIVE_INFINITY);
 
 		this.childInjector = childInjector ;
 //		this.qVehicleFactory = qVehicleFactory;
@@ -239,8 +251,18 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 			// ActivityEngine must be last (=default) activity handler, so add it only before running:
 			this.activityHandlers.add(this.activityEngine);
 
+			// the time of the checkpoint is needed to prepare the simulation, its content only afterwards
+			this.restartCheckpoint = openRestartCheckpoint();
+
 			prepareSim();
+			if (this.checkpointTime != Double.POSITIVE_INFINITY || this.restartCheckpoint != null) {
+				// fail at the start of the day rather than at the time of the checkpoint
+				checkCheckpointable();
+			}
 			this.listenerManager.fireQueueSimulationInitializedEvent();
+			if (this.skipIdleTimeSteps) {
+				logComponentsWithoutNextEventTime();
+			}
 
 			// Put agents into the handler for their first ("overnight") action,
 			// probably the ActivityEngine. This is done before the first
@@ -249,8 +271,13 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 			// (can be located somewhere) before you execute a sim step.
 			// Agents can abort in this loop already, so we iterate over
 			// a defensive copy of the agent collection.
-			for (MobsimAgent agent : new ArrayList<>(this.agents.values())) {
-				arrangeNextAgentAction(agent);
+			// When restarting from a checkpoint, the agents are put where they were instead.
+			if (this.restartCheckpoint == null) {
+				for (MobsimAgent agent : new ArrayList<>(this.agents.values())) {
+					arrangeNextAgentAction(agent);
+				}
+			} else {
+				restartFromCheckpoint();
 			}
 
 			// do iterations
@@ -387,6 +414,11 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 
 		final double now = this.getSimTimer().getTimeOfDay();
 
+		// the time of day may be infinite if no agent has anything to do anymore
+		if (now >= this.checkpointTime && this.checkpointTime != Double.POSITIVE_INFINITY) {
+			writeCheckpoint(now);
+		}
+
 		this.listenerManager.fireQueueSimulationBeforeSimStepEvent(now);
 
 		if (analyzeRunTimes) this.qSimInternalTime += System.nanoTime() - this.startClockTime;
@@ -426,14 +458,13 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 		this.listenerManager.fireQueueSimulationAfterSimStepEvent(now);
 
 
-		final QSimConfigGroup qsimConfigGroup = this.scenario.getConfig().qsim();
-		boolean doContinue = (this.agentCounter.isLiving() && (this.stopTime > now));
-		if (qsimConfigGroup.getSimEndtimeInterpretation() == EndtimeInterpretation.onlyUseEndtime) {
-			doContinue = now <= qsimConfigGroup.getEndTime().seconds();
-		}
+		boolean doContinue = isContinuingAfter(now);
 
 		if (doContinue) {
 			this.simTimer.incrementTime();
+			if (this.skipIdleTimeSteps) {
+				skipIdleTimeSteps();
+			}
 		}
 
 		if (analyzeRunTimes) this.qSimInternalTime += System.nanoTime() - this.startClockTime;
@@ -441,6 +472,184 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 		return doContinue;
 	}
 
+	private boolean isContinuingAfter(final double time) {
+		final QSimConfigGroup qsimConfigGroup = this.scenario.getConfig().qsim();
+		if (qsimConfigGroup.getSimEndtimeInterpretation() == EndtimeInterpretation.onlyUseEndtime) {
+			return time <= qsimConfigGroup.getEndTime().seconds();
+		}
+		return this.agentCounter.isLiving() && this.stopTime > time;
+	}
+
+	/**
+	 * Jumps over the time steps in which none of the engines and sim step listeners has anything to do, see {@link HasNextEventTime}.
+	 * The time step after which the simulation ends is never skipped, so it ends at the same time as without skipping.
+	 */
+	private void skipIdleTimeSteps() {
+		final double nextEventTime = getNextEventTime();
+		// incrementing step by step gives exactly the same times as without skipping
+		while (this.simTimer.getTimeOfDay() < nextEventTime && isContinuingAfter(this.simTimer.getTimeOfDay())) {
+			this.simTimer.incrementTime();
+		}
+	}
+
+	private double getNextEventTime() {
+		final double nextTimeStep = this.simTimer.getTimeOfDay();
+		// the checkpoint is written at the configured time, not at the next time step with something to do
+		double nextEventTime = Math.min(this.listenerManager.getNextSimStepListenerTime(), this.checkpointTime);
+		for (MobsimEngine mobsimEngine : this.mobsimEngines) {
+			if (nextEventTime <= nextTimeStep) {
+				// the next time step cannot be skipped anyway
+				break;
+			}
+			if (!(mobsimEngine instanceof HasNextEventTime)) {
+				return Double.NEGATIVE_INFINITY;
+			}
+			nextEventTime = Math.min(nextEventTime, ((HasNextEventTime) mobsimEngine).getNextEventTime());
+		}
+		return nextEventTime;
+	}
+
+	private void logComponentsWithoutNextEventTime() {
+		List<Object> components = new ArrayList<>(this.mobsimEngines);
+		components.addAll(this.listenerManager.getSimStepListeners());
+		boolean canSkip = true;
+		for (Object component : components) {
+			if (!(component instanceof HasNextEventTime)) {
+				log.warn("idle time steps cannot be skipped since " + component.getClass().getName() + " does not tell when it has something to do next.");
+				canSkip = false;
+			}
+		}
+		if (canSkip) {
+			log.info("idle time steps are skipped.");
+		}
+	}
+
+	// ============================================================================================================================
+	// checkpoints:
+
+	private void checkCheckpointable() {
+		if (this.checkpointTime != Double.POSITIVE_INFINITY && this.scenario.getConfig().qsim().getCheckpointFile() == null) {
+			throw new IllegalStateException("a checkpoint time is set, but no checkpoint file");
+		}
+		for (MobsimEngine mobsimEngine : this.mobsimEngines) {
+			if (!(mobsimEngine instanceof Checkpointable)) {
+				throw new UnsupportedOperationException("checkpoints are not supported since " + mobsimEngine.getClass().getName() + " does not support them.");
+			}
+		}
+		for (MobsimAgent agent : this.agents.values()) {
+			if (!(agent instanceof Checkpointable)) {
+				throw new UnsupportedOperationException("checkpoints are not supported since " + agent.getClass().getName() + " does not support them.");
+			}
+		}
+	}
+
+	/**
+	 * Writes the state of the agents and of all engines, see {@link Checkpointable}.  Afterwards, the random number
+	 * generators of the mobsim are reset with a seed from the checkpoint, so that this simulation continues in the same
+	 * way as the ones which restart from it, see {@link CheckpointWriter#getRandomSeed()}.  {@link MatsimRandom} is not
+	 * touched, as other parts of the iteration draw from it.
+	 */
+	private void writeCheckpoint(final double now) {
+		// agents may have been inserted since the start
+		checkCheckpointable();
+		this.checkpointTime = Double.POSITIVE_INFINITY;
+
+		String filename = this.scenario.getConfig().qsim().getCheckpointFile();
+		log.info("writing checkpoint at " + Time.writeTime(now) + " to " + filename);
+		long randomSeed = this.scenario.getConfig().global().getRandomSeed() + (long) now;
+		try (CheckpointWriter out = new CheckpointWriter(IOUtils.getOutputStream(IOUtils.getFileUrl(filename), false), now, randomSeed)) {
+			out.writeInt(CheckpointWriter.MAGIC_NUMBER);
+			out.writeInt(CheckpointWriter.VERSION);
+			out.writeDouble(now);
+			out.writeLong(randomSeed);
+			out.writeInt(this.agentCounter.getLiving());
+			out.writeInt(this.agentCounter.getLost());
+
+			out.writeInt(this.agents.size());
+			for (MobsimAgent agent : this.agents.values()) {
+				out.writeAgent(agent);
+				((Checkpointable) agent).writeCheckpoint(out);
+			}
+			out.writeInt(this.mobsimEngines.size());
+			for (MobsimEngine mobsimEngine : this.mobsimEngines) {
+				out.writeUTF(mobsimEngine.getClass().getName());
+				((Checkpointable) mobsimEngine).writeCheckpoint(out);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @return the checkpoint to restart from, with only its header read, or <code>null</code> if the simulation starts
+	 * at the beginning.
+	 */
+	private CheckpointReader openRestartCheckpoint() {
+		QSimConfigGroup qsimConfigGroup = this.scenario.getConfig().qsim();
+		String filename = qsimConfigGroup.getRestartFromCheckpointFile();
+		if (filename == null) {
+			return null;
+		}
+		CheckpointReader in = new CheckpointReader(new BufferedInputStream(IOUtils.getInputStream(
+				ConfigGroup.getInputFileURL(this.scenario.getConfig().getContext(), filename))), this);
+		try {
+			if (in.readInt() != CheckpointWriter.MAGIC_NUMBER) {
+				throw new IllegalArgumentException(filename + " is not a checkpoint file");
+			}
+			int version = in.readInt();
+			if (version != CheckpointWriter.VERSION) {
+				throw new IllegalArgumentException("Unsupported version " + version + " of checkpoint file " + filename);
+			}
+			in.setHeader(in.readDouble(), in.readLong());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		log.info("restarting from the checkpoint at " + Time.writeTime(in.getTime()) + " in " + filename);
+		return in;
+	}
+
+	private void restartFromCheckpoint() {
+		try (CheckpointReader in = this.restartCheckpoint) {
+			int living = in.readInt();
+			int lost = in.readInt();
+
+			int numberOfAgents = in.readInt();
+			Set<Id<Person>> restoredAgentIds = new HashSet<>();
+			for (int i = 0; i < numberOfAgents; i++) {
+				MobsimAgent agent = in.readAgent();
+				if (!(agent instanceof Checkpointable)) {
+					throw new UnsupportedOperationException("cannot restart from a checkpoint since " + agent.getClass().getName() + " does not support it.");
+				}
+				((Checkpointable) agent).readCheckpoint(in);
+				restoredAgentIds.add(agent.getId());
+			}
+			// the other agents had been removed from the simulation, i.e. got stuck, before the checkpoint
+			this.agents.keySet().retainAll(restoredAgentIds);
+			this.agentCounter.set(living, lost);
+
+			int numberOfEngines = in.readInt();
+			if (numberOfEngines != this.mobsimEngines.size()) {
+				throw new IllegalStateException("the checkpoint has " + numberOfEngines + " mobsim engines, but the mobsim has " + this.mobsimEngines.size());
+			}
+			for (MobsimEngine mobsimEngine : this.mobsimEngines) {
+				String engineClass = in.readUTF();
+				if (!engineClass.equals(mobsimEngine.getClass().getName())) {
+					throw new IllegalStateException("expected " + engineClass + " from the checkpoint, but the mobsim has " + mobsimEngine.getClass().getName());
+				}
+				if (!(mobsimEngine instanceof Checkpointable)) {
+					throw new UnsupportedOperationException("cannot restart from a checkpoint since " + engineClass + " does not support it.");
+				}
+				((Checkpointable) mobsimEngine).readCheckpoint(in);
+			}
+			if (this.checkpointTime <= in.getTime()) {
+				this.checkpointTime = Double.POSITIVE_INFINITY;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.restartCheckpoint = null;
+	}
+
 	public void insertAgentIntoMobsim(final MobsimAgent agent) {
 		if (this.agents.containsKey(agent.getId())) {
 			throw new RuntimeException("Agent with same Id (" + agent.getId().toString() + ") already in mobsim; aborting ... ") ;
@@ -529,7 +738,9 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 		}
 
 		double simStartTime;
-		if (QSimConfigGroup.StarttimeInterpretation.maxOfStarttimeAndEarliestActivityEnd.equals(qSimConfigGroup.getSimStarttimeInterpretation())) {
+		if (this.restartCheckpoint != null) {
+			simStartTime = this.restartCheckpoint.getTime();
+		} else if (QSimConfigGroup.StarttimeInterpretation.maxOfStarttimeAndEarliestActivityEnd.equals(qSimConfigGroup.getSimStarttimeInterpretation())) {
 			double firstAgentStartTime = calculateFirstAgentStartTime();
 			simStartTime = Math.floor(Math.max(configuredStartTime, firstAgentStartTime));
 		} else if (QSimConfigGroup.StarttimeInterpretation.onlyUseStarttime.equals(qSimConfigGroup.getSimStarttimeInterpretation())) {
@@ -35,8 +35,10 @@ import org.matsim.core.mobsim.qsim.components.QSimComponentsModule;
 import org.matsim.core.mobsim.qsim.messagequeueengine.MessageQueueModule;
 import org.matsim.core.mobsim.qsim.pt.TransitEngineModule;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngineModule;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QNetworkPartitioning;
 
 import com.google.inject.Key;
+import com.google.inject.Singleton;
 import com.google.inject.TypeLiteral;
 import com.google.inject.name.Names;
 
@@ -98,6 +100,10 @@ public final class QSimModule extends AbstractModule {
 		// Set<AbstractQSimModule>.  Don't know why this is needed.  kai, jun'23
 
 		bind(Mobsim.class).toProvider(QSimProvider.class);
+
+		bind(QNetworkPartitioning.class).in(Singleton.class);
+		// (bound here and not in the QNetsimEngineModule, so that the partitioning of the network, which is adapted
+		// to the load of the threads, is kept from one iteration to the next)
 	}
 
 	static public Collection<AbstractQSimModule> getDefaultQSimModules() {
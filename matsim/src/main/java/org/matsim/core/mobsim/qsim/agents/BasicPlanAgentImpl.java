@@ -21,6 +21,7 @@
 
  package org.matsim.core.mobsim.qsim.agents;
 
+import java.io.IOException;
 import java.util.List;
 
 import jakarta.validation.constraints.NotNull;
@@ -45,6 +46,9 @@ import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimTimer;
 import org.matsim.core.mobsim.framework.PlanAgent;
 import org.matsim.core.mobsim.framework.VehicleUsingAgent;
+import org.matsim.core.mobsim.qsim.CheckpointReader;
+import org.matsim.core.mobsim.qsim.CheckpointWriter;
+import org.matsim.core.mobsim.qsim.Checkpointable;
 import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.population.PopulationUtils;
@@ -58,7 +62,7 @@ import org.matsim.vehicles.Vehicle;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 
-public final class BasicPlanAgentImpl implements MobsimAgent, PlanAgent, HasPerson, VehicleUsingAgent, HasModifiablePlan {
+public final class BasicPlanAgentImpl implements MobsimAgent, PlanAgent, HasPerson, VehicleUsingAgent, HasModifiablePlan, Checkpointable {
 	
 	private static final Logger log = LogManager.getLogger(BasicPlanAgentImpl.class);
 	private static int finalActHasDpTimeWrnCnt = 0;
@@ -213,6 +217,36 @@ public final class BasicPlanAgentImpl implements MobsimAgent, PlanAgent, HasPers
 		}
 	}
 
+	/**
+	 * The agent continues with the plan of its person, which therefore needs to be the same as when the checkpoint was
+	 * written.  Changes of the plan during the simulation, e.g. by within-day replanning, are not written.
+	 */
+	@Override
+	public final void writeCheckpoint(CheckpointWriter out) throws IOException {
+		out.writeInt(this.plan.getPlanElements().size());
+		out.writeInt(this.currentPlanElementIndex);
+		out.writeInt(this.currentLinkIndex);
+		out.writeByte(this.state.ordinal());
+		out.writeId(this.currentLinkId);
+		out.writeDouble(this.activityEndTime);
+		out.writeVehicle(this.vehicle);
+	}
+
+	@Override
+	public final void readCheckpoint(CheckpointReader in) throws IOException {
+		int numberOfPlanElements = in.readInt();
+		if (numberOfPlanElements != this.plan.getPlanElements().size()) {
+			throw new IllegalStateException("the plan of agent " + this.getId() + " has " + this.plan.getPlanElements().size()
+					+ " elements, but " + numberOfPlanElements + " in the checkpoint");
+		}
+		this.currentPlanElementIndex = in.readInt();
+		this.currentLinkIndex = in.readInt();
+		this.state = MobsimAgent.State.values()[in.readByte()];
+		this.currentLinkId = in.readId(Link.class);
+		this.activityEndTime = in.readDouble();
+		this.vehicle = in.readVehicle();
+	}
+
 	// ============================================================================
 	// (nearly) pure getters and setters below here
 	
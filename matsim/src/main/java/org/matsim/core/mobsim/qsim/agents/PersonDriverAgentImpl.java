@@ -20,6 +20,8 @@
 
 package org.matsim.core.mobsim.qsim.agents;
 
+import java.io.IOException;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -32,6 +34,9 @@ import org.matsim.core.mobsim.framework.HasPerson;
 import org.matsim.core.mobsim.framework.MobsimDriverAgent;
 import org.matsim.core.mobsim.framework.MobsimPassengerAgent;
 import org.matsim.core.mobsim.framework.PlanAgent;
+import org.matsim.core.mobsim.qsim.CheckpointReader;
+import org.matsim.core.mobsim.qsim.CheckpointWriter;
+import org.matsim.core.mobsim.qsim.Checkpointable;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.Netsim;
 import org.matsim.core.utils.misc.OptionalTime;
@@ -44,7 +49,7 @@ import org.matsim.vehicles.Vehicle;
  * <p></p>
  * I think this class is reasonable in terms of what is public and/or final and what not.
  */
-public class PersonDriverAgentImpl implements MobsimDriverAgent, MobsimPassengerAgent, HasPerson, PlanAgent, HasModifiablePlan {
+public class PersonDriverAgentImpl implements MobsimDriverAgent, MobsimPassengerAgent, HasPerson, PlanAgent, HasModifiablePlan, Checkpointable {
 	// yy cannot make this final since it is overridden at 65 locations
 	// (but since all methods are final, it seems that all of these could be solved by delegation).
 	// kai, nov'14
@@ -215,4 +220,19 @@ public class PersonDriverAgentImpl implements MobsimDriverAgent, MobsimPassenger
 		return this.basicAgentDelegate.getPreviousPlanElement();
 	}
 
+	/**
+	 * Subclasses with state of their own need to override this and {@link #readCheckpoint(CheckpointReader)}.
+	 */
+	@Override
+	public void writeCheckpoint(CheckpointWriter out) throws IOException {
+		// the driver delegate only caches the next link, which is found again
+		driverAgentDelegate.resetCaches();
+		basicAgentDelegate.writeCheckpoint(out);
+	}
+
+	@Override
+	public void readCheckpoint(CheckpointReader in) throws IOException {
+		basicAgentDelegate.readCheckpoint(in);
+	}
+
 }
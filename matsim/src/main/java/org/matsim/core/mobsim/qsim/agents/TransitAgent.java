@@ -20,6 +20,7 @@
 
 package org.matsim.core.mobsim.qsim.agents;
 
+import java.io.IOException;
 import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
@@ -31,6 +32,9 @@ import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.core.mobsim.framework.HasPerson;
 import org.matsim.core.mobsim.framework.PlanAgent;
+import org.matsim.core.mobsim.qsim.CheckpointReader;
+import org.matsim.core.mobsim.qsim.CheckpointWriter;
+import org.matsim.core.mobsim.qsim.Checkpointable;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.Netsim;
 import org.matsim.core.mobsim.qsim.pt.MobsimDriverPassengerAgent;
@@ -47,7 +51,7 @@ import org.matsim.vehicles.Vehicle;
 /**
  * @author mrieser
  */
-public final class TransitAgent implements MobsimDriverPassengerAgent, PlanAgent, HasPerson, HasModifiablePlan {
+public final class TransitAgent implements MobsimDriverPassengerAgent, PlanAgent, HasPerson, HasModifiablePlan, Checkpointable {
 	@SuppressWarnings("unused")
 	private static final Logger log = LogManager.getLogger(TransitAgent.class);
 
@@ -212,4 +216,16 @@ public final class TransitAgent implements MobsimDriverPassengerAgent, PlanAgent
 		return this.basicAgentDelegate.getCurrentLinkIndex();
 	}
 
+	@Override
+	public void writeCheckpoint(CheckpointWriter out) throws IOException {
+		// the driver delegate only caches the next link, and the transit delegate has no state of its own
+		this.driverAgentDelegate.resetCaches();
+		this.basicAgentDelegate.writeCheckpoint(out);
+	}
+
+	@Override
+	public void readCheckpoint(CheckpointReader in) throws IOException {
+		this.basicAgentDelegate.readCheckpoint(in);
+	}
+
 }
@@ -25,8 +25,12 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
 import org.matsim.core.mobsim.jdeqsim.Message;
 import org.matsim.core.mobsim.jdeqsim.MessageQueue;
+import org.matsim.core.mobsim.qsim.CheckpointReader;
+import org.matsim.core.mobsim.qsim.CheckpointWriter;
+import org.matsim.core.mobsim.qsim.Checkpointable;
 import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimLink;
 import org.matsim.core.mobsim.qsim.interfaces.TimeVariantLink;
@@ -34,14 +38,17 @@ import org.matsim.core.network.NetworkChangeEvent;
 import org.matsim.core.network.NetworkUtils;
 
 import jakarta.inject.Inject;
+
 import java.util.Queue;
 
-class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI {
+class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI, HasNextEventTime, Checkpointable {
 	private static final Logger log = LogManager.getLogger( NetworkChangeEventsEngine.class ) ;
 
 	private final MessageQueue messageQueue;
 	private final Network network;
 	private InternalInterface internalInterface;
+	// change events before this time are already contained in the links restored from a checkpoint
+	private double restoredUntil = Double.NEGATIVE_INFINITY;
 
 	@Inject
 	NetworkChangeEventsEngine(Network network, MessageQueue messageQueue) {
@@ -66,7 +73,9 @@ class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI {
 
 			@Override
 			public void handleMessage() {
-				applyTheChangeEvent(changeEvent);
+				if (changeEvent.getStartTime() >= restoredUntil) {
+					applyTheChangeEvent(changeEvent);
+				}
 			}
 		};
 		m.setMessageArrivalTime(changeEvent.getStartTime());
@@ -123,4 +132,20 @@ class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI {
 	public void doSimStep(double time) {
 
 	}
+
+	@Override
+	public void writeCheckpoint(CheckpointWriter out) {
+		// the change events are read from the network again
+	}
+
+	@Override
+	public void readCheckpoint(CheckpointReader in) {
+		this.restoredUntil = in.getTime();
+	}
+
+	@Override
+	public double getNextEventTime() {
+		// the change events are applied by the MessageQueueEngine
+		return Double.POSITIVE_INFINITY;
+	}
 }
@@ -65,6 +65,17 @@ public class SteppableScheduler extends Scheduler implements Steppable {
 		finished = true; // queue has run dry.
 	}
 
+	/**
+	 * @return the arrival time of the message that is handled next, or <code>Double.POSITIVE_INFINITY</code> if there is none.
+	 */
+	public double getNextEventTime() {
+		if (lookahead != null) {
+			// handled before any other message, see doSimStep
+			return lookahead.getMessageArrivalTime();
+		}
+		return queue.getNextMessageArrivalTime();
+	}
+
 	public boolean isFinished() {
 		return finished;
 	}
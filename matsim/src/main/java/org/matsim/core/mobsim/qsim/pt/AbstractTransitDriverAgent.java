@@ -19,6 +19,7 @@
 
 package org.matsim.core.mobsim.qsim.pt;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.ListIterator;
 
@@ -36,6 +37,8 @@ import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.PassengerAgent;
 import org.matsim.core.mobsim.framework.PlanAgent;
+import org.matsim.core.mobsim.qsim.CheckpointReader;
+import org.matsim.core.mobsim.qsim.CheckpointWriter;
 import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.agents.PersonDriverAgentImpl;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
@@ -99,6 +102,35 @@ public abstract class AbstractTransitDriverAgent implements TransitDriverAgent,
 		this.nextLinkIndex = 0;
 	}
 
+	/**
+	 * Writes the state of this driver on its current leg, i.e. the next link, the next stop and whether the vehicle is
+	 * at that stop.  The leg itself is restored by the subclass before {@link #readLegCheckpoint(CheckpointReader)}.
+	 */
+	final void writeLegCheckpoint(CheckpointWriter out) throws IOException {
+		out.writeByte(this.state.ordinal());
+		out.writeInt(this.nextLinkIndex);
+		// a leg without transit route has no stops, and the stop iterator is the one of an earlier leg
+		out.writeInt(getTransitRoute() == null ? -1 : this.stopIterator.nextIndex());
+		out.writeBoolean(this.nextStop != null);
+		out.writeBoolean(this.currentStop != null);
+		this.accessEgress.writeCheckpoint(out);
+	}
+
+	final void readLegCheckpoint(CheckpointReader in) throws IOException {
+		this.state = MobsimAgent.State.values()[in.readByte()];
+		this.nextLinkIndex = in.readInt();
+		int stopIndex = in.readInt();
+		boolean hasNextStop = in.readBoolean();
+		boolean isAtStop = in.readBoolean();
+		if (stopIndex >= 0) {
+			List<TransitRouteStop> stops = getTransitRoute().getStops();
+			this.stopIterator = stops.listIterator(stopIndex);
+			this.nextStop = hasNextStop ? stops.get(stopIndex - 1) : null;
+		}
+		this.currentStop = isAtStop ? this.nextStop : null;
+		this.accessEgress.readCheckpoint(in);
+	}
+
 	final void setDriver(Person personImpl) {
 		this.dummyPerson = personImpl;
 	}
@@ -19,10 +19,14 @@
 
 package org.matsim.core.mobsim.qsim.pt;
 
+import java.io.IOException;
 import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.matsim.core.mobsim.qsim.CheckpointReader;
+import org.matsim.core.mobsim.qsim.CheckpointWriter;
+import org.matsim.core.mobsim.qsim.Checkpointable;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 import org.matsim.vehicles.Vehicle;
@@ -35,7 +39,7 @@ import org.matsim.vehicles.VehicleUtils;
  * 
  * @author aneumann
  */
-public class ComplexTransitStopHandler implements TransitStopHandler {
+public class ComplexTransitStopHandler implements TransitStopHandler, Checkpointable {
 	
 	private final static Logger log = LogManager.getLogger(ComplexTransitStopHandler.class);
 
@@ -57,6 +61,20 @@ public class ComplexTransitStopHandler implements TransitStopHandler {
 		this.doorOperationMode = VehicleUtils.getDoorOperationMode(vehicle.getType());
 	}
 
+	@Override
+	public void writeCheckpoint(CheckpointWriter out) throws IOException {
+		out.writeBoolean(this.doorsOpen);
+		out.writeDouble(this.passengersLeavingTimeFraction);
+		out.writeDouble(this.passengersEnteringTimeFraction);
+	}
+
+	@Override
+	public void readCheckpoint(CheckpointReader in) throws IOException {
+		this.doorsOpen = in.readBoolean();
+		this.passengersLeavingTimeFraction = in.readDouble();
+		this.passengersEnteringTimeFraction = in.readDouble();
+	}
+
 	@Override
 	public double handleTransitStop(TransitStopFacility stop, double now, List<PTPassengerAgent> leavingPassengers,
 			List<PTPassengerAgent> enteringPassengers, PassengerAccessEgress handler, MobsimVehicle vehicle) {
@@ -19,6 +19,7 @@
  * *********************************************************************** */
 package org.matsim.core.mobsim.qsim.pt;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -35,6 +36,8 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimDriverAgent;
 import org.matsim.core.mobsim.framework.PassengerAgent;
+import org.matsim.core.mobsim.qsim.CheckpointReader;
+import org.matsim.core.mobsim.qsim.CheckpointWriter;
 import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.pt.transitSchedule.api.TransitLine;
@@ -186,8 +189,23 @@ class PassengerAccessEgressImpl implements PassengerAccessEgress {
 		return handled;
 	}
 
+	/**
+	 * Writes the agents which were denied boarding at the current stop, and which are reported when the vehicle departs.
+	 */
+	/*package*/ void writeCheckpoint(CheckpointWriter out) throws IOException {
+		out.writeInt(this.agentsDeniedToBoard == null ? 0 : this.agentsDeniedToBoard.size());
+		if (this.agentsDeniedToBoard != null) {
+			for (PTPassengerAgent agent : this.agentsDeniedToBoard) {
+				out.writeAgent((MobsimAgent) agent);
+			}
+		}
+	}
 
-
-
+	/*package*/ void readCheckpoint(CheckpointReader in) throws IOException {
+		int numberOfAgentsDeniedToBoard = in.readInt();
+		for (int i = 0; i < numberOfAgentsDeniedToBoard; i++) {
+			this.agentsDeniedToBoard.add((PTPassengerAgent) in.readAgent());
+		}
+	}
 
 }
@@ -19,6 +19,7 @@
 
 package org.matsim.core.mobsim.qsim.pt;
 
+import java.io.IOException;
 import java.util.Iterator;
 import java.util.ListIterator;
 
@@ -35,6 +36,9 @@ import org.matsim.api.core.v01.population.Route;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.qsim.CheckpointReader;
+import org.matsim.core.mobsim.qsim.CheckpointWriter;
+import org.matsim.core.mobsim.qsim.Checkpointable;
 import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.routes.NetworkRoute;
@@ -52,7 +56,7 @@ import org.matsim.vehicles.Vehicle;
 /**
  * @author michaz
  */
-public class TransitDriverAgentImpl extends AbstractTransitDriverAgent {
+public class TransitDriverAgentImpl extends AbstractTransitDriverAgent implements Checkpointable {
 
 	private final EventsManager eventsManager;
 
@@ -159,6 +163,38 @@ public class TransitDriverAgentImpl extends AbstractTransitDriverAgent {
 		}
 	}
 
+	/**
+	 * The driver of the restarted simulation is created from the same umlauf, and is moved forward to the plan element
+	 * of the checkpoint.
+	 */
+	@Override
+	public void writeCheckpoint(CheckpointWriter out) throws IOException {
+		out.writeInt(this.umlauf.getUmlaufStuecke().size());
+		out.writeInt(this.iPlanElement.nextIndex() - 1);
+		out.writeDouble(this.departureTime);
+		writeLegCheckpoint(out);
+	}
+
+	@Override
+	public void readCheckpoint(CheckpointReader in) throws IOException {
+		int numberOfUmlaufStuecke = in.readInt();
+		if (numberOfUmlaufStuecke != this.umlauf.getUmlaufStuecke().size()) {
+			throw new IllegalStateException("the umlauf of transit driver " + this.getId() + " has " + this.umlauf.getUmlaufStuecke().size()
+					+ " parts, but " + numberOfUmlaufStuecke + " in the checkpoint");
+		}
+		int planElementIndex = in.readInt();
+		while (this.iPlanElement.nextIndex() <= planElementIndex) {
+			this.currentPlanElement = this.iPlanElement.next();
+		}
+		// each part of the umlauf is a leg between two activities, and the next part is taken when the previous ends
+		int umlaufStueckeTaken = Math.min(planElementIndex / 2 + 1, numberOfUmlaufStuecke);
+		for (int i = 1; i < umlaufStueckeTaken; i++) {
+			setNextLeg();
+		}
+		this.departureTime = in.readDouble();
+		readLegCheckpoint(in);
+	}
+
 	private void setNextLeg() {
 		UmlaufStueckI umlaufStueck = this.iUmlaufStueck.next();
 		if (umlaufStueck.isFahrt()) {
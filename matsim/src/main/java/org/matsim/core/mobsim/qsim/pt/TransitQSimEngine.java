@@ -20,6 +20,7 @@
 
 package org.matsim.core.mobsim.qsim.pt;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -34,7 +35,11 @@ import org.matsim.api.core.v01.events.PersonStuckEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.core.mobsim.framework.AgentSource;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
 import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.qsim.CheckpointReader;
+import org.matsim.core.mobsim.qsim.CheckpointWriter;
+import org.matsim.core.mobsim.qsim.Checkpointable;
 import org.matsim.core.mobsim.qsim.HasAgentTracker;
 import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.QSim;
@@ -54,7 +59,7 @@ import jakarta.inject.Inject;
  * @author mrieser
  * @author mzilske
  */
-public class TransitQSimEngine implements DepartureHandler, MobsimEngine, AgentSource, HasAgentTracker {
+public class TransitQSimEngine implements DepartureHandler, MobsimEngine, AgentSource, HasAgentTracker, HasNextEventTime, Checkpointable {
 
 
 	private Collection<MobsimAgent> ptDrivers;
@@ -215,6 +220,45 @@ public class TransitQSimEngine implements DepartureHandler, MobsimEngine, AgentS
 		// Nothing to do here.
 	}
 
+	@Override
+	public double getNextEventTime() {
+		// the transit drivers are simulated by the other engines
+		return Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Writes the agents waiting at the stops and the state of the stop handlers of the transit vehicles.  The drivers
+	 * and the vehicles with their passengers are written with the other agents and by the netsim engine.
+	 */
+	@Override
+	public void writeCheckpoint(CheckpointWriter out) throws IOException {
+		this.agentTracker.writeCheckpoint(out);
+		out.writeInt(this.ptDrivers.size());
+		for (MobsimAgent driver : this.ptDrivers) {
+			TransitVehicle vehicle = ((AbstractTransitDriverAgent) driver).getVehicle();
+			if (!(vehicle.getStopHandler() instanceof Checkpointable)) {
+				throw new UnsupportedOperationException("cannot write a checkpoint since " + vehicle.getStopHandler().getClass().getName() + " does not support it.");
+			}
+			out.writeVehicle(vehicle);
+			((Checkpointable) vehicle.getStopHandler()).writeCheckpoint(out);
+		}
+	}
+
+	@Override
+	public void readCheckpoint(CheckpointReader in) throws IOException {
+		this.agentTracker.readCheckpoint(in);
+		for (List<PTPassengerAgent> agentsAtStop : this.agentTracker.getAgentsAtStop().values()) {
+			for (PTPassengerAgent agent : agentsAtStop) {
+				this.internalInterface.registerAdditionalAgentOnLink((MobsimAgent) agent);
+			}
+		}
+		int numberOfVehicles = in.readInt();
+		for (int i = 0; i < numberOfVehicles; i++) {
+			TransitVehicle vehicle = (TransitVehicle) in.readVehicle();
+			((Checkpointable) vehicle.getStopHandler()).readCheckpoint(in);
+		}
+	}
+
 	@Override
 	public void insertAgentsIntoMobsim() {
 		ptDrivers = createVehiclesAndDriversWithUmlaeufe();
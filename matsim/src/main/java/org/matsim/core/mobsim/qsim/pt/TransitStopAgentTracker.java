@@ -25,9 +25,13 @@ import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.qsim.AgentTracker;
+import org.matsim.core.mobsim.qsim.CheckpointReader;
+import org.matsim.core.mobsim.qsim.CheckpointWriter;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -90,4 +94,34 @@ public class TransitStopAgentTracker implements AgentTracker {
 	public Map<Id<TransitStopFacility>, List<PTPassengerAgent>> getAgentsAtStop() {
 		return this.agentsAtStops;
 	}
+
+	/**
+	 * Writes the agents waiting at the stops, in the order in which they board.
+	 */
+	/*package*/ void writeCheckpoint(CheckpointWriter out) throws IOException {
+		out.writeInt(this.agentsAtStops.size());
+		for (Map.Entry<Id<TransitStopFacility>, List<PTPassengerAgent>> entry : this.agentsAtStops.entrySet()) {
+			out.writeId(entry.getKey());
+			out.writeInt(entry.getValue().size());
+			for (PTPassengerAgent agent : entry.getValue()) {
+				out.writeAgent((MobsimAgent) agent);
+			}
+		}
+	}
+
+	/**
+	 * Puts the agents back to the stops at which they were waiting, without the events of their arrival.
+	 */
+	/*package*/ void readCheckpoint(CheckpointReader in) throws IOException {
+		this.agentsAtStops.clear();
+		int numberOfStops = in.readInt();
+		for (int i = 0; i < numberOfStops; i++) {
+			List<PTPassengerAgent> agents = new CopyOnWriteArrayList<>();
+			this.agentsAtStops.put(in.readId(TransitStopFacility.class), agents);
+			int numberOfAgents = in.readInt();
+			for (int j = 0; j < numberOfAgents; j++) {
+				agents.add((PTPassengerAgent) in.readAgent());
+			}
+		}
+	}
 }
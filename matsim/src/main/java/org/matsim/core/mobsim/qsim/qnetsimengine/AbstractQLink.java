@@ -19,6 +19,7 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -49,6 +50,8 @@ import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimAgent.State;
 import org.matsim.core.mobsim.framework.MobsimDriverAgent;
 import org.matsim.core.mobsim.framework.PassengerAgent;
+import org.matsim.core.mobsim.qsim.CheckpointReader;
+import org.matsim.core.mobsim.qsim.CheckpointWriter;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.pt.TransitDriverAgent;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngineI.NetsimInternalInterface;
@@ -310,6 +313,82 @@ abstract class AbstractQLink implements QLinkI {
 		this.waitingList.clear();
 	}
 
+	/**
+	 * Writes the vehicles that are parked or wait to depart on this link, the drivers waiting for them and the transit
+	 * vehicles at a stop beside the road, followed by the vehicles on the road, see
+	 * {@link #writeLanesCheckpoint(CheckpointWriter, long)}.
+	 */
+	/*package*/ final void writeCheckpoint(CheckpointWriter out, long randomSeed) throws IOException {
+		if (!driversWaitingForPassengers.isEmpty() || passengersWaitingForCars.values().stream().anyMatch(passengers -> !passengers.isEmpty())) {
+			throw new UnsupportedOperationException("cannot write a checkpoint with passengers waiting on link " + link.getId());
+		}
+		out.writeInt(parkedVehicles.size());
+		for (QVehicle veh : parkedVehicles.values()) {
+			out.writeVehicle(veh);
+		}
+		out.writeInt(waitingList.size());
+		for (QVehicle veh : waitingList) {
+			out.writeVehicle(veh);
+		}
+		out.writeInt(driversWaitingForCars.size());
+		for (Map.Entry<Id<Vehicle>, Queue<MobsimDriverAgent>> entry : driversWaitingForCars.entrySet()) {
+			out.writeId(entry.getKey());
+			out.writeInt(entry.getValue().size());
+			for (MobsimDriverAgent driver : entry.getValue()) {
+				out.writeAgent(driver);
+			}
+		}
+		// adding the vehicles again in the order of iteration results in the same heap
+		out.writeInt(transitQLink.getTransitVehicleStopQueue().size());
+		for (QVehicle veh : transitQLink.getTransitVehicleStopQueue()) {
+			out.writeVehicle(veh);
+		}
+		writeLanesCheckpoint(out, randomSeed);
+	}
+
+	/*package*/ final void readCheckpoint(CheckpointReader in, long randomSeed) throws IOException {
+		parkedVehicles.clear();
+		int numberOfParkedVehicles = in.readInt();
+		for (int i = 0; i < numberOfParkedVehicles; i++) {
+			QVehicle veh = (QVehicle) in.readVehicle();
+			parkedVehicles.put(veh.getId(), veh);
+		}
+		waitingList.clear();
+		int numberOfWaitingVehicles = in.readInt();
+		for (int i = 0; i < numberOfWaitingVehicles; i++) {
+			waitingList.add((QVehicle) in.readVehicle());
+		}
+		driversWaitingForCars.clear();
+		int numberOfWaitedForVehicles = in.readInt();
+		for (int i = 0; i < numberOfWaitedForVehicles; i++) {
+			Queue<MobsimDriverAgent> drivers = new LinkedList<>();
+			driversWaitingForCars.put(in.readId(Vehicle.class), drivers);
+			int numberOfDrivers = in.readInt();
+			for (int j = 0; j < numberOfDrivers; j++) {
+				drivers.add((MobsimDriverAgent) in.readAgent());
+			}
+		}
+		transitQLink.getTransitVehicleStopQueue().clear();
+		int numberOfVehiclesAtStop = in.readInt();
+		for (int i = 0; i < numberOfVehiclesAtStop; i++) {
+			transitQLink.getTransitVehicleStopQueue().add((QVehicle) in.readVehicle());
+		}
+		readLanesCheckpoint(in, randomSeed);
+	}
+
+	/**
+	 * Writes the vehicles on the lanes of this link.  Links that can be part of a checkpoint need to override this and
+	 * {@link #readLanesCheckpoint(CheckpointReader, long)}.  Lanes which draw random numbers continue with a generator
+	 * with the given seed.
+	 */
+	/*package*/ void writeLanesCheckpoint(CheckpointWriter out, long randomSeed) throws IOException {
+		throw new UnsupportedOperationException("cannot write a checkpoint since " + getClass().getName() + " does not support it.");
+	}
+
+	/*package*/ void readLanesCheckpoint(CheckpointReader in, long randomSeed) throws IOException {
+		throw new UnsupportedOperationException("cannot restart from a checkpoint since " + getClass().getName() + " does not support it.");
+	}
+
 	void makeVehicleAvailableToNextDriver(QVehicle veh) {
 
 		// this would (presumably) be the place where the "nature" of a vehicle could be changed (in the sense of PAVE), e.g. to
@@ -431,6 +510,10 @@ abstract class AbstractQLink implements QLinkI {
 		this.netElementActivationRegistry = qSimEngineRunner;
 	}
 
+	/*package*/ NetElementActivationRegistry getNetElementActivationRegistry() {
+		return this.netElementActivationRegistry;
+	}
+
 	@Override
 	public void registerDriverAgentWaitingForCar(final MobsimDriverAgent agent) {
 		final Id<Vehicle> vehicleId = agent.getPlannedVehicleId() ;
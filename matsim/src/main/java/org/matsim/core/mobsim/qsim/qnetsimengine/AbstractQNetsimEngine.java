@@ -20,6 +20,9 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -31,6 +34,7 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.QSimConfigGroup;
@@ -38,8 +42,13 @@ import org.matsim.core.config.groups.QSimConfigGroup.LinkDynamics;
 import org.matsim.core.config.groups.QSimConfigGroup.SnapshotStyle;
 import org.matsim.core.config.groups.QSimConfigGroup.VehicleBehavior;
 import org.matsim.core.gbl.Gbl;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimDriverAgent;
+import org.matsim.core.mobsim.framework.PassengerAgent;
+import org.matsim.core.mobsim.qsim.CheckpointReader;
+import org.matsim.core.mobsim.qsim.CheckpointWriter;
+import org.matsim.core.mobsim.qsim.Checkpointable;
 import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
@@ -57,7 +66,7 @@ import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
  * @author dgrether
  * @author dstrippgen
  */
-abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> implements QNetsimEngineI {
+abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> implements QNetsimEngineI, HasNextEventTime, Checkpointable {
 
 	private NetsimInternalInterface ii = new NetsimInternalInterface(){
 		@Override public QNetwork getNetsimNetwork() {
@@ -84,13 +93,18 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 //	private final Set<QLinkI> linksToActivateInitially = new HashSet<>();
 	protected final int numOfThreads;
 	protected final QNetwork qNetwork;
+	private final QNetworkPartitioning partitioning;
+	private final double loadBalancingInterval;
 
 	private double infoTime = 0;
 	private List<A> engines;
 	private InternalInterface internalInterface = null;
+	private double lastLoadBalancingTime;
+	private long[] busyTimesAtLastLoadBalancing;
 
-	AbstractQNetsimEngine(final QSim sim, QNetworkFactory netsimNetworkFactory) {
+	AbstractQNetsimEngine(final QSim sim, QNetworkFactory netsimNetworkFactory, QNetworkPartitioning partitioning) {
 		this.qsim = sim;
+		this.partitioning = partitioning;
 
 		final Config config = sim.getScenario().getConfig();
 		final QSimConfigGroup qSimConfigGroup = config.qsim();
@@ -129,6 +143,7 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		qNetwork.initialize(this, sim.getAgentCounter(), sim.getSimTimer() );
 
 		this.numOfThreads = sim.getScenario().getConfig().qsim().getNumberOfThreads();
+		this.loadBalancingInterval = qSimConfigGroup.getLoadBalancingInterval();
 	}
 
 	static AbstractAgentSnapshotInfoBuilder createAgentSnapshotInfoBuilder(Scenario scenario, SnapshotLinkWidthCalculator linkWidthCalculator) {
@@ -162,6 +177,8 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		 */
 
 		this.engines = initQSimEngineRunners();
+		this.lastLoadBalancingTime = internalInterface.getMobsim().getSimTimer().getSimStartTime();
+		this.busyTimesAtLastLoadBalancing = new long[this.engines.size()];
 		assignNetElementActivators();
 		initMultiThreading();
 	}
@@ -185,6 +202,17 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 
 		finishMultiThreading();
 
+		// adapt the partitioning for the next iteration, unless only a few seconds passed since the last time
+		double now = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
+		if (now - this.lastLoadBalancingTime >= this.loadBalancingInterval / 2) {
+			this.partitioning.rebalance(getBusyTimesSinceLastLoadBalancing());
+		}
+		if (this.engines.size() > 1) {
+			for (int i = 0; i < this.engines.size(); i++) {
+				log.info("QNetsimEngineRunner #" + i + " was busy for " + this.engines.get(i).getBusyTime() / 1_000_000 + " ms.");
+			}
+		}
+
 		/* Reset vehicles on ALL links. We cannot iterate only over the active links
 		 * (this.simLinksArray), because there may be links that have vehicles only
 		 * in the buffer (such links are *not* active, as the buffer gets emptied
@@ -221,12 +249,129 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 	 */
 	@Override
 	public final void doSimStep(final double time) {
+		if (this.loadBalancingInterval > 0 && time >= this.lastLoadBalancingTime + this.loadBalancingInterval) {
+			balanceLoad(time);
+		}
 		run(time);
 
 		this.printSimLog(time);
 	}
 
 
+	/**
+	 * Links and nodes without vehicles are not simulated, so nothing happens on the network until it is active again, i.e. until
+	 * a vehicle departs.
+	 */
+	@Override
+	public final double getNextEventTime() {
+		for (AbstractQNetsimEngineRunner engine : this.engines) {
+			if (engine.hasActiveNetElements()) {
+				return Double.NEGATIVE_INFINITY;
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Writes the state of all vehicles including their passengers, of all links and nodes, and which of them are active.
+	 * Agents waiting on a link to be picked up or for their passengers, signals and lanes are not supported.
+	 */
+	@Override
+	public final void writeCheckpoint(CheckpointWriter out) throws IOException {
+		out.writeInt(this.vehicles.size());
+		for (QVehicle veh : this.vehicles.values()) {
+			out.writeVehicle(veh);
+			out.writeDouble(veh.getLinkEnterTime());
+			out.writeDouble(veh.getEarliestLinkExitTime());
+			out.writeAgent(veh.getDriver());
+			out.writeId(veh.getCurrentLink() == null ? null : veh.getCurrentLink().getId());
+			out.writeInt(veh.getPassengers().size());
+			for (PassengerAgent passenger : veh.getPassengers()) {
+				out.writeAgent((MobsimAgent) passenger);
+			}
+		}
+
+		// the nodes and lanes continue with random number generators of their own, with different seeds
+		Collection<QLinkI> links = this.qNetwork.getNetsimLinks().values();
+		Collection<QNodeI> nodes = this.qNetwork.getNetsimNodes().values();
+		out.writeInt(links.size());
+		int linkIndex = 0;
+		for (QLinkI link : links) {
+			if (!(link instanceof AbstractQLink)) {
+				throw new UnsupportedOperationException("cannot write a checkpoint since " + link.getClass().getName() + " does not support it.");
+			}
+			out.writeId(link.getLink().getId());
+			((AbstractQLink) link).writeCheckpoint(out, out.getRandomSeed() + nodes.size() + linkIndex++);
+		}
+		out.writeInt(nodes.size());
+		int nodeIndex = 0;
+		for (QNodeI node : nodes) {
+			if (!(node instanceof QNodeImpl)) {
+				throw new UnsupportedOperationException("cannot write a checkpoint since " + node.getClass().getName() + " does not support it.");
+			}
+			out.writeId(node.getNode().getId());
+			((QNodeImpl) node).writeCheckpoint(out, nodeIndex++);
+		}
+
+		// in the order in which they are moved
+		List<QNodeI> activeNodes = new ArrayList<>();
+		List<QLinkI> activeLinks = new ArrayList<>();
+		for (AbstractQNetsimEngineRunner engine : this.engines) {
+			activeNodes.addAll(engine.getActiveNodes());
+			activeLinks.addAll(engine.getActiveLinks());
+		}
+		out.writeInt(activeNodes.size());
+		for (QNodeI node : activeNodes) {
+			out.writeId(node.getNode().getId());
+		}
+		out.writeInt(activeLinks.size());
+		for (QLinkI link : activeLinks) {
+			out.writeId(link.getLink().getId());
+		}
+	}
+
+	@Override
+	public final void readCheckpoint(CheckpointReader in) throws IOException {
+		int numberOfVehicles = in.readInt();
+		for (int i = 0; i < numberOfVehicles; i++) {
+			QVehicle veh = (QVehicle) in.readVehicle();
+			veh.setLinkEnterTime(in.readDouble());
+			veh.setEarliestLinkExitTime(in.readDouble());
+			veh.setDriver(null);
+			veh.setDriver((MobsimDriverAgent) in.readAgent());
+			Id<Link> linkId = in.readId(Link.class);
+			veh.setCurrentLink(linkId == null ? null : this.qNetwork.getNetwork().getLinks().get(linkId));
+			for (PassengerAgent passenger : new ArrayList<>(veh.getPassengers())) {
+				veh.removePassenger(passenger);
+			}
+			int numberOfPassengers = in.readInt();
+			for (int j = 0; j < numberOfPassengers; j++) {
+				veh.addPassenger((PassengerAgent) in.readAgent());
+			}
+		}
+
+		int numberOfLinks = in.readInt();
+		int numberOfNodes = this.qNetwork.getNetsimNodes().size();
+		for (int i = 0; i < numberOfLinks; i++) {
+			((AbstractQLink) this.qNetwork.getNetsimLink(in.readId(Link.class))).readCheckpoint(in, in.getRandomSeed() + numberOfNodes + i);
+		}
+		if (in.readInt() != numberOfNodes) {
+			throw new IllegalStateException("the network of the checkpoint has a different number of nodes");
+		}
+		for (int i = 0; i < numberOfNodes; i++) {
+			((QNodeImpl) this.qNetwork.getNetsimNode(in.readId(Node.class))).readCheckpoint(in, i);
+		}
+
+		int numberOfActiveNodes = in.readInt();
+		for (int i = 0; i < numberOfActiveNodes; i++) {
+			((AbstractQNode) this.qNetwork.getNetsimNode(in.readId(Node.class))).activateNode();
+		}
+		int numberOfActiveLinks = in.readInt();
+		for (int i = 0; i < numberOfActiveLinks; i++) {
+			((AbstractQLink) this.qNetwork.getNetsimLink(in.readId(Link.class))).getInternalInterface().activateLink();
+		}
+	}
+
 	@Override
 	public final void setInternalInterface( InternalInterface internalInterface) {
 		this.internalInterface = internalInterface;
@@ -377,56 +522,100 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		this.internalInterface.arrangeNextAgentState(driver);
 	}
 
-	 /*
+	/**
+	 * @return the time in nanoseconds every runner spent moving nodes and links so far.
+	 */
+	/*package*/ final long[] getBusyTimes() {
+		long[] busyTimes = new long[this.engines.size()];
+		for (int i = 0; i < busyTimes.length; i++) {
+			busyTimes[i] = this.engines.get(i).getBusyTime();
+		}
+		return busyTimes;
+	}
+
+	private long[] getBusyTimesSinceLastLoadBalancing() {
+		long[] busyTimes = getBusyTimes();
+		long[] busyTimesSinceLast = new long[busyTimes.length];
+		for (int i = 0; i < busyTimes.length; i++) {
+			busyTimesSinceLast[i] = busyTimes[i] - this.busyTimesAtLastLoadBalancing[i];
+		}
+		this.busyTimesAtLastLoadBalancing = busyTimes;
+		return busyTimesSinceLast;
+	}
+
+	private void balanceLoad(double time) {
+		this.lastLoadBalancingTime = time;
+		rebalance(getBusyTimesSinceLastLoadBalancing());
+	}
+
+	/*
+	 * Must only be called between two time steps, i.e. while no runner is active. If the partitioning
+	 * changes, the active nodes and links are handed over to the runners that now handle them.
+	 */
+	/*package*/ final void rebalance(long[] busyTimes) {
+		if (!this.partitioning.rebalance(busyTimes)) {
+			return;
+		}
+		List<QNodeI> activeNodes = new ArrayList<>();
+		List<QLinkI> activeLinks = new ArrayList<>();
+		for (AbstractQNetsimEngineRunner engine : this.engines) {
+			activeNodes.addAll(engine.removeActiveNodes());
+			activeLinks.addAll(engine.removeActiveLinks());
+		}
+		assignNetElementActivators();
+		for (QNodeI node : activeNodes) {
+			((AbstractQNode) node).getNetElementActivationRegistry().registerNodeAsActive(node);
+		}
+		for (QLinkI link : activeLinks) {
+			((AbstractQLink) link).getNetElementActivationRegistry().registerLinkAsActive(link);
+		}
+	}
+
+	/*
 	 * Within the MoveThreads Links are only activated when a Vehicle is moved
 	 * over a Node which is processed by that Thread. So we can assign each QLink
 	 * to the Thread that handles its InNode.
+	 *
+	 * The nodes are assigned by the QNetworkPartitioning, i.e. every thread handles
+	 * a region of the network whose size depends on the load measured before.
 	 */
 	private void assignNetElementActivators() {
+		this.partitioning.initialize(this.qNetwork.getNetwork(), this.engines.size());
 
 		// only for statistics
 		int nodes[] = new int[this.engines.size()];
 		int links[] = new int[this.engines.size()];
+		// so that snapshots can be generated in the same parts
+		List<List<QLinkI>> visLinkPartitions = new ArrayList<>();
 
-		int roundRobin = 0;
-		for (QNodeI node : qNetwork.getNetsimNodes().values()) {
-			int i = roundRobin % this.engines.size();
-			if( node instanceof AbstractQNode){
-				((AbstractQNode) node).setNetElementActivationRegistry(this.engines.get(i));
-			}
-			nodes[i]++;
-
-			// set activator for out links
-			for (Link outLink : node.getNode().getOutLinks().values()) {
-				AbstractQLink qLink = (AbstractQLink) qNetwork.getNetsimLink(outLink.getId() );
-				// (must be of this type to work.  kai, feb'12)
-
-				// removing qsim as "person in the middle".  not fully sure if this is the same in the parallel impl.  kai, oct'10
-				qLink.setNetElementActivationRegistry(this.engines.get(i));
-
-				/*
-				 * If the QLink contains agents that end their activity in the first time
-				 * step, the link should be activated.
-				 */
-				// this set is always empty...
-//				if (linksToActivateInitially.remove(qLink)
-//						|| qsim.getScenario().getConfig().qsim().getSimStarttimeInterpretation()==StarttimeInterpretation.onlyUseStarttime) {
-//					this.engines.get(i).registerLinkAsActive(qLink);
-//				}
-
-				links[i]++;
-
+		for (int i = 0; i < this.engines.size(); i++) {
+			List<QLinkI> partLinks = new ArrayList<>();
+			visLinkPartitions.add(partLinks);
+			for (Node node : this.partitioning.getNodes(i)) {
+				QNodeI qNode = this.qNetwork.getNetsimNodes().get(node.getId());
+				if (qNode instanceof AbstractQNode) {
+					((AbstractQNode) qNode).setNetElementActivationRegistry(this.engines.get(i));
+				}
+				nodes[i]++;
+
+				// set activator for out links
+				for (Link outLink : node.getOutLinks().values()) {
+					AbstractQLink qLink = (AbstractQLink) qNetwork.getNetsimLink(outLink.getId() );
+					// (must be of this type to work.  kai, feb'12)
+
+					// removing qsim as "person in the middle".  not fully sure if this is the same in the parallel impl.  kai, oct'10
+					qLink.setNetElementActivationRegistry(this.engines.get(i));
+					partLinks.add(qLink);
+					links[i]++;
+				}
 			}
-
-			roundRobin++;
 		}
+		this.qNetwork.setVisLinkPartitions(visLinkPartitions);
 
 		// print some statistics
 		for (int i = 0; i < this.engines.size(); i++) {
 			log.info("Assigned " + nodes[i] + " nodes and " + links[i] + " links to QSimEngineRunner #" + i);
 		}
-
-//		this.linksToActivateInitially.clear();
 	}
 
 	private final void arrangeNextAgentState(MobsimAgent pp) {
@@ -20,6 +20,7 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -70,6 +71,12 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 	private boolean lockNodes = false;
 	private boolean lockLinks = false;
 
+	/*
+	 * Total time spent moving nodes and links, measured always (unlike the runTimes below)
+	 * as it is needed to balance the load between the runners.
+	 */
+	private long busyTime = 0;
+
 	/*package*/ long[] runTimes;
 	private long startTime = 0;
 	{	
@@ -149,6 +156,48 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 		return this.nodesQueue.size();
 	}
 
+	/*package*/ final boolean hasActiveNetElements() {
+		return !this.linksList.isEmpty() || !this.nodesQueue.isEmpty();
+	}
+
+	protected final void addBusyTime(long nanos) {
+		this.busyTime += nanos;
+	}
+
+	/**
+	 * @return the time in nanoseconds this runner spent moving nodes and links so far.
+	 */
+	/*package*/ final long getBusyTime() {
+		return this.busyTime;
+	}
+
+	/*
+	 * Used to hand the active nodes and links over to other runners when the network is partitioned anew.
+	 * Must only be called between time steps.
+	 */
+	/*package*/ final List<QNodeI> removeActiveNodes() {
+		List<QNodeI> nodes = new ArrayList<>(this.nodesQueue);
+		this.nodesQueue.clear();
+		return nodes;
+	}
+
+	/*package*/ final List<QLinkI> removeActiveLinks() {
+		List<QLinkI> links = new ArrayList<>(this.linksList);
+		this.linksList.clear();
+		return links;
+	}
+
+	/*
+	 * Used to write checkpoints, in the order in which the nodes and links are moved.
+	 */
+	/*package*/ final List<QNodeI> getActiveNodes() {
+		return new ArrayList<>(this.nodesQueue);
+	}
+
+	/*package*/ final List<QLinkI> getActiveLinks() {
+		return new ArrayList<>(this.linksList);
+	}
+
 	protected final void startMeasure() {
 		if (QSim.analyzeRunTimes) this.startTime = System.nanoTime();		
 	}
@@ -73,6 +73,10 @@ abstract class AbstractQNode implements QNodeI {
 		
 		this.activator = activator;
 	}
+
+	/*package*/ NetElementActivationRegistry getNetElementActivationRegistry() {
+		return this.activator;
+	}
 	
 	/**
 	 * This method is called from QueueWithBuffer.addToBuffer(...) which is triggered at 
@@ -0,0 +1,122 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HoleRingBuffer.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+
+/**
+ * The holes travelling upstream on a {@link QueueWithBuffer}, i.e. a FIFO queue of earliest link exit times and sizes.
+ * Both are kept in parallel arrays that are used as a ring buffer, so adding and removing holes does not allocate any
+ * objects, except when the arrays need to grow. The arrays are only allocated once the first hole is added, so links
+ * without holes (i.e. with {@link org.matsim.core.config.groups.QSimConfigGroup.TrafficDynamics#queue}) do not need
+ * any memory for them.
+ */
+final class HoleRingBuffer {
+
+	private static final double[] EMPTY = new double[0];
+
+	private double[] earliestLinkExitTimes = EMPTY;
+	private double[] sizesInEquivalents = EMPTY;
+	private int head = 0;
+	private int size = 0;
+
+	void add(double earliestLinkExitTime, double sizeInEquivalents) {
+		if (this.size == this.earliestLinkExitTimes.length) {
+			grow();
+		}
+		int index = index(this.size);
+		this.earliestLinkExitTimes[index] = earliestLinkExitTime;
+		this.sizesInEquivalents[index] = sizeInEquivalents;
+		this.size++;
+	}
+
+	double peekEarliestLinkExitTime() {
+		checkNotEmpty();
+		return this.earliestLinkExitTimes[this.head];
+	}
+
+	/**
+	 * Removes the first hole.
+	 *
+	 * @return its size in equivalents.
+	 */
+	double pollSizeInEquivalents() {
+		checkNotEmpty();
+		double sizeInEquivalents = this.sizesInEquivalents[this.head];
+		this.head = (this.head + 1) % this.earliestLinkExitTimes.length;
+		this.size--;
+		return sizeInEquivalents;
+	}
+
+	int size() {
+		return this.size;
+	}
+
+	boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	void clear() {
+		this.head = 0;
+		this.size = 0;
+	}
+
+	/**
+	 * Creates {@link QueueWithBuffer.Hole} objects for all holes, e.g. for the snapshots. The result is a copy, i.e.
+	 * later changes of the holes are not reflected in it.
+	 */
+	Queue<QueueWithBuffer.Hole> toHoles() {
+		Queue<QueueWithBuffer.Hole> holes = new ArrayDeque<>(this.size);
+		for (int i = 0; i < this.size; i++) {
+			QueueWithBuffer.Hole hole = new QueueWithBuffer.Hole();
+			hole.setEarliestLinkExitTime(this.earliestLinkExitTimes[index(i)]);
+			hole.setSizeInEquivalents(this.sizesInEquivalents[index(i)]);
+			holes.add(hole);
+		}
+		return holes;
+	}
+
+	private int index(int position) {
+		int index = this.head + position;
+		return index < this.earliestLinkExitTimes.length ? index : index - this.earliestLinkExitTimes.length;
+	}
+
+	private void checkNotEmpty() {
+		if (this.size == 0) {
+			throw new NoSuchElementException("there are no holes");
+		}
+	}
+
+	private void grow() {
+		int capacity = Math.max(4, this.earliestLinkExitTimes.length * 2);
+		double[] newEarliestLinkExitTimes = new double[capacity];
+		double[] newSizesInEquivalents = new double[capacity];
+		for (int i = 0; i < this.size; i++) {
+			newEarliestLinkExitTimes[i] = this.earliestLinkExitTimes[index(i)];
+			newSizesInEquivalents[i] = this.sizesInEquivalents[index(i)];
+		}
+		this.earliestLinkExitTimes = newEarliestLinkExitTimes;
+		this.sizesInEquivalents = newSizesInEquivalents;
+		this.head = 0;
+	}
+}
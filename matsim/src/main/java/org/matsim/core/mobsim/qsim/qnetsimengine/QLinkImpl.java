@@ -20,6 +20,7 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -30,6 +31,8 @@ import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.mobsim.qsim.CheckpointReader;
+import org.matsim.core.mobsim.qsim.CheckpointWriter;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.SignalGroupState;
 import org.matsim.core.mobsim.qsim.interfaces.SignalizeableItem;
@@ -124,6 +127,22 @@ public final class QLinkImpl extends AbstractQLink implements SignalizeableItem
 		qlane.clearVehicles();
 	}
 
+	@Override
+	void writeLanesCheckpoint(CheckpointWriter out, long randomSeed) throws IOException {
+		if (!(qlane instanceof QueueWithBuffer)) {
+			throw new UnsupportedOperationException("cannot write a checkpoint since " + qlane.getClass().getName() + " does not support it.");
+		}
+		((QueueWithBuffer) qlane).writeCheckpoint(out, randomSeed);
+	}
+
+	@Override
+	void readLanesCheckpoint(CheckpointReader in, long randomSeed) throws IOException {
+		if (!(qlane instanceof QueueWithBuffer)) {
+			throw new UnsupportedOperationException("cannot restart from a checkpoint since " + qlane.getClass().getName() + " does not support it.");
+		}
+		((QueueWithBuffer) qlane).readCheckpoint(in, randomSeed);
+	}
+
 	@Override
 	public boolean doSimStep() {
 		double now = context.getSimTimer().getTimeOfDay() ;
@@ -52,8 +52,8 @@ final class QNetsimEngineWithThreadpool extends AbstractQNetsimEngine<QNetsimEng
 //		this(sim, null);
 //	}
 
-	@Inject QNetsimEngineWithThreadpool(final QSim sim, QNetworkFactory netsimNetworkFactory) {
-		super(sim, netsimNetworkFactory);
+	@Inject QNetsimEngineWithThreadpool(final QSim sim, QNetworkFactory netsimNetworkFactory, QNetworkPartitioning partitioning) {
+		super(sim, netsimNetworkFactory, partitioning);
 		this.numOfRunners = this.numOfThreads;
 	}
 
@@ -81,6 +81,7 @@ final class QNetsimEngineWithThreadpool extends AbstractQNetsimEngine<QNetsimEng
 		// myTime += 0.5 ;
 
 		// (b) Do deliberate domain decomposition rather than round robin (fewer runners to wait for at (*) and (**)).
+		// --> done by QNetworkPartitioning, also addressing (c) by resizing the domains according to the measured run times.
 
 		// (c) One thread that is much faster than all others is much more efficient than one thread that is much slower than all others.
 		// So make sure that no thread sticks out in terms of slowness.  Difficult to achieve, though.  A decade back, we used a "typical" run
@@ -20,7 +20,9 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import org.matsim.api.core.v01.Id;
@@ -53,6 +55,8 @@ public class QNetwork implements NetsimNetwork {
 
 	QNetsimEngineI simEngine; // only for tests...
 
+	private List<? extends Collection<? extends VisLink>> visLinkPartitions = null;
+
 	QNetwork(final Network network, final QNetworkFactory netsimNetworkFactory ) {
 		this.network = network;
 		this.queueNetworkFactory = netsimNetworkFactory;
@@ -90,6 +94,21 @@ public class QNetwork implements NetsimNetwork {
 		return Collections.unmodifiableMap(this.links);
 	}
 
+	/**
+	 * @return the links handled by each runner of the netsim engine, if it has set them
+	 */
+	@Override
+	public List<? extends Collection<? extends VisLink>> getVisLinkPartitions() {
+		if (this.visLinkPartitions == null) {
+			return NetsimNetwork.super.getVisLinkPartitions();
+		}
+		return this.visLinkPartitions;
+	}
+
+	/*package*/ void setVisLinkPartitions(List<? extends Collection<? extends VisLink>> visLinkPartitions) {
+		this.visLinkPartitions = visLinkPartitions;
+	}
+
 	@Override
 	public Map<Id<Node>, QNodeI> getNetsimNodes() {
 		return Collections.unmodifiableMap(this.nodes);
@@ -0,0 +1,208 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetworkPartitioning.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.inject.Inject;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Splits the network into one part per {@link AbstractQNetsimEngineRunner}. The nodes are ordered by a breadth-first
+ * search over the (undirected) network, starting at a peripheral node, so that neighbouring nodes are close to each
+ * other in this order. Every part is a range of this order, i.e. every runner handles a region of the network and most
+ * links connect two nodes of the same runner.
+ * <p>
+ * Every node has a weight, initially the number of its in- and out-links, and the ranges are chosen such that all
+ * parts have the same total weight. {@link #rebalance(long[])} adapts the weights to the measured busy times of the
+ * runners: the nodes of a runner that was busier than the others get heavier, the ones of a runner that was less busy
+ * get lighter, and the ranges are chosen again.
+ * <p>
+ * This is bound as a singleton by the {@link org.matsim.core.mobsim.qsim.QSimModule}, i.e. outside of the injector of
+ * the QSim, so it keeps the weights from one iteration to the next.
+ */
+public final class QNetworkPartitioning {
+
+	/** the share of the measured load in the new weights, the rest is the previous weight */
+	private static final double DAMPING = 0.5;
+	/** busy times of the busiest runner up to this factor above the average are accepted without rebalancing */
+	private static final double TOLERATED_IMBALANCE = 1.05;
+
+	private Network network = null;
+	private Node[] nodes = new Node[0];
+	private double[] weights = new double[0];
+	/** part <code>i</code> consists of the nodes from <code>bounds[i]</code> (inclusive) to <code>bounds[i+1]</code> (exclusive) */
+	private int[] bounds = new int[0];
+
+	@Inject
+	QNetworkPartitioning() {
+	}
+
+	/**
+	 * Splits the network into <code>numberOfParts</code> parts, unless this was already done for the same network and
+	 * number of parts before, in which case the (rebalanced) parts are kept.
+	 */
+	synchronized void initialize(Network network, int numberOfParts) {
+		if (this.network == network && this.nodes.length == network.getNodes().size() && this.bounds.length == numberOfParts + 1) {
+			return;
+		}
+		this.network = network;
+		this.nodes = orderByLocality(network);
+		this.weights = new double[this.nodes.length];
+		for (int i = 0; i < this.nodes.length; i++) {
+			this.weights[i] = 1 + this.nodes[i].getInLinks().size() + this.nodes[i].getOutLinks().size();
+		}
+		this.bounds = new int[numberOfParts + 1];
+		split();
+	}
+
+	synchronized int getNumberOfParts() {
+		return this.bounds.length - 1;
+	}
+
+	synchronized List<Node> getNodes(int part) {
+		return List.of(Arrays.copyOfRange(this.nodes, this.bounds[part], this.bounds[part + 1]));
+	}
+
+	/**
+	 * Adapts the parts to the busy times of the runners since the last call.
+	 *
+	 * @param busyTimes the busy time of the runner of every part, in any unit.
+	 * @return <code>true</code> if any node was moved to another part.
+	 */
+	synchronized boolean rebalance(long[] busyTimes) {
+		int numberOfParts = getNumberOfParts();
+		if (numberOfParts < 2 || busyTimes.length != numberOfParts) {
+			return false;
+		}
+		double totalBusyTime = 0;
+		double maxBusyTime = 0;
+		for (long busyTime : busyTimes) {
+			totalBusyTime += busyTime;
+			maxBusyTime = Math.max(maxBusyTime, busyTime);
+		}
+		if (totalBusyTime <= 0 || maxBusyTime <= TOLERATED_IMBALANCE * totalBusyTime / numberOfParts) {
+			return false;
+		}
+
+		double totalWeight = 0;
+		for (double weight : this.weights) {
+			totalWeight += weight;
+		}
+		for (int part = 0; part < numberOfParts; part++) {
+			double partWeight = 0;
+			for (int i = this.bounds[part]; i < this.bounds[part + 1]; i++) {
+				partWeight += this.weights[i];
+			}
+			if (partWeight == 0) {
+				continue;
+			}
+			// assume that the busy time of a runner is distributed over its nodes according to their current weights
+			double relativeLoad = (busyTimes[part] / partWeight) / (totalBusyTime / totalWeight);
+			double factor = (1 - DAMPING) + DAMPING * relativeLoad;
+			for (int i = this.bounds[part]; i < this.bounds[part + 1]; i++) {
+				this.weights[i] *= factor;
+			}
+		}
+
+		int[] oldBounds = this.bounds.clone();
+		split();
+		return !Arrays.equals(oldBounds, this.bounds);
+	}
+
+	/**
+	 * Chooses the bounds such that all parts have about the same weight, and every part has at least one node if
+	 * there are enough nodes.
+	 */
+	private void split() {
+		int numberOfParts = this.bounds.length - 1;
+		double totalWeight = 0;
+		for (double weight : this.weights) {
+			totalWeight += weight;
+		}
+		this.bounds[0] = 0;
+		double cumulatedWeight = 0;
+		int i = 0;
+		for (int part = 1; part < numberOfParts; part++) {
+			double targetWeight = totalWeight * part / numberOfParts;
+			int maxIndex = this.nodes.length - (numberOfParts - part);
+			while (i < maxIndex && (i <= this.bounds[part - 1] || cumulatedWeight + this.weights[i] / 2 < targetWeight)) {
+				cumulatedWeight += this.weights[i];
+				i++;
+			}
+			this.bounds[part] = i;
+		}
+		this.bounds[numberOfParts] = this.nodes.length;
+	}
+
+	/**
+	 * Orders the nodes by a breadth-first search per connected component, in the spirit of the Cuthill-McKee ordering.
+	 * The search starts at a pseudo-peripheral node, i.e. at the node found last by a breadth-first search from an
+	 * arbitrary node, so the ranges of the order are "slices" through the network instead of rings around its center.
+	 */
+	static Node[] orderByLocality(Network network) {
+		List<Node> order = new ArrayList<>(network.getNodes().size());
+		Map<Node, Boolean> ordered = new IdentityHashMap<>();
+		for (Node start : network.getNodes().values()) {
+			if (ordered.containsKey(start)) {
+				continue;
+			}
+			List<Node> component = breadthFirstSearch(start);
+			List<Node> slices = breadthFirstSearch(component.get(component.size() - 1));
+			for (Node node : slices) {
+				ordered.put(node, Boolean.TRUE);
+				order.add(node);
+			}
+		}
+		return order.toArray(new Node[0]);
+	}
+
+	private static List<Node> breadthFirstSearch(Node start) {
+		List<Node> visited = new ArrayList<>();
+		Map<Node, Boolean> seen = new IdentityHashMap<>();
+		ArrayDeque<Node> pending = new ArrayDeque<>();
+		seen.put(start, Boolean.TRUE);
+		pending.add(start);
+		while (!pending.isEmpty()) {
+			Node node = pending.poll();
+			visited.add(node);
+			for (Link link : node.getOutLinks().values()) {
+				if (seen.put(link.getToNode(), Boolean.TRUE) == null) {
+					pending.add(link.getToNode());
+				}
+			}
+			for (Link link : node.getInLinks().values()) {
+				if (seen.put(link.getFromNode(), Boolean.TRUE) == null) {
+					pending.add(link.getFromNode());
+				}
+			}
+		}
+		return visited;
+	}
+}
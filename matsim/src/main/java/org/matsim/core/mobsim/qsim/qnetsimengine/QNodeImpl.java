@@ -33,10 +33,13 @@ import org.matsim.core.gbl.Gbl;
 import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.PassengerAgent;
+import org.matsim.core.mobsim.qsim.CheckpointReader;
+import org.matsim.core.mobsim.qsim.CheckpointWriter;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimLink;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngineI.NetsimInternalInterface;
 import org.matsim.core.mobsim.qsim.qnetsimengine.TurnAcceptanceLogic.AcceptTurn;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Random;
@@ -68,7 +71,7 @@ final class QNodeImpl extends AbstractQNode {
 	private final QLinkI[] tempLinks;
 	private Double[] inLinkPriorities;
 	
-	private final Random random;
+	private Random random;
 	private final NetsimEngineContext context;
 	private final NetsimInternalInterface netsimEngine;
 	
@@ -146,6 +149,37 @@ final class QNodeImpl extends AbstractQNode {
 		});
 	}
 
+	/**
+	 * Writes the priorities of the in-links.  Afterwards, this node draws from a random number generator of its own,
+	 * with a seed derived from the checkpoint and the index of this node, as the generator cannot be written.
+	 */
+	void writeCheckpoint(CheckpointWriter out, int nodeIndex) throws IOException {
+		out.writeBoolean(this.inLinkPriorities != null);
+		if (this.inLinkPriorities != null) {
+			for (Double priority : this.inLinkPriorities) {
+				out.writeDouble(priority);
+			}
+		}
+		resetLocalRandom(out.getRandomSeed() + nodeIndex);
+	}
+
+	void readCheckpoint(CheckpointReader in, int nodeIndex) throws IOException {
+		if (in.readBoolean()) {
+			this.inLinkPriorities = new Double[this.inLinksArrayCache.length];
+			for (int i = 0; i < this.inLinkPriorities.length; i++) {
+				this.inLinkPriorities[i] = in.readDouble();
+			}
+		} else {
+			this.inLinkPriorities = null;
+		}
+		resetLocalRandom(in.getRandomSeed() + nodeIndex);
+	}
+
+	private void resetLocalRandom(long seed) {
+		// also if it used the global one before, which is not reset
+		this.random = new Random(seed);
+	}
+
 	/**
 	 * Moves vehicles from the inlinks' buffer to the outlinks where possible.<br>
 	 * The inLinks are randomly chosen, and for each link all vehicles in the
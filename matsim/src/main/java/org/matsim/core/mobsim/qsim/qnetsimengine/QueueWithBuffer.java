@@ -19,14 +19,13 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.Queue;
+import java.util.Random;
 
-import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.Coord;
@@ -42,6 +41,8 @@ import org.matsim.core.config.groups.QSimConfigGroup.TrafficDynamics;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.mobsim.framework.MobsimDriverAgent;
+import org.matsim.core.mobsim.qsim.CheckpointReader;
+import org.matsim.core.mobsim.qsim.CheckpointWriter;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.SignalGroupState;
 import org.matsim.core.mobsim.qsim.interfaces.SignalizeableItem;
@@ -133,7 +134,7 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 	private double flowCapacityPerTimeStep;
 	private double remainingHolesStorageCapacity = 0.0 ;
 
-	private final Queue<QueueWithBuffer.Hole> holes = new LinkedList<>();
+	private final HoleRingBuffer holes = new HoleRingBuffer();
 
 	/** the last time-step the front-most vehicle in the buffer was moved. Used for detecting dead-locks. */
 	private double bufferLastMovedTime = Double.NEGATIVE_INFINITY ;
@@ -151,8 +152,9 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 	 * We store the capacity consumption as it is needed twice: <br>
 	 * (1) entry to the buffer (this is where it is computed and then stored) <br>
 	 * (2) update of the remaining flow capacity (where we account for all vehicles that are still in the buffer since previous time steps) - see {@link #subtractConsumptionOfVehiclesThatAreAlreadyInTheBuffer()} <br>
+	 * Both are kept in arrays instead of (vehicle, consumption) pairs, as this is done for every vehicle on every link.
 	 */
-	private final Queue<Pair<QVehicle,Double>> buffer = new LinkedList<>() ;
+	private final VehicleRingBuffer buffer = new VehicleRingBuffer() ;
 	/**
 	 * null if the link is not signalized
 	 */
@@ -174,12 +176,14 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 	/**
 	 * Points to the latest vehicle that entered the buffer and the entry time.
 	 */
-	private Pair<QVehicle,Double> lastBufferEntry = null;
+	private QVehicle lastBufferEntryVehicle = null;
+	private double lastBufferEntryTime = Double.NaN;
 
 	/**
 	 * Points to the latest vehicle that entered the queue and the entry time.
 	 */
-	private Pair<QVehicle,Double> lastQueueEntry = null;
+	private QVehicle lastQueueEntryVehicle = null;
+	private double lastQueueEntryTime = Double.NaN;
 
 
 	private final VisData visData = new VisDataImpl() ;
@@ -189,6 +193,9 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 	private double effectiveNumberOfLanesUsedInQsim = Double.POSITIVE_INFINITY ;
 
 	private double accumulatedInflowCap = 1. ;
+
+	// the global generator until a checkpoint, one of this lane's own afterwards, see writeCheckpoint
+	private Random random = MatsimRandom.getRandom();
 	
 	private final FlowEfficiencyCalculator flowEfficiencyCalculator;
 
@@ -226,12 +233,13 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 
 		double now = context.getSimTimer().getTimeOfDay() ;
 
-		double flowConsumption = (lastBufferEntry == null) ?
-				getFlowCapacityConsumptionInEquivalents(veh, null, null) : getFlowCapacityConsumptionInEquivalents(veh, lastBufferEntry.getKey(), now - lastBufferEntry.getValue());
+		double flowConsumption = (lastBufferEntryVehicle == null) ?
+				getFlowCapacityConsumptionInEquivalents(veh, null, null) : getFlowCapacityConsumptionInEquivalents(veh, lastBufferEntryVehicle, now - lastBufferEntryTime);
         this.flowcap_accumulate.addValue(-flowConsumption, now);
 
-		buffer.add(new ImmutablePair<>(veh,flowConsumption));
-		lastBufferEntry = new ImmutablePair<>(veh,now);
+		buffer.add(veh, flowConsumption);
+		lastBufferEntryVehicle = veh;
+		lastBufferEntryTime = now;
 
 		if (buffer.size() == 1) {
 			bufferLastMovedTime = now;
@@ -355,9 +363,9 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 
 	private double subtractConsumptionOfVehiclesThatAreAlreadyInTheBuffer() {
 		double remainingFlowCapThisTimeStep = flowCapacityPerTimeStep;
-		for (Pair<QVehicle,Double> vehEfficiencyPair : buffer) {
+		for (int i = 0; i < buffer.size(); i++) {
 			// Subtract size of vehicles that are already in the buffer (from previous time steps)
-			remainingFlowCapThisTimeStep -= vehEfficiencyPair.getValue();
+			remainingFlowCapThisTimeStep -= buffer.getFlowConsumption(i);
 		}
 		return remainingFlowCapThisTimeStep;
 	}
@@ -577,9 +585,8 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 
 	private void processArrivalOfHoles() {
 		double now = context.getSimTimer().getTimeOfDay() ;
-		while ( this.holes.size()>0 && this.holes.peek().getEarliestLinkExitTime() < now ) {
-			Hole hole = this.holes.poll(); // ???
-            this.remainingHolesStorageCapacity += hole.getSizeInEquivalents();
+		while ( this.holes.size()>0 && this.holes.peekEarliestLinkExitTime() < now ) {
+            this.remainingHolesStorageCapacity += this.holes.pollSizeInEquivalents();
         }
     }
 
@@ -630,15 +637,16 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
                 break;
             case kinematicWaves:
                 this.remainingHolesStorageCapacity -= veh.getSizeInEquivalents();
-				double flowConsumption = (lastQueueEntry == null) ?
-						getFlowCapacityConsumptionInEquivalents(veh, null, null) : getFlowCapacityConsumptionInEquivalents(veh, lastQueueEntry.getKey(), now - lastQueueEntry.getValue());
+				double flowConsumption = (lastQueueEntryVehicle == null) ?
+						getFlowCapacityConsumptionInEquivalents(veh, null, null) : getFlowCapacityConsumptionInEquivalents(veh, lastQueueEntryVehicle, now - lastQueueEntryTime);
                 this.accumulatedInflowCap -= flowConsumption;
                 break;
             default:
                 throw new RuntimeException("The traffic dynamics " + context.qsimConfig.getTrafficDynamics() + " is not implemented yet.");
 		}
 
-		lastQueueEntry = new ImmutablePair<>(veh, now);
+		lastQueueEntryVehicle = veh;
+		lastQueueEntryTime = now;
 	}
 
 	private void removeVehicleFromQueue(final QVehicle veh2Remove) {
@@ -663,7 +671,6 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 				break;
 			case withHoles:
 			case kinematicWaves:
-				QueueWithBuffer.Hole hole = new QueueWithBuffer.Hole() ;
 				double ttimeOfHoles = length*3600./HOLE_SPEED_KM_H/1000. ;
 
 				//			double offset = this.storageCapacity/this.flowCapacityPerTimeStep ;
@@ -680,9 +687,7 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 				//			double nLanes = 2. * flowCapacityPerTimeStep ; // pseudo-lanes
 				//			double ttimeOfHoles = 0.1 * this.storageCapacity/this.flowCapacityPerTimeStep/nLanes ;
 
-				hole.setEarliestLinkExitTime( now + 1.0*ttimeOfHoles + 0.0*MatsimRandom.getRandom().nextDouble()*ttimeOfHoles ) ;
-				hole.setSizeInEquivalents(veh2Remove.getSizeInEquivalents());
-				holes.add( hole ) ;
+				holes.add( now + 1.0*ttimeOfHoles + 0.0*this.random.nextDouble()*ttimeOfHoles, veh2Remove.getSizeInEquivalents() ) ;
 				break;
 			default: throw new RuntimeException("The traffic dynmics "+context.qsimConfig.getTrafficDynamics()+" is not implemented yet.");
 		}
@@ -769,9 +774,9 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 			if (veh.getId().equals(vehicleId))
 				return veh;
 		}
-		for (Pair<QVehicle,Double> vehEfficiencyPair : this.buffer) {
-			if (vehEfficiencyPair.getKey().getId().equals(vehicleId))
-				return vehEfficiencyPair.getKey();
+		for (int i = 0; i < this.buffer.size(); i++) {
+			if (this.buffer.getVehicle(i).getId().equals(vehicleId))
+				return this.buffer.getVehicle(i);
 		}
 		return null;
 	}
@@ -782,8 +787,8 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 		 * It will be more complicated for passingQueue. amit feb'16
 		 */
 		Collection<MobsimVehicle> vehicles = new ArrayList<>();
-		for (Pair<QVehicle, Double> pair : buffer) {
-			vehicles.add(pair.getKey());
+		for (int i = 0; i < buffer.size(); i++) {
+			vehicles.add(buffer.getVehicle(i));
 		}
 		vehicles.addAll(vehQueue);
 		return vehicles ;
@@ -803,7 +808,7 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 
 	private final QVehicle removeFirstVehicle(){
 		double now = context.getSimTimer().getTimeOfDay() ;
-		QVehicle veh = buffer.poll().getKey();
+		QVehicle veh = buffer.poll();
 		bufferLastMovedTime = now; // just in case there is another vehicle in the buffer that is now the new front-most
 		if( context.qsimConfig.isUsingFastCapacityUpdate() ) {
 			flowcap_accumulate.setTimeStep(now - context.qsimConfig.getTimeStepSize());
@@ -864,8 +869,8 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 		}
 		vehQueue.clear();
 
-		for (Pair<QVehicle,Double> bufferEntry : buffer) {
-			QVehicle veh = bufferEntry.getKey();
+		for (int i = 0; i < buffer.size(); i++) {
+			QVehicle veh = buffer.getVehicle(i);
 			context.getEventsManager().processEvent( new VehicleAbortsEvent(now, veh.getId(), veh.getCurrentLink().getId()));
 			context.getEventsManager().processEvent( new PersonStuckEvent(now, veh.getDriver().getId(), veh.getCurrentLink().getId(), veh.getDriver().getMode()));
 
@@ -878,6 +883,95 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 		this.remainingHolesStorageCapacity = this.storageCapacity;
     }
 
+	/**
+	 * Writes the vehicles, holes and capacities of this lane, see {@link AbstractQNetsimEngine#writeCheckpoint(CheckpointWriter)}.
+	 * The capacities are written as they are, since they may have been changed by network change events.  Afterwards,
+	 * this lane draws from a random number generator of its own with the given seed, like the nodes.
+	 */
+	void writeCheckpoint(CheckpointWriter out, long randomSeed) throws IOException {
+		if (qSignalizedItem != null) {
+			throw new UnsupportedOperationException("cannot write a checkpoint of the signalized lane " + id + " on link " + qLink.getId());
+		}
+		out.writeDouble(flowcap_accumulate.getTimeStep());
+		out.writeDouble(flowcap_accumulate.getValue());
+		out.writeBoolean(thisTimeStepGreen);
+		out.writeDouble(unscaledFlowCapacity_s);
+		out.writeDouble(effectiveNumberOfLanes);
+		out.writeDouble(flowCapacityPerTimeStep);
+		out.writeDouble(inverseFlowCapacityPerTimeStep);
+		out.writeDouble(storageCapacity);
+		out.writeDouble(maxInflowUsedInQsim);
+		out.writeDouble(effectiveNumberOfLanesUsedInQsim);
+		out.writeDouble(usedStorageCapacity);
+		out.writeDouble(remainingHolesStorageCapacity);
+		out.writeDouble(bufferLastMovedTime);
+		out.writeDouble(accumulatedInflowCap);
+		out.writeInt(noOfSeepModeBringFwd);
+		out.writeVehicle(lastBufferEntryVehicle);
+		out.writeDouble(lastBufferEntryTime);
+		out.writeVehicle(lastQueueEntryVehicle);
+		out.writeDouble(lastQueueEntryTime);
+
+		// adding the vehicles again in the order of iteration results in the same order, also for a PassingVehicleQ
+		out.writeInt(vehQueue.size());
+		for (QVehicle veh : vehQueue) {
+			out.writeVehicle(veh);
+		}
+		out.writeInt(buffer.size());
+		for (int i = 0; i < buffer.size(); i++) {
+			out.writeVehicle(buffer.getVehicle(i));
+			out.writeDouble(buffer.getFlowConsumption(i));
+		}
+		Queue<Hole> holesToWrite = holes.toHoles();
+		out.writeInt(holesToWrite.size());
+		for (Hole hole : holesToWrite) {
+			out.writeDouble(hole.getEarliestLinkExitTime());
+			out.writeDouble(hole.getSizeInEquivalents());
+		}
+		this.random = new Random(randomSeed);
+	}
+
+	void readCheckpoint(CheckpointReader in, long randomSeed) throws IOException {
+		flowcap_accumulate.setTimeStep(in.readDouble());
+		flowcap_accumulate.setValue(in.readDouble());
+		thisTimeStepGreen = in.readBoolean();
+		unscaledFlowCapacity_s = in.readDouble();
+		effectiveNumberOfLanes = in.readDouble();
+		flowCapacityPerTimeStep = in.readDouble();
+		inverseFlowCapacityPerTimeStep = in.readDouble();
+		storageCapacity = in.readDouble();
+		maxInflowUsedInQsim = in.readDouble();
+		effectiveNumberOfLanesUsedInQsim = in.readDouble();
+		usedStorageCapacity = in.readDouble();
+		remainingHolesStorageCapacity = in.readDouble();
+		bufferLastMovedTime = in.readDouble();
+		accumulatedInflowCap = in.readDouble();
+		noOfSeepModeBringFwd = in.readInt();
+		lastBufferEntryVehicle = (QVehicle) in.readVehicle();
+		lastBufferEntryTime = in.readDouble();
+		lastQueueEntryVehicle = (QVehicle) in.readVehicle();
+		lastQueueEntryTime = in.readDouble();
+
+		vehQueue.clear();
+		int numberOfVehicles = in.readInt();
+		for (int i = 0; i < numberOfVehicles; i++) {
+			vehQueue.add((QVehicle) in.readVehicle());
+		}
+		buffer.clear();
+		int numberOfBufferedVehicles = in.readInt();
+		for (int i = 0; i < numberOfBufferedVehicles; i++) {
+			QVehicle veh = (QVehicle) in.readVehicle();
+			buffer.add(veh, in.readDouble());
+		}
+		holes.clear();
+		int numberOfHoles = in.readInt();
+		for (int i = 0; i < numberOfHoles; i++) {
+			double earliestLinkExitTime = in.readDouble();
+			holes.add(earliestLinkExitTime, in.readDouble());
+		}
+		this.random = new Random(randomSeed);
+	}
+
     private double getFlowCapacityConsumptionInEquivalents(QVehicle vehicle, QVehicle prevVehicle, Double timeDiff) {
         double flowEfficiency = flowEfficiencyCalculator.calculateFlowEfficiency(vehicle, prevVehicle, timeDiff, qLink.getLink(), id);
         return vehicle.getSizeInEquivalents() / flowEfficiency;
@@ -901,7 +995,7 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 		if (this.buffer.isEmpty()) {
 			return this.vehQueue.peek();
 		}
-		return this.buffer.peek().getKey() ;
+		return this.buffer.peek() ;
 	}
 
 	@Override
@@ -1007,7 +1101,7 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 						qLink.getFreespeed(now),
 //						NetworkUtils.getNumberOfLanesAsInt(now, qLink.getLink()),
 						qLink.getNumberOfLanesAsInt(now) ,
-						holes
+						holes.toHoles()
 						);
 
 			}
@@ -0,0 +1,132 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * VehicleRingBuffer.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * The buffer of a {@link QueueWithBuffer}: a FIFO queue of vehicles together with the flow capacity each of them
+ * consumed when entering the buffer. Vehicles and flow capacities are kept in two parallel arrays that are used as a
+ * ring buffer, so adding and removing vehicles does not allocate any objects, except when the arrays need to grow.
+ * <p>
+ * The entries are accessed by their position in the queue, <code>0</code> being the first vehicle, e.g.
+ * <pre>
+ * for (int i = 0; i &lt; buffer.size(); i++) {
+ *    QVehicle vehicle = buffer.getVehicle(i);
+ *    ...
+ * }
+ * </pre>
+ */
+final class VehicleRingBuffer {
+
+	private QVehicle[] vehicles;
+	private double[] flowConsumptions;
+	private int head = 0;
+	private int size = 0;
+
+	VehicleRingBuffer() {
+		// buffers rarely hold more than a few vehicles
+		this.vehicles = new QVehicle[2];
+		this.flowConsumptions = new double[2];
+	}
+
+	void add(QVehicle vehicle, double flowConsumption) {
+		if (this.size == this.vehicles.length) {
+			grow();
+		}
+		int index = index(this.size);
+		this.vehicles[index] = vehicle;
+		this.flowConsumptions[index] = flowConsumption;
+		this.size++;
+	}
+
+	/**
+	 * @return the first vehicle, or <code>null</code> if the buffer is empty.
+	 */
+	QVehicle peek() {
+		return this.size == 0 ? null : this.vehicles[this.head];
+	}
+
+	/**
+	 * Removes the first vehicle.
+	 *
+	 * @return the first vehicle, or <code>null</code> if the buffer is empty.
+	 */
+	QVehicle poll() {
+		if (this.size == 0) {
+			return null;
+		}
+		QVehicle vehicle = this.vehicles[this.head];
+		this.vehicles[this.head] = null;
+		this.head = (this.head + 1) % this.vehicles.length;
+		this.size--;
+		return vehicle;
+	}
+
+	QVehicle getVehicle(int position) {
+		checkPosition(position);
+		return this.vehicles[index(position)];
+	}
+
+	double getFlowConsumption(int position) {
+		checkPosition(position);
+		return this.flowConsumptions[index(position)];
+	}
+
+	int size() {
+		return this.size;
+	}
+
+	boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	void clear() {
+		Arrays.fill(this.vehicles, null);
+		this.head = 0;
+		this.size = 0;
+	}
+
+	private int index(int position) {
+		int index = this.head + position;
+		return index < this.vehicles.length ? index : index - this.vehicles.length;
+	}
+
+	private void checkPosition(int position) {
+		if (position < 0 || position >= this.size) {
+			throw new NoSuchElementException("position " + position + " in a buffer with " + this.size + " vehicles");
+		}
+	}
+
+	private void grow() {
+		int capacity = this.vehicles.length * 2;
+		QVehicle[] newVehicles = new QVehicle[capacity];
+		double[] newFlowConsumptions = new double[capacity];
+		for (int i = 0; i < this.size; i++) {
+			newVehicles[i] = this.vehicles[index(i)];
+			newFlowConsumptions[i] = this.flowConsumptions[index(i)];
+		}
+		this.vehicles = newVehicles;
+		this.flowConsumptions = newFlowConsumptions;
+		this.head = 0;
+	}
+}
@@ -0,0 +1,91 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.network.algorithms;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Splits the network into parts using recursive coordinate bisection over the nodes, e.g. to simulate each part on its
+ * own thread. Each link belongs to the part of its from-node, so all links leaving an intersection are in the same part
+ * and vehicles only move to another part when they cross a partition boundary.
+ * <p>
+ * The partition only depends on the network, so it is the same for every run and every iteration.
+ */
+public final class NetworkPartitioner {
+
+	private NetworkPartitioner() {
+	}
+
+	/**
+	 * @return the part of each link, indexed by {@link Id#index()} of the link id.
+	 */
+	public static int[] partition(Network network, int numberOfParts) {
+		int[] partOfLink = new int[Id.getNumberOfIds(Link.class)];
+		if (numberOfParts <= 1) {
+			return partOfLink;
+		}
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		// make the partition independent of the iteration order of the network
+		nodes.sort(Comparator.comparingInt(n -> n.getId().index()));
+		int[] partOfNode = new int[Id.getNumberOfIds(Node.class)];
+		bisect(nodes, 0, numberOfParts, partOfNode);
+
+		for (Link link : network.getLinks().values()) {
+			partOfLink[link.getId().index()] = partOfNode[link.getFromNode().getId().index()];
+		}
+		return partOfLink;
+	}
+
+	private static void bisect(List<Node> nodes, int firstPart, int parts, int[] partOfNode) {
+		if (parts == 1 || nodes.size() <= 1) {
+			for (Node node : nodes) {
+				partOfNode[node.getId().index()] = firstPart;
+			}
+			return;
+		}
+
+		double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (Node node : nodes) {
+			minX = Math.min(minX, node.getCoord().getX());
+			maxX = Math.max(maxX, node.getCoord().getX());
+			minY = Math.min(minY, node.getCoord().getY());
+			maxY = Math.max(maxY, node.getCoord().getY());
+		}
+
+		// cut along the longer side of the bounding box, ties are broken by the node index to stay deterministic
+		Comparator<Node> byCoord = (maxX - minX) >= (maxY - minY) ?
+				Comparator.comparingDouble(n -> n.getCoord().getX()) :
+				Comparator.comparingDouble(n -> n.getCoord().getY());
+		nodes.sort(byCoord.thenComparingInt(n -> n.getId().index()));
+
+		int leftParts = parts / 2;
+		int split = (int) ((long) nodes.size() * leftParts / parts);
+		bisect(nodes.subList(0, split), firstPart, leftParts, partOfNode);
+		bisect(nodes.subList(split, nodes.size()), firstPart + leftParts, parts - leftParts, partOfNode);
+	}
+}
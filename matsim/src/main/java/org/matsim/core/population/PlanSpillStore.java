@@ -0,0 +1,405 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PlanSpillStore.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Keeps the non-selected plans of a population outside the Java heap.
+ * <p>
+ * {@link #spill(Population)} replaces every non-selected plan by a {@link SpilledPlan}, which only keeps the score, the
+ * type, the person, id, iteration created and mutator, and the custom attributes of the plan on the heap, while its
+ * activities, legs, routes and attributes are serialized into direct byte buffers.  Plan selectors only look at the
+ * scores, so most spilled plans stay spilled.  As soon as
+ * anything else of a spilled plan is used, e.g. by a replanning module or when the plans are written, it is read back
+ * and stays on the heap until the next call to {@link #spill(Population)}, which only writes it again if it has changed.
+ * <p>
+ * Plans which cannot be written without losing information, e.g. because they are not of the default implementation
+ * or have attributes without {@link AttributeConverter}, stay on the heap.  Ids are written as their index, so the
+ * serialized plans are only valid within the same JVM.  The size of the direct buffers is limited by
+ * <code>-XX:MaxDirectMemorySize</code>.
+ */
+public final class PlanSpillStore {
+	private static final Logger log = LogManager.getLogger(PlanSpillStore.class);
+
+	private static final int CHUNK_SIZE = 64 * 1024 * 1024;
+
+	private static final byte ACTIVITY = 0;
+	private static final byte INTERACTION_ACTIVITY = 1;
+	private static final byte LEG = 2;
+
+	private final RouteFactories routeFactories;
+	private final ObjectAttributesConverter attributesConverter;
+	// whether routes of a class are created again with the same class from their route type
+	private final Map<Class<?>, Boolean> restorableRouteClasses = new ConcurrentHashMap<>();
+
+	private ByteBuffer chunk = null;
+	private long allocatedBytes = 0;
+
+	public PlanSpillStore(RouteFactories routeFactories, Map<Class<?>, AttributeConverter<?>> attributeConverters) {
+		this.routeFactories = routeFactories;
+		this.attributesConverter = new ObjectAttributesConverter(attributeConverters);
+	}
+
+	/**
+	 * Moves the non-selected plans of all persons out of the heap, and the plans read back since the last call out of
+	 * the heap again.  Must not be called while other threads use the plans.
+	 */
+	public void spill(Population population) {
+		int spilledPlans = 0;
+		int heapPlans = 0;
+		long liveBytes = 0;
+		for (Person person : population.getPersons().values()) {
+			Plan selectedPlan = person.getSelectedPlan();
+			@SuppressWarnings("unchecked")
+			List<Plan> plans = (List<Plan>) person.getPlans();
+			for (int i = 0; i < plans.size(); i++) {
+				Plan plan = plans.get(i);
+				if (plan == selectedPlan) {
+					heapPlans++;
+					continue;
+				}
+				if (plan instanceof SpilledPlan spilledPlan) {
+					spilledPlan.unload();
+				} else {
+					byte[] data = write(plan);
+					if (data != null) {
+						SpilledPlan spilledPlan = new SpilledPlan(this, plan);
+						store(spilledPlan, data);
+						plans.set(i, spilledPlan);
+					}
+				}
+				if (plans.get(i) instanceof SpilledPlan spilledPlan && !spilledPlan.isLoaded()) {
+					spilledPlans++;
+					liveBytes += spilledPlan.getLength();
+				} else {
+					heapPlans++;
+				}
+			}
+		}
+		if (this.allocatedBytes > CHUNK_SIZE && liveBytes < this.allocatedBytes / 2) {
+			compact(population);
+		}
+		log.info("{} plans are stored off-heap in {} MB, {} plans are on the heap.", spilledPlans, this.allocatedBytes / 1024 / 1024, heapPlans);
+	}
+
+	/**
+	 * Copies the spilled plans into new buffers, so the buffers with the plans read back since are freed.
+	 */
+	private void compact(Population population) {
+		this.chunk = null;
+		this.allocatedBytes = 0;
+		for (Person person : population.getPersons().values()) {
+			for (Plan plan : person.getPlans()) {
+				if (plan instanceof SpilledPlan spilledPlan) {
+					if (spilledPlan.isLoaded()) {
+						// (written again when spilled next time)
+						spilledPlan.setData(null, 0, 0);
+					} else {
+						store(spilledPlan, spilledPlan.getData());
+					}
+				}
+			}
+		}
+	}
+
+	void store(SpilledPlan spilledPlan, byte[] data) {
+		if (this.chunk == null || this.chunk.remaining() < data.length) {
+			this.chunk = ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, data.length));
+			this.allocatedBytes += this.chunk.capacity();
+		}
+		spilledPlan.setData(this.chunk, this.chunk.position(), data.length);
+		this.chunk.put(data);
+	}
+
+	/**
+	 * @return the serialized plan, without score, type, person and custom attributes, or <code>null</code> if the plan
+	 * cannot be restored from it.
+	 */
+	byte[] write(Plan plan) {
+		if (!(plan instanceof PlanImpl)) {
+			return null;
+		}
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+			DataOutputStream out = new DataOutputStream(bytes);
+			if (!writeAttributes(out, plan.getAttributes())) {
+				return null;
+			}
+			out.writeInt(plan.getPlanElements().size());
+			for (PlanElement planElement : plan.getPlanElements()) {
+				if (planElement instanceof InteractionActivity activity) {
+					out.writeByte(INTERACTION_ACTIVITY);
+					writeActivityLocation(out, activity);
+				} else if (planElement instanceof ActivityImpl activity) {
+					out.writeByte(ACTIVITY);
+					writeActivityLocation(out, activity);
+					writeTime(out, activity.getStartTime());
+					writeTime(out, activity.getEndTime());
+					writeTime(out, activity.getMaximumDuration());
+					if (!writeAttributes(out, activity.getAttributes())) {
+						return null;
+					}
+				} else if (planElement instanceof LegImpl leg) {
+					out.writeByte(LEG);
+					out.writeUTF(leg.getMode());
+					writeString(out, leg.getRoutingMode());
+					writeTime(out, leg.getDepartureTime());
+					writeTime(out, leg.getTravelTime());
+					if (!writeRoute(out, leg.getRoute()) || !writeAttributes(out, leg.getAttributes())) {
+						return null;
+					}
+				} else {
+					return null;
+				}
+			}
+			out.flush();
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	Plan read(ByteBuffer chunk, int offset, int length) {
+		byte[] data = new byte[length];
+		chunk.get(offset, data);
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+			Plan plan = new PlanImpl();
+			readAttributes(in, plan.getAttributes());
+			int numberOfElements = in.readInt();
+			for (int i = 0; i < numberOfElements; i++) {
+				byte elementType = in.readByte();
+				if (elementType == INTERACTION_ACTIVITY) {
+					Activity activity = new InteractionActivity(in.readUTF());
+					readActivityLocation(in, activity);
+					plan.addActivity(activity);
+				} else if (elementType == ACTIVITY) {
+					Activity activity = new ActivityImpl(in.readUTF());
+					readActivityLocation(in, activity);
+					readTime(in).ifDefinedOrElse(activity::setStartTime, activity::setStartTimeUndefined);
+					readTime(in).ifDefinedOrElse(activity::setEndTime, activity::setEndTimeUndefined);
+					readTime(in).ifDefinedOrElse(activity::setMaximumDuration, activity::setMaximumDurationUndefined);
+					readAttributes(in, activity.getAttributes());
+					plan.addActivity(activity);
+				} else {
+					Leg leg = new LegImpl(in.readUTF());
+					leg.setRoutingMode(readString(in));
+					readTime(in).ifDefinedOrElse(leg::setDepartureTime, leg::setDepartureTimeUndefined);
+					readTime(in).ifDefinedOrElse(leg::setTravelTime, leg::setTravelTimeUndefined);
+					leg.setRoute(readRoute(in));
+					readAttributes(in, leg.getAttributes());
+					plan.addLeg(leg);
+				}
+			}
+			return plan;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void writeActivityLocation(DataOutputStream out, Activity activity) throws IOException {
+		out.writeUTF(activity.getType());
+		Coord coord = activity.getCoord();
+		out.writeByte(coord == null ? 0 : coord.hasZ() ? 3 : 2);
+		if (coord != null) {
+			out.writeDouble(coord.getX());
+			out.writeDouble(coord.getY());
+			if (coord.hasZ()) {
+				out.writeDouble(coord.getZ());
+			}
+		}
+		writeId(out, activity.getLinkId());
+		writeId(out, activity.getFacilityId());
+	}
+
+	private static void readActivityLocation(DataInputStream in, Activity activity) throws IOException {
+		byte dimensions = in.readByte();
+		if (dimensions == 2) {
+			activity.setCoord(new Coord(in.readDouble(), in.readDouble()));
+		} else if (dimensions == 3) {
+			activity.setCoord(new Coord(in.readDouble(), in.readDouble(), in.readDouble()));
+		}
+		activity.setLinkId(readId(in, Link.class));
+		activity.setFacilityId(readId(in, ActivityFacility.class));
+	}
+
+	private boolean writeRoute(DataOutputStream out, Route route) throws IOException {
+		out.writeBoolean(route != null);
+		if (route == null) {
+			return true;
+		}
+		if (!isRestorable(route)) {
+			return false;
+		}
+		out.writeUTF(route.getRouteType());
+		writeId(out, route.getStartLinkId());
+		writeId(out, route.getEndLinkId());
+		writeTime(out, route.getTravelTime());
+		out.writeDouble(route.getDistance());
+		if (route instanceof NetworkRoute networkRoute) {
+			List<Id<Link>> linkIds = networkRoute.getLinkIds();
+			out.writeInt(linkIds.size());
+			for (Id<Link> linkId : linkIds) {
+				out.writeInt(linkId.index());
+			}
+			writeId(out, networkRoute.getVehicleId());
+			out.writeDouble(networkRoute.getTravelCost());
+		} else {
+			writeString(out, route.getRouteDescription());
+		}
+		return true;
+	}
+
+	private Route readRoute(DataInputStream in) throws IOException {
+		if (!in.readBoolean()) {
+			return null;
+		}
+		Class<? extends Route> routeClass = this.routeFactories.getRouteClassForType(in.readUTF());
+		Id<Link> startLinkId = readId(in, Link.class);
+		Id<Link> endLinkId = readId(in, Link.class);
+		Route route = this.routeFactories.createRoute(routeClass, startLinkId, endLinkId);
+		readTime(in).ifDefinedOrElse(route::setTravelTime, route::setTravelTimeUndefined);
+		route.setDistance(in.readDouble());
+		if (route instanceof NetworkRoute networkRoute) {
+			int numberOfLinks = in.readInt();
+			List<Id<Link>> linkIds = new ArrayList<>(numberOfLinks);
+			for (int i = 0; i < numberOfLinks; i++) {
+				linkIds.add(Id.get(in.readInt(), Link.class));
+			}
+			networkRoute.setLinkIds(startLinkId, linkIds, endLinkId);
+			networkRoute.setVehicleId(readId(in, Vehicle.class));
+			networkRoute.setTravelCost(in.readDouble());
+		} else {
+			String routeDescription = readString(in);
+			if (routeDescription != null) {
+				route.setRouteDescription(routeDescription);
+			}
+		}
+		return route;
+	}
+
+	private boolean isRestorable(Route route) {
+		return this.restorableRouteClasses.computeIfAbsent(route.getClass(), routeClass -> {
+			Class<? extends Route> createdClass = this.routeFactories.getRouteClassForType(route.getRouteType());
+			return this.routeFactories.createRoute(createdClass, route.getStartLinkId(), route.getEndLinkId()).getClass() == routeClass;
+		});
+	}
+
+	private boolean writeAttributes(DataOutputStream out, Attributes attributes) throws IOException {
+		out.writeInt(attributes.size());
+		for (Map.Entry<String, Object> attribute : attributes.getAsMap().entrySet()) {
+			String value = this.attributesConverter.convertToString(attribute.getValue());
+			if (value == null) {
+				return false;
+			}
+			out.writeUTF(attribute.getKey());
+			out.writeUTF(attribute.getValue().getClass().getName());
+			writeLongString(out, value);
+		}
+		return true;
+	}
+
+	private void readAttributes(DataInputStream in, Attributes attributes) throws IOException {
+		int numberOfAttributes = in.readInt();
+		for (int i = 0; i < numberOfAttributes; i++) {
+			String name = in.readUTF();
+			String className = in.readUTF();
+			attributes.putAttribute(name, this.attributesConverter.convert(className, readLongString(in)));
+		}
+	}
+
+	private static void writeTime(DataOutputStream out, OptionalTime time) throws IOException {
+		out.writeBoolean(time.isDefined());
+		if (time.isDefined()) {
+			out.writeDouble(time.seconds());
+		}
+	}
+
+	private static OptionalTime readTime(DataInputStream in) throws IOException {
+		return in.readBoolean() ? OptionalTime.defined(in.readDouble()) : OptionalTime.undefined();
+	}
+
+	private static void writeId(DataOutputStream out, Id<?> id) throws IOException {
+		out.writeInt(id == null ? -1 : id.index());
+	}
+
+	private static <T> Id<T> readId(DataInputStream in, Class<T> type) throws IOException {
+		int index = in.readInt();
+		return index < 0 ? null : Id.get(index, type);
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			writeLongString(out, value);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? readLongString(in) : null;
+	}
+
+	// route descriptions and attributes may be longer than writeUTF allows
+	private static void writeLongString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readLongString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
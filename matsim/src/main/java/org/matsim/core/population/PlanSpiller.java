@@ -0,0 +1,60 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PlanSpiller.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.utils.objectattributes.AttributeConverter;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Moves the non-selected plans into a {@link PlanSpillStore} before every mobsim, after replanning and after the other
+ * listeners, e.g. the one dumping the plans, have used them.
+ */
+@Singleton
+/* deliberately package */ class PlanSpiller implements BeforeMobsimListener {
+
+	@Inject
+	private Population population;
+	@Inject
+	private Map<Class<?>, AttributeConverter<?>> attributeConverters = Collections.emptyMap();
+
+	private PlanSpillStore store = null;
+
+	@Override
+	public void notifyBeforeMobsim(BeforeMobsimEvent event) {
+		if (this.store == null) {
+			this.store = new PlanSpillStore(this.population.getFactory().getRouteFactories(), this.attributeConverters);
+		}
+		this.store.spill(this.population);
+	}
+
+	@Override
+	public double priority() {
+		return -1000;
+	}
+}
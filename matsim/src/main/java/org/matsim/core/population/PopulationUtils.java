@@ -66,6 +66,7 @@ import org.matsim.core.population.routes.RouteFactories;
 import org.matsim.core.population.routes.RouteFactory;
 import org.matsim.core.population.routes.RouteUtils;
 import org.matsim.core.population.routes.heavycompressed.HeavyCompressedNetworkRouteFactory;
+import org.matsim.core.population.routes.interned.InternedNetworkRouteFactory;
 import org.matsim.core.population.routes.mediumcompressed.MediumCompressedNetworkRouteFactory;
 import org.matsim.core.router.TripStructureUtils;
 import org.matsim.core.router.TripStructureUtils.StageActivityHandling;
@@ -137,6 +138,8 @@ public final class PopulationUtils {
 			factory = new MediumCompressedNetworkRouteFactory();
 		} else if (PlansConfigGroup.NetworkRouteType.HeavyCompressedNetworkRoute.equals(networkRouteType) && network != null) {
 			factory = new HeavyCompressedNetworkRouteFactory(network, TransportMode.car);
+		} else if (PlansConfigGroup.NetworkRouteType.InternedNetworkRoute.equals(networkRouteType)) {
+			factory = new InternedNetworkRouteFactory();
 		} else if (PlansConfigGroup.NetworkRouteType.CompressedNetworkRoute.equals(networkRouteType) && network != null) {
 			factory = new HeavyCompressedNetworkRouteFactory(network, TransportMode.car);
 		} else {
@@ -0,0 +1,229 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SpilledPlan.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Customizable;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.replanning.inheritance.PlanInheritanceModule;
+import org.matsim.core.scenario.CustomizableUtils;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * A plan whose content is stored in a {@link PlanSpillStore}.  Score, type, person, the plan inheritance fields and the
+ * custom attributes are kept here; everything else is read back from the store into a {@link PlanImpl} when it is used
+ * for the first time.
+ */
+/* package */ final class SpilledPlan implements Plan {
+
+	private final PlanSpillStore store;
+	private Person person;
+	private Double score;
+	private String type;
+	// (copies of the attributes of the stored plan, which are the ones written by the plan inheritance)
+	private Id<Plan> id;
+	private Integer iterationCreated;
+	private String planMutator;
+	private final Customizable customizableDelegate = CustomizableUtils.createCustomizable();
+
+	private ByteBuffer chunk = null;
+	private int offset;
+	private int length;
+	private Plan plan = null;
+
+	SpilledPlan(PlanSpillStore store, Plan plan) {
+		this.store = store;
+		this.person = plan.getPerson();
+		this.score = plan.getScore();
+		this.type = plan.getType();
+		this.customizableDelegate.getCustomAttributes().putAll(plan.getCustomAttributes());
+		keepInheritance(plan);
+	}
+
+	private void keepInheritance(Plan plan) {
+		this.id = plan.getId();
+		this.iterationCreated = (Integer) plan.getAttributes().getAttribute(PlanInheritanceModule.ITERATION_CREATED);
+		this.planMutator = plan.getPlanMutator();
+	}
+
+	void setData(ByteBuffer chunk, int offset, int length) {
+		this.chunk = chunk;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	byte[] getData() {
+		byte[] data = new byte[this.length];
+		this.chunk.get(this.offset, data);
+		return data;
+	}
+
+	int getOffset() {
+		return this.offset;
+	}
+
+	int getLength() {
+		return this.length;
+	}
+
+	synchronized boolean isLoaded() {
+		return this.plan != null;
+	}
+
+	private synchronized Plan load() {
+		if (this.plan == null) {
+			this.plan = this.store.read(this.chunk, this.offset, this.length);
+			this.plan.setPerson(this.person);
+		}
+		return this.plan;
+	}
+
+	/**
+	 * Writes the plan into the store again if it was read back and has changed, unless it can no longer be stored.
+	 */
+	synchronized void unload() {
+		if (this.plan != null) {
+			byte[] data = this.store.write(this.plan);
+			if (data != null) {
+				if (!isStored(data)) {
+					this.store.store(this, data);
+				}
+				keepInheritance(this.plan);
+				this.plan = null;
+			}
+		}
+	}
+
+	private boolean isStored(byte[] data) {
+		return this.chunk != null && this.length == data.length
+				&& this.chunk.slice(this.offset, this.length).equals(ByteBuffer.wrap(data));
+	}
+
+	@Override
+	public Double getScore() {
+		return this.score;
+	}
+
+	@Override
+	public void setScore(Double score) {
+		this.score = score;
+	}
+
+	@Override
+	public String getType() {
+		return this.type;
+	}
+
+	@Override
+	public void setType(String type) {
+		this.type = type;
+	}
+
+	@Override
+	public Person getPerson() {
+		return this.person;
+	}
+
+	@Override
+	public void setPerson(Person person) {
+		this.person = person;
+		if (this.plan != null) {
+			this.plan.setPerson(person);
+		}
+	}
+
+	@Override
+	public List<PlanElement> getPlanElements() {
+		return load().getPlanElements();
+	}
+
+	@Override
+	public void addLeg(Leg leg) {
+		load().addLeg(leg);
+	}
+
+	@Override
+	public void addActivity(Activity act) {
+		load().addActivity(act);
+	}
+
+	// (the getters below use the loaded plan if there is one, as its attributes may have been changed directly)
+
+	@Override
+	public synchronized void setPlanId(Id<Plan> planId) {
+		load().setPlanId(planId);
+		this.id = planId;
+	}
+
+	@Override
+	public synchronized Id<Plan> getId() {
+		return this.plan == null ? this.id : this.plan.getId();
+	}
+
+	@Override
+	public synchronized int getIterationCreated() {
+		return this.plan == null ? this.iterationCreated : this.plan.getIterationCreated();
+	}
+
+	@Override
+	public synchronized void setIterationCreated(int iteration) {
+		load().setIterationCreated(iteration);
+		this.iterationCreated = iteration;
+	}
+
+	@Override
+	public synchronized String getPlanMutator() {
+		return this.plan == null ? this.planMutator : this.plan.getPlanMutator();
+	}
+
+	@Override
+	public synchronized void setPlanMutator(String planMutator) {
+		load().setPlanMutator(planMutator);
+		this.planMutator = planMutator;
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		return load().getAttributes();
+	}
+
+	@Override
+	public Map<String, Object> getCustomAttributes() {
+		// (not stored, so the loaded plan has none)
+		return this.customizableDelegate.getCustomAttributes();
+	}
+
+	@Override
+	public String toString() {
+		return "[score=" + (this.score == null ? "undefined" : this.score) + "]" +
+				"[type=" + this.type + "]" +
+				"[personId=" + (this.person == null ? "undefined" : this.person.getId()) + "]" +
+				"[spilled=" + !isLoaded() + "]";
+	}
+}
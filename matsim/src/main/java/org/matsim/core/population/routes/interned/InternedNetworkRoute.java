@@ -0,0 +1,119 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * InternedNetworkRoute.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.routes.interned;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.population.routes.AbstractNetworkRoute;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.heavycompressed.VarIntUtils;
+
+import com.google.common.collect.Interner;
+
+/**
+ * <p>Implementation of {@link NetworkRoute} that stores the indices of the links of the route with variable-length
+ * integer encoding, like {@link org.matsim.core.population.routes.mediumcompressed.MediumCompressedNetworkRoute}, but
+ * shares the encoded links with all other routes of the same {@link InternedNetworkRouteFactory} that have the same
+ * links.</p>
+ *
+ * <p>In large populations, many agents have the same routes, e.g. in their non-selected plans or because they travel
+ * between the same zones.  Such routes only need a reference to the shared links then.</p>
+ */
+public final class InternedNetworkRoute extends AbstractNetworkRoute {
+
+	private final Interner<LinkSequence> pool;
+	private LinkSequence route = LinkSequence.EMPTY;
+
+	InternedNetworkRoute(Id<Link> startLinkId, Id<Link> endLinkId, Interner<LinkSequence> pool) {
+		this.pool = pool;
+		this.setStartLinkId(startLinkId);
+		this.setEndLinkId(endLinkId);
+	}
+
+	@Override
+	public void setLinkIds(Id<Link> startLinkId, List<Id<Link>> linkIds, Id<Link> endLinkId) {
+		this.setStartLinkId(startLinkId);
+		this.setEndLinkId(endLinkId);
+		if (linkIds == null || linkIds.isEmpty()) {
+			this.route = LinkSequence.EMPTY;
+			return;
+		}
+		int[] route = new int[linkIds.size()];
+		int i = 0;
+		for (Id<Link> linkId : linkIds) {
+			route[i] = linkId.index();
+			i++;
+		}
+		this.route = this.pool.intern(new LinkSequence(VarIntUtils.encode(route, 0, route.length)));
+	}
+
+	@Override
+	public List<Id<Link>> getLinkIds() {
+		if (this.route == LinkSequence.EMPTY) {
+			return Collections.emptyList();
+		}
+		int[] idxRoute = VarIntUtils.decode(this.route.links);
+		List<Id<Link>> linkIds = new ArrayList<>(idxRoute.length);
+		for (int linkIndex : idxRoute) {
+			linkIds.add(Id.get(linkIndex, Link.class));
+		}
+		return linkIds;
+	}
+
+	@Override
+	public InternedNetworkRoute clone() {
+		return (InternedNetworkRoute) super.clone();
+	}
+
+	LinkSequence getLinkSequence() {
+		return this.route;
+	}
+
+	/**
+	 * The encoded link indices of a route.  Immutable, so it can be shared between routes and threads.
+	 */
+	static final class LinkSequence {
+		static final LinkSequence EMPTY = new LinkSequence(new byte[0]);
+
+		private final byte[] links;
+		private final int hash;
+
+		LinkSequence(byte[] links) {
+			this.links = links;
+			this.hash = Arrays.hashCode(links);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof LinkSequence other && this.hash == other.hash && Arrays.equals(this.links, other.links);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+	}
+}
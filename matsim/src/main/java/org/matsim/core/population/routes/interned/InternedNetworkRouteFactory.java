@@ -0,0 +1,51 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * InternedNetworkRouteFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.routes.interned;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactory;
+import org.matsim.core.population.routes.interned.InternedNetworkRoute.LinkSequence;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Creates {@link InternedNetworkRoute}s, which share their links with all other routes created by this factory.
+ * The pool of links is thread-safe and only references them weakly, so links no longer used by any route, e.g. after
+ * their plans were removed in replanning, are garbage collected.
+ */
+public class InternedNetworkRouteFactory implements RouteFactory {
+
+	private final Interner<LinkSequence> pool = Interners.newWeakInterner();
+
+	@Override
+	public NetworkRoute createRoute(final Id<Link> startLinkId, final Id<Link> endLinkId) {
+		return new InternedNetworkRoute(startLinkId, endLinkId, this.pool);
+	}
+
+	@Override
+	public String getCreatedRouteType() {
+		return "links";
+	}
+
+}
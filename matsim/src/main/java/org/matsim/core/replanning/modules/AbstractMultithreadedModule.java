@@ -22,16 +22,20 @@ package org.matsim.core.replanning.modules;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.matsim.analysis.IterationStopWatch;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.replanning.PlanStrategyModule;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup.ReplanningThreadScheduling;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.utils.misc.Counter;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -51,6 +55,12 @@ import java.util.concurrent.atomic.AtomicReference;
  * "fast threads"), it helps building reproducible runs.  Additionally, as the threads are only
  * started after all to-be-handled plans are added, we can use unsynchronized data structures.
  * <p></p>
+ * With {@link ReplanningThreadScheduling#workStealing}, the plans are distributed in chunks instead, and a thread
+ * which has handled all its chunks takes the last chunk of another thread.  Every thread still uses its own
+ * instance from getPlanAlgoInstance(), but the instance handling a plan is no longer reproducible.  After the threads
+ * finished, the balance of their busy times is logged and recorded in the {@link IterationStopWatch} of the
+ * {@link ReplanningContext}, if there is one.
+ * <p></p>
  * Design comments/questions:<ul>
  * <li> As a consequence of the design, the instances that getPlanAlgoInstance() returns, need to be thread-safe.  kai, dec'12
  * For an example with discussions, see {@link tutorial.programming.multiThreadedPlanStrategy.RunWithMultithreadedModule}
@@ -59,7 +69,11 @@ import java.util.concurrent.atomic.AtomicReference;
  * @author mrieser
  */
 abstract public class AbstractMultithreadedModule implements PlanStrategyModule {
+	/** small enough that a few expensive plans cannot dominate a chunk, large enough to keep the stealing overhead low. */
+	private static final int CHUNK_SIZE = 8;
+
 	private final int numOfThreads;
+	private final ReplanningThreadScheduling scheduling;
 
 	private PlanAlgoThread[] algothreads = null;
 	private Thread[] threads = null;
@@ -67,6 +81,8 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	private String name = null;
 
 	private int count = 0;
+	private List<Plan> chunk = null;
+	private int chunkCount = 0;
 
 	private final AtomicReference<Throwable> hadException = new AtomicReference<>(null);
 	private final ExceptionHandler exceptionHandler = new ExceptionHandler(this.hadException);
@@ -85,10 +101,12 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	public AbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 		this.numOfThreads = globalConfigGroup.getNumberOfThreads();
+		this.scheduling = globalConfigGroup.getReplanningThreadScheduling();
 	}
 
 	public AbstractMultithreadedModule(final int numOfThreads) {
 		this.numOfThreads = numOfThreads;
+		this.scheduling = ReplanningThreadScheduling.roundRobin;
 	}
 	
 	protected void beforePrepareReplanningHook(@SuppressWarnings("unused") ReplanningContext replanningContextTmp) {
@@ -119,7 +137,14 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	@Override
 	public final void handlePlan(final Plan plan) {
 		if (this.directAlgo == null) {
-			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+			if (this.scheduling == ReplanningThreadScheduling.workStealing) {
+				this.chunk.add(plan);
+				if (this.chunk.size() == CHUNK_SIZE) {
+					addChunk();
+				}
+			} else {
+				this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+			}
 			this.count++;
 		} else {
 			this.directAlgo.run(plan);
@@ -139,6 +164,9 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		
 		if (this.directAlgo == null) {
 			// only try to start threads if we did not directly work on all the plans
+			if (this.chunk != null && !this.chunk.isEmpty()) {
+				addChunk();
+			}
 			log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.count + " plans");
 
 			// start threads
@@ -159,16 +187,48 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 			if (throwable != null) {
 				throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", throwable);
 			}
+			if (this.scheduling == ReplanningThreadScheduling.workStealing) {
+				recordLoadBalance();
+			}
 		}
 		// reset
 		this.algothreads = null;
 		this.threads = null;
 		this.replanningContext = null;
 		this.count = 0;
+		this.chunk = null;
+		this.chunkCount = 0;
 		
 		this.afterFinishReplanningHook();
 	}
 
+	private void addChunk() {
+		this.algothreads[this.chunkCount % this.numOfThreads].addChunk(this.chunk);
+		this.chunkCount++;
+		this.chunk = new ArrayList<>(CHUNK_SIZE);
+	}
+
+	private void recordLoadBalance() {
+		long maxBusyNanos = 0;
+		long sumBusyNanos = 0;
+		int stolenChunks = 0;
+		for (PlanAlgoThread algothread : this.algothreads) {
+			maxBusyNanos = Math.max(maxBusyNanos, algothread.busyNanos);
+			sumBusyNanos += algothread.busyNanos;
+			stolenChunks += algothread.stolenChunks;
+		}
+		// 1 means all threads were busy for the same time, numOfThreads that a single thread did all the work
+		double imbalance = sumBusyNanos == 0 ? 1.0 : maxBusyNanos * (double) this.algothreads.length / sumBusyNanos;
+		log.info("[" + this.name + "] load balance: longest thread busy " + maxBusyNanos / 1_000_000 + " ms, "
+				+ "longest/mean busy time " + imbalance + ", " + stolenChunks + " chunks stolen");
+
+		IterationStopWatch stopwatch = this.replanningContext == null ? null : this.replanningContext.getStopwatch();
+		if (stopwatch != null) {
+			stopwatch.addStatistic("[" + this.name + "] longest/mean thread busy time", imbalance);
+			stopwatch.addStatistic("[" + this.name + "] stolen chunks", stolenChunks);
+		}
+	}
+
 	private void initThreads() {
 		if (this.threads != null) {
 			throw new RuntimeException("threads are already initialized");
@@ -186,12 +246,18 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 				this.name = algo.getClass().getSimpleName();
 				counter = new Counter("[" + this.name + "] handled plan # ");
 			}
-			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter);
+			PlanAlgoThread algothread = new PlanAlgoThread(i, algo, counter);
 			Thread thread = new Thread(algothread, this.name + "." + i);
 			thread.setUncaughtExceptionHandler(this.exceptionHandler);
 			this.threads[i] = thread;
 			this.algothreads[i] = algothread;
 		}
+		if (this.scheduling == ReplanningThreadScheduling.workStealing) {
+			for (PlanAlgoThread algothread : this.algothreads) {
+				algothread.victims = this.algothreads;
+			}
+			this.chunk = new ArrayList<>(CHUNK_SIZE);
+		}
 	}
 
 	/* package (for a test) */ final int getNumOfThreads() {
@@ -216,11 +282,18 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	private final static class PlanAlgoThread implements Runnable {
 
+		private final int index;
 		private final PlanAlgorithm planAlgo;
 		private final List<Plan> plans = new LinkedList<>();
+		private final ConcurrentLinkedDeque<List<Plan>> chunks = new ConcurrentLinkedDeque<>();
 		private final Counter counter;
+		/** the threads to steal chunks from once this one is out of work, <code>null</code> if the plans are distributed round-robin. */
+		private PlanAlgoThread[] victims = null;
+		private long busyNanos = 0;
+		private int stolenChunks = 0;
 
-		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter) {
+		public PlanAlgoThread(final int index, final PlanAlgorithm algo, final Counter counter) {
+			this.index = index;
 			this.planAlgo = algo;
 			this.counter = counter;
 		}
@@ -229,12 +302,44 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 			this.plans.add(plan);
 		}
 
+		public void addChunk(final List<Plan> chunk) {
+			this.chunks.addLast(chunk);
+		}
+
 		@Override
 		public void run() {
-			for (Plan plan : this.plans) {
-				this.planAlgo.run(plan);
-				this.counter.incCounter();
+			if (this.victims == null) {
+				for (Plan plan : this.plans) {
+					this.planAlgo.run(plan);
+					this.counter.incCounter();
+				}
+				return;
+			}
+			long start = System.nanoTime();
+			List<Plan> chunk;
+			while ((chunk = nextChunk()) != null) {
+				for (Plan plan : chunk) {
+					this.planAlgo.run(plan);
+					this.counter.incCounter();
+				}
+			}
+			this.busyNanos = System.nanoTime() - start;
+		}
+
+		private List<Plan> nextChunk() {
+			List<Plan> chunk = this.chunks.pollFirst();
+			if (chunk != null) {
+				return chunk;
+			}
+			// take from the other end than the owner, so both rarely compete for the same chunk
+			for (int i = 1; i < this.victims.length; i++) {
+				chunk = this.victims[(this.index + i) % this.victims.length].chunks.pollLast();
+				if (chunk != null) {
+					this.stolenChunks++;
+					return chunk;
+				}
 			}
+			return null;
 		}
 	}
 }
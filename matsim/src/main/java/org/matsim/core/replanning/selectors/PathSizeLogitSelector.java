@@ -21,6 +21,7 @@
 package org.matsim.core.replanning.selectors;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,12 +34,18 @@ import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.core.config.groups.ScoringConfigGroup;
 import org.matsim.core.population.routes.NetworkRoute;
-import org.matsim.core.population.routes.RouteUtils;
+
+import com.google.common.collect.MapMaker;
 
 /**
  * select an existing Plan according to the Path Size Logit (e.g. Frejinger, E. and Bierlaire, M.: Capturing Correlation
  * with subnetworks in route choice models, Transportation Research Part B (2006), doi:10.1016/j.trb.2006.06.003.)
  * If there are unscored plans one of it will be chosen randomly (optimistic strategy).
+ * <p>
+ * The links of the routes of each plan are kept by the selector as sorted link indices, so the overlap of two legs is
+ * found by merging them.  The path size terms are kept as well, until a plan of the person changes.  Whether a plan
+ * has changed is checked with its departure times and routes on every selection, so the cache does not rely on how
+ * plans are changed or stored.
  *
  * @author laemmel
  */
@@ -47,6 +54,8 @@ public final class PathSizeLogitSelector extends AbstractPlanSelector {
 	private final double pathSizeLogitExponent;
 	private final double logitScaleFactor;
 	private Network network;
+	// (compared by identity, and dropped together with the plans)
+	private final Map<Plan, PlanLinks> planLinks = new MapMaker().weakKeys().makeMap();
 
 	public PathSizeLogitSelector( final double pathSizeLogitExponent, final double logitScaleFactor, final Network network ) {
 		this.pathSizeLogitExponent = pathSizeLogitExponent ;
@@ -67,79 +76,30 @@ public final class PathSizeLogitSelector extends AbstractPlanSelector {
 
 		double maxScore = Double.NEGATIVE_INFINITY;
 
-		HashMap<Id<Link>, ArrayList<Double>> linksInTime = new HashMap<>();
-		// (a data structure that memorizes possible leg start times for link utilization (??))
-
-		HashMap<Integer,Double> planLength = new HashMap<Integer, Double>();
-		// (a data structure that memorizes the total travel distance of each plan)
-		// (yyyy is it obvious that no two plans can have the same hash code?  what happens if they do?  kai, oct'12)
-		// (why not just <Plan,Double>?????)
-
 		//this gets the choice sets C_n
 		//TODO [GL] since the lack of information in Route(),
 		//the very first and the very last link of a path will be ignored - gl
 		//dg, 09-2013: as first and last link are equal for all routes between to activities this is no major issue
 
-		for (Plan plan : plans) {
-
+		PlanLinks[] choiceSet = new PlanLinks[plans.size()];
+		for (int i = 0; i < choiceSet.length; i++) {
+			Plan plan = plans.get(i);
 			if (plan.getScore() > maxScore) maxScore = plan.getScore();
-
-			double pathSize = 0;
-			double currentEndTime = 0.0;
-			for (PlanElement pe : plan.getPlanElements()) {
-				if (pe instanceof Leg) {
-					Leg leg = (Leg) pe;
-					currentEndTime = leg.getDepartureTime().seconds();
-
-					NetworkRoute r = (NetworkRoute) leg.getRoute();
-					// (yyyy this will fail when the route is not a network route.  kai, oct'12)
-
-					pathSize += RouteUtils.calcDistanceExcludingStartEndLink(r, network);
-					// (i.e. pathSize will be the sum over all routes of the plan)
-
-					for (Id<Link> linkId : r.getLinkIds()){
-						ArrayList<Double> lit = linksInTime.get(linkId);
-						if (lit == null){
-							lit = new ArrayList<Double>();
-							linksInTime.put(linkId, lit);
-						}
-						lit.add(currentEndTime);
-					}
-				}
+			choiceSet[i] = getPlanLinks(plan);
+		}
+		for (PlanLinks planLinks : choiceSet) {
+			// (the path size terms only change when the plans of the person, or their routes, change)
+			if (!Arrays.equals(planLinks.choiceSet, choiceSet)) {
+				calcPathSizeRatios(choiceSet);
+				break;
 			}
-			planLength.put(plan.hashCode(), pathSize);
 		}
 
-		for (Plan plan : plans) {
+		for (int i = 0; i < choiceSet.length; i++) {
+			Plan plan = plans.get(i);
 
-			double tmp = 0;
-			for (PlanElement pe : plan.getPlanElements()) {
-				if (pe instanceof Leg) {
-					Leg leg = (Leg) pe;
-					double currentTime = leg.getDepartureTime().seconds();
-					NetworkRoute route = (NetworkRoute) leg.getRoute();
-					for (Id<Link> linkId : route.getLinkIds()){
-						double denominator = 0;
-						for (double dbl : linksInTime.get(linkId)){
-							//TODO this is just for testing (those legs where the departure time differs more then 3600 seconds will not compared to each other) - need a
-							//little bit to brood on it - gl
-							// An alternative might be to use a kernal, e.g. a Gaussian.  Something like
-							// denominator += exp( (dbl-currentTime)^2 / sigma^2 ) .  kai, oct'12
-							if (Math.abs(dbl - currentTime) <= 3600)
-								denominator++;
-						}
-						// (the meaning seems to be: for each link that the plan uses, it checks how many other times the
-						// same link is used by a leg that has roughly the same departure time (*))
-
-						Link link = network.getLinks().get(linkId);
-						tmp += link.getLength() / denominator;
-						// (for a plan, the weight of a link is divided by the number of times it is used)
-					}
-				}
-			}
-			// tmp is now a number that contains the ``reduced'' travel distance of the plan.  Divide it by the full travel distance
-			// of the plan, and take to the power of this.beta:
-			double PSi = Math.pow(tmp/planLength.get(plan.hashCode()), this.pathSizeLogitExponent);
+			// the ratio is the ``reduced'' travel distance of the plan, divided by its full travel distance.  Take it to the power of this.beta:
+			double PSi = Math.pow(choiceSet[i].pathSizeRatio, this.pathSizeLogitExponent);
 
 			double weight;
 			if (Double.isInfinite(maxScore)) {
@@ -168,4 +128,188 @@ public final class PathSizeLogitSelector extends AbstractPlanSelector {
 		return weights ;
 	}
 
+	private PlanLinks getPlanLinks(Plan plan) {
+		PlanLinks planLinks = this.planLinks.get(plan);
+		if (planLinks == null || !planLinks.matches(plan, this.network)) {
+			planLinks = new PlanLinks(plan, this.network);
+			this.planLinks.put(plan, planLinks);
+		}
+		return planLinks;
+	}
+
+	private static void calcPathSizeRatios(PlanLinks[] choiceSet) {
+		int numberOfLegs = 0;
+		for (PlanLinks planLinks : choiceSet) {
+			numberOfLegs += planLinks.departureTimes.length;
+		}
+		int[] legPlans = new int[numberOfLegs];
+		int[] legIndices = new int[numberOfLegs];
+		int[][] denominators = new int[numberOfLegs][];
+		int n = 0;
+		for (int p = 0; p < choiceSet.length; p++) {
+			PlanLinks planLinks = choiceSet[p];
+			for (int leg = 0; leg < planLinks.departureTimes.length; leg++) {
+				legPlans[n] = p;
+				legIndices[n] = leg;
+				denominators[n] = new int[planLinks.linkIndices[leg].length];
+				n++;
+			}
+		}
+
+		// for each link that a leg uses, count how many times the same link is used by a leg (of any plan, including the
+		// leg itself) that has roughly the same departure time.  As the link indices of each leg are sorted, the common
+		// links of two legs are found by merging them.
+		for (int a = 0; a < numberOfLegs; a++) {
+			PlanLinks planA = choiceSet[legPlans[a]];
+			int legA = legIndices[a];
+			int[] linksA = planA.linkIndices[legA];
+			int[] countsA = planA.linkCounts[legA];
+			for (int i = 0; i < linksA.length; i++) {
+				denominators[a][i] += countsA[i];
+			}
+			for (int b = a + 1; b < numberOfLegs; b++) {
+				PlanLinks planB = choiceSet[legPlans[b]];
+				int legB = legIndices[b];
+				//TODO this is just for testing (those legs where the departure time differs more then 3600 seconds will not compared to each other) - need a
+				//little bit to brood on it - gl
+				// An alternative might be to use a kernal, e.g. a Gaussian.  Something like
+				// denominator += exp( (dbl-currentTime)^2 / sigma^2 ) .  kai, oct'12
+				if (Math.abs(planA.departureTimes[legA] - planB.departureTimes[legB]) > 3600) {
+					continue;
+				}
+				int[] linksB = planB.linkIndices[legB];
+				if (linksA.length == 0 || linksB.length == 0
+						|| linksA[linksA.length - 1] < linksB[0] || linksB[linksB.length - 1] < linksA[0]) {
+					continue;
+				}
+				int[] countsB = planB.linkCounts[legB];
+				int i = 0;
+				int j = 0;
+				while (i < linksA.length && j < linksB.length) {
+					if (linksA[i] < linksB[j]) {
+						i++;
+					} else if (linksA[i] > linksB[j]) {
+						j++;
+					} else {
+						denominators[a][i] += countsB[j];
+						denominators[b][j] += countsA[i];
+						i++;
+						j++;
+					}
+				}
+			}
+		}
+
+		double[] reducedLengths = new double[choiceSet.length];
+		for (int a = 0; a < numberOfLegs; a++) {
+			PlanLinks planLinks = choiceSet[legPlans[a]];
+			int leg = legIndices[a];
+			int[] counts = planLinks.linkCounts[leg];
+			double[] lengths = planLinks.linkLengths[leg];
+			for (int i = 0; i < counts.length; i++) {
+				// (for a plan, the weight of a link is divided by the number of times it is used)
+				reducedLengths[legPlans[a]] += counts[i] * lengths[i] / denominators[a][i];
+			}
+		}
+		for (int p = 0; p < choiceSet.length; p++) {
+			choiceSet[p].pathSizeRatio = reducedLengths[p] / choiceSet[p].length;
+			choiceSet[p].choiceSet = choiceSet;
+		}
+	}
+
+	/**
+	 * The links of the network routes of a plan, with their lengths, as sorted link indices per leg.  They are cached
+	 * per plan and rebuilt when a departure time or route of the plan changes.  The path size term of the plan is
+	 * kept as well, together with the choice set it was calculated for.
+	 */
+	private static final class PlanLinks {
+
+		private final Network network;
+		private final double[] departureTimes;
+		private final long[] checksums;
+		private final int[][] linkIndices;
+		private final int[][] linkCounts;
+		private final double[][] linkLengths;
+		private final double length;
+
+		private PlanLinks[] choiceSet = null;
+		private double pathSizeRatio;
+
+		PlanLinks(Plan plan, Network network) {
+			List<NetworkRoute> routes = new ArrayList<>();
+			List<Double> times = new ArrayList<>();
+			for (PlanElement pe : plan.getPlanElements()) {
+				if (pe instanceof Leg leg) {
+					times.add(leg.getDepartureTime().seconds());
+					routes.add((NetworkRoute) leg.getRoute());
+					// (yyyy this will fail when the route is not a network route.  kai, oct'12)
+				}
+			}
+			this.network = network;
+			this.departureTimes = new double[routes.size()];
+			this.checksums = new long[routes.size()];
+			this.linkIndices = new int[routes.size()][];
+			this.linkCounts = new int[routes.size()][];
+			this.linkLengths = new double[routes.size()][];
+			double planLength = 0;
+			for (int leg = 0; leg < routes.size(); leg++) {
+				NetworkRoute route = routes.get(leg);
+				this.departureTimes[leg] = times.get(leg);
+				this.checksums[leg] = checksum(route);
+
+				List<Id<Link>> linkIds = route.getLinkIds();
+				int[] indices = new int[linkIds.size()];
+				for (int i = 0; i < indices.length; i++) {
+					indices[i] = linkIds.get(i).index();
+				}
+				Arrays.sort(indices);
+				int distinct = 0;
+				int[] counts = new int[indices.length];
+				for (int i = 0; i < indices.length; i++) {
+					if (distinct > 0 && indices[distinct - 1] == indices[i]) {
+						counts[distinct - 1]++;
+					} else {
+						indices[distinct] = indices[i];
+						counts[distinct] = 1;
+						distinct++;
+					}
+				}
+				double[] lengths = new double[distinct];
+				for (int i = 0; i < distinct; i++) {
+					lengths[i] = network.getLinks().get(Id.get(indices[i], Link.class)).getLength();
+					planLength += counts[i] * lengths[i];
+				}
+				this.linkIndices[leg] = Arrays.copyOf(indices, distinct);
+				this.linkCounts[leg] = Arrays.copyOf(counts, distinct);
+				this.linkLengths[leg] = lengths;
+			}
+			// (i.e. the length will be the sum over all routes of the plan)
+			this.length = planLength;
+		}
+
+		boolean matches(Plan plan, Network network) {
+			if (network != this.network) {
+				return false;
+			}
+			int leg = 0;
+			for (PlanElement pe : plan.getPlanElements()) {
+				if (pe instanceof Leg l) {
+					if (leg == this.departureTimes.length || l.getDepartureTime().seconds() != this.departureTimes[leg]
+							|| checksum((NetworkRoute) l.getRoute()) != this.checksums[leg]) {
+						return false;
+					}
+					leg++;
+				}
+			}
+			return leg == this.departureTimes.length;
+		}
+
+		private static long checksum(NetworkRoute route) {
+			long checksum = route.getLinkIds().size();
+			for (Id<Link> linkId : route.getLinkIds()) {
+				checksum = (checksum ^ linkId.index()) * 0x9E3779B97F4A7C15L;
+			}
+			return checksum;
+		}
+	}
 }
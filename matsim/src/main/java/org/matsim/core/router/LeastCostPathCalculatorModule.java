@@ -22,14 +22,20 @@
 
 package org.matsim.core.router;
 
+import com.google.inject.Singleton;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.ControllerConfigGroup;
 import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.router.speedy.SpeedyALTFactory;
+import org.matsim.core.router.speedy.SpeedyCHFactory;
 import org.matsim.core.router.util.*;
 
 public class LeastCostPathCalculatorModule extends AbstractModule {
 
+    private static final Logger log = LogManager.getLogger(LeastCostPathCalculatorModule.class);
+
     @Override
     public void install() {
 	    // yy The code below will install _one_ LeastCostPathCalculator, which will be Dijkstra or Landmarks or something.  It will be the
@@ -43,6 +49,17 @@ public class LeastCostPathCalculatorModule extends AbstractModule {
             bind(LeastCostPathCalculatorFactory.class).to(AStarLandmarksFactory.class);
         } else if (config.controller().getRoutingAlgorithmType().equals(ControllerConfigGroup.RoutingAlgorithmType.SpeedyALT)) {
             bind(LeastCostPathCalculatorFactory.class).to(SpeedyALTFactory.class);
+        } else if (config.controller().getRoutingAlgorithmType().equals(ControllerConfigGroup.RoutingAlgorithmType.SpeedyCH)
+                && config.routing().getRoutingRandomness() != 0.) {
+            // the contraction hierarchy is customized without persons, so it cannot use travel disutilities randomized per person
+            log.warn("The routing algorithm " + ControllerConfigGroup.RoutingAlgorithmType.SpeedyCH + " cannot use randomized travel "
+                    + "disutilities, using " + ControllerConfigGroup.RoutingAlgorithmType.SpeedyALT + " instead. Set routingRandomness in the "
+                    + "routing config group to zero to use " + ControllerConfigGroup.RoutingAlgorithmType.SpeedyCH + ".");
+            bind(LeastCostPathCalculatorFactory.class).to(SpeedyALTFactory.class);
+        } else if (config.controller().getRoutingAlgorithmType().equals(ControllerConfigGroup.RoutingAlgorithmType.SpeedyCH)) {
+            bind(LeastCostPathCalculatorFactory.class).to(SpeedyCHFactory.class);
+            // one instance, so the contraction hierarchy is shared by all routers
+            bind(SpeedyCHFactory.class).in(Singleton.class);
         }
     }
 
@@ -7,8 +7,19 @@ import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.router.speedy.SpeedyGraph.LinkIterator;
 import org.matsim.core.router.util.TravelDisutility;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -18,6 +29,13 @@ import java.util.concurrent.Future;
 /**
  * Preprocessed data for the ALT algorithm, see {@link SpeedyALT}.
  *
+ * The landmark trees are based on the minimum travel disutility of each link. The trees of the different landmarks are
+ * calculated in parallel, already while the next landmarks are selected.
+ *
+ * Landmark data calculated for one travel disutility can be reused for another one with similar minimum link costs, see
+ * {@link #reuseFor(double[], double)}, and it can be written to a file ({@link #writeFile(Path)}) and memory-mapped
+ * from there again ({@link #readFile(SpeedyGraph, Path)}).
+ *
  * This class is thread-safe and can safely be used by multiple threads.
  *
  * @author mrieser / Simunto, sponsored by SBB Swiss Federal Railways
@@ -26,25 +44,106 @@ class SpeedyALTData {
 
 	private final static Logger LOG = LogManager.getLogger(SpeedyALTData.class);
 
+	private static final int FILE_MAGIC = 0x53414c54; // "SALT"
+	private static final int FILE_VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+	/** the heap array has less than 2^31 elements, and at least 2 per node, so it is always a single chunk */
+	private static final int HEAP_CHUNK_SHIFT = 30;
+
 	final SpeedyGraph graph;
 	private final int landmarksCount;
-	private final TravelDisutility travelCosts;
 	private final int[] landmarksNodeIndices;
-	private final double[] nodesData; // for each node: 2 values per landmark
+	private final DoubleBuffer[] nodesData; // for each node: 2 values per landmark. Either on the heap, or memory-mapped in chunks of 2^chunkShift nodes.
+	private final int chunkShift;
+	private final int chunkMask;
 	private final int[] deadendData;
+	private final double[] linkCosts; // the minimum travel cost of each link, as used to calculate the landmark trees
+	private final double costScale; // <= 1, keeps the estimates a lower bound if the current link costs are lower than linkCosts
 	private final double minTravelCostPerLength;
 
 	public SpeedyALTData(SpeedyGraph graph, int landmarksCount, TravelDisutility travelCosts) {
+		this(graph, landmarksCount, travelCosts, Runtime.getRuntime().availableProcessors());
+	}
+
+	public SpeedyALTData(SpeedyGraph graph, int landmarksCount, TravelDisutility travelCosts, int numberOfThreads) {
+		this(graph, landmarksCount, calcLinkCosts(graph, travelCosts), numberOfThreads);
+	}
+
+	SpeedyALTData(SpeedyGraph graph, int landmarksCount, double[] linkCosts, int numberOfThreads) {
 		this.graph = graph;
 		this.landmarksCount = landmarksCount;
-		this.travelCosts = travelCosts;
 		this.landmarksNodeIndices = new int[landmarksCount];
-		this.nodesData = new double[graph.nodeCount * (landmarksCount * 2)];
+		this.linkCosts = linkCosts;
+		this.costScale = 1.0;
 		this.deadendData = new int[graph.nodeCount];
+		double[] data = new double[graph.nodeCount * (landmarksCount * 2)];
 
 		this.findDeadEnds();
-		this.calcLandmarks();
-		this.minTravelCostPerLength = this.calcMinTravelCostPerLength();
+		this.calcLandmarks(data, numberOfThreads);
+		this.nodesData = new DoubleBuffer[] { DoubleBuffer.wrap(data) };
+		this.chunkShift = HEAP_CHUNK_SHIFT;
+		this.chunkMask = (1 << HEAP_CHUNK_SHIFT) - 1;
+		this.minTravelCostPerLength = calcMinTravelCostPerLength(graph, linkCosts);
+	}
+
+	private SpeedyALTData(SpeedyGraph graph, int[] landmarksNodeIndices, DoubleBuffer[] nodesData, int chunkShift, int[] deadendData, double[] linkCosts, double costScale, double[] currentLinkCosts) {
+		this.graph = graph;
+		this.landmarksCount = landmarksNodeIndices.length;
+		this.landmarksNodeIndices = landmarksNodeIndices;
+		this.nodesData = nodesData;
+		this.chunkShift = chunkShift;
+		this.chunkMask = (1 << chunkShift) - 1;
+		this.deadendData = deadendData;
+		this.linkCosts = linkCosts;
+		this.costScale = costScale;
+		this.minTravelCostPerLength = calcMinTravelCostPerLength(graph, currentLinkCosts);
+	}
+
+	/**
+	 * @return the minimum travel disutility of each link, indexed like the links in the graph.
+	 */
+	static double[] calcLinkCosts(SpeedyGraph graph, TravelDisutility travelCosts) {
+		double[] costs = new double[graph.linkCount];
+		for (int linkIdx = 0; linkIdx < graph.linkCount; linkIdx++) {
+			Link link = graph.getLink(linkIdx);
+			if (link != null) {
+				costs[linkIdx] = travelCosts.getLinkMinimumTravelDisutility(link);
+			}
+		}
+		return costs;
+	}
+
+	/**
+	 * Checks if the landmark data can be used for different link costs. This is the case if no link cost differs by
+	 * more than the given relative threshold from the costs the landmark trees were calculated with. If some costs are
+	 * lower, all estimates are scaled down accordingly, so they stay a lower bound and routes are still least cost.
+	 *
+	 * @return landmark data for the given link costs sharing the trees with this one, or <code>null</code> if the
+	 * link costs differ too much and the landmark trees should be calculated again.
+	 */
+	SpeedyALTData reuseFor(double[] currentLinkCosts, double threshold) {
+		double minRatio = 1.0;
+		double maxRatio = 1.0;
+		for (int linkIdx = 0; linkIdx < this.linkCosts.length; linkIdx++) {
+			double treeCost = this.linkCosts[linkIdx];
+			double currentCost = currentLinkCosts[linkIdx];
+			if (currentCost == treeCost) {
+				continue;
+			}
+			if (treeCost <= 0) {
+				if (currentCost < treeCost) {
+					return null;
+				}
+				continue; // still a lower bound
+			}
+			double ratio = currentCost / treeCost;
+			minRatio = Math.min(minRatio, ratio);
+			maxRatio = Math.max(maxRatio, ratio);
+		}
+		if (minRatio < 1.0 - threshold || maxRatio > 1.0 + threshold) {
+			return null;
+		}
+		return new SpeedyALTData(this.graph, this.landmarksNodeIndices, this.nodesData, this.chunkShift, this.deadendData, this.linkCosts, minRatio, currentLinkCosts);
 	}
 
 	private void findDeadEnds() {
@@ -128,7 +227,7 @@ class SpeedyALTData {
 		return otherNodeIndex;
 	}
 
-	private void calcLandmarks() {
+	private void calcLandmarks(double[] nodesData, int numberOfThreads) {
 		LOG.info("calculate landmarks...");
 		Node firstNode = null;
 		for (int i = 0; i < this.graph.nodeCount; i++) {
@@ -142,40 +241,50 @@ class SpeedyALTData {
 			return;
 		}
 
-		Future<double[]>[] trees = new Future[this.landmarksCount * 2];
-		ExecutorService executor = Executors.newFixedThreadPool(4);
-
-		int firstLandmarkIndex = firstNode.getId().index();
-		this.landmarksNodeIndices[0] = firstLandmarkIndex;
-		trees[0] = executor.submit(() -> calculateTreeForward(firstLandmarkIndex));
-		trees[1] = executor.submit(() -> calculateTreeBackward(firstLandmarkIndex));
+		List<Future<?>> trees = new ArrayList<>(this.landmarksCount * 2);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(numberOfThreads, this.landmarksCount * 2)));
+		try {
+			// number of links to the nearest landmark so far, updated with every new landmark
+			int[] hops = new int[this.graph.nodeCount];
+			int[] queue = new int[this.graph.nodeCount];
+			Arrays.fill(hops, Integer.MAX_VALUE);
+
+			int landmark = firstNode.getId().index();
+			for (int i = 0; i < this.landmarksCount; i++) {
+				if (i > 0) {
+					landmark = findFarthestNode(hops);
+				}
+				this.landmarksNodeIndices[i] = landmark;
 
-		for (int i = 1; i < this.landmarksCount; i++) {
-			int nextLandmark = calculateNextLandmark(i);
-			this.landmarksNodeIndices[i] = nextLandmark;
+				int landmarkIndex = landmark;
+				int offset = i * 2;
+				trees.add(executor.submit(() -> setNodeData(nodesData, calculateTreeForward(landmarkIndex), offset)));
+				trees.add(executor.submit(() -> setNodeData(nodesData, calculateTreeBackward(landmarkIndex), offset + 1)));
 
-			trees[i * 2] = executor.submit(() -> calculateTreeForward(nextLandmark));
-			trees[i * 2 + 1] = executor.submit(() -> calculateTreeBackward(nextLandmark));
-		}
+				if (i + 1 < this.landmarksCount) {
+					updateHops(hops, queue, landmark);
+				}
+			}
 
-		for (int i = 0; i < trees.length; i++) {
-			try {
-				double[] data = trees[i].get();
-				setNodeData(data, i);
-			} catch (InterruptedException | ExecutionException e) {
-				LOG.error(e);
+			for (Future<?> tree : trees) {
+				tree.get();
 			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdown();
 		}
-		executor.shutdown();
 	}
 
-	private double calcMinTravelCostPerLength() {
-		LOG.info("calculate min travelcost...");
+	private static double calcMinTravelCostPerLength(SpeedyGraph graph, double[] linkCosts) {
 		double minCost = Double.POSITIVE_INFINITY;
 		for (int linkIdx = 0; linkIdx < graph.linkCount; linkIdx++) {
-			Link link = this.graph.getLink(linkIdx);
+			Link link = graph.getLink(linkIdx);
 			if (link != null) {
-				double cost = this.travelCosts.getLinkMinimumTravelDisutility(link) / link.getLength();
+				double cost = linkCosts[linkIdx] / link.getLength();
 				if (cost < minCost) {
 					minCost = cost;
 				}
@@ -184,51 +293,52 @@ class SpeedyALTData {
 		return minCost;
 	}
 
-	private void setNodeData(double[] data, int offset) {
+	private void setNodeData(double[] nodesData, double[] data, int offset) {
 		int multiplier = this.landmarksCount * 2;
 		for (int i = 0; i < this.graph.nodeCount; i++) {
-			this.nodesData[i * multiplier + offset] = data[i];
+			nodesData[i * multiplier + offset] = data[i];
 		}
 	}
 
-	private int calculateNextLandmark(int existingCount) {
-		double[] data = new double[this.graph.nodeCount];
-		Arrays.fill(data, Double.POSITIVE_INFINITY);
-		LinkIterator outLI = this.graph.getOutLinkIterator();
-
-		for (int i = 0; i < existingCount; i++) {
-			data[this.landmarksNodeIndices[i]] = 0;
-		}
-
-		NodeMinHeap pq = new NodeMinHeap(this.graph.nodeCount, i -> data[i], (i, c) -> data[i] = c);
-		for (int i = 0; i < existingCount; i++) {
-			pq.insert(this.landmarksNodeIndices[i]);
+	/**
+	 * The landmarks should be spread over the network, so the next one is the node with the most links to the nearest
+	 * existing landmark.
+	 */
+	private int findFarthestNode(int[] hops) {
+		int farthestNodeIdx = -1;
+		int maxHops = -1;
+		for (int nodeIdx = 0; nodeIdx < hops.length; nodeIdx++) {
+			int h = hops[nodeIdx];
+			if (h != Integer.MAX_VALUE && h > maxHops) {
+				maxHops = h;
+				farthestNodeIdx = nodeIdx;
+			}
 		}
+		return farthestNodeIdx;
+	}
 
-		int lastNodeIdx = -1;
-		while (!pq.isEmpty()) {
-			final int nodeIdx = pq.poll();
-			lastNodeIdx = nodeIdx;
-			double currCost = data[nodeIdx];
-
+	/**
+	 * Breadth-first search from a new landmark. Only nodes which are now closer to a landmark than before are visited,
+	 * so the hops do not need to be calculated from scratch for each landmark.
+	 */
+	private void updateHops(int[] hops, int[] queue, int landmark) {
+		LinkIterator outLI = this.graph.getOutLinkIterator();
+		int head = 0;
+		int tail = 0;
+		hops[landmark] = 0;
+		queue[tail++] = landmark;
+		while (head < tail) {
+			int nodeIdx = queue[head++];
+			int newHops = hops[nodeIdx] + 1;
 			outLI.reset(nodeIdx);
 			while (outLI.next()) {
 				int toNode = outLI.getToNodeIndex();
-
-				double newCost = currCost + 1;
-
-				double oldCost = data[toNode];
-				if (Double.isFinite(oldCost)) {
-					if (newCost < oldCost) {
-						pq.decreaseKey(toNode, newCost);
-					}
-				} else {
-					data[toNode] = newCost;
-					pq.insert(toNode);
+				if (newHops < hops[toNode]) {
+					hops[toNode] = newHops;
+					queue[tail++] = toNode;
 				}
 			}
 		}
-		return lastNodeIdx;
 	}
 
 	private double[] calculateTreeForward(int node) {
@@ -249,7 +359,7 @@ class SpeedyALTData {
 			while (outLI.next()) {
 				int toNode = outLI.getToNodeIndex();
 
-				double newCost = currCost + this.travelCosts.getLinkMinimumTravelDisutility(this.graph.getLink(outLI.getLinkIndex()));
+				double newCost = currCost + this.linkCosts[outLI.getLinkIndex()];
 
 				double oldCost = data[toNode];
 				if (Double.isFinite(oldCost)) {
@@ -283,7 +393,7 @@ class SpeedyALTData {
 			while (inLI.next()) {
 				int fromNode = inLI.getFromNodeIndex();
 
-				double newCost = currCost + this.travelCosts.getLinkMinimumTravelDisutility(this.graph.getLink(inLI.getLinkIndex()));
+				double newCost = currCost + this.linkCosts[inLI.getLinkIndex()];
 
 				double oldCost = data[fromNode];
 				if (Double.isFinite(oldCost)) {
@@ -299,6 +409,151 @@ class SpeedyALTData {
 		return data;
 	}
 
+	/**
+	 * Writes the landmark data to a file which can be memory-mapped with {@link #readFile(SpeedyGraph, Path)}. The file is
+	 * written to a temporary file first and then moved, so concurrent readers never see a partially written file.
+	 */
+	void writeFile(Path file) throws IOException {
+		Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(FILE_MAGIC);
+			buffer.putInt(FILE_VERSION);
+			buffer.putLong(networkFingerprint(this.graph));
+			buffer.putInt(this.graph.nodeCount);
+			buffer.putInt(this.graph.linkCount);
+			buffer.putInt(this.landmarksCount);
+			buffer.putInt(0); // padding, so the doubles are aligned
+			for (int value : this.landmarksNodeIndices) {
+				buffer = ensureRemaining(channel, buffer, Integer.BYTES);
+				buffer.putInt(value);
+			}
+			for (int value : this.deadendData) {
+				buffer = ensureRemaining(channel, buffer, Integer.BYTES);
+				buffer.putInt(value);
+			}
+			if ((this.landmarksCount + this.graph.nodeCount) % 2 != 0) {
+				buffer = ensureRemaining(channel, buffer, Integer.BYTES);
+				buffer.putInt(0);
+			}
+			for (double value : this.linkCosts) {
+				buffer = ensureRemaining(channel, buffer, Double.BYTES);
+				buffer.putDouble(value);
+			}
+			for (int nodeIdx = 0; nodeIdx < this.graph.nodeCount; nodeIdx++) {
+				for (int i = 0; i < this.landmarksCount * 2; i++) {
+					buffer = ensureRemaining(channel, buffer, Double.BYTES);
+					buffer.putDouble(getNodeData(nodeIdx, i));
+				}
+			}
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+		Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static ByteBuffer ensureRemaining(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+		if (buffer.remaining() < bytes) {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+		return buffer;
+	}
+
+	/**
+	 * Reads landmark data written by {@link #writeFile(Path)}. The landmark trees are not copied to the heap, but
+	 * memory-mapped, so they are only loaded by the operating system when they are accessed, and shared with other
+	 * processes using the same file. Large files are mapped in several chunks, as a single mapping is limited to 2 GB.
+	 *
+	 * @return the landmark data, or <code>null</code> if the file was written for a different network or by an
+	 * incompatible version.
+	 */
+	static SpeedyALTData readFile(SpeedyGraph graph, Path file) throws IOException {
+		return readFile(graph, file, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param maxChunkBytes the maximum size of each memory-mapped chunk of the landmark trees.
+	 */
+	static SpeedyALTData readFile(SpeedyGraph graph, Path file, int maxChunkBytes) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < HEADER_SIZE) {
+				return null;
+			}
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt() != FILE_MAGIC || header.getInt() != FILE_VERSION) {
+				return null;
+			}
+			if (header.getLong() != networkFingerprint(graph) || header.getInt() != graph.nodeCount || header.getInt() != graph.linkCount) {
+				return null;
+			}
+			int landmarksCount = header.getInt();
+			int padding = (landmarksCount + graph.nodeCount) % 2;
+			long nodesDataStart = HEADER_SIZE + (long) Integer.BYTES * (landmarksCount + graph.nodeCount + padding) + (long) Double.BYTES * graph.linkCount;
+			long nodeBytes = (long) Double.BYTES * landmarksCount * 2;
+			if (size != nodesDataStart + nodeBytes * graph.nodeCount) {
+				return null;
+			}
+			if (nodesDataStart - HEADER_SIZE > Integer.MAX_VALUE) {
+				throw new IOException("The network in " + file + " has too many links to read the landmark data.");
+			}
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, nodesDataStart - HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			int[] landmarksNodeIndices = new int[landmarksCount];
+			buffer.asIntBuffer().get(landmarksNodeIndices);
+			buffer.position(buffer.position() + landmarksCount * Integer.BYTES);
+			int[] deadendData = new int[graph.nodeCount];
+			buffer.asIntBuffer().get(deadendData);
+			buffer.position(buffer.position() + (graph.nodeCount + padding) * Integer.BYTES);
+			double[] linkCosts = new double[graph.linkCount];
+			buffer.asDoubleBuffer().get(linkCosts);
+
+			// a node's data is never split between two chunks, and the number of nodes per chunk is a power of two
+			long nodesPerChunk = maxChunkBytes / nodeBytes;
+			if (nodesPerChunk == 0) {
+				throw new IllegalArgumentException("A chunk of " + maxChunkBytes + " bytes cannot hold the data of a single node.");
+			}
+			int chunkShift = Math.min(HEAP_CHUNK_SHIFT, 63 - Long.numberOfLeadingZeros(nodesPerChunk));
+			int chunkCount = graph.nodeCount == 0 ? 0 : ((graph.nodeCount - 1) >>> chunkShift) + 1;
+			DoubleBuffer[] nodesData = new DoubleBuffer[chunkCount];
+			for (int chunk = 0; chunk < chunkCount; chunk++) {
+				long firstNode = (long) chunk << chunkShift;
+				long nodes = Math.min(1L << chunkShift, graph.nodeCount - firstNode);
+				nodesData[chunk] = channel.map(FileChannel.MapMode.READ_ONLY, nodesDataStart + firstNode * nodeBytes, nodes * nodeBytes)
+						.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+			}
+			return new SpeedyALTData(graph, landmarksNodeIndices, nodesData, chunkShift, deadendData, linkCosts, 1.0, linkCosts);
+		}
+	}
+
+	/**
+	 * Node and link indices depend on the order in which the ids were created, so they are part of the fingerprint
+	 * besides the structure of the network.
+	 */
+	static long networkFingerprint(SpeedyGraph graph) {
+		long hash = 1125899906842597L;
+		for (int nodeIdx = 0; nodeIdx < graph.nodeCount; nodeIdx++) {
+			Node node = graph.getNode(nodeIdx);
+			hash = 31 * hash + (node == null ? -1 : node.getId().toString().hashCode());
+		}
+		for (int linkIdx = 0; linkIdx < graph.linkCount; linkIdx++) {
+			Link link = graph.getLink(linkIdx);
+			if (link == null) {
+				hash = 31 * hash - 1;
+			} else {
+				hash = 31 * hash + link.getId().toString().hashCode();
+				hash = 31 * hash + link.getFromNode().getId().index();
+				hash = 31 * hash + link.getToNode().getId().index();
+			}
+		}
+		return hash;
+	}
+
 	int getNodeDeadend(int nodeIndex) {
 		return this.deadendData[nodeIndex];
 	}
@@ -308,11 +563,16 @@ class SpeedyALTData {
 	}
 
 	double getTravelCostFromLandmark(int nodeIndex, int landmarkIndex) {
-		return this.nodesData[nodeIndex * (this.landmarksCount * 2) + 2 * landmarkIndex];
+		return this.costScale * getNodeData(nodeIndex, 2 * landmarkIndex);
 	}
 
 	double getTravelCostToLandmark(int nodeIndex, int landmarkIndex) {
-		return this.nodesData[nodeIndex * (this.landmarksCount * 2) + 2 * landmarkIndex + 1];
+		return this.costScale * getNodeData(nodeIndex, 2 * landmarkIndex + 1);
+	}
+
+	private double getNodeData(int nodeIndex, int offset) {
+		DoubleBuffer chunk = this.nodesData[nodeIndex >>> this.chunkShift];
+		return chunk.get((nodeIndex & this.chunkMask) * (this.landmarksCount * 2) + offset);
 	}
 
 	public double getMinTravelCostPerLength() {
@@ -1,36 +1,134 @@
 package org.matsim.core.router.speedy;
 
+import com.google.common.collect.MapMaker;
+import com.google.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.Config;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * Creates {@link SpeedyALT} instances. The landmark data is calculated once per network and reused for all travel
+ * disutilities with similar minimum link costs (see {@link SpeedyALTData#reuseFor(double[], double)}), e.g. over all
+ * iterations. If a directory is given, the landmark data is stored there and memory-mapped in later runs.
+ *
+ * The minimum link costs are calculated once per travel disutility instance, so they must not change over its lifetime.
+ *
  * @author mrieser / Simunto, sponsored by SBB Swiss Federal Railways
  */
 public class SpeedyALTFactory implements LeastCostPathCalculatorFactory {
 
+	private final static Logger LOG = LogManager.getLogger(SpeedyALTFactory.class);
+
+	public static final double DEFAULT_REFRESH_THRESHOLD = 0.05;
+	/** landmark data for more travel disutilities per network is calculated again when needed */
+	private static final int MAX_LANDMARKS_PER_GRAPH = 4;
+
 	private final Map<Network, SpeedyGraph> graphs = new ConcurrentHashMap<>();
-	private final Map<SpeedyGraph, SpeedyALTData> landmarksData = new ConcurrentHashMap<>();
+	private final Map<SpeedyGraph, List<SpeedyALTData>> landmarksData = new ConcurrentHashMap<>();
+	// compared by identity, and only kept while the travel disutility is in use
+	private final Map<SpeedyGraph, Map<TravelDisutility, double[]>> linkCosts = new ConcurrentHashMap<>();
+	private final double refreshThreshold;
+	private final Path landmarksDirectory;
+	private final int numberOfThreads;
+
+	public SpeedyALTFactory() {
+		this(DEFAULT_REFRESH_THRESHOLD, null, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param refreshThreshold landmark data is reused if no minimum link cost differs by more than this fraction.
+	 * @param landmarksDirectory directory to store and load landmark data, may be <code>null</code>.
+	 * @param numberOfThreads the number of threads to calculate the landmark trees with.
+	 */
+	public SpeedyALTFactory(double refreshThreshold, Path landmarksDirectory, int numberOfThreads) {
+		this.refreshThreshold = refreshThreshold;
+		this.landmarksDirectory = landmarksDirectory;
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+	}
+
+	@Inject
+	SpeedyALTFactory(Config config) {
+		this(config.controller().getLandmarksRefreshThreshold(),
+				config.controller().getLandmarksDirectory() == null ? null : Paths.get(config.controller().getLandmarksDirectory()),
+				config.global().getNumberOfThreads() > 0 ? config.global().getNumberOfThreads() : Runtime.getRuntime().availableProcessors());
+	}
 
 	@Override
 	public LeastCostPathCalculator createPathCalculator(Network network, TravelDisutility travelCosts, TravelTime travelTimes) {
-		SpeedyGraph graph = this.graphs.get(network);
-		if (graph == null) {
-			graph = new SpeedyGraph(network);
-			this.graphs.put(network, graph);
-		}
-		SpeedyALTData landmarks = this.landmarksData.get(graph);
-		if (landmarks == null) {
-			int landmarksCount = Math.min(16, graph.nodeCount);
-			landmarks = new SpeedyALTData(graph, landmarksCount, travelCosts);
-			this.landmarksData.put(graph, landmarks);
+		SpeedyGraph graph = this.graphs.computeIfAbsent(network, SpeedyGraph::new);
+		List<SpeedyALTData> graphLandmarks = this.landmarksData.computeIfAbsent(graph, g -> new ArrayList<>());
+		Map<TravelDisutility, double[]> linkCostsByCosts = this.linkCosts.computeIfAbsent(graph, g -> new MapMaker().weakKeys().makeMap());
+		double[] linkCosts = linkCostsByCosts.computeIfAbsent(travelCosts, c -> SpeedyALTData.calcLinkCosts(graph, c));
+		SpeedyALTData landmarks;
+		// other threads wait for the landmarks instead of calculating the same ones again
+		synchronized (graphLandmarks) {
+			landmarks = findLandmarks(graphLandmarks, linkCosts);
+			if (landmarks == null) {
+				landmarks = loadOrCalculateLandmarks(graph, linkCosts);
+				if (graphLandmarks.size() == MAX_LANDMARKS_PER_GRAPH) {
+					graphLandmarks.remove(0);
+				}
+				graphLandmarks.add(landmarks);
+			}
 		}
 		return new SpeedyALT(landmarks, travelTimes, travelCosts);
 	}
 
+	private SpeedyALTData findLandmarks(List<SpeedyALTData> graphLandmarks, double[] linkCosts) {
+		for (SpeedyALTData candidate : graphLandmarks) {
+			SpeedyALTData landmarks = candidate.reuseFor(linkCosts, this.refreshThreshold);
+			if (landmarks != null) {
+				return landmarks;
+			}
+		}
+		return null;
+	}
+
+	private SpeedyALTData loadOrCalculateLandmarks(SpeedyGraph graph, double[] linkCosts) {
+		int landmarksCount = Math.min(16, graph.nodeCount);
+		Path file = null;
+		if (this.landmarksDirectory != null) {
+			file = this.landmarksDirectory.resolve("landmarks-" + Long.toHexString(SpeedyALTData.networkFingerprint(graph)) + "-" + landmarksCount + ".bin");
+			if (Files.exists(file)) {
+				try {
+					SpeedyALTData stored = SpeedyALTData.readFile(graph, file);
+					SpeedyALTData landmarks = stored == null ? null : stored.reuseFor(linkCosts, this.refreshThreshold);
+					if (landmarks != null) {
+						LOG.info("using landmarks from " + file);
+						return landmarks;
+					}
+					LOG.info("landmarks in " + file + " do not match the network or travel disutility, calculating them again.");
+				} catch (IOException e) {
+					LOG.warn("could not read landmarks from " + file, e);
+				}
+			}
+		}
+
+		SpeedyALTData landmarks = new SpeedyALTData(graph, landmarksCount, linkCosts, this.numberOfThreads);
+		if (file != null) {
+			try {
+				Files.createDirectories(this.landmarksDirectory);
+				landmarks.writeFile(file);
+				LOG.info("landmarks written to " + file);
+			} catch (IOException e) {
+				LOG.warn("could not write landmarks to " + file, e);
+			}
+		}
+		return landmarks;
+	}
+
 }
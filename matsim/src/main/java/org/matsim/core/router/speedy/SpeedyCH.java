@@ -0,0 +1,268 @@
+package org.matsim.core.router.speedy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Routes with a customizable contraction hierarchy, see {@link SpeedyCHData}.
+ *
+ * A query searches upwards in the hierarchy from the start and from the end node at the same time, and unpacks the
+ * shortcuts of the best path found where both searches meet. The search uses the edge weights customized for the time
+ * bin of the departure time, so a route is least cost for the travel costs at the time of departure. Travel time and
+ * travel cost of the returned path are calculated along the path with the actual times each link is entered, like
+ * {@link SpeedyALT} does.
+ *
+ * The travel disutility is evaluated without person and vehicle when customizing. The cost of each route found for a
+ * person or vehicle is evaluated with and without them, and once they differ, the travel disutility is treated as
+ * person specific: all later queries with it are answered by a fallback router, by default {@link SpeedyALT}. Travel
+ * disutilities that are randomized per person cannot be customized at all.
+ *
+ * This implementation is not thread-safe. In the case of multi-threading, every thread should use
+ * a separate instance. (But the used {@link SpeedyCHData.Metrics} are thread-safe and can be shared by multiple
+ * instances).
+ */
+public class SpeedyCH implements LeastCostPathCalculator {
+
+	private final static Logger LOG = LogManager.getLogger(SpeedyCH.class);
+
+	private final SpeedyGraph graph;
+	private final SpeedyCHData chData;
+	private final SpeedyCHData.Metrics metrics;
+	private final TravelTime tt;
+	private final TravelDisutility td;
+	private final Supplier<LeastCostPathCalculator> fallbackSupplier;
+	private LeastCostPathCalculator fallback = null;
+	private final double[] cost; // 2 entries per rank: forward, backward
+	private final int[] usedEdge; // 2 entries per rank: forward, backward
+	private int currentIteration = Integer.MIN_VALUE;
+	private final int[] iterationIds; // 2 entries per rank: forward, backward
+	private final DAryMinHeap forwardPQ;
+	private final DAryMinHeap backwardPQ;
+	private int[] unpackStack = new int[64];
+
+	public SpeedyCH(SpeedyCHData.Metrics metrics, TravelTime tt, TravelDisutility td) {
+		this(metrics, tt, td, () -> new SpeedyALT(new SpeedyALTData(metrics.getData().graph, Math.min(16, metrics.getData().nodeCount), td), tt, td));
+	}
+
+	/**
+	 * @param fallbackSupplier creates the router used once the travel disutility turns out to be person specific.
+	 */
+	public SpeedyCH(SpeedyCHData.Metrics metrics, TravelTime tt, TravelDisutility td, Supplier<LeastCostPathCalculator> fallbackSupplier) {
+		this.chData = metrics.getData();
+		this.graph = this.chData.graph;
+		this.metrics = metrics;
+		this.tt = tt;
+		this.td = td;
+		this.fallbackSupplier = fallbackSupplier;
+		int nodeCount = this.chData.nodeCount;
+		this.cost = new double[nodeCount * 2];
+		this.usedEdge = new int[nodeCount * 2];
+		this.iterationIds = new int[nodeCount * 2];
+		this.forwardPQ = new DAryMinHeap(nodeCount, 6);
+		this.backwardPQ = new DAryMinHeap(nodeCount, 6);
+		Arrays.fill(this.iterationIds, this.currentIteration);
+	}
+
+	@Override
+	public Path calcLeastCostPath(Node startNode, Node endNode, double startTime, Person person, Vehicle vehicle) {
+		if (this.metrics.isPersonSpecific()) {
+			return getFallback().calcLeastCostPath(startNode, endNode, startTime, person, vehicle);
+		}
+		this.currentIteration++;
+		if (this.currentIteration == Integer.MAX_VALUE) {
+			// reset iteration as we overflow
+			Arrays.fill(this.iterationIds, this.currentIteration);
+			this.currentIteration = Integer.MIN_VALUE;
+		}
+		int startRank = this.chData.getRank(startNode.getId().index());
+		int endRank = this.chData.getRank(endNode.getId().index());
+		SpeedyCHData.Metric metric = this.metrics.getMetric(startTime);
+		float[] weights = metric.weights;
+
+		this.forwardPQ.clear();
+		this.backwardPQ.clear();
+		visit(this.forwardPQ, startRank, SpeedyCHData.UP, 0, -1);
+		visit(this.backwardPQ, endRank, SpeedyCHData.DOWN, 0, -1);
+
+		double bestCost = Double.POSITIVE_INFINITY;
+		int meetingRank = -1;
+		while (true) {
+			// with upward searches, each search has to continue until it cannot find anything better on its own
+			boolean forwardDone = this.forwardPQ.isEmpty() || getCost(this.forwardPQ.peek(), SpeedyCHData.UP) >= bestCost;
+			boolean backwardDone = this.backwardPQ.isEmpty() || getCost(this.backwardPQ.peek(), SpeedyCHData.DOWN) >= bestCost;
+			if (forwardDone && backwardDone) {
+				break;
+			}
+			int direction;
+			if (forwardDone) {
+				direction = SpeedyCHData.DOWN;
+			} else if (backwardDone) {
+				direction = SpeedyCHData.UP;
+			} else {
+				direction = getCost(this.forwardPQ.peek(), SpeedyCHData.UP) <= getCost(this.backwardPQ.peek(), SpeedyCHData.DOWN) ? SpeedyCHData.UP : SpeedyCHData.DOWN;
+			}
+			DAryMinHeap pq = direction == SpeedyCHData.UP ? this.forwardPQ : this.backwardPQ;
+			int other = 1 - direction;
+
+			int rank = pq.poll();
+			double currCost = getCost(rank, direction);
+			if (this.iterationIds[rank * 2 + other] == this.currentIteration) {
+				double totalCost = currCost + getCost(rank, other);
+				if (totalCost < bestCost) {
+					bestCost = totalCost;
+					meetingRank = rank;
+				}
+			}
+
+			for (int edge = this.chData.getFirstEdge(rank), last = this.chData.getFirstEdge(rank + 1); edge < last; edge++) {
+				float weight = weights[edge * 2 + direction];
+				if (weight == Float.POSITIVE_INFINITY) {
+					continue;
+				}
+				int head = this.chData.getEdgeHead(edge);
+				double newCost = currCost + weight;
+				if (this.iterationIds[head * 2 + direction] == this.currentIteration) {
+					if (newCost < getCost(head, direction)) {
+						pq.decreaseKey(head, newCost);
+						setData(head, direction, newCost, edge);
+					}
+				} else {
+					visit(pq, head, direction, newCost, edge);
+				}
+			}
+		}
+
+		if (meetingRank >= 0) {
+			Path path = constructPath(startNode, meetingRank, startRank, endRank, metric.via, startTime, person, vehicle);
+			if (path == null) {
+				// the travel disutility turned out to be person specific
+				return getFallback().calcLeastCostPath(startNode, endNode, startTime, person, vehicle);
+			}
+			return path;
+		}
+		LOG.warn("No route was found from node " + startNode.getId() + " to node " + endNode.getId() + ". Some possible reasons:");
+		LOG.warn("  * Network is not connected.  Run NetworkCleaner().") ;
+		LOG.warn("  * Network for considered mode does not even exist.  Modes need to be entered for each link in network.xml.");
+		LOG.warn("  * Network for considered mode is not connected to starting or ending point of route.  Setting insertingAccessEgressWalk to true may help.");
+		LOG.warn("This will now return null, but it may fail later with a NullPointerException.");
+		return null;
+	}
+
+	private LeastCostPathCalculator getFallback() {
+		if (this.fallback == null) {
+			this.fallback = this.fallbackSupplier.get();
+		}
+		return this.fallback;
+	}
+
+	private void visit(DAryMinHeap pq, int rank, int direction, double cost, int edge) {
+		setData(rank, direction, cost, edge);
+		pq.insert(rank, cost);
+	}
+
+	private void setData(int rank, int direction, double cost, int edge) {
+		int index = rank * 2 + direction;
+		this.cost[index] = cost;
+		this.usedEdge[index] = edge;
+		this.iterationIds[index] = this.currentIteration;
+	}
+
+	private double getCost(int rank, int direction) {
+		return this.cost[rank * 2 + direction];
+	}
+
+	/**
+	 * @return the path, or <code>null</code> if its cost for the person or vehicle differs from the cost the edge weights
+	 * were customized with.
+	 */
+	private Path constructPath(Node startNode, int meetingRank, int startRank, int endRank, int[] via, double startTime, Person person, Vehicle vehicle) {
+		List<Link> links = new ArrayList<>();
+
+		// the forward search is followed back from the meeting node, so its edges are collected in reverse order
+		List<Integer> forwardEdges = new ArrayList<>();
+		for (int rank = meetingRank; rank != startRank; ) {
+			int edge = this.usedEdge[rank * 2 + SpeedyCHData.UP];
+			forwardEdges.add(edge);
+			rank = this.chData.getEdgeTail(edge);
+		}
+		for (int i = forwardEdges.size() - 1; i >= 0; i--) {
+			unpack(forwardEdges.get(i), SpeedyCHData.UP, via, links);
+		}
+		for (int rank = meetingRank; rank != endRank; ) {
+			int edge = this.usedEdge[rank * 2 + SpeedyCHData.DOWN];
+			unpack(edge, SpeedyCHData.DOWN, via, links);
+			rank = this.chData.getEdgeTail(edge);
+		}
+
+		List<Node> nodes = new ArrayList<>(links.size() + 1);
+		nodes.add(startNode);
+		double time = startTime;
+		double travelCost = 0;
+		boolean checkCost = person != null || vehicle != null;
+		double customizedCost = 0;
+		for (Link link : links) {
+			nodes.add(link.getToNode());
+			travelCost += this.td.getLinkTravelDisutility(link, time, person, vehicle);
+			if (checkCost) {
+				customizedCost += this.td.getLinkTravelDisutility(link, time, null, null);
+			}
+			time += this.tt.getLinkTravelTime(link, time, person, vehicle);
+		}
+		if (checkCost && Math.abs(travelCost - customizedCost) > 1e-6 * Math.max(1.0, Math.abs(customizedCost))) {
+			if (this.metrics.setPersonSpecific()) {
+				LOG.warn("The travel disutility " + this.td.getClass().getName() + " depends on the person or vehicle, which the contraction "
+						+ "hierarchy cannot take into account. Routes with it are calculated by " + getFallback().getClass().getSimpleName() + " from now on.");
+			}
+			return null;
+		}
+		return new Path(nodes, links, time - startTime, travelCost);
+	}
+
+	/**
+	 * Replaces shortcuts by the two edges they lead over, until only original links remain.
+	 */
+	private void unpack(int edge, int direction, int[] via, List<Link> links) {
+		int[] stack = this.unpackStack;
+		int size = 0;
+		stack[size++] = edge * 2 + direction;
+		while (size > 0) {
+			int index = stack[--size];
+			int viaValue = via[index];
+			if (viaValue < 0) {
+				links.add(this.graph.getLink(-(viaValue + 1)));
+				continue;
+			}
+			int tail = this.chData.getEdgeTail(index / 2);
+			int head = this.chData.getEdgeHead(index / 2);
+			int toTail = this.chData.findEdge(viaValue, tail);
+			int toHead = this.chData.findEdge(viaValue, head);
+			if (size + 2 > stack.length) {
+				stack = Arrays.copyOf(stack, stack.length * 2);
+				this.unpackStack = stack;
+			}
+			// push in reverse order of travel
+			if (index % 2 == SpeedyCHData.UP) {
+				// tail -> via -> head
+				stack[size++] = toHead * 2 + SpeedyCHData.UP;
+				stack[size++] = toTail * 2 + SpeedyCHData.DOWN;
+			} else {
+				// head -> via -> tail
+				stack[size++] = toTail * 2 + SpeedyCHData.UP;
+				stack[size++] = toHead * 2 + SpeedyCHData.DOWN;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,296 @@
+package org.matsim.core.router.speedy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.router.speedy.SpeedyGraph.LinkIterator;
+import org.matsim.core.router.util.TravelDisutility;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Preprocessed data for the contraction hierarchy used by {@link SpeedyCH}.
+ *
+ * The hierarchy is customizable (Dibbelt, Strasser, Wagner: "Customizable Contraction Hierarchies", 2014): the nodes
+ * are ordered ({@link SpeedyCHOrdering}) and contracted without looking at any travel costs. Contracting a node connects
+ * all its higher ranked neighbors with each other, so the resulting edges are valid for any travel disutility. Applying
+ * a travel disutility to the edges ({@link #customize(TravelDisutility, double)}) only needs one pass over the
+ * triangles of the hierarchy and is cheap compared to the contraction, so it can be repeated whenever the travel
+ * times change.
+ *
+ * The nodes are numbered by rank. Every edge connects a lower ranked node (its tail) with a higher ranked one (its head)
+ * and has a weight for both directions, up (tail to head) and down (head to tail).
+ *
+ * This class is thread-safe and can safely be used by multiple threads.
+ */
+class SpeedyCHData {
+
+	private final static Logger LOG = LogManager.getLogger(SpeedyCHData.class);
+
+	static final int UP = 0;
+	static final int DOWN = 1;
+	/** marks a direction which has no original link, and no shortcut */
+	static final int NO_VIA = Integer.MIN_VALUE;
+
+	final SpeedyGraph graph;
+	final int nodeCount;
+	final int edgeCount;
+	private final int[] rankOfNode;
+	private final int[] nodeOfRank;
+	private final int[] firstEdge; // per rank, edges are sorted by head
+	private final int[] edgeHead;
+	private final int[] edgeTail;
+	private final int[] linkEdge; // per link: edge * 2 + direction, -1 for loops
+
+	public SpeedyCHData(SpeedyGraph graph) {
+		this.graph = graph;
+		long start = System.currentTimeMillis();
+		LOG.info("order nodes...");
+		this.nodeOfRank = SpeedyCHOrdering.calculateOrder(graph);
+		this.nodeCount = this.nodeOfRank.length;
+		this.rankOfNode = new int[graph.nodeCount];
+		Arrays.fill(this.rankOfNode, -1);
+		for (int rank = 0; rank < this.nodeCount; rank++) {
+			this.rankOfNode[this.nodeOfRank[rank]] = rank;
+		}
+
+		LOG.info("contract nodes...");
+		int[][] upNeighbors = contract();
+		this.firstEdge = new int[this.nodeCount + 1];
+		int edges = 0;
+		for (int rank = 0; rank < this.nodeCount; rank++) {
+			this.firstEdge[rank] = edges;
+			edges += upNeighbors[rank].length;
+		}
+		this.firstEdge[this.nodeCount] = edges;
+		this.edgeCount = edges;
+		this.edgeHead = new int[edges];
+		this.edgeTail = new int[edges];
+		for (int rank = 0; rank < this.nodeCount; rank++) {
+			int first = this.firstEdge[rank];
+			System.arraycopy(upNeighbors[rank], 0, this.edgeHead, first, upNeighbors[rank].length);
+			Arrays.fill(this.edgeTail, first, this.firstEdge[rank + 1], rank);
+		}
+
+		this.linkEdge = new int[graph.linkCount];
+		Arrays.fill(this.linkEdge, -1);
+		for (int linkIdx = 0; linkIdx < graph.linkCount; linkIdx++) {
+			Link link = graph.getLink(linkIdx);
+			if (link == null) continue; // not all indices might be in use
+			int fromRank = this.rankOfNode[link.getFromNode().getId().index()];
+			int toRank = this.rankOfNode[link.getToNode().getId().index()];
+			if (fromRank == toRank) continue; // loops are never part of a least cost path
+			if (fromRank < toRank) {
+				this.linkEdge[linkIdx] = findEdge(fromRank, toRank) * 2 + UP;
+			} else {
+				this.linkEdge[linkIdx] = findEdge(toRank, fromRank) * 2 + DOWN;
+			}
+		}
+		LOG.info("contraction hierarchy with " + this.nodeCount + " nodes and " + this.edgeCount + " edges ready after "
+				+ (System.currentTimeMillis() - start) / 1000 + " seconds.");
+	}
+
+	/**
+	 * Calculates the higher ranked neighbors of each node after contraction. Instead of adding the edges between the
+	 * neighbors of every contracted node, only the neighbors of its children in the elimination tree need to be
+	 * merged, like in the symbolic factorization of sparse matrices.
+	 */
+	private int[][] contract() {
+		int[][] upNeighbors = new int[this.nodeCount][];
+		int[] firstChild = new int[this.nodeCount];
+		int[] nextSibling = new int[this.nodeCount];
+		int[] marker = new int[this.nodeCount];
+		int[] buffer = new int[this.nodeCount];
+		Arrays.fill(firstChild, -1);
+		Arrays.fill(marker, -1);
+		LinkIterator outLI = this.graph.getOutLinkIterator();
+		LinkIterator inLI = this.graph.getInLinkIterator();
+
+		for (int rank = 0; rank < this.nodeCount; rank++) {
+			int count = 0;
+			marker[rank] = rank;
+			int node = this.nodeOfRank[rank];
+			outLI.reset(node);
+			while (outLI.next()) {
+				int other = this.rankOfNode[outLI.getToNodeIndex()];
+				if (other > rank && marker[other] != rank) {
+					marker[other] = rank;
+					buffer[count++] = other;
+				}
+			}
+			inLI.reset(node);
+			while (inLI.next()) {
+				int other = this.rankOfNode[inLI.getFromNodeIndex()];
+				if (other > rank && marker[other] != rank) {
+					marker[other] = rank;
+					buffer[count++] = other;
+				}
+			}
+			for (int child = firstChild[rank]; child >= 0; child = nextSibling[child]) {
+				for (int other : upNeighbors[child]) {
+					if (marker[other] != rank) { // includes other == rank
+						marker[other] = rank;
+						buffer[count++] = other;
+					}
+				}
+			}
+			int[] neighbors = Arrays.copyOf(buffer, count);
+			Arrays.sort(neighbors);
+			upNeighbors[rank] = neighbors;
+			if (count > 0) {
+				int parent = neighbors[0];
+				nextSibling[rank] = firstChild[parent];
+				firstChild[parent] = rank;
+			}
+		}
+		return upNeighbors;
+	}
+
+	int findEdge(int tail, int head) {
+		int edge = Arrays.binarySearch(this.edgeHead, this.firstEdge[tail], this.firstEdge[tail + 1], head);
+		if (edge < 0) {
+			throw new IllegalStateException("missing edge from rank " + tail + " to " + head);
+		}
+		return edge;
+	}
+
+	int getRank(int nodeIndex) {
+		return this.rankOfNode[nodeIndex];
+	}
+
+	int getFirstEdge(int rank) {
+		return this.firstEdge[rank];
+	}
+
+	int getEdgeHead(int edge) {
+		return this.edgeHead[edge];
+	}
+
+	int getEdgeTail(int edge) {
+		return this.edgeTail[edge];
+	}
+
+	/**
+	 * Calculates the weights of all edges for the given travel disutility at the given time. The disutility is
+	 * evaluated without person and vehicle.
+	 */
+	Metric customize(TravelDisutility travelCosts, double time) {
+		float[] weights = new float[this.edgeCount * 2];
+		int[] via = new int[this.edgeCount * 2];
+		Arrays.fill(weights, Float.POSITIVE_INFINITY);
+		Arrays.fill(via, NO_VIA);
+
+		for (int linkIdx = 0; linkIdx < this.graph.linkCount; linkIdx++) {
+			int index = this.linkEdge[linkIdx];
+			if (index < 0) continue;
+			float cost = (float) travelCosts.getLinkTravelDisutility(this.graph.getLink(linkIdx), time, null, null);
+			if (cost < weights[index]) { // the cheapest of parallel links
+				weights[index] = cost;
+				via[index] = -(linkIdx + 1);
+			}
+		}
+
+		// for every lower triangle (v, u, w), the path u-v-w may be shorter than the edge u-w.
+		// All edges of v get their final weights from triangles with lower nodes, so processing v in rank order works.
+		for (int v = 0; v < this.nodeCount; v++) {
+			int last = this.firstEdge[v + 1];
+			for (int vu = this.firstEdge[v]; vu < last; vu++) {
+				float vToU = weights[vu * 2 + UP];
+				float uToV = weights[vu * 2 + DOWN];
+				if (vToU == Float.POSITIVE_INFINITY && uToV == Float.POSITIVE_INFINITY) {
+					continue;
+				}
+				int u = this.edgeHead[vu];
+				int uw = this.firstEdge[u];
+				for (int vw = vu + 1; vw < last; vw++) {
+					int w = this.edgeHead[vw];
+					// the edges of u and v are both sorted by head, and u is connected to all higher neighbors of v
+					while (this.edgeHead[uw] < w) {
+						uw++;
+					}
+					float uToW = uToV + weights[vw * 2 + UP];
+					if (uToW < weights[uw * 2 + UP]) {
+						weights[uw * 2 + UP] = uToW;
+						via[uw * 2 + UP] = v;
+					}
+					float wToU = weights[vw * 2 + DOWN] + vToU;
+					if (wToU < weights[uw * 2 + DOWN]) {
+						weights[uw * 2 + DOWN] = wToU;
+						via[uw * 2 + DOWN] = v;
+					}
+				}
+			}
+		}
+		return new Metric(weights, via);
+	}
+
+	/**
+	 * The weights of all edges for one travel disutility at one time.
+	 */
+	static final class Metric {
+		/** per edge and direction: the travel cost */
+		final float[] weights;
+		/** per edge and direction: the rank of the node the shortcut leads over, or -(link index + 1) for an original link */
+		final int[] via;
+
+		Metric(float[] weights, int[] via) {
+			this.weights = weights;
+			this.via = via;
+		}
+	}
+
+	/**
+	 * The metrics for one travel disutility, one per time bin. They are customized when first needed.
+	 */
+	static final class Metrics {
+		private final SpeedyCHData data;
+		private final TravelDisutility travelCosts;
+		private final double binSize;
+		private final AtomicReferenceArray<Metric> bins;
+		private volatile boolean personSpecific = false;
+
+		Metrics(SpeedyCHData data, TravelDisutility travelCosts, double binSize, int binCount) {
+			this.data = data;
+			this.travelCosts = travelCosts;
+			this.binSize = binSize;
+			this.bins = new AtomicReferenceArray<>(binCount);
+		}
+
+		SpeedyCHData getData() {
+			return this.data;
+		}
+
+		/**
+		 * @return whether the travel disutility turned out to depend on the person or vehicle, see {@link SpeedyCH}.
+		 */
+		boolean isPersonSpecific() {
+			return this.personSpecific;
+		}
+
+		/**
+		 * @return whether the travel disutility was not known to be person specific before.
+		 */
+		synchronized boolean setPersonSpecific() {
+			boolean changed = !this.personSpecific;
+			this.personSpecific = true;
+			return changed;
+		}
+
+		Metric getMetric(double time) {
+			int bin = Math.max(0, Math.min(this.bins.length() - 1, (int) (time / this.binSize)));
+			Metric metric = this.bins.get(bin);
+			if (metric == null) {
+				// the travel disutility is not necessarily thread-safe
+				synchronized (this) {
+					metric = this.bins.get(bin);
+					if (metric == null) {
+						metric = this.data.customize(this.travelCosts, bin * this.binSize);
+						this.bins.set(bin, metric);
+					}
+				}
+			}
+			return metric;
+		}
+	}
+}
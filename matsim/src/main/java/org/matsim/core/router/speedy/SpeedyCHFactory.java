@@ -0,0 +1,99 @@
+package org.matsim.core.router.speedy;
+
+import com.google.common.collect.MapMaker;
+import com.google.inject.Inject;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.ControlerListenerManager;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates {@link SpeedyCH} instances. The contraction hierarchy is calculated once per network, the edge weights
+ * (see {@link SpeedyCHData#customize(TravelDisutility, double)}) once per travel disutility instance and time bin, when
+ * they are first needed.
+ *
+ * Travel disutilities of the same type may differ in any link, e.g. by tolls or by person attributes, so the edge
+ * weights are only shared between {@link LeastCostPathCalculator}s created with the same travel disutility instance.
+ * They are kept as long as such a calculator is in use, or until {@link #resetCustomization()} is called, which
+ * happens at the start of every iteration when used within a controler, as the travel times have changed then.
+ *
+ * Travel disutilities that turn out to depend on the person or vehicle are routed with {@link SpeedyALT} instead, see
+ * {@link SpeedyCH}.
+ */
+public class SpeedyCHFactory implements LeastCostPathCalculatorFactory, IterationStartsListener {
+
+	private final Map<Network, SpeedyGraph> graphs = new ConcurrentHashMap<>();
+	private final Map<SpeedyGraph, SpeedyCHData> hierarchies = new ConcurrentHashMap<>();
+	private final Map<SpeedyCHData, Map<TravelDisutility, SpeedyCHData.Metrics>> metrics = new ConcurrentHashMap<>();
+	private final double binSize;
+	private final int binCount;
+	private final SpeedyALTFactory fallbackFactory;
+
+	/**
+	 * Uses time bins like the default {@link TravelTimeCalculatorConfigGroup}.
+	 */
+	public SpeedyCHFactory() {
+		this(new TravelTimeCalculatorConfigGroup(), new SpeedyALTFactory());
+	}
+
+	/**
+	 * @param binSize the edge weights are customized separately for every time bin of this size.
+	 * @param maxTime departures later than this use the weights of the last time bin.
+	 */
+	public SpeedyCHFactory(double binSize, double maxTime) {
+		this(binSize, maxTime, new SpeedyALTFactory());
+	}
+
+	@Inject
+	SpeedyCHFactory(Config config) {
+		this(config.travelTimeCalculator(), new SpeedyALTFactory(config));
+	}
+
+	private SpeedyCHFactory(TravelTimeCalculatorConfigGroup config, SpeedyALTFactory fallbackFactory) {
+		this(config.getTraveltimeBinSize(), config.getMaxTime(), fallbackFactory);
+	}
+
+	private SpeedyCHFactory(double binSize, double maxTime, SpeedyALTFactory fallbackFactory) {
+		this.binSize = binSize;
+		this.binCount = Math.max(1, (int) Math.ceil(maxTime / binSize));
+		this.fallbackFactory = fallbackFactory;
+	}
+
+	@Inject(optional = true)
+	void setControlerListenerManager(ControlerListenerManager controlerListenerManager) {
+		controlerListenerManager.addControlerListener(this);
+	}
+
+	@Override
+	public LeastCostPathCalculator createPathCalculator(Network network, TravelDisutility travelCosts, TravelTime travelTimes) {
+		SpeedyGraph graph = this.graphs.computeIfAbsent(network, SpeedyGraph::new);
+		SpeedyCHData hierarchy = this.hierarchies.computeIfAbsent(graph, SpeedyCHData::new);
+		// compared by identity, and only kept while a calculator uses the metrics (which reference the travel disutility)
+		Map<TravelDisutility, SpeedyCHData.Metrics> metricsByCosts = this.metrics.computeIfAbsent(hierarchy, h -> new MapMaker().weakKeys().weakValues().makeMap());
+		SpeedyCHData.Metrics chMetrics = metricsByCosts.computeIfAbsent(travelCosts, c -> new SpeedyCHData.Metrics(hierarchy, travelCosts, this.binSize, this.binCount));
+		return new SpeedyCH(chMetrics, travelTimes, travelCosts, () -> this.fallbackFactory.createPathCalculator(network, travelCosts, travelTimes));
+	}
+
+	/**
+	 * Forgets all customized edge weights, so they are customized again with the current travel times when needed.
+	 * The contraction hierarchies are kept.
+	 */
+	public void resetCustomization() {
+		this.metrics.clear();
+	}
+
+	@Override
+	public void notifyIterationStarts(IterationStartsEvent event) {
+		resetCustomization();
+	}
+
+}
@@ -0,0 +1,316 @@
+package org.matsim.core.router.speedy;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.speedy.SpeedyGraph.LinkIterator;
+
+import java.util.Arrays;
+
+/**
+ * Calculates the node order for {@link SpeedyCHData} by nested dissection: the nodes are split into two halves along
+ * a straight line, the nodes separating the two halves get the highest ranks, and both halves are ordered recursively.
+ * Of four directions (horizontal, vertical and both diagonals), the one with the smallest separator is used.
+ * <p>
+ * The separator of a split is a minimum vertex cover of the links crossing it, calculated from a maximum matching
+ * (K&ouml;nig's theorem). Only the structure of the network is used, so the order can be reused for any travel disutility.
+ */
+final class SpeedyCHOrdering {
+
+	/** parts with at most this many nodes are not split further */
+	private static final int LEAF_SIZE = 16;
+
+	private final SpeedyGraph graph;
+	private final LinkIterator outLI;
+	private final LinkIterator inLI;
+	private final double[] x;
+	private final double[] y;
+
+	// markers valid as long as they equal the current stamp, so they never need to be cleared
+	private final int[] partMark;
+	private final int[] sideMark;
+	private final int[] coverMark;
+	private int stamp = 0;
+
+	// bipartite graph of the links crossing a split, left nodes indexed by position, right nodes by localIndex
+	private final int[] localIndex;
+	private final int[] localIndexMark;
+
+	private final int[] order;
+	private int orderSize = 0;
+
+	private SpeedyCHOrdering(SpeedyGraph graph) {
+		this.graph = graph;
+		this.outLI = graph.getOutLinkIterator();
+		this.inLI = graph.getInLinkIterator();
+		this.x = new double[graph.nodeCount];
+		this.y = new double[graph.nodeCount];
+		this.partMark = new int[graph.nodeCount];
+		this.sideMark = new int[graph.nodeCount];
+		this.coverMark = new int[graph.nodeCount];
+		this.localIndex = new int[graph.nodeCount];
+		this.localIndexMark = new int[graph.nodeCount];
+
+		int count = 0;
+		for (int i = 0; i < graph.nodeCount; i++) {
+			Node node = graph.getNode(i);
+			if (node != null) {
+				Coord coord = node.getCoord();
+				this.x[i] = coord.getX();
+				this.y[i] = coord.getY();
+				count++;
+			}
+		}
+		this.order = new int[count];
+	}
+
+	/**
+	 * @return the indices of all nodes in the graph, from the lowest to the highest rank.
+	 */
+	static int[] calculateOrder(SpeedyGraph graph) {
+		SpeedyCHOrdering ordering = new SpeedyCHOrdering(graph);
+		int[] nodes = new int[ordering.order.length];
+		int count = 0;
+		for (int i = 0; i < graph.nodeCount; i++) {
+			if (graph.getNode(i) != null) {
+				nodes[count++] = i;
+			}
+		}
+		ordering.dissect(nodes);
+		return ordering.order;
+	}
+
+	private void dissect(int[] nodes) {
+		if (nodes.length <= LEAF_SIZE) {
+			for (int node : nodes) {
+				this.order[this.orderSize++] = node;
+			}
+			return;
+		}
+
+		int partStamp = ++this.stamp;
+		for (int node : nodes) {
+			this.partMark[node] = partStamp;
+		}
+
+		int[] bestSorted = null;
+		int[] bestSeparator = null;
+		for (int direction = 0; direction < 4; direction++) {
+			int[] sorted = sortAlong(nodes, direction);
+			int[] separator = calculateSeparator(sorted, partStamp);
+			if (bestSeparator == null || separator.length < bestSeparator.length) {
+				bestSorted = sorted;
+				bestSeparator = separator;
+			}
+		}
+
+		int separatorStamp = ++this.stamp;
+		for (int node : bestSeparator) {
+			this.coverMark[node] = separatorStamp;
+		}
+		int half = nodes.length / 2;
+		int[] left = withoutMarked(bestSorted, 0, half, separatorStamp);
+		int[] right = withoutMarked(bestSorted, half, nodes.length, separatorStamp);
+
+		dissect(left);
+		dissect(right);
+		for (int node : bestSeparator) {
+			this.order[this.orderSize++] = node;
+		}
+	}
+
+	private int[] withoutMarked(int[] nodes, int from, int to, int mark) {
+		int[] result = new int[to - from];
+		int count = 0;
+		for (int i = from; i < to; i++) {
+			if (this.coverMark[nodes[i]] != mark) {
+				result[count++] = nodes[i];
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Sorts the nodes by their position projected on a line. Floats are precise enough for a median split, and allow
+	 * to sort the nodes as primitive longs.
+	 */
+	private int[] sortAlong(int[] nodes, int direction) {
+		long[] keys = new long[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			int node = nodes[i];
+			double position = switch (direction) {
+				case 0 -> this.x[node];
+				case 1 -> this.y[node];
+				case 2 -> this.x[node] + this.y[node];
+				default -> this.x[node] - this.y[node];
+			};
+			int bits = Float.floatToIntBits((float) position);
+			// make the bits of negative floats sort correctly as signed ints
+			bits ^= (bits >> 31) & 0x7fffffff;
+			keys[i] = ((long) bits << 32) | node;
+		}
+		Arrays.sort(keys);
+		int[] sorted = new int[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			sorted[i] = (int) keys[i];
+		}
+		return sorted;
+	}
+
+	/**
+	 * @return a minimal set of nodes covering all links between the first and the second half of <code>sorted</code>.
+	 */
+	private int[] calculateSeparator(int[] sorted, int partStamp) {
+		int half = sorted.length / 2;
+		int rightStamp = ++this.stamp;
+		for (int i = half; i < sorted.length; i++) {
+			this.sideMark[sorted[i]] = rightStamp;
+		}
+
+		// collect the crossing links as bipartite graph
+		int localStamp = ++this.stamp;
+		int[] leftNodes = new int[half];
+		int[] rightNodes = new int[sorted.length - half];
+		int[] edgeStart = new int[half + 1];
+		int[] edgeTarget = new int[16];
+		int leftCount = 0;
+		int rightCount = 0;
+		int edgeCount = 0;
+		for (int i = 0; i < half; i++) {
+			int node = sorted[i];
+			int first = edgeCount;
+			for (int pass = 0; pass < 2; pass++) {
+				LinkIterator li = pass == 0 ? this.outLI : this.inLI;
+				li.reset(node);
+				while (li.next()) {
+					int other = pass == 0 ? li.getToNodeIndex() : li.getFromNodeIndex();
+					if (this.partMark[other] != partStamp || this.sideMark[other] != rightStamp) {
+						continue;
+					}
+					if (this.localIndexMark[other] != localStamp) {
+						this.localIndexMark[other] = localStamp;
+						this.localIndex[other] = rightCount;
+						rightNodes[rightCount++] = other;
+					}
+					if (edgeCount == edgeTarget.length) {
+						edgeTarget = Arrays.copyOf(edgeTarget, edgeTarget.length * 2);
+					}
+					edgeTarget[edgeCount++] = this.localIndex[other];
+				}
+			}
+			if (edgeCount > first) {
+				leftNodes[leftCount] = node;
+				edgeStart[leftCount] = first;
+				leftCount++;
+				edgeStart[leftCount] = edgeCount;
+			}
+		}
+		if (leftCount == 0) {
+			return new int[0];
+		}
+
+		int[] matchOfLeft = new int[leftCount];
+		int[] matchOfRight = new int[rightCount];
+		maximumMatching(leftCount, rightCount, edgeStart, edgeTarget, matchOfLeft, matchOfRight);
+
+		// Kőnig: visit alternating paths from unmatched left nodes; the cover consists of the
+		// unvisited left nodes and the visited right nodes.
+		boolean[] visitedLeft = new boolean[leftCount];
+		boolean[] visitedRight = new boolean[rightCount];
+		int[] queue = new int[leftCount];
+		int head = 0;
+		int tail = 0;
+		for (int l = 0; l < leftCount; l++) {
+			if (matchOfLeft[l] < 0) {
+				visitedLeft[l] = true;
+				queue[tail++] = l;
+			}
+		}
+		while (head < tail) {
+			int l = queue[head++];
+			for (int e = edgeStart[l]; e < edgeStart[l + 1]; e++) {
+				int r = edgeTarget[e];
+				if (!visitedRight[r]) {
+					visitedRight[r] = true;
+					int next = matchOfRight[r];
+					if (next >= 0 && !visitedLeft[next]) {
+						visitedLeft[next] = true;
+						queue[tail++] = next;
+					}
+				}
+			}
+		}
+		int[] separator = new int[leftCount + rightCount];
+		int count = 0;
+		for (int l = 0; l < leftCount; l++) {
+			if (!visitedLeft[l]) {
+				separator[count++] = leftNodes[l];
+			}
+		}
+		for (int r = 0; r < rightCount; r++) {
+			if (visitedRight[r]) {
+				separator[count++] = rightNodes[r];
+			}
+		}
+		return Arrays.copyOf(separator, count);
+	}
+
+	/**
+	 * Augments a greedy matching along shortest augmenting paths, found by breadth-first search to avoid deep recursion.
+	 */
+	private static void maximumMatching(int leftCount, int rightCount, int[] edgeStart, int[] edgeTarget, int[] matchOfLeft, int[] matchOfRight) {
+		Arrays.fill(matchOfLeft, -1);
+		Arrays.fill(matchOfRight, -1);
+		for (int l = 0; l < leftCount; l++) {
+			for (int e = edgeStart[l]; e < edgeStart[l + 1]; e++) {
+				int r = edgeTarget[e];
+				if (matchOfRight[r] < 0) {
+					matchOfLeft[l] = r;
+					matchOfRight[r] = l;
+					break;
+				}
+			}
+		}
+
+		int[] queue = new int[leftCount];
+		int[] reachedFrom = new int[rightCount]; // the left node from which a right node was reached
+		int[] visited = new int[rightCount];
+		int visitStamp = 0;
+		for (int start = 0; start < leftCount; start++) {
+			if (matchOfLeft[start] >= 0) {
+				continue;
+			}
+			visitStamp++;
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = start;
+			int freeRight = -1;
+			while (head < tail && freeRight < 0) {
+				int l = queue[head++];
+				for (int e = edgeStart[l]; e < edgeStart[l + 1]; e++) {
+					int r = edgeTarget[e];
+					if (visited[r] == visitStamp) {
+						continue;
+					}
+					visited[r] = visitStamp;
+					reachedFrom[r] = l;
+					int next = matchOfRight[r];
+					if (next < 0) {
+						freeRight = r;
+						break;
+					}
+					queue[tail++] = next;
+				}
+			}
+			// flip the matching along the path
+			int r = freeRight;
+			while (r >= 0) {
+				int l = reachedFrom[r];
+				int previousRight = matchOfLeft[l];
+				matchOfLeft[l] = r;
+				matchOfRight[r] = l;
+				r = previousRight;
+			}
+		}
+	}
+
+}
@@ -55,14 +55,23 @@ public final class EventsToActivities implements ActivityStartEventHandler, Acti
 	}
 
     private final IdMap<Person, Activity> activities = new IdMap<>(Person.class);
-    private final List<ActivityHandler> activityHandlers = new ArrayList<>();
+    private final List<ActivityHandler> activityHandlers;
 
     public EventsToActivities() {
+        this.activityHandlers = new ArrayList<>();
+    }
 
+    /**
+     * Creates an instance with its own state, but with the activity handlers of the given one, so that the events of a
+     * part of the persons can be converted on another thread.
+     */
+    EventsToActivities(EventsToActivities template) {
+        this.activityHandlers = template.activityHandlers;
     }
 
     @Inject
     EventsToActivities(ControlerListenerManager controlerListenerManager) {
+        this();
         controlerListenerManager.addControlerListener(new AfterMobsimListener() {
             @Override
             public void notifyAfterMobsim(AfterMobsimEvent event) {
@@ -165,6 +165,16 @@ public final class EventsToLegs
 		this.network = network;
 	}
 
+	/**
+	 * Creates an instance with its own state, but with the network, the transit schedule and the leg handlers of the
+	 * given one, so that the events of a part of the persons can be converted on another thread.
+	 */
+	EventsToLegs(EventsToLegs template) {
+		this.network = template.network;
+		this.transitSchedule = template.transitSchedule;
+		this.legHandlers = template.legHandlers;
+	}
+
 	@Override
 	public void reset(int iteration) {
 		legs.clear();
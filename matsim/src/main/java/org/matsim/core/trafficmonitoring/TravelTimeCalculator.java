@@ -46,14 +46,23 @@ import org.matsim.core.gbl.Gbl;
 import org.matsim.core.router.util.LinkToLinkTravelTime;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.collections.CollectionUtils;
-import org.matsim.core.utils.collections.Tuple;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vehicles.VehicleType;
 
-import java.util.HashSet;
-import java.util.Map;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Calculates actual travel times on link from events and optionally also the link-to-link
@@ -74,6 +83,8 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 	private static final String ERROR_STUCK_AND_LINKTOLINK = "Using the stuck feature with turning move travel times is not available. As the next link of a stucked" +
 											     "agent is not known the turning move travel time cannot be calculated!";
 
+	private static final int MIN_DATA_PER_CONSOLIDATION_TASK = 1000;
+
 	private final double timeSlice;
 	private final int numSlots;
 	TimeSlotComputation aggregator;
@@ -81,11 +92,17 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 	private final Network network;
 	private IdMap<Link, TravelTimeDataArray> linkData;
 
-	private Map<Tuple<Id<Link>, Id<Link>>, TravelTimeDataArray> linkToLinkData;
+	/* turns, keyed by the index of the from link in the upper and the index of the to link in the lower 32 bits.  The
+	 * lock is needed because the routers may add turns concurrently, see getLinkToLinkTravelTimeData(). */
+	private Long2ObjectMap<TravelTimeDataArray> linkToLinkData;
+	private final ReadWriteLock linkToLinkDataLock = new ReentrantReadWriteLock();
 
-	private final Map<Id<Vehicle>, LinkEnterEvent> linkEnterEvents;
+	/* time and link (index) of the last link enter event of each vehicle, by vehicle index.  The link index is -1 if
+	 * the vehicle is not on a link.  This avoids keeping the event objects and doing map lookups for every link event. */
+	private double[] linkEnterTimes = new double[0];
+	private int[] linkEnterLinkIndices = new int[0];
 
-	private final Set<Id<Vehicle>> vehiclesToIgnore;
+	private final BitSet vehiclesToIgnore;
 	private final Set<String> analyzedModes;
 
 	private final boolean filterAnalyzedModes;
@@ -220,28 +237,62 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		}
 		if (this.calculateLinkToLinkTravelTimes){
 			// assume that every link has 2 outgoing links as default
-			this.linkToLinkData = new ConcurrentHashMap<>((int) (network.getLinks().size() * 1.4 * 2));
+			this.linkToLinkData = new Long2ObjectOpenHashMap<>(network.getLinks().size() * 2);
 		}
-		this.linkEnterEvents = new ConcurrentHashMap<>();
+		ensureVehicleCapacity(Id.getNumberOfIds(Vehicle.class) - 1);
 
 		// if we just look at one mode, we need to ignore all vehicles with a different mode. However, the info re the mode is only in
 		// the vehicleEntersTraffic event.  So we need to memorize the ignored vehicles from there ...
-		this.vehiclesToIgnore = new HashSet<>();
+		this.vehiclesToIgnore = new BitSet();
 
 		this.reset(0);
 	}
 
+	private void ensureVehicleCapacity(int vehicleIndex) {
+		if (vehicleIndex >= this.linkEnterLinkIndices.length) {
+			int oldLength = this.linkEnterLinkIndices.length;
+			int newLength = Math.max(vehicleIndex + 1, oldLength + (oldLength >> 1));
+			this.linkEnterTimes = Arrays.copyOf(this.linkEnterTimes, newLength);
+			this.linkEnterLinkIndices = Arrays.copyOf(this.linkEnterLinkIndices, newLength);
+			Arrays.fill(this.linkEnterLinkIndices, oldLength, newLength, -1);
+		}
+	}
+
+	/**
+	 * @return the index of the link the vehicle entered last, or -1 if it is not on a link.
+	 */
+	private int getLinkEnterLinkIndex(int vehicleIndex) {
+		return vehicleIndex < this.linkEnterLinkIndices.length ? this.linkEnterLinkIndices[vehicleIndex] : -1;
+	}
+
+	/**
+	 * Forgets the last link enter of the vehicle.
+	 *
+	 * @return the index of the link the vehicle entered last, or -1 if it was not on a link.
+	 */
+	private int removeLinkEnter(int vehicleIndex) {
+		int linkIndex = getLinkEnterLinkIndex(vehicleIndex);
+		if (linkIndex >= 0) {
+			this.linkEnterLinkIndices[vehicleIndex] = -1;
+		}
+		return linkIndex;
+	}
+
 	@Override
 	public void handleEvent(final LinkEnterEvent e) {
+		int vehicleIndex = e.getVehicleId().index();
 		/* if only some modes are analyzed, we check whether the vehicles
 		 * performs a trip with one of those modes. if not, we skip the event. */
-		if (filterAnalyzedModes && vehiclesToIgnore.contains(e.getVehicleId())) return;
+		if (filterAnalyzedModes && vehiclesToIgnore.get(vehicleIndex)) return;
 
-		LinkEnterEvent oldEvent = this.linkEnterEvents.put(e.getVehicleId(), e);
-		if ((oldEvent != null) && this.calculateLinkToLinkTravelTimes) {
-			Tuple<Id<Link>, Id<Link>> fromToLink = new Tuple<>(oldEvent.getLinkId(), e.getLinkId());
-			TravelTimeData data = getLinkToLinkTravelTimeData(fromToLink );
-			double enterTime = oldEvent.getTime();
+		ensureVehicleCapacity(vehicleIndex);
+		int oldLinkIndex = this.linkEnterLinkIndices[vehicleIndex];
+		double enterTime = this.linkEnterTimes[vehicleIndex];
+		int linkIndex = e.getLinkId().index();
+		this.linkEnterLinkIndices[vehicleIndex] = linkIndex;
+		this.linkEnterTimes[vehicleIndex] = e.getTime();
+		if ((oldLinkIndex >= 0) && this.calculateLinkToLinkTravelTimes) {
+			TravelTimeData data = getLinkToLinkTravelTimeData(oldLinkIndex, linkIndex);
 
 			final int timeSlot = this.aggregator.getTimeSlotIndex(enterTime );
 			data.addTravelTime(timeSlot, e.getTime() - enterTime );
@@ -252,10 +303,10 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 	@Override
 	public void handleEvent(final LinkLeaveEvent e) {
 		if (this.calculateLinkTravelTimes) {
-			LinkEnterEvent oldEvent = this.linkEnterEvents.get(e.getVehicleId());
-			if (oldEvent != null) {
+			int vehicleIndex = e.getVehicleId().index();
+			if (getLinkEnterLinkIndex(vehicleIndex) >= 0) {
 				TravelTimeData data = this.getTravelTimeData(e.getLinkId(), true);
-				double enterTime = oldEvent.getTime();
+				double enterTime = this.linkEnterTimes[vehicleIndex];
 
 				final int timeSlot = this.aggregator.getTimeSlotIndex(enterTime );
 				data.addTravelTime(timeSlot, e.getTime() - enterTime );
@@ -270,7 +321,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		 * starts a leg on a non analyzed transport mode, add the vehicle
 		 * to the filtered vehicles set. */
 		if (filterAnalyzedModes && !analyzedModes.contains(event.getNetworkMode())) {
-			this.vehiclesToIgnore.add(event.getVehicleId());
+			this.vehiclesToIgnore.set(event.getVehicleId().index());
 		}
 	}
 
@@ -279,10 +330,10 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		/* remove EnterEvents from list when a vehicle arrives.
 		 * otherwise, the activity duration would be counted as travel time, when the
 		 * vehicle departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
+		removeLinkEnter(event.getVehicleId().index());
 
 		// try to remove vehicles from set with filtered vehicles
-		if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
+		if (filterAnalyzedModes) this.vehiclesToIgnore.clear(event.getVehicleId().index());
 	}
 
 	@Override
@@ -290,14 +341,14 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		/* remove EnterEvents from list when a bus stops on a link.
 		 * otherwise, the stop time would be counted as travel time, when the
 		 * bus departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
+		removeLinkEnter(event.getVehicleId().index());
 	}
 
 	@Override
 	public void handleEvent(VehicleAbortsEvent event) {
-		LinkEnterEvent e = this.linkEnterEvents.remove(event.getVehicleId());
-		if (e != null) {
-			TravelTimeData data = this.getTravelTimeData(e.getLinkId(), true);
+		int linkIndex = removeLinkEnter(event.getVehicleId().index());
+		if (linkIndex >= 0) {
+			TravelTimeData data = this.getTravelTimeData(Id.get(linkIndex, Link.class), true);
 			data.setNeedsConsolidation( true );
 
 			//			this.aggregator.addStuckEventTravelTime(data, e.getTime(), event.getTime());
@@ -313,7 +364,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		}
 
 		// try to remove vehicle from set with filtered vehicles
-		if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
+		if (filterAnalyzedModes) this.vehiclesToIgnore.clear(event.getVehicleId().index());
 	}
 
 	private TravelTimeDataArray getTravelTimeData(final Id<Link> linkId, final boolean createIfMissing) {
@@ -325,11 +376,27 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		return data;
 	}
 
-	private TravelTimeDataArray getLinkToLinkTravelTimeData( Tuple<Id<Link>, Id<Link>> fromLinkToLink ) {
-		TravelTimeDataArray data = this.linkToLinkData.get(fromLinkToLink);
+	private TravelTimeDataArray getLinkToLinkTravelTimeData(int fromLinkIndex, int toLinkIndex) {
+		long key = ((long) fromLinkIndex << 32) | (toLinkIndex & 0xffffffffL);
+		TravelTimeDataArray data;
+		this.linkToLinkDataLock.readLock().lock();
+		try {
+			data = this.linkToLinkData.get(key);
+		} finally {
+			this.linkToLinkDataLock.readLock().unlock();
+		}
 		if ( null == data ) {
-			data = this.createTravelTimeData(fromLinkToLink.getFirst()) ;
-			this.linkToLinkData.put(fromLinkToLink, data);
+			// also requests from the routers add turns, so this may happen on several threads
+			this.linkToLinkDataLock.writeLock().lock();
+			try {
+				data = this.linkToLinkData.get(key);
+				if ( null == data ) {
+					data = this.createTravelTimeData(Id.get(fromLinkIndex, Link.class));
+					this.linkToLinkData.put(key, data);
+				}
+			} finally {
+				this.linkToLinkDataLock.writeLock().unlock();
+			}
 		}
 		return data;
 	}
@@ -356,7 +423,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 			throw new IllegalStateException("No link to link travel time is available " +
 									    "if calculation is switched off by config option!");
 		}
-		TravelTimeData data = this.getLinkToLinkTravelTimeData(new Tuple<>(fromLinkId, toLinkId) );
+		TravelTimeData data = this.getLinkToLinkTravelTimeData(fromLinkId.index(), toLinkId.index());
 		if ( data.isNeedingConsolidation() ) {
 			consolidateData(data);
 		}
@@ -377,7 +444,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 				data.setNeedsConsolidation( false );
 			}
 		}
-		this.linkEnterEvents.clear();
+		Arrays.fill(this.linkEnterLinkIndices, -1);
 		this.vehiclesToIgnore.clear();
 	}
 
@@ -432,6 +499,56 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		}
 	}
 
+	/**
+	 * Consolidates the data of all links and turns which got new travel times, see consolidateData(TravelTimeData).
+	 * Otherwise, this happens when the travel time of a link is requested for the first time, i.e. mostly in the routers.
+	 * Meant to be called after the mobsim; the links are split among the given number of threads.
+	 */
+	public void consolidateAllData(int numberOfThreads) {
+		List<TravelTimeData> dataToConsolidate = new ArrayList<>();
+		if (this.calculateLinkTravelTimes) {
+			for (TravelTimeData data : this.linkData.values()) {
+				if (data.isNeedingConsolidation()) {
+					dataToConsolidate.add(data);
+				}
+			}
+		}
+		if (this.calculateLinkToLinkTravelTimes) {
+			this.linkToLinkDataLock.readLock().lock();
+			try {
+				for (TravelTimeData data : this.linkToLinkData.values()) {
+					if (data.isNeedingConsolidation()) {
+						dataToConsolidate.add(data);
+					}
+				}
+			} finally {
+				this.linkToLinkDataLock.readLock().unlock();
+			}
+		}
+
+		int numberOfTasks = Math.min(numberOfThreads, dataToConsolidate.size() / MIN_DATA_PER_CONSOLIDATION_TASK);
+		if (numberOfTasks <= 1) {
+			dataToConsolidate.forEach(this::consolidateData);
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfTasks);
+		try {
+			List<Future<?>> futures = new ArrayList<>(numberOfTasks);
+			for (int i = 0; i < numberOfTasks; i++) {
+				List<TravelTimeData> part = dataToConsolidate.subList(i * dataToConsolidate.size() / numberOfTasks,
+						(i + 1) * dataToConsolidate.size() / numberOfTasks);
+				futures.add(executor.submit(() -> part.forEach(this::consolidateData)));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
 	private static int cnt = 0 ;
 
 	public TravelTime getLinkTravelTimes() {
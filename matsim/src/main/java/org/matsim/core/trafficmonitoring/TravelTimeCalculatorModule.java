@@ -29,8 +29,11 @@ import com.google.inject.name.Names;
 
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
 import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.events.AfterMobsimEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
 import org.matsim.core.router.util.LinkToLinkTravelTime;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.collections.CollectionUtils;
@@ -38,6 +41,8 @@ import org.matsim.core.utils.collections.CollectionUtils;
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 
+import java.util.List;
+
 
 /**
  * The first module.
@@ -79,6 +84,8 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 				// (This used to be without "Singleton".  I think that with Singleton it makes more sense, but don't know ramifications. kai, nov'19)
 
 			}
+			addControlerListenerBinding().toInstance(new DataConsolidation(getConfig().routing().getNetworkModes().stream()
+					.map(mode -> Key.get(TravelTimeCalculator.class, Names.named(mode))).toList()));
 		} else {
 			// (all analyzed modes are measured together, and the same result is returned to each mode)
 
@@ -95,6 +102,7 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 			if (getConfig().travelTimeCalculator().isCalculateLinkToLinkTravelTimes()) {
 				bind(LinkToLinkTravelTime.class).toProvider(ObservedLinkToLinkTravelTimes.class);
 			}
+			addControlerListenerBinding().toInstance(new DataConsolidation(List.of(Key.get(TravelTimeCalculator.class))));
 		}
 
 	}
@@ -131,6 +139,28 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 		}
 	}
 
+	/**
+	 * Consolidates the travel times of all links in parallel after the mobsim, instead of one by one when the routers need them.
+	 */
+	private static class DataConsolidation implements AfterMobsimListener {
+
+		@Inject Injector injector;
+		@Inject GlobalConfigGroup globalConfig;
+
+		private final List<Key<TravelTimeCalculator>> calculatorKeys;
+
+		DataConsolidation(List<Key<TravelTimeCalculator>> calculatorKeys) {
+			this.calculatorKeys = calculatorKeys;
+		}
+
+		@Override
+		public void notifyAfterMobsim(AfterMobsimEvent event) {
+			for (Key<TravelTimeCalculator> key : this.calculatorKeys) {
+				this.injector.getInstance(key).consolidateAllData(this.globalConfig.getNumberOfThreads());
+			}
+		}
+	}
+
 	private static class ObservedLinkTravelTimes implements Provider<TravelTime> {
 
 		@Inject
@@ -0,0 +1,106 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinarySnapshotReader.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.vis.snapshotwriters;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.utils.io.IOUtils;
+
+/**
+ * Reads files written by {@link BinarySnapshotWriter} and passes the snapshots to another {@link SnapshotWriter}, e.g.
+ * to convert them into another format.  Agents written as unchanged are passed with their last position.
+ */
+public final class BinarySnapshotReader {
+
+	private final SnapshotWriter writer;
+
+	public BinarySnapshotReader(SnapshotWriter writer) {
+		this.writer = writer;
+	}
+
+	/**
+	 * Passes all snapshots of the file to the writer, but does not finish it.
+	 */
+	public void readFile(String filename) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(IOUtils.getInputStream(IOUtils.getFileUrl(filename))))) {
+			if (in.readInt() != BinarySnapshotWriter.MAGIC_NUMBER) {
+				throw new IllegalArgumentException(filename + " is not a binary snapshot file");
+			}
+			int version = in.readInt();
+			if (version != BinarySnapshotWriter.VERSION) {
+				throw new IllegalArgumentException("Unsupported version " + version + " of binary snapshot file " + filename);
+			}
+			double resolution = in.readDouble();
+
+			List<Id<Person>> persons = new ArrayList<>();
+			List<AgentSnapshotInfo> lastPositions = new ArrayList<>();
+			AgentSnapshotInfo.AgentState[] states = AgentSnapshotInfo.AgentState.values();
+			boolean inSnapshot = false;
+			int type;
+			while ((type = in.read()) != -1) {
+				switch (type) {
+					case BinarySnapshotWriter.SNAPSHOT -> {
+						if (inSnapshot) {
+							this.writer.endSnapshot();
+						}
+						this.writer.beginSnapshot(in.readDouble());
+						inSnapshot = true;
+					}
+					case BinarySnapshotWriter.PERSON -> {
+						int index = in.readInt();
+						Id<Person> personId = Id.createPersonId(in.readUTF());
+						while (persons.size() <= index) {
+							persons.add(null);
+							lastPositions.add(null);
+						}
+						persons.set(index, personId);
+					}
+					case BinarySnapshotWriter.POSITION -> {
+						int index = in.readInt();
+						AgentSnapshotInfo position = new PositionInfo.DirectBuilder()
+								.setPersonId(persons.get(index))
+								.setEasting(in.readInt() * resolution)
+								.setNorthing(in.readInt() * resolution)
+								.setAgentState(states[in.readByte()])
+								.setColorValue(in.readUnsignedByte() / 255.)
+								.build();
+						lastPositions.set(index, position);
+						this.writer.addAgent(position);
+					}
+					case BinarySnapshotWriter.UNCHANGED -> this.writer.addAgent(lastPositions.get(in.readInt()));
+					default -> throw new IllegalArgumentException("Unexpected record type " + type + " in binary snapshot file " + filename);
+				}
+			}
+			if (inSnapshot) {
+				this.writer.endSnapshot();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,196 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinarySnapshotWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.vis.snapshotwriters;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+import org.matsim.core.utils.io.IOUtils;
+
+/**
+ * Writes the positions of the agents into a compact binary file, which can be read again with
+ * {@link BinarySnapshotReader}.
+ * <p>
+ * Positions are rounded to multiples of a resolution and stored as integers.  An agent whose rounded position, state
+ * and color value are the same as when it was written the last time is only written as unchanged.  Snapshots which
+ * follow the last written one by less than a period are skipped.  As in {@link TransimsSnapshotWriter}, agents at
+ * activities are not written.
+ * <p>
+ * The file, compressed according to its file name, consists of a header followed by records which start with their
+ * type:
+ * <pre>
+ * header:    int magic number, int version, double resolution
+ * SNAPSHOT:  double time                               all following positions belong to this snapshot
+ * PERSON:    int person index, UTF person id           precedes the first position of a person
+ * POSITION:  int person index, int easting, int northing, byte agent state, byte color value
+ * UNCHANGED: int person index                          the same as the last position of the person
+ * </pre>
+ * Easting and northing are divided by the resolution, the agent state is the ordinal of
+ * {@link AgentSnapshotInfo.AgentState}, and the color value is multiplied by 255.
+ */
+public final class BinarySnapshotWriter implements SnapshotWriter {
+
+	static final int MAGIC_NUMBER = 0x4d534e50;
+	static final int VERSION = 1;
+
+	static final byte SNAPSHOT = 1;
+	static final byte PERSON = 2;
+	static final byte POSITION = 3;
+	static final byte UNCHANGED = 4;
+
+	private final DataOutputStream out;
+	private final double resolution;
+	private final double period;
+
+	private double lastSnapshotTime = Double.NEGATIVE_INFINITY;
+	private boolean skipSnapshot = true;
+
+	// by the index of the person id, -1 if not written yet
+	private int[] personIndices = new int[0];
+	private int numberOfPersons = 0;
+	// by the person index in the file
+	private int[] lastEastings = new int[16];
+	private int[] lastNorthings = new int[16];
+	private int[] lastStatesAndColors = new int[16];
+
+	/**
+	 * @param resolution distance in meters to which the positions are rounded
+	 * @param period minimum time between two written snapshots, 0 to write all snapshots
+	 */
+	public BinarySnapshotWriter(String filename, double resolution, double period) {
+		if (!(resolution > 0)) {
+			throw new IllegalArgumentException("resolution must be positive, but is " + resolution);
+		}
+		this.resolution = resolution;
+		this.period = period;
+		this.out = new DataOutputStream(IOUtils.getOutputStream(IOUtils.getFileUrl(filename), false));
+		try {
+			this.out.writeInt(MAGIC_NUMBER);
+			this.out.writeInt(VERSION);
+			this.out.writeDouble(resolution);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void beginSnapshot(double time) {
+		this.skipSnapshot = time < this.lastSnapshotTime + this.period;
+		if (this.skipSnapshot) {
+			return;
+		}
+		this.lastSnapshotTime = time;
+		try {
+			this.out.writeByte(SNAPSHOT);
+			this.out.writeDouble(time);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void addAgent(AgentSnapshotInfo position) {
+		if (this.skipSnapshot || position.getAgentState() == AgentSnapshotInfo.AgentState.PERSON_AT_ACTIVITY) {
+			return;
+		}
+		int easting = round(position.getEasting());
+		int northing = round(position.getNorthing());
+		int color = (int) Math.round(Math.max(0, Math.min(1, position.getColorValueBetweenZeroAndOne())) * 255);
+		int stateAndColor = (position.getAgentState().ordinal() << 8) | color;
+
+		try {
+			int index = getPersonIndex(position);
+			if (index < 0) {
+				index = addPerson(position);
+			} else if (this.lastEastings[index] == easting && this.lastNorthings[index] == northing
+					&& this.lastStatesAndColors[index] == stateAndColor) {
+				this.out.writeByte(UNCHANGED);
+				this.out.writeInt(index);
+				return;
+			}
+			this.lastEastings[index] = easting;
+			this.lastNorthings[index] = northing;
+			this.lastStatesAndColors[index] = stateAndColor;
+
+			this.out.writeByte(POSITION);
+			this.out.writeInt(index);
+			this.out.writeInt(easting);
+			this.out.writeInt(northing);
+			this.out.writeByte(stateAndColor >> 8);
+			this.out.writeByte(color);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void endSnapshot() {
+	}
+
+	@Override
+	public boolean canWriteInBackground() {
+		return true;
+	}
+
+	@Override
+	public void finish() {
+		try {
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private int round(double coordinate) {
+		long rounded = Math.round(coordinate / this.resolution);
+		if (rounded != (int) rounded) {
+			throw new IllegalStateException("Coordinate " + coordinate + " cannot be stored with a resolution of " + this.resolution);
+		}
+		return (int) rounded;
+	}
+
+	private int getPersonIndex(AgentSnapshotInfo position) {
+		int idIndex = position.getId().index();
+		return idIndex < this.personIndices.length ? this.personIndices[idIndex] : -1;
+	}
+
+	private int addPerson(AgentSnapshotInfo position) throws IOException {
+		int idIndex = position.getId().index();
+		if (idIndex >= this.personIndices.length) {
+			int oldLength = this.personIndices.length;
+			this.personIndices = Arrays.copyOf(this.personIndices, Math.max(idIndex + 1, oldLength * 2));
+			Arrays.fill(this.personIndices, oldLength, this.personIndices.length, -1);
+		}
+		int index = this.numberOfPersons++;
+		this.personIndices[idIndex] = index;
+		if (index == this.lastEastings.length) {
+			this.lastEastings = Arrays.copyOf(this.lastEastings, index * 2);
+			this.lastNorthings = Arrays.copyOf(this.lastNorthings, index * 2);
+			this.lastStatesAndColors = Arrays.copyOf(this.lastStatesAndColors, index * 2);
+		}
+		this.out.writeByte(PERSON);
+		this.out.writeInt(index);
+		this.out.writeUTF(position.getId().toString());
+		return index;
+	}
+}
@@ -57,4 +57,14 @@ public interface SnapshotWriter {
 		 */
 		public void finish();
 
+		/**
+		 * Writers that only write to files may be called from a background thread, so that the mobsim does not wait for the
+		 * output. All methods except <code>finish()</code> are then called from that thread, one snapshot after the other.
+		 *
+		 * @return whether this writer may be called from a thread other than the mobsim's.
+		 */
+		public default boolean canWriteInBackground() {
+			return false;
+		}
+
 }
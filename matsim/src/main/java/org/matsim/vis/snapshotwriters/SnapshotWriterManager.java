@@ -24,6 +24,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.core.config.groups.QSimConfigGroup;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
 import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
 import org.matsim.core.mobsim.framework.events.MobsimInitializedEvent;
@@ -33,16 +34,29 @@ import org.matsim.core.mobsim.framework.listeners.MobsimInitializedListener;
 import org.matsim.core.mobsim.qsim.interfaces.Netsim;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
-public class SnapshotWriterManager implements MobsimBeforeCleanupListener, MobsimAfterSimStepListener, MobsimInitializedListener {
+/**
+ * Generates the snapshots in parallel for the parts of the network which are handled by the different threads of the
+ * mobsim, and passes them to the writers.  Writers which can write in the background get them in a separate thread, so
+ * that the mobsim only waits for them if they fall more than {@link #MAX_PENDING_SNAPSHOTS} snapshots behind.
+ */
+public class SnapshotWriterManager implements MobsimBeforeCleanupListener, MobsimAfterSimStepListener, MobsimInitializedListener, HasNextEventTime {
 
 	private static final Logger log = LogManager.getLogger(SnapshotWriterManager.class);
 
+	private static final int MAX_PENDING_SNAPSHOTS = 16;
+	private static final Snapshot END = new Snapshot(Double.NaN, List.of());
+
 	private final List<SnapshotWriter> snapshotWriters = new ArrayList<>();
+	private final List<SnapshotWriter> backgroundSnapshotWriters = new ArrayList<>();
+	private final BlockingQueue<Snapshot> pendingSnapshots = new ArrayBlockingQueue<>(MAX_PENDING_SNAPSHOTS);
+	private Thread backgroundThread = null;
+	private volatile RuntimeException backgroundException = null;
 	private final QSimConfigGroup.FilterSnapshots filterSnapshots;
 	private final int snapshotPeriod;
 
@@ -73,9 +87,22 @@ public class SnapshotWriterManager implements MobsimBeforeCleanupListener, Mobsi
 	}
 
 	private void closeSnapshotWriters() {
+		if (this.backgroundThread != null) {
+			putPendingSnapshot(END);
+			try {
+				this.backgroundThread.join();
+			} catch (InterruptedException ex) {
+				throw new RuntimeException(ex);
+			}
+			this.backgroundThread = null;
+		}
 		for (SnapshotWriter writer : this.snapshotWriters) {
 			writer.finish();
 		}
+		for (SnapshotWriter writer : this.backgroundSnapshotWriters) {
+			writer.finish();
+		}
+		checkBackgroundException();
 	}
 
 	@Override
@@ -87,33 +114,98 @@ public class SnapshotWriterManager implements MobsimBeforeCleanupListener, Mobsi
 		}
 	}
 
+	@Override
+	public double getNextEventTime() {
+		return this.snapshotTime;
+	}
+
 	private void doSnapshot(final double time, VisMobsim visMobsim) {
-		if (!this.snapshotWriters.isEmpty()) {
+		if (!this.snapshotWriters.isEmpty() || !this.backgroundSnapshotWriters.isEmpty()) {
+			checkBackgroundException();
 
-			// This could be parallel since mihal has fixed some concurrency issues in the SnapshotInfoBuilder
-			// I think mainly by using separate builders for each generated AgentPositionInfo.
-			// I don't have time to test this right now, but if this ever appears to be a bottle neck, this probably
-			// can be replaced by a parallel stream. janek: oct' 2021
-			var positions = visMobsim.getVisNetwork().getVisLinks().values().stream()
-					.filter(visLink -> isGenerateSnapshot(visLink.getLink()))
-					.flatMap(visLink -> visLink.getVisData().addAgentSnapshotInfo(new HashSet<>()).stream())
-					.collect(Collectors.toSet());
+			// The snapshot info builders create separate position infos for each vehicle (mihal fixed the concurrency issues
+			// there), so the parts of the network can be handled in parallel.  Nothing moves while the listeners are called.
+			List<AgentSnapshotInfo> positions = new ArrayList<>();
+			visMobsim.getVisNetwork().getVisLinkPartitions().parallelStream()
+					.map(this::createPositions)
+					.forEachOrdered(positions::addAll);
 
 			// We do not put non-network agents in movies.
 			// Otherwise, we would add snapshots from visMobsim.getNonNetworkAgentSnapshots() here.
 
-			for (SnapshotWriter writer : this.snapshotWriters) {
-				writer.beginSnapshot(time);
-				for (AgentSnapshotInfo position : positions) {
-					writer.addAgent(position);
+			Snapshot snapshot = new Snapshot(time, positions);
+			if (!this.backgroundSnapshotWriters.isEmpty()) {
+				if (this.backgroundThread == null) {
+					startBackgroundThread();
 				}
-				writer.endSnapshot();
+				putPendingSnapshot(snapshot);
 			}
+			writeSnapshot(this.snapshotWriters, snapshot);
+		}
+	}
+
+	private Collection<AgentSnapshotInfo> createPositions(Collection<? extends VisLink> visLinks) {
+		Collection<AgentSnapshotInfo> positions = new ArrayList<>();
+		for (VisLink visLink : visLinks) {
+			if (isGenerateSnapshot(visLink.getLink())) {
+				positions = visLink.getVisData().addAgentSnapshotInfo(positions);
+			}
+		}
+		return positions;
+	}
+
+	private static void writeSnapshot(List<SnapshotWriter> writers, Snapshot snapshot) {
+		for (SnapshotWriter writer : writers) {
+			writer.beginSnapshot(snapshot.time());
+			for (AgentSnapshotInfo position : snapshot.positions()) {
+				writer.addAgent(position);
+			}
+			writer.endSnapshot();
+		}
+	}
+
+	private void startBackgroundThread() {
+		this.backgroundThread = new Thread(() -> {
+			try {
+				Snapshot snapshot;
+				while ((snapshot = this.pendingSnapshots.take()) != END) {
+					if (this.backgroundException == null) {
+						try {
+							writeSnapshot(this.backgroundSnapshotWriters, snapshot);
+						} catch (RuntimeException ex) {
+							// reported to the mobsim thread; the remaining snapshots are taken anyway so that it does not block
+							this.backgroundException = ex;
+						}
+					}
+				}
+			} catch (InterruptedException ex) {
+				this.backgroundException = new RuntimeException(ex);
+			}
+		}, "SnapshotWriter");
+		this.backgroundThread.setDaemon(true);
+		this.backgroundThread.start();
+	}
+
+	private void putPendingSnapshot(Snapshot snapshot) {
+		try {
+			this.pendingSnapshots.put(snapshot);
+		} catch (InterruptedException ex) {
+			throw new RuntimeException(ex);
+		}
+	}
+
+	private void checkBackgroundException() {
+		if (this.backgroundException != null) {
+			throw new RuntimeException("Writing snapshots failed", this.backgroundException);
 		}
 	}
 
 	public final void addSnapshotWriter(SnapshotWriter snapshotWriter) {
-		this.snapshotWriters.add(snapshotWriter);
+		if (snapshotWriter.canWriteInBackground()) {
+			this.backgroundSnapshotWriters.add(snapshotWriter);
+		} else {
+			this.snapshotWriters.add(snapshotWriter);
+		}
 	}
 
 	private boolean isGenerateSnapshot(Link link) {
@@ -126,4 +218,7 @@ public class SnapshotWriterManager implements MobsimBeforeCleanupListener, Mobsi
 				throw new RuntimeException("Unexpected filter snapshot setting: " + filterSnapshots + " Possible are: [no, withLinkAttributes]. This can be changed in config.qsim.filterSnapshots");
 		}
 	}
+
+	private record Snapshot(double time, List<AgentSnapshotInfo> positions) {
+	}
 }
@@ -94,6 +94,11 @@ public class TransimsSnapshotWriter implements SnapshotWriter {
 		this.currentTime = -1;
 	}
 
+	@Override
+	public boolean canWriteInBackground() {
+		return true;
+	}
+
 	@Override
 	public void finish() {
 		if (this.out != null) {
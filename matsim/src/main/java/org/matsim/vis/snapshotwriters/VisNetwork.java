@@ -21,6 +21,8 @@
 
  package org.matsim.vis.snapshotwriters;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import org.matsim.api.core.v01.Id;
@@ -31,4 +33,12 @@ public interface VisNetwork {
 
 	Map<Id<Link>,? extends VisLink> getVisLinks() ;
 	Network getNetwork() ;
+
+	/**
+	 * @return all links, split into parts whose snapshots may be generated in parallel, e.g. the parts of the network handled
+	 * by the different threads of the mobsim.
+	 */
+	default List<? extends Collection<? extends VisLink>> getVisLinkPartitions() {
+		return List.of(getVisLinks().values());
+	}
 }
@@ -0,0 +1,88 @@
+/* *********************************************************************** *
+ * project: org.matsim.* 												   *
+ *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package ch.sbb.matsim.routing.pt.raptor;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.matsim.testcases.MatsimTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class LargeIntArrayTest {
+
+	@RegisterExtension
+	private MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	void testChunks() {
+        // chunks of 8 ints, so that the values are spread over several chunks like in arrays of more than 2 GB
+        LargeIntArray array = LargeIntArray.allocate(30, 3);
+        for (int i = 0; i < 30; i++) {
+            array.set(i, 3 * i);
+        }
+        Assertions.assertEquals(30, array.length());
+        for (int i = 0; i < 30; i++) {
+            Assertions.assertEquals(3 * i, array.get(i));
+        }
+        assertSameBinarySearch(array);
+    }
+
+	@Test
+	void testMappedChunks() throws IOException {
+        Path file = Paths.get(this.utils.getOutputDirectory(), "ints.bin");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(12 + 30 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.position(12); // some header
+            for (int i = 0; i < 30; i++) {
+                buffer.putInt(3 * i);
+            }
+            buffer.flip();
+            channel.write(buffer);
+        }
+        LargeIntArray array;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            array = LargeIntArray.map(channel, 12, 30, 3);
+        }
+        Assertions.assertEquals(30, array.length());
+        for (int i = 0; i < 30; i++) {
+            Assertions.assertEquals(3 * i, array.get(i));
+        }
+        assertSameBinarySearch(array);
+    }
+
+    private static void assertSameBinarySearch(LargeIntArray array) {
+        int[] values = new int[(int) array.length()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = array.get(i);
+        }
+        for (int key = -1; key < 3 * values.length + 1; key++) {
+            Assertions.assertEquals(Arrays.binarySearch(values, 5, 27, key), array.binarySearch(5, 27, key), "key " + key);
+        }
+    }
+
+}
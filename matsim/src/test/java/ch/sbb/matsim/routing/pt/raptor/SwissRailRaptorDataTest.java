@@ -21,14 +21,26 @@ package ch.sbb.matsim.routing.pt.raptor;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * @author mrieser / SBB
  */
 public class SwissRailRaptorDataTest {
 
+	@RegisterExtension
+	private MatsimTestUtils utils = new MatsimTestUtils();
+
 	@Test
 	void testTransfersFromSchedule() {
         Fixture f = new Fixture();
@@ -43,7 +55,8 @@ public class SwissRailRaptorDataTest {
         Id<TransitStopFacility> stopId9 = Id.create(9, TransitStopFacility.class);
         Id<TransitStopFacility> stopId18 = Id.create(18, TransitStopFacility.class);
         Id<TransitStopFacility> stopId19 = Id.create(19, TransitStopFacility.class);
-        for (SwissRailRaptorData.RTransfer t : data.transfers) {
+        for (int i = 0; i < data.countTransfers; i++) {
+            SwissRailRaptorData.RTransfer t = data.getTransfer(i);
             TransitStopFacility fromStop = data.routeStops[t.fromRouteStop].routeStop.getStopFacility();
             TransitStopFacility toStop = data.routeStops[t.toRouteStop].routeStop.getStopFacility();
             if (fromStop.getId().equals(stopId19) && toStop.getId().equals(stopId9)) {
@@ -56,7 +69,8 @@ public class SwissRailRaptorDataTest {
         f.schedule.getMinimalTransferTimes().set(stopId19, stopId9, 345);
         SwissRailRaptorData data2 = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null);
         int foundTransferCount = 0;
-        for (SwissRailRaptorData.RTransfer t : data2.transfers) {
+        for (int i = 0; i < data2.countTransfers; i++) {
+            SwissRailRaptorData.RTransfer t = data2.getTransfer(i);
             TransitStopFacility fromStop = data2.routeStops[t.fromRouteStop].routeStop.getStopFacility();
             TransitStopFacility toStop = data2.routeStops[t.toRouteStop].routeStop.getStopFacility();
             if (fromStop.getId().equals(stopId19) && toStop.getId().equals(stopId9)) {
@@ -64,13 +78,14 @@ public class SwissRailRaptorDataTest {
             }
         }
         Assertions.assertEquals(1, foundTransferCount, "wrong number of transfers between stop facilities 19 and 9.");
-        Assertions.assertEquals(data.transfers.length + 1, data2.transfers.length, "number of transfers should have incrased.");
+        Assertions.assertEquals(data.countTransfers + 1, data2.countTransfers, "number of transfers should have incrased.");
 
         // assign a high transfer time to a "default" transfer
         f.schedule.getMinimalTransferTimes().set(stopId5, stopId18, 456);
         SwissRailRaptorData data3 = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null);
         boolean foundCorrectTransfer = false;
-        for (SwissRailRaptorData.RTransfer t : data3.transfers) {
+        for (int i = 0; i < data3.countTransfers; i++) {
+            SwissRailRaptorData.RTransfer t = data3.getTransfer(i);
             TransitStopFacility fromStop = data3.routeStops[t.fromRouteStop].routeStop.getStopFacility();
             TransitStopFacility toStop = data3.routeStops[t.toRouteStop].routeStop.getStopFacility();
             if (fromStop.getId().equals(stopId5) && toStop.getId().equals(stopId18)) {
@@ -79,13 +94,14 @@ public class SwissRailRaptorDataTest {
             }
         }
         Assertions.assertTrue(foundCorrectTransfer, "did not find overwritten transfer");
-        Assertions.assertEquals(data2.transfers.length, data3.transfers.length, "number of transfers should have stayed the same.");
+        Assertions.assertEquals(data2.countTransfers, data3.countTransfers, "number of transfers should have stayed the same.");
 
         // assign a low transfer time to a "default" transfer
         f.schedule.getMinimalTransferTimes().set(stopId5, stopId18, 0.2);
         SwissRailRaptorData data4 = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null);
         foundCorrectTransfer = false;
-        for (SwissRailRaptorData.RTransfer t : data4.transfers) {
+        for (int i = 0; i < data4.countTransfers; i++) {
+            SwissRailRaptorData.RTransfer t = data4.getTransfer(i);
             TransitStopFacility fromStop = data4.routeStops[t.fromRouteStop].routeStop.getStopFacility();
             TransitStopFacility toStop = data4.routeStops[t.toRouteStop].routeStop.getStopFacility();
             if (fromStop.getId().equals(stopId5) && toStop.getId().equals(stopId18)) {
@@ -94,7 +110,65 @@ public class SwissRailRaptorDataTest {
             }
         }
         Assertions.assertTrue(foundCorrectTransfer, "did not find overwritten transfer");
-        Assertions.assertEquals(data2.transfers.length, data4.transfers.length, "number of transfers should have stayed the same.");
+        Assertions.assertEquals(data2.countTransfers, data4.countTransfers, "number of transfers should have stayed the same.");
+    }
+
+	@Test
+	void testDataFile() throws IOException {
+        Fixture f = new Fixture();
+        f.init();
+
+        Path dataFile = Paths.get(this.utils.getOutputDirectory(), "raptorData.bin");
+        RaptorStaticConfig raptorConfig = RaptorUtils.createStaticConfig(f.config);
+        SwissRailRaptorData expected = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null);
+        SwissRailRaptorData written = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null, dataFile);
+        Assertions.assertTrue(Files.exists(dataFile), "data file was not written.");
+        long lastModified = Files.getLastModifiedTime(dataFile).toMillis();
+
+        SwissRailRaptorData loaded = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null, dataFile);
+        Assertions.assertEquals(lastModified, Files.getLastModifiedTime(dataFile).toMillis(), "data file should not have been written again.");
+        assertSameData(expected, written);
+        assertSameData(expected, loaded);
+
+        // the stored data must not be used with other settings
+        raptorConfig.setMinimalTransferTime(600);
+        SwissRailRaptorData expectedSlow = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null);
+        Assertions.assertEquals(600, expectedSlow.getTransfer(0).transferTime);
+        assertSameData(expectedSlow, SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null, dataFile));
+
+        // nor with a changed schedule
+        f.schedule.getMinimalTransferTimes().set(Id.create(5, TransitStopFacility.class), Id.create(18, TransitStopFacility.class), 456);
+        SwissRailRaptorData expectedChanged = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null);
+        assertSameData(expectedChanged, SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null, dataFile));
+
+        // nor with a changed network, which determines the distances along the routes
+        TransitRoute route = f.schedule.getTransitLines().values().iterator().next().getRoutes().values().iterator().next();
+        Link link = f.network.getLinks().get(route.getRoute().getLinkIds().get(0));
+        link.setLength(link.getLength() + 100);
+        SwissRailRaptorData expectedLonger = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null);
+        assertSameData(expectedLonger, SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null, dataFile));
+    }
+
+    private static void assertSameData(SwissRailRaptorData expected, SwissRailRaptorData actual) {
+        Assertions.assertEquals(expected.countTransfers, actual.countTransfers, "wrong number of transfers.");
+        for (int i = 0; i < expected.countTransfers; i++) {
+            SwissRailRaptorData.RTransfer e = expected.getTransfer(i);
+            SwissRailRaptorData.RTransfer a = actual.getTransfer(i);
+            Assertions.assertEquals(e.fromRouteStop, a.fromRouteStop);
+            Assertions.assertEquals(e.toRouteStop, a.toRouteStop);
+            Assertions.assertEquals(e.transferTime, a.transferTime);
+            Assertions.assertEquals(e.transferDistance, a.transferDistance);
+        }
+        Assertions.assertEquals(expected.routeStops.length, actual.routeStops.length, "wrong number of route stops.");
+        for (int i = 0; i < expected.routeStops.length; i++) {
+            Assertions.assertEquals(expected.routeStops[i].indexFirstTransfer, actual.routeStops[i].indexFirstTransfer);
+            Assertions.assertEquals(expected.routeStops[i].countTransfers, actual.routeStops[i].countTransfers);
+            Assertions.assertEquals(expected.routeStops[i].distanceAlongRoute, actual.routeStops[i].distanceAlongRoute);
+        }
+        Assertions.assertEquals(expected.departures.length(), actual.departures.length(), "wrong number of departures.");
+        for (int i = 0; i < expected.departures.length(); i++) {
+            Assertions.assertEquals(expected.departures.get(i), actual.departures.get(i));
+        }
     }
 
 }
@@ -30,6 +30,8 @@ import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Tests for the tree-calculating functionality of SwissRailRaptor
@@ -400,6 +402,153 @@ public class SwissRailRaptorTreeTest {
         Assertions.assertNull(stage5.line); // egress_walk
     }
 
+	@Test
+	void testProfile_sameAsTrees_optimized() {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig config = RaptorUtils.createStaticConfig(f.config);
+        config.setOptimization(RaptorStaticConfig.RaptorOptimization.OneToAllRouting);
+        SwissRailRaptorData data = SwissRailRaptorData.create(f.scenario.getTransitSchedule(), null, config, f.scenario.getNetwork(), null);
+        SwissRailRaptor raptor = new SwissRailRaptor.Builder(data, f.scenario.getConfig()).build();
+
+        RaptorParameters raptorParams = RaptorUtils.createParameters(f.config);
+        double waitingCostPerSecond = -raptorParams.getMarginalUtilityOfWaitingPt_utl_s();
+
+        List<TransitStopFacility> fromStops = List.of(
+                f.schedule.getFacilities().get(Id.create(23, TransitStopFacility.class)),
+                f.schedule.getFacilities().get(Id.create(3, TransitStopFacility.class)));
+        double earliestDepTime = 7*3600;
+        double latestDepTime = 8*3600;
+        Map<Id<TransitStopFacility>, List<TravelInfo>> profile = raptor.calcTreeProfile(fromStops, earliestDepTime, latestDepTime, raptorParams, null);
+
+        // the profile is exact for all departure times at which it found a new journey
+        TreeSet<Double> depTimes = new TreeSet<>();
+        for (List<TravelInfo> journeys : profile.values()) {
+            double previousDepTime = Double.NEGATIVE_INFINITY;
+            for (TravelInfo journey : journeys) {
+                double depTime = getDepartureTime(journey);
+                Assertions.assertTrue(depTime > previousDepTime, "journeys are not ordered by departure time");
+                Assertions.assertTrue(depTime >= earliestDepTime);
+                previousDepTime = depTime;
+                if (depTime < latestDepTime) {
+                    depTimes.add(depTime);
+                }
+            }
+        }
+        depTimes.add(latestDepTime);
+        Assertions.assertTrue(depTimes.size() > 5, "expected multiple departures within the time window");
+
+        for (double depTime : depTimes) {
+            Map<Id<TransitStopFacility>, TravelInfo> tree = raptor.calcTree(fromStops, depTime, raptorParams, null);
+            Assertions.assertTrue(profile.keySet().containsAll(tree.keySet()));
+            for (Map.Entry<Id<TransitStopFacility>, TravelInfo> e : tree.entrySet()) {
+                TravelInfo expected = e.getValue();
+                TravelInfo actual = null;
+                for (TravelInfo journey : profile.get(e.getKey())) {
+                    if (getDepartureTime(journey) >= depTime) {
+                        actual = journey;
+                        break;
+                    }
+                }
+                Assertions.assertNotNull(actual, "no journey to stop " + e.getKey() + " at " + Time.writeTime(depTime));
+                double expectedCost = expected.accessCost + expected.waitingCost + expected.travelCost;
+                double actualCost = actual.accessCost + actual.waitingCost + actual.travelCost + (getDepartureTime(actual) - depTime) * waitingCostPerSecond;
+                Assertions.assertEquals(expectedCost, actualCost, 1e-6, "different costs to stop " + e.getKey() + " at " + Time.writeTime(depTime));
+                if (getDepartureTime(actual) == depTime) {
+                    // route costs must not include waiting before the departure time
+                    Assertions.assertEquals(expected.getRaptorRoute().getTotalCosts(), actual.getRaptorRoute().getTotalCosts(), 1e-6);
+                }
+            }
+        }
+    }
+
+	@Test
+	void testStopToStopMatrices() {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig config = RaptorUtils.createStaticConfig(f.config);
+        config.setOptimization(RaptorStaticConfig.RaptorOptimization.OneToAllRouting);
+        SwissRailRaptorData data = SwissRailRaptorData.create(f.scenario.getTransitSchedule(), null, config, f.scenario.getNetwork(), null);
+        RaptorParameters raptorParams = RaptorUtils.createParameters(f.config);
+
+        List<TransitStopFacility> stops = new ArrayList<>(f.schedule.getFacilities().values());
+        double earliestDepTime = 7*3600;
+        double latestDepTime = 8*3600;
+        StopToStopMatrices matrices = StopToStopMatrices.calculate(data, stops, stops, earliestDepTime, latestDepTime, raptorParams, 2);
+
+        SwissRailRaptor raptor = new SwissRailRaptor.Builder(data, f.scenario.getConfig()).build();
+        for (int from = 0; from < stops.size(); from++) {
+            Assertions.assertEquals(0, matrices.getTravelTime(from, from), 0.0);
+            Assertions.assertEquals(0, matrices.getConnectionCount(from, from), 0.0);
+
+            Map<Id<TransitStopFacility>, List<TravelInfo>> profile = raptor.calcTreeProfile(List.of(stops.get(from)), earliestDepTime, latestDepTime, raptorParams, null);
+            for (int to = 0; to < stops.size(); to++) {
+                List<TravelInfo> journeys = profile.get(stops.get(to).getId());
+                if (journeys == null) {
+                    Assertions.assertEquals(Float.POSITIVE_INFINITY, matrices.getTravelTime(from, to), 0.0);
+                    Assertions.assertEquals(0, matrices.getConnectionCount(from, to), 0.0);
+                    continue;
+                }
+                // the average travel time including waiting is at least the shortest one
+                double minTravelTime = Double.POSITIVE_INFINITY;
+                for (TravelInfo journey : journeys) {
+                    minTravelTime = Math.min(minTravelTime, journey.ptArrivalTime - getDepartureTime(journey));
+                }
+                Assertions.assertTrue(matrices.getTravelTime(from, to) >= minTravelTime - 1e-3, "average travel time below the minimum");
+                Assertions.assertTrue(matrices.getTransferCount(from, to) >= 0);
+            }
+        }
+    }
+
+	@Test
+	void testStopToStopMatricesUseCostCalculators() {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig config = RaptorUtils.createStaticConfig(f.config);
+        config.setOptimization(RaptorStaticConfig.RaptorOptimization.OneToAllRouting);
+        SwissRailRaptorData data = SwissRailRaptorData.create(f.scenario.getTransitSchedule(), null, config, f.scenario.getNetwork(), null);
+        RaptorParameters raptorParams = RaptorUtils.createParameters(f.config);
+        List<TransitStopFacility> stops = new ArrayList<>(f.schedule.getFacilities().values());
+
+        AtomicInteger calls = new AtomicInteger();
+        RaptorInVehicleCostCalculator defaultCalculator = new DefaultRaptorInVehicleCostCalculator();
+        RaptorInVehicleCostCalculator countingCalculator = (inVehicleTime, marginalUtility, person, vehicle, parameters, iterator) -> {
+            calls.incrementAndGet();
+            return defaultCalculator.getInVehicleCost(inVehicleTime, marginalUtility, person, vehicle, parameters, iterator);
+        };
+        SwissRailRaptor raptor = new SwissRailRaptor.Builder(data, f.scenario.getConfig()).with(countingCalculator).build();
+        StopToStopMatrices matrices = raptor.calcStopToStopMatrices(stops, stops, 7*3600, 8*3600, raptorParams, 2);
+        Assertions.assertTrue(calls.get() > 0, "the configured in-vehicle cost calculator was not used");
+
+        StopToStopMatrices defaultMatrices = StopToStopMatrices.calculate(data, stops, stops, 7*3600, 8*3600, raptorParams, 2);
+        for (int from = 0; from < stops.size(); from++) {
+            for (int to = 0; to < stops.size(); to++) {
+                Assertions.assertEquals(defaultMatrices.getTravelTime(from, to), matrices.getTravelTime(from, to), 0.0);
+            }
+        }
+    }
+
+	@Test
+	void testStopToStopMatricesFailure() {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig config = RaptorUtils.createStaticConfig(f.config);
+        config.setOptimization(RaptorStaticConfig.RaptorOptimization.OneToAllRouting);
+        SwissRailRaptorData data = SwissRailRaptorData.create(f.scenario.getTransitSchedule(), null, config, f.scenario.getNetwork(), null);
+        List<TransitStopFacility> stops = new ArrayList<>(f.schedule.getFacilities().values());
+
+        // a failure in one of the threads is passed on, instead of leaving the matrices incomplete
+        Assertions.assertThrows(NullPointerException.class, () -> StopToStopMatrices.calculate(data, stops, stops, 7*3600, 8*3600, null, 2));
+    }
+
+    private static double getDepartureTime(TravelInfo journey) {
+        return journey.ptDepartureTime - journey.waitingTime - journey.accessTime;
+    }
+
     private void assertTravelInfo(Map<Id<TransitStopFacility>, TravelInfo> map, int stopId, String expectedDepartureStop, int expectedTransfers, String expectedDepartureTime, String expectedArrivalTime) {
         TravelInfo info = map.get(Id.create(stopId, TransitStopFacility.class));
         Assertions.assertNotNull(info, "Stop " + stopId + " is not reachable.");
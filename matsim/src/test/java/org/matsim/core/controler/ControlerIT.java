@@ -24,10 +24,13 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.matsim.core.config.groups.ControllerConfigGroup.CompressionType;
 import static org.matsim.core.config.groups.ControllerConfigGroup.SnapshotFormat;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -69,6 +72,9 @@ import org.matsim.core.scoring.SumScoringFunction;
 import org.matsim.core.utils.io.IOUtils;
 import org.matsim.examples.ExamplesUtils;
 import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vis.snapshotwriters.AgentSnapshotInfo;
+import org.matsim.vis.snapshotwriters.BinarySnapshotReader;
+import org.matsim.vis.snapshotwriters.SnapshotWriter;
 
 import com.google.inject.Provider;
 
@@ -925,6 +931,52 @@ public class ControlerIT {
 		assertTrue(new File(controler.getControlerIO().getIterationFilename(2, "T.veh.gz")).exists());
 	}
 
+	@Test
+	void testBinarySnapshotWriterOnQSim() throws IOException {
+		final Config config = utils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("equil"), "config_plans1.xml"));
+		config.controller().setLastIteration(0);
+		config.controller().setWriteEventsInterval(0);
+		config.controller().setWritePlansInterval(0);
+		config.controller().setMobsim("qsim");
+		config.controller().setSnapshotFormat( List.of( SnapshotFormat.transims, SnapshotFormat.binary ) );
+		config.controller().setOutputDirectory( utils.getOutputDirectory() );
+		config.qsim().setSnapshotPeriod(60);
+		config.qsim().setSnapshotStyle( SnapshotStyle.equiDist ) ;
+		config.qsim().setNumberOfThreads(2);
+
+		final Controler controler = new Controler(config);
+		controler.getConfig().controller().setCreateGraphs(false);
+		controler.getConfig().controller().setDumpDataAtEnd(false);
+		controler.run();
+
+		long transimsPositions;
+		try (BufferedReader reader = IOUtils.getBufferedReader(controler.getControlerIO().getIterationFilename(0, "T.veh.gz"))) {
+			transimsPositions = reader.lines().count() - 1;
+		}
+		long[] binaryPositions = new long[1];
+		new BinarySnapshotReader(new SnapshotWriter() {
+			@Override
+			public void beginSnapshot(double time) {
+			}
+
+			@Override
+			public void endSnapshot() {
+			}
+
+			@Override
+			public void addAgent(AgentSnapshotInfo position) {
+				binaryPositions[0]++;
+			}
+
+			@Override
+			public void finish() {
+			}
+		}).readFile(controler.getControlerIO().getIterationFilename(0, "snapshots.bin.gz"));
+
+		assertTrue(transimsPositions > 0);
+		assertEquals(transimsPositions, binaryPositions[0]);
+	}
+
 	/**
 	 * This might sound (or be) silly, but we had this problem in zurich when using a mix of old code and Guice-based code:
 	 * old code wrapped into Guice modules eventually called Controler.setScoringFunctionFactory(),
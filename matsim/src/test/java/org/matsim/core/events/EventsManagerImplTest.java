@@ -23,8 +23,13 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.EventsManagerConfigGroup.HandlerDispatch;
+import org.matsim.core.events.handler.BasicEventHandler;
 import org.matsim.core.events.handler.EventHandler;
 
 /**
@@ -69,6 +74,33 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	@Test
+	void testProcessEvent_GeneratedDispatch() {
+		EventsManager manager = new EventsManagerImpl(HandlerDispatch.generated);
+		CountingMyEventHandler handler = new CountingMyEventHandler();
+		CountingLinkEnterEventHandler linkHandler = new CountingLinkEnterEventHandler();
+		manager.addHandler(handler);
+		manager.addHandler(linkHandler);
+		manager.initProcessing();
+		manager.processEvent(new MyEvent(123.45));
+		manager.processEvent(new LinkEnterEvent(123.45, Id.createVehicleId(1), Id.createLinkId(1)));
+		manager.processEvent(new LinkEnterEvent(124.45, Id.createVehicleId(1), Id.createLinkId(2)));
+		manager.finishProcessing();
+		Assertions.assertEquals(1, handler.counter, "EventHandler was not called.");
+		Assertions.assertEquals(2, linkHandler.linkEnterCounter, "LinkEnterEventHandler was not called.");
+		Assertions.assertEquals(3, linkHandler.basicCounter, "BasicEventHandler was not called.");
+	}
+
+	@Test
+	void testProcessEvent_GeneratedDispatch_ExceptionInEventHandler() {
+		EventsManager manager = new EventsManagerImpl(HandlerDispatch.generated);
+		CrashingMyEventHandler handler = new CrashingMyEventHandler();
+		manager.addHandler(handler);
+		manager.initProcessing();
+		Assertions.assertThrows(ArithmeticException.class, () -> manager.processEvent(new MyEvent(123.45)));
+		Assertions.assertEquals(1, handler.counter);
+	}
+
 	/*package*/ static class MyEvent extends Event {
 		public MyEvent(final double time) {
 			super(time);
@@ -95,6 +127,24 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	/*package*/ static class CountingLinkEnterEventHandler implements LinkEnterEventHandler, BasicEventHandler {
+		/*package*/ int linkEnterCounter = 0;
+		/*package*/ int basicCounter = 0;
+		@Override
+		public void reset(final int iteration) {
+			this.linkEnterCounter = 0;
+			this.basicCounter = 0;
+		}
+		@Override
+		public void handleEvent(final LinkEnterEvent e) {
+			this.linkEnterCounter++;
+		}
+		@Override
+		public void handleEvent(final Event e) {
+			this.basicCounter++;
+		}
+	}
+
 	/*package*/ static class CrashingMyEventHandler implements MyEventHandler {
 		/*package*/ int counter = 0;
 		@Override
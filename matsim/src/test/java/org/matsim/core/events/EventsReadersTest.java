@@ -27,6 +27,8 @@ import javax.xml.parsers.ParserConfigurationException;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.ActivityEndEvent;
@@ -166,4 +168,14 @@ public class EventsReadersTest {
 		events.finishProcessing();
 		assertEquals(8, handler.eventCounter, "number of read events");
 	}
+
+	@Test
+	final void testAutoFormatReaderPb() {
+		MatsimEventsReader reader = new MatsimEventsReader(EventsUtils.createEventsManager());
+		// not a protobuf events file
+		assertThrows(IllegalArgumentException.class, () -> reader.readFile(utils.getClassInputDirectory() + "events.pbf"));
+		// the protobuf reader is only available with the protobuf contrib
+		RuntimeException e = assertThrows(RuntimeException.class, () -> reader.readFile(utils.getClassInputDirectory() + "events.pb"));
+		assertTrue(e.getMessage().startsWith("No reader for the events format pb"), e.getMessage());
+	}
 }
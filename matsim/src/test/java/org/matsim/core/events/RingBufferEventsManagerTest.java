@@ -0,0 +1,175 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.config.groups.EventsManagerConfigGroup.HandlerDispatch;
+import org.matsim.core.events.handler.BasicEventHandler;
+
+public class RingBufferEventsManagerTest {
+
+	@Test
+	void forgetInit() {
+		RingBufferEventsManager m = new RingBufferEventsManager(true, 16);
+		EventsManagerImplTest.CountingMyEventHandler handler = new EventsManagerImplTest.CountingMyEventHandler();
+		m.addHandler(handler);
+
+		assertThrows(IllegalStateException.class, () -> m.processEvent(new EventsManagerImplTest.MyEvent(5)));
+
+		m.initProcessing();
+		m.processEvent(new EventsManagerImplTest.MyEvent(5));
+		m.finishProcessing();
+
+		assertEquals(1, handler.counter);
+	}
+
+	@Test
+	void lateHandler() {
+		RingBufferEventsManager m = new RingBufferEventsManager(true, 16);
+		m.initProcessing();
+
+		assertThrows(IllegalStateException.class, () -> m.addHandler(new EventsManagerImplTest.CountingMyEventHandler()));
+
+		m.finishProcessing();
+	}
+
+	/**
+	 * Many more events than the ring buffer holds, so the producer has to wait for the handlers.
+	 */
+	@Test
+	void allHandlersSeeAllEventsInOrder() {
+		RingBufferEventsManager m = new RingBufferEventsManager(false, 16);
+		RecordingHandler first = new RecordingHandler();
+		RecordingHandler second = new RecordingHandler();
+		m.addHandler(first);
+		m.addHandler(second);
+
+		m.initProcessing();
+		List<Double> expected = new ArrayList<>();
+		EventArray batch = new EventArray();
+		for (int i = 0; i < 5000; i++) {
+			if (i % 2 == 0) {
+				m.processEvent(new EventsManagerImplTest.MyEvent(i));
+				expected.add((double) i);
+			} else {
+				batch.add(new EventsManagerImplTest.MyEvent(i));
+				if (batch.size() == 25) {
+					m.processEvents(batch);
+					for (int j = 0; j < batch.size(); j++) {
+						expected.add(batch.get(j).getTime());
+					}
+					batch = new EventArray();
+				}
+			}
+		}
+		m.finishProcessing();
+
+		assertEquals(expected, first.times);
+		assertEquals(expected, second.times);
+
+		List<RingBufferEventsManager.HandlerStatistics> statistics = m.getHandlerStatistics();
+		assertEquals(2, statistics.size());
+		for (RingBufferEventsManager.HandlerStatistics stats : statistics) {
+			assertEquals(5000, stats.getEvents());
+		}
+	}
+
+	@Test
+	void syncOnTimeSteps() {
+		RingBufferEventsManager m = new RingBufferEventsManager(true, 1024);
+		EventsManagerImplTest.CountingMyEventHandler handler = new EventsManagerImplTest.CountingMyEventHandler();
+		m.addHandler(handler);
+
+		m.initProcessing();
+		for (int step = 1; step <= 10; step++) {
+			for (int i = 0; i < 100; i++) {
+				m.processEvent(new EventsManagerImplTest.MyEvent(step));
+			}
+			m.afterSimStep(step);
+			assertEquals(100 * step, handler.counter);
+		}
+		m.finishProcessing();
+
+		// the handlers are reset at the beginning of the next iteration
+		m.initProcessing();
+		m.processEvent(new EventsManagerImplTest.MyEvent(1));
+		m.finishProcessing();
+		assertEquals(1, handler.counter);
+	}
+
+	@Test
+	void sharedThreads() {
+		RingBufferEventsManager m = new RingBufferEventsManager(true, 2, 64, HandlerDispatch.generated);
+		List<EventsManagerImplTest.CountingMyEventHandler> handlers = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			EventsManagerImplTest.CountingMyEventHandler handler = new EventsManagerImplTest.CountingMyEventHandler();
+			handlers.add(handler);
+			m.addHandler(handler);
+		}
+
+		m.initProcessing();
+		for (int i = 0; i < 1000; i++) {
+			m.processEvent(new EventsManagerImplTest.MyEvent(i));
+		}
+		m.finishProcessing();
+
+		for (EventsManagerImplTest.CountingMyEventHandler handler : handlers) {
+			assertEquals(1000, handler.counter);
+		}
+		assertEquals(2, m.getHandlerStatistics().size());
+	}
+
+	@Test
+	void crashingHandler() {
+		RingBufferEventsManager m = new RingBufferEventsManager(false, 16);
+		EventsManagerImplTest.CountingMyEventHandler handler = new EventsManagerImplTest.CountingMyEventHandler();
+		m.addHandler(handler);
+		m.addHandler(new EventsManagerImplTest.CrashingMyEventHandler());
+
+		m.initProcessing();
+		// more events than fit into the ring, the producer must not wait for the crashed handler
+		for (int i = 0; i < 100; i++) {
+			m.processEvent(new EventsManagerImplTest.MyEvent(i));
+		}
+		assertThrows(RuntimeException.class, m::finishProcessing);
+		assertEquals(100, handler.counter);
+	}
+
+	private static class RecordingHandler implements BasicEventHandler {
+		private final List<Double> times = new ArrayList<>();
+
+		@Override
+		public void handleEvent(Event event) {
+			this.times.add(event.getTime());
+		}
+
+		@Override
+		public void reset(int iteration) {
+			this.times.clear();
+		}
+	}
+}
@@ -0,0 +1,192 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.PersonScoreEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.events.VehicleAbortsEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
+import org.matsim.core.api.experimental.events.BoardingDeniedEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.core.events.EventsReaderBinary;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+import org.matsim.vehicles.Vehicle;
+
+public class EventWriterBinaryTest {
+
+	@RegisterExtension
+	private MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	void testAllEventTypes() {
+		Id<Person> person = Id.createPersonId("p<1>");
+		Id<Link> link = Id.createLinkId("l1");
+		Id<Vehicle> vehicle = Id.createVehicleId("v1");
+		Id<TransitStopFacility> stop = Id.create("s1", TransitStopFacility.class);
+		Id<TransitStopFacility> otherStop = Id.create("s2", TransitStopFacility.class);
+
+		GenericEvent generic = new GenericEvent("custom", 90.0);
+		generic.getAttributes().put("answer", "42");
+		generic.getAttributes().put("empty", null);
+
+		List<Event> events = List.of(
+				new ActivityEndEvent(21610.0, person, link, Id.create("f1", ActivityFacility.class), "home", new Coord(1.5, -2.0)),
+				new PersonDepartureEvent(21610.0, person, link, "car", "car"),
+				new VehicleEntersTrafficEvent(21610.0, person, link, vehicle, "car", 1.0),
+				new LinkLeaveEvent(21620.0, vehicle, link),
+				new LinkEnterEvent(21620.0, vehicle, Id.createLinkId("l2")),
+				new VehicleLeavesTrafficEvent(21650.5, person, Id.createLinkId("l2"), vehicle, "car", 0.5),
+				new PersonArrivalEvent(21650.5, person, Id.createLinkId("l2"), "car"),
+				new ActivityStartEvent(21650.5, person, Id.createLinkId("l2"), null, "work", null),
+				new PersonStuckEvent(21700.0, person, null, "walk"),
+				new VehicleAbortsEvent(21700.0, vehicle, link),
+				new PersonMoneyEvent(21700.0, person, -3.25, "toll", "operator", null),
+				new PersonScoreEvent(21700.0, person, 1.0, "bonus"),
+				new PersonEntersVehicleEvent(21800.0, person, vehicle),
+				new PersonLeavesVehicleEvent(21900.0, person, vehicle),
+				new TeleportationArrivalEvent(22000.0, person, 1234.5, "walk"),
+				new TransitDriverStartsEvent(22000.0, Id.createPersonId("driver"), Id.createVehicleId("bus"),
+						Id.create("line", TransitLine.class), Id.create("route", TransitRoute.class), Id.create("dep", Departure.class)),
+				new VehicleArrivesAtFacilityEvent(22010.0, Id.createVehicleId("bus"), stop, 12.0),
+				new VehicleDepartsAtFacilityEvent(22020.0, Id.createVehicleId("bus"), stop, -3.0),
+				new AgentWaitingForPtEvent(22030.0, person, stop, otherStop),
+				new BoardingDeniedEvent(22040.0, person, Id.createVehicleId("bus")),
+				generic);
+
+		String filename = utils.getOutputDirectory() + "events.bin";
+		EventWriterBinary writer = new EventWriterBinary(filename);
+		events.forEach(writer::handleEvent);
+		writer.closeFile();
+
+		List<Event> read = read(filename, 1);
+		Assertions.assertEquals(events.size(), read.size());
+		for (int i = 0; i < events.size(); i++) {
+			Assertions.assertEquals(events.get(i).getClass(), read.get(i).getClass());
+			Assertions.assertEquals(events.get(i).getAttributes(), read.get(i).getAttributes());
+		}
+		Assertions.assertEquals(new Coord(1.5, -2.0), ((ActivityEndEvent) read.get(0)).getCoord());
+		Assertions.assertNull(((ActivityStartEvent) read.get(7)).getCoord());
+		Assertions.assertSame(person, ((PersonDepartureEvent) read.get(1)).getPersonId());
+	}
+
+	@Test
+	void testChunksAndTimeWindow() {
+		String filename = utils.getOutputDirectory() + "events.bin";
+		EventWriterBinary writer = new EventWriterBinary(filename, 100);
+		List<Event> events = new ArrayList<>();
+		for (int i = 0; i < 10_000; i++) {
+			double time = i % 7 == 0 ? i / 2.0 + 0.25 : i / 2;
+			events.add(new LinkEnterEvent(time, Id.createVehicleId(i % 13), Id.createLinkId(i % 101)));
+		}
+		events.forEach(writer::handleEvent);
+		writer.closeFile();
+
+		List<Event> sequential = read(filename, 1);
+		List<Event> parallel = read(filename, 4);
+		Assertions.assertEquals(toStrings(events), toStrings(sequential));
+		Assertions.assertEquals(toStrings(events), toStrings(parallel));
+
+		EventsManager manager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		manager.addHandler(collector);
+		manager.initProcessing();
+		EventsReaderBinary reader = new EventsReaderBinary(manager);
+		reader.setNumberOfThreads(2);
+		reader.readFile(filename, 1000.0, 1500.0);
+		manager.finishProcessing();
+
+		List<Event> expected = events.stream().filter(e -> e.getTime() >= 1000.0 && e.getTime() < 1500.0).toList();
+		Assertions.assertEquals(toStrings(expected), toStrings(new ArrayList<>(collector.getEvents())));
+	}
+
+	@Test
+	void testCustomEventMapper() {
+		String filename = utils.getOutputDirectory() + "events.bin";
+		EventWriterBinary writer = new EventWriterBinary(filename);
+		GenericEvent generic = new GenericEvent("blocked", 10.0);
+		generic.getAttributes().put("link", "l3");
+		writer.handleEvent(generic);
+		writer.closeFile();
+
+		EventsManager manager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		manager.addHandler(collector);
+		manager.initProcessing();
+		MatsimEventsReader reader = new MatsimEventsReader(manager);
+		reader.addCustomEventMapper("blocked", e -> new VehicleAbortsEvent(e.getTime(), Id.createVehicleId("x"), Id.createLinkId(e.getAttributes().get("link"))));
+		reader.readFile(filename);
+		manager.finishProcessing();
+
+		Assertions.assertEquals(1, collector.getEvents().size());
+		VehicleAbortsEvent event = (VehicleAbortsEvent) collector.getEvents().iterator().next();
+		Assertions.assertEquals("l3", event.getLinkId().toString());
+	}
+
+	private static List<Event> read(String filename, int threads) {
+		EventsManager manager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		manager.addHandler(collector);
+		manager.initProcessing();
+		EventsReaderBinary reader = new EventsReaderBinary(manager);
+		reader.setNumberOfThreads(threads);
+		reader.readFile(filename);
+		manager.finishProcessing();
+		return new ArrayList<>(collector.getEvents());
+	}
+
+	private static List<String> toStrings(List<Event> events) {
+		return events.stream().map(Event::toString).toList();
+	}
+}
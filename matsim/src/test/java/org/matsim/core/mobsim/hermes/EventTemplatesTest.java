@@ -0,0 +1,131 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.hermes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.*;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+
+public class EventTemplatesTest {
+
+	private final Id<Person> person = Id.createPersonId("p");
+	private final Id<Link> link = Id.createLinkId("l");
+	private final Id<Vehicle> vehicle = Id.createVehicleId("v");
+	private final Id<TransitStopFacility> stop1 = Id.create("s1", TransitStopFacility.class);
+	private final Id<TransitStopFacility> stop2 = Id.create("s2", TransitStopFacility.class);
+
+	@Test
+	void testCreatesSameEvents() {
+		EventTemplates templates = new EventTemplates();
+		templates.addActivityEnd(person, link, null, "home", new Coord(1.5, -2.5));
+		templates.addDeparture(person, link, "car", null);
+		templates.addPersonEntersVehicle(person, vehicle);
+		templates.addVehicleEntersTraffic(person, link, vehicle, "car");
+		templates.addLinkLeave(vehicle, link);
+		templates.addLinkEnter(vehicle, link);
+		templates.addVehicleLeavesTraffic(person, link, vehicle, "car");
+		templates.addPersonLeavesVehicle(person, vehicle);
+		templates.addArrival(person, link, "car");
+		templates.addActivityStart(person, link, Id.create("f", ActivityFacility.class), "work", new Coord(1, 2, 3));
+		templates.addActivityEnd(person, link, null, "work", null);
+		templates.addDeparture(person, link, "walk", "pt");
+		templates.addTeleportationArrival(person, 123.4, "walk");
+		templates.addWaitingForPt(person, stop1, stop2);
+		templates.addTransitDriverStarts(person, vehicle, Id.create("line", TransitLine.class),
+				Id.create("route", TransitRoute.class), Id.create("dep", Departure.class));
+		templates.addVehicleArrivesAtFacility(vehicle, stop1, 100.5);
+		templates.addVehicleDepartsAtFacility(vehicle, stop1, 130);
+
+		List<Event> expected = List.of(
+				new ActivityEndEvent(10, person, link, null, "home", new Coord(1.5, -2.5)),
+				new PersonDepartureEvent(11, person, link, "car", null),
+				new PersonEntersVehicleEvent(12, person, vehicle),
+				new VehicleEntersTrafficEvent(13, person, link, vehicle, "car", 1),
+				new LinkLeaveEvent(14, vehicle, link),
+				new LinkEnterEvent(15, vehicle, link),
+				new VehicleLeavesTrafficEvent(16, person, link, vehicle, "car", 1),
+				new PersonLeavesVehicleEvent(17, person, vehicle),
+				new PersonArrivalEvent(18, person, link, "car"),
+				new ActivityStartEvent(19, person, link, Id.create("f", ActivityFacility.class), "work", new Coord(1, 2, 3)),
+				new ActivityEndEvent(20, person, link, null, "work", null),
+				new PersonDepartureEvent(21, person, link, "walk", "pt"),
+				new TeleportationArrivalEvent(22, person, 123.4, "walk"),
+				new AgentWaitingForPtEvent(23, person, stop1, stop2),
+				new TransitDriverStartsEvent(24, person, vehicle, Id.create("line", TransitLine.class),
+						Id.create("route", TransitRoute.class), Id.create("dep", Departure.class)),
+				new VehicleArrivesAtFacilityEvent(110, vehicle, stop1, 110 - 100.5),
+				new VehicleDepartsAtFacilityEvent(126, vehicle, stop1, -4));
+
+		assertEquals(expected.size(), templates.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Event event = templates.toEvent(i, (int) expected.get(i).getTime());
+			assertEquals(expected.get(i).getClass(), event.getClass());
+			assertEquals(expected.get(i).getAttributes(), event.getAttributes());
+		}
+		assertTrue(templates.isActivityEnd(0));
+		assertFalse(templates.isActivityEnd(9));
+	}
+
+	@Test
+	void testSetVehicle() {
+		EventTemplates templates = new EventTemplates();
+		templates.addWaitingForPt(person, stop1, stop2);
+		templates.addPersonEntersVehicle(person, Id.createVehicleId("tr_X"));
+		templates.addPersonLeavesVehicle(person, Id.createVehicleId("tr_X"));
+
+		templates.setVehicle(1, vehicle.index());
+		templates.setVehicle(2, vehicle.index());
+		assertEquals(vehicle, ((PersonEntersVehicleEvent) templates.toEvent(1, 0)).getVehicleId());
+		assertEquals(vehicle, ((PersonLeavesVehicleEvent) templates.toEvent(2, 0)).getVehicleId());
+		assertThrows(RuntimeException.class, () -> templates.setVehicle(0, vehicle.index()));
+	}
+
+	@Test
+	void testClear() {
+		EventTemplates templates = new EventTemplates();
+		for (int i = 0; i < 1000; i++) {
+			templates.addLinkEnter(vehicle, link);
+		}
+		templates.clear();
+		assertEquals(0, templates.size());
+		templates.addArrival(person, link, "bike");
+		assertEquals(new PersonArrivalEvent(5, person, link, "bike").getAttributes(), templates.toEvent(0, 5).getAttributes());
+	}
+}
@@ -0,0 +1,221 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.hermes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.algorithms.NetworkPartitioner;
+import org.matsim.core.population.PersonUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+import org.matsim.utils.eventsfilecomparison.ComparisonResult;
+import org.matsim.utils.eventsfilecomparison.EventsFileComparator;
+
+/**
+ * Tests Hermes with the network split into several realms.
+ */
+public class HermesRealmsTest {
+
+	private static final int LINKS = 20;
+
+	@RegisterExtension
+	private MatsimTestUtils utils = new MatsimTestUtils();
+
+	@BeforeEach
+	public void prepareTest() {
+		Id.resetCaches();
+		ScenarioImporter.flush();
+		HermesConfigGroup.SIM_STEPS = 30 * 60 * 60;
+	}
+
+	@Test
+	void testPartitionCoversAllRealms() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		List<Link> links = generateNetwork(scenario.getNetwork());
+		int[] realmOfLink = NetworkPartitioner.partition(scenario.getNetwork(), 4);
+
+		int[] linksPerRealm = new int[4];
+		int previous = 0;
+		for (Link link : links) {
+			int realm = realmOfLink[link.getId().index()];
+			// the network is a straight line, so each realm is a contiguous stretch of it
+			Assertions.assertTrue(realm >= previous, "realms are not contiguous");
+			previous = realm;
+			linksPerRealm[realm]++;
+		}
+		for (int count : linksPerRealm) {
+			Assertions.assertEquals(LINKS / 4, count, "unbalanced partition");
+		}
+	}
+
+	/**
+	 * Without congestion, agents crossing realm boundaries must see exactly the same travel times.
+	 */
+	@Test
+	void testFreeFlowMatchesSingleRealm() {
+		List<Event> single = run(1, 60, false);
+		List<Event> multi = run(4, 60, false);
+
+		Assertions.assertEquals(sorted(single), sorted(multi));
+	}
+
+	/**
+	 * Under congestion, boundary links must release as many agents per second as their flow capacity allows, and
+	 * full links must accept agents from other realms independently of the partitioning.
+	 */
+	@Test
+	void testCongestionIsDeterministic() {
+		List<Event> first = run(4, 0.5, true);
+		List<Event> second = run(4, 0.5, true);
+		List<Event> twoRealms = run(2, 0.5, true);
+
+		Assertions.assertEquals(toStrings(first), toStrings(second));
+		Assertions.assertEquals(200, arrivals(first));
+		Assertions.assertEquals(byTime(twoRealms), byTime(first));
+	}
+
+	/**
+	 * A single realm must not wait for links that were not processed yet, as the multi-realm handoffs do, so that the
+	 * events under congestion are the same as before realms were introduced.
+	 */
+	@Test
+	void testCongestedSingleRealmMatchesReference() {
+		String eventsFile = utils.getOutputDirectory() + "events.xml.gz";
+		EventWriterXML writer = new EventWriterXML(eventsFile);
+		for (Event event : run(1, 0.5, true)) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+
+		ComparisonResult result = new EventsFileComparator().runComparison(utils.getInputDirectory() + "events.xml.gz", eventsFile);
+		Assertions.assertEquals(ComparisonResult.FILES_ARE_EQUAL, result);
+	}
+
+	private static List<Event> run(int realms, double headway, boolean bottleneck) {
+		Id.resetCaches();
+		ScenarioImporter.flush();
+		Config config = ConfigUtils.createConfig();
+		config.hermes().setNumberOfRealms(realms);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		List<Link> links = generateNetwork(scenario.getNetwork());
+		if (bottleneck) {
+			links.get(LINKS / 2).setCapacity(600);
+			links.get(LINKS / 4).setCapacity(1800);
+		}
+
+		List<Id<Link>> routeLinks = new ArrayList<>();
+		for (int i = 1; i < LINKS - 1; i++) {
+			routeLinks.add(links.get(i).getId());
+		}
+		for (int i = 0; i < 200; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			Plan plan = PersonUtils.createAndAddPlan(person, true);
+			Activity a = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", links.get(0).getId());
+			a.setEndTime(6 * 3600 + i * headway);
+			Leg leg = PopulationUtils.createAndAddLeg(plan, TransportMode.car);
+			TripStructureUtils.setRoutingMode(leg, TransportMode.car);
+			NetworkRoute route = scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, links.get(0).getId(), links.get(LINKS - 1).getId());
+			route.setLinkIds(links.get(0).getId(), routeLinks, links.get(LINKS - 1).getId());
+			leg.setRoute(route);
+			PopulationUtils.createAndAddActivityFromLinkId(plan, "w", links.get(LINKS - 1).getId());
+			scenario.getPopulation().addPerson(person);
+		}
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		HermesTest.createHermes(scenario, events).run();
+
+		return new ArrayList<>(collector.getEvents());
+	}
+
+	private static List<String> toStrings(List<Event> events) {
+		List<String> result = new ArrayList<>();
+		for (Event event : events) {
+			result.add(event.toString());
+		}
+		return result;
+	}
+
+	private static List<String> sorted(List<Event> events) {
+		List<String> result = toStrings(events);
+		result.sort(null);
+		return result;
+	}
+
+	/**
+	 * @return the events in their order, but with the events of the same second sorted, as the order in which realms
+	 * process their links within a second depends on the partitioning.
+	 */
+	private static List<String> byTime(List<Event> events) {
+		List<String> result = new ArrayList<>();
+		int start = 0;
+		for (int i = 1; i <= events.size(); i++) {
+			if (i == events.size() || events.get(i).getTime() != events.get(start).getTime()) {
+				result.addAll(sorted(events.subList(start, i)));
+				start = i;
+			}
+		}
+		return result;
+	}
+
+	private static long arrivals(List<Event> events) {
+		return events.stream().filter(e -> e instanceof PersonArrivalEvent).count();
+	}
+
+	private static List<Link> generateNetwork(Network network) {
+		List<Link> links = new ArrayList<>();
+		Node previous = NetworkUtils.createAndAddNode(network, Id.createNodeId(0), new Coord(0, 0));
+		for (int i = 1; i <= LINKS; i++) {
+			Node node = NetworkUtils.createAndAddNode(network, Id.createNodeId(i), new Coord(i * 500, 0));
+			links.add(NetworkUtils.createAndAddLink(network, Id.createLinkId(i), previous, node, 500, 15, 7200, 2));
+			previous = node;
+		}
+		return links;
+	}
+}
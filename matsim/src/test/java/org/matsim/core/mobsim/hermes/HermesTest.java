@@ -948,6 +948,74 @@ public class HermesTest {
 		// besides this, the important thing is that no (Runtime)Exception is thrown during this test
 	}
 
+	/**
+	 * Between iterations, only agents whose selected plan changed, or was changed in place, are generated again. The
+	 * events must be the same as when the whole scenario is imported again.
+	 */
+	@Test
+	void testOnlyChangedPlansAreGeneratedAgain() {
+		Fixture f = new Fixture();
+		for (int i = 0; i < 3; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			Plan plan = PersonUtils.createAndAddPlan(person, true);
+			Activity a1 = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+			a1.setEndTime(6 * 3600 + i * 60);
+			Leg leg = PopulationUtils.createAndAddLeg(plan, TransportMode.car);
+			TripStructureUtils.setRoutingMode(leg, TransportMode.car);
+			NetworkRoute route = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+			route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+			leg.setRoute(route);
+			PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+			f.plans.addPerson(person);
+		}
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+
+		createHermes(f, events).run();
+		List<String> firstIteration = toStrings(collector.getEvents());
+
+		// nothing changed
+		collector.reset(1);
+		createHermes(f, events).run();
+		Assertions.assertEquals(firstIteration, toStrings(collector.getEvents()));
+
+		// person 1 selects a modified copy of its plan, person 2 leaves the population
+		Person person1 = f.plans.getPersons().get(Id.create(1, Person.class));
+		Plan copy = person1.createCopyOfSelectedPlanAndMakeSelected();
+		((Activity) copy.getPlanElements().get(0)).setEndTime(7 * 3600);
+		f.plans.removePerson(Id.create(2, Person.class));
+		collector.reset(2);
+		createHermes(f, events).run();
+		List<String> thirdIteration = toStrings(collector.getEvents());
+		Assertions.assertTrue(collector.getEvents().stream().anyMatch(event -> event instanceof ActivityEndEvent endEvent
+				&& endEvent.getPersonId().equals(person1.getId()) && endEvent.getTime() == 7 * 3600));
+		Assertions.assertTrue(collector.getEvents().stream().noneMatch(event -> event.toString().contains("person=\"2\"")));
+
+		// a complete import gives the same events
+		ScenarioImporter.flush();
+		collector.reset(3);
+		createHermes(f, events).run();
+		Assertions.assertEquals(toStrings(collector.getEvents()), thirdIteration);
+
+		// person 0's selected plan is changed in place, as e.g. PersonPrepareForSim does when rerouting
+		Person person0 = f.plans.getPersons().get(Id.create(0, Person.class));
+		((Activity) person0.getSelectedPlan().getPlanElements().get(0)).setEndTime(8 * 3600);
+		collector.reset(4);
+		createHermes(f, events).run();
+		Assertions.assertTrue(collector.getEvents().stream().anyMatch(event -> event instanceof ActivityEndEvent endEvent
+				&& endEvent.getPersonId().equals(person0.getId()) && endEvent.getTime() == 8 * 3600));
+	}
+
+	private static List<String> toStrings(List<Event> events) {
+		List<String> strings = new ArrayList<>();
+		for (Event event : events) {
+			strings.add(event.toString());
+		}
+		return strings;
+	}
+
 	/*package*/ final static class FirstLastEventCollector implements BasicEventHandler {
 		public Event firstEvent = null;
 		public Event lastEvent = null;
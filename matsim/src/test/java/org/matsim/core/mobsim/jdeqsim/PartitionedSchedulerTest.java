@@ -0,0 +1,99 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PartitionedSchedulerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsManagerImpl;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.timing.TimeInterpretation;
+
+public class PartitionedSchedulerTest {
+
+	@AfterEach
+	public void tearDown() {
+		Road.getAllRoads().clear();
+	}
+
+	@Test
+	void testEquil() {
+		assertSameEventsAsSingleThread("test/scenarios/equil/config.xml", jdeqSimConfig -> {
+		});
+	}
+
+	@Test
+	void testBerlin() {
+		// contains walk and ride legs, which move agents to other partitions without driving
+		assertSameEventsAsSingleThread("test/scenarios/berlin/config.xml", jdeqSimConfig -> {
+		});
+	}
+
+	@Test
+	void testCongestedBerlin() {
+		// full roads, so that many vehicles wait, and are squeezed onto roads of other partitions
+		assertSameEventsAsSingleThread("test/scenarios/berlin/config.xml", jdeqSimConfig -> {
+			jdeqSimConfig.setFlowCapacityFactor(0.05);
+			jdeqSimConfig.setStorageCapacityFactor(0.05);
+			jdeqSimConfig.setSqueezeTime(60);
+			jdeqSimConfig.setSimulationEndTime("30:00:00");
+		});
+	}
+
+	private void assertSameEventsAsSingleThread(String configFile, Consumer<JDEQSimConfigGroup> configurator) {
+		List<String> expected = runJDEQSim(configFile, 1, configurator);
+		assertTrue(expected.size() > 100);
+		for (int numberOfThreads = 2; numberOfThreads <= 4; numberOfThreads++) {
+			List<String> actual = runJDEQSim(configFile, numberOfThreads, configurator);
+			int i = 0;
+			while (i < expected.size() && i < actual.size() && expected.get(i).equals(actual.get(i))) {
+				i++;
+			}
+			String message = "event " + i + " with " + numberOfThreads + " threads";
+			assertEquals(i < expected.size() ? expected.get(i) : null, i < actual.size() ? actual.get(i) : null, message);
+		}
+	}
+
+	private List<String> runJDEQSim(String configFile, int numberOfThreads, Consumer<JDEQSimConfigGroup> configurator) {
+		Config config = ConfigUtils.loadConfig(configFile);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		JDEQSimConfigGroup jdeqSimConfig = ConfigUtils.addOrGetModule(config, JDEQSimConfigGroup.class);
+		jdeqSimConfig.setUsingCalendarQueue(true);
+		jdeqSimConfig.setNumberOfThreads(numberOfThreads);
+		configurator.accept(jdeqSimConfig);
+
+		List<String> events = new ArrayList<>();
+		EventsManagerImpl eventsManager = new EventsManagerImpl();
+		eventsManager.addHandler((BasicEventHandler) event -> events.add(event.toString()));
+		new JDEQSimulation(jdeqSimConfig, scenario, eventsManager, TimeInterpretation.create(config)).run();
+		return events;
+	}
+}
@@ -23,6 +23,11 @@
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.matsim.core.mobsim.jdeqsim.util.DummyMessage;
@@ -164,6 +169,91 @@ import org.matsim.testcases.MatsimTestUtils;
 		assertEquals(true, mq.isEmpty());
 	}
 
+	 // the default queue keeps the order of a priority queue, also for messages with the same time and priority
+	 @Test
+	 void testSameOrderAsPriorityQueue(){
+		MessageQueue mq=new MessageQueue();
+		PriorityQueue<Message> expected=new PriorityQueue<>();
+		Random random=new Random(42);
+		for (int i=0;i<2000;i++){
+			if (random.nextDouble()<0.6){
+				Message m=new DummyMessage();
+				m.setMessageArrivalTime(random.nextInt(20));
+				m.setPriority(random.nextInt(2));
+				mq.putMessage(m);
+				expected.add(m);
+			} else if (!expected.isEmpty()){
+				assertEquals(true, mq.getNextMessage()==expected.poll());
+			}
+		}
+	}
+
+	 // with the calendar queue, messages with same time and priority are returned in the order in which they were put into the queue
+	 @Test
+	 void testSameTimeAndPriorityInInsertionOrder(){
+		MessageQueue mq=new CalendarMessageQueue();
+		List<Message> messages=new ArrayList<>();
+		for (int i=0;i<100;i++){
+			Message m=new DummyMessage();
+			m.setMessageArrivalTime(i%2==0 ? 7.5 : 10000);
+			mq.putMessage(m);
+			messages.add(m);
+		}
+		for (int i=0;i<100;i+=2){
+			assertEquals(true, mq.getNextMessage()==messages.get(i));
+		}
+		for (int i=1;i<100;i+=2){
+			assertEquals(true, mq.getNextMessage()==messages.get(i));
+		}
+		assertEquals(true, mq.isEmpty());
+	}
+
+	 @Test
+	 void testRandomMessages(){
+		MessageQueue mq=new CalendarMessageQueue();
+		PriorityQueue<Message> expected=new PriorityQueue<>();
+		Random random=new Random(42);
+		double time=0;
+		for (int i=0;i<20000;i++){
+			if (random.nextDouble()<0.6){
+				Message m=new DummyMessage();
+				// mostly soon, sometimes far in the future or before the last message
+				double delay=random.nextDouble()<0.9 ? random.nextInt(600)+random.nextDouble() : random.nextDouble()*100000;
+				m.setMessageArrivalTime(random.nextDouble()<0.02 ? time-1 : time+delay);
+				m.setPriority(random.nextInt(3));
+				mq.putMessage(m);
+				expected.add(m);
+				if (random.nextDouble()<0.05){
+					mq.removeMessage(m);
+					expected.remove(m);
+				}
+			} else if (!expected.isEmpty()){
+				Message m=mq.getNextMessage();
+				assertEquals(expected.peek().getMessageArrivalTime(), m.getMessageArrivalTime());
+				expected.remove(m);
+				time=m.getMessageArrivalTime();
+			}
+			assertEquals(expected.size(), mq.getQueueSize());
+		}
+	}
 
+	 @Test
+	 void testInfiniteTime(){
+		MessageQueue mq=new CalendarMessageQueue();
+		Message m1=new DummyMessage();
+		m1.setMessageArrivalTime(Double.POSITIVE_INFINITY);
+
+		Message m2=new DummyMessage();
+		m2.setMessageArrivalTime(1);
+
+		mq.putMessage(m1);
+		mq.putMessage(m2);
+		assertEquals(1, mq.getNextMessageArrivalTime());
+		assertEquals(true, mq.getNextMessage()==m2);
+		assertEquals(Double.POSITIVE_INFINITY, mq.getNextMessageArrivalTime());
+		assertEquals(true, mq.getNextMessage()==m1);
+		assertEquals(true, mq.isEmpty());
+		assertEquals(null, mq.getNextMessage());
+	}
 
 }
@@ -0,0 +1,151 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ActivityEngineWithCalendarQueueTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
+import org.matsim.core.mobsim.qsim.agents.WithinDayAgentUtils;
+import org.matsim.core.mobsim.qsim.components.QSimComponentsConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.scenario.ScenarioUtils;
+
+public class ActivityEngineWithCalendarQueueTest {
+
+	private static final double RESCHEDULE_TIME = 8 * 3600;
+
+	@Test
+	void testSameEventsAsDefaultEngine() {
+		List<String> expected = runQSim(ActivityEngineModule.COMPONENT_NAME);
+		List<String> actual = runQSim(ActivityEngineWithCalendarQueue.COMPONENT_NAME);
+
+		Assertions.assertTrue(expected.size() > 1000);
+		Assertions.assertTrue(expected.stream().anyMatch(event -> event.contains(PersonStuckEvent.EVENT_TYPE)));
+		Assertions.assertEquals(expected, actual);
+	}
+
+	private static List<String> runQSim(String activityEngine) {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setEndTime(30 * 3600);
+		QSimComponentsConfigGroup componentsConfig = ConfigUtils.addOrGetModule(config, QSimComponentsConfigGroup.class);
+		List<String> components = new ArrayList<>(componentsConfig.getActiveComponents());
+		components.set(components.indexOf(ActivityEngineModule.COMPONENT_NAME), activityEngine);
+		componentsConfig.setActiveComponents(components);
+
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		createScenario(scenario);
+
+		EventsManager events = EventsUtils.createEventsManager();
+		List<String> allEvents = new ArrayList<>();
+		events.addHandler((BasicEventHandler) event -> allEvents.add(event.toString()));
+
+		QSim qsim = new QSimBuilder(config).useDefaults().build(scenario, events);
+		qsim.addQueueSimulationListeners((MobsimBeforeSimStepListener) event -> reschedule(qsim, event));
+		qsim.run();
+		return allEvents;
+	}
+
+	/**
+	 * Within-day replanning: some agents still at home end their activity earlier, some later.
+	 */
+	private static void reschedule(QSim qsim, MobsimBeforeSimStepEvent event) {
+		if (event.getSimulationTime() != RESCHEDULE_TIME) {
+			return;
+		}
+		for (MobsimAgent agent : qsim.getAgents().values()) {
+			int id = Integer.parseInt(agent.getId().toString());
+			if (agent.getState() != MobsimAgent.State.ACTIVITY || WithinDayAgentUtils.getCurrentPlanElementIndex(agent) != 0 || id % 3 != 0) {
+				continue;
+			}
+			Plan plan = WithinDayAgentUtils.getModifiablePlan(agent);
+			Activity home = (Activity) plan.getPlanElements().get(0);
+			home.setEndTime(id % 2 == 0 ? RESCHEDULE_TIME - 60 : home.getEndTime().seconds() + 1800);
+			WithinDayAgentUtils.resetCaches(agent);
+			qsim.rescheduleActivityEnd(agent);
+		}
+	}
+
+	private static void createScenario(Scenario scenario) {
+		Network network = scenario.getNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.createNodeId(1), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.createNodeId(2), new Coord(1000, 0));
+		Link link1 = NetworkUtils.createAndAddLink(network, Id.createLinkId(1), node1, node2, 1000, 10, 3600, 1);
+		Link link2 = NetworkUtils.createAndAddLink(network, Id.createLinkId(2), node2, node1, 1000, 10, 3600, 1);
+
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		Random random = new Random(4711);
+		for (int i = 0; i < 300; i++) {
+			Person person = pf.createPerson(Id.createPersonId(i));
+			Plan plan = pf.createPlan();
+			// whole minutes, so many agents end their activities at the same time
+			Activity home = pf.createActivityFromLinkId("home", link1.getId());
+			home.setEndTime(6 * 3600 + 60 * random.nextInt(180) + (i % 10 == 0 ? 0.5 : 0));
+			plan.addActivity(home);
+			plan.addLeg(createLeg(pf, link1, link2));
+			Activity work = pf.createActivityFromLinkId("work", link2.getId());
+			if (i % 4 == 0) {
+				work.setMaximumDuration(8 * 3600);
+			} else {
+				// a few agents are still at work at the end of the simulation
+				work.setEndTime(i == 1 ? 40 * 3600 : 15 * 3600 + 60 * random.nextInt(180));
+			}
+			plan.addActivity(work);
+			plan.addLeg(createLeg(pf, link2, link1));
+			plan.addActivity(pf.createActivityFromLinkId("home", link1.getId()));
+			person.addPlan(plan);
+			scenario.getPopulation().addPerson(person);
+		}
+	}
+
+	private static Leg createLeg(PopulationFactory pf, Link from, Link to) {
+		Leg leg = pf.createLeg(TransportMode.walk);
+		GenericRouteImpl route = new GenericRouteImpl(from.getId(), to.getId());
+		route.setTravelTime(600);
+		route.setDistance(800);
+		leg.setRoute(route);
+		return leg;
+	}
+}
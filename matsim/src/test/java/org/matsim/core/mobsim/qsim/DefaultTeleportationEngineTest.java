@@ -0,0 +1,114 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DefaultTeleportationEngineTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.scenario.ScenarioUtils;
+
+public class DefaultTeleportationEngineTest {
+
+	@Test
+	void testArrivalOrder() {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setEndTime(30 * 3600);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Network network = scenario.getNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.createNodeId(1), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.createNodeId(2), new Coord(1000, 0));
+		Link link1 = NetworkUtils.createAndAddLink(network, Id.createLinkId(1), node1, node2, 1000, 10, 3600, 1);
+		Link link2 = NetworkUtils.createAndAddLink(network, Id.createLinkId(2), node2, node1, 1000, 10, 3600, 1);
+
+		// all depart at 100; 4 starts a zero-duration activity and departs again with a zero travel time
+		addPerson(scenario, 0, link1, link2, 0.5);
+		addPerson(scenario, 1, link1, link2, 1);
+		addPerson(scenario, 2, link1, link2, 1.5);
+		addPerson(scenario, 3, link1, link2, 20 * 24 * 3600);
+		Plan plan = addPerson(scenario, 4, link1, link2, 0.5);
+		Activity shortActivity = (Activity) plan.getPlanElements().get(2);
+		shortActivity.setEndTime(0);
+		plan.addLeg(createLeg(scenario.getPopulation().getFactory(), link2, link1, 0));
+		plan.addActivity(scenario.getPopulation().getFactory().createActivityFromLinkId("home", link1.getId()));
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		List<String> arrivals = new ArrayList<>();
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler((BasicEventHandler) event -> {
+			if (event instanceof TeleportationArrivalEvent arrival) {
+				arrivals.add(arrival.getTime() + " " + arrival.getPersonId());
+			} else if (event instanceof PersonStuckEvent stuck) {
+				arrivals.add("stuck " + stuck.getPersonId());
+			}
+		});
+		new QSimBuilder(config).useDefaults().build(scenario, events).run();
+
+		// by arrival time, then the larger id first, and at the end of the time step in which the arrival is due
+		Assertions.assertEquals(List.of("101.0 4", "101.0 0", "101.0 4", "101.0 1", "102.0 2", "stuck 3"), arrivals);
+	}
+
+	private static Plan addPerson(Scenario scenario, int id, Link from, Link to, double travelTime) {
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		Person person = pf.createPerson(Id.createPersonId(id));
+		Plan plan = pf.createPlan();
+		Activity home = pf.createActivityFromLinkId("home", from.getId());
+		home.setEndTime(100);
+		plan.addActivity(home);
+		plan.addLeg(createLeg(pf, from, to, travelTime));
+		plan.addActivity(pf.createActivityFromLinkId("work", to.getId()));
+		person.addPlan(plan);
+		scenario.getPopulation().addPerson(person);
+		return plan;
+	}
+
+	private static Leg createLeg(PopulationFactory pf, Link from, Link to, double travelTime) {
+		Leg leg = pf.createLeg(TransportMode.walk);
+		GenericRouteImpl route = new GenericRouteImpl(from.getId(), to.getId());
+		route.setTravelTime(travelTime);
+		route.setDistance(100);
+		leg.setRoute(route);
+		return leg;
+	}
+}
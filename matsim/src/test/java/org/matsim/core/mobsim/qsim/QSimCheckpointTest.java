@@ -0,0 +1,252 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QSimCheckpointTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigGroup;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.TrafficDynamics;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.network.NetworkChangeEvent;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class QSimCheckpointTest {
+
+	@RegisterExtension
+	private MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	void testSameEventsAfterRestart() {
+		String checkpointFile = utils.getOutputDirectory() + "checkpoint.bin.gz";
+		// in the morning peak, before and after the capacity of the middle link changes
+		for (double checkpointTime : new double[]{7 * 3600, 8 * 3600 + 0.5}) {
+			for (TrafficDynamics trafficDynamics : new TrafficDynamics[]{TrafficDynamics.queue, TrafficDynamics.withHoles}) {
+				Config config = createConfig(trafficDynamics);
+				config.qsim().setCheckpointTime(checkpointTime);
+				config.qsim().setCheckpointFile(checkpointFile);
+				List<String> expected = new ArrayList<>();
+				runQSim(config, expected, checkpointTime);
+
+				Config restartConfig = createConfig(trafficDynamics);
+				restartConfig.qsim().setRestartFromCheckpointFile(checkpointFile);
+				List<String> actual = new ArrayList<>();
+				runQSim(restartConfig, actual, Double.NEGATIVE_INFINITY);
+
+				String message = "checkpoint at " + checkpointTime + " with " + trafficDynamics;
+				Assertions.assertTrue(expected.stream().anyMatch(event -> event.contains(LinkEnterEvent.EVENT_TYPE)), message);
+				Assertions.assertTrue(expected.stream().anyMatch(event -> event.contains(PersonStuckEvent.EVENT_TYPE)), message);
+				Assertions.assertEquals(expected, actual, message);
+			}
+		}
+	}
+
+	@Test
+	void testCheckpointTimeWithoutFile() {
+		Config config = createConfig(TrafficDynamics.queue);
+		config.qsim().setCheckpointTime(7 * 3600);
+		Assertions.assertThrows(IllegalStateException.class, () -> runQSim(config, new ArrayList<>(), 0));
+	}
+
+	@Test
+	void testUnsupportedScenarioIsRejected() {
+		Config config = createConfig(TrafficDynamics.queue);
+		config.qsim().setCheckpointTime(7 * 3600);
+		config.qsim().setCheckpointFile(utils.getOutputDirectory() + "checkpoint.bin.gz");
+		config.checkConsistency();
+
+		config.addModule(new ConfigGroup("withinDay"));
+		Assertions.assertThrows(IllegalStateException.class, config::checkConsistency);
+
+		Config restartConfig = createConfig(TrafficDynamics.queue);
+		restartConfig.qsim().setRestartFromCheckpointFile(utils.getOutputDirectory() + "checkpoint.bin.gz");
+		restartConfig.qsim().setUseLanes(true);
+		Assertions.assertThrows(IllegalStateException.class, restartConfig::checkConsistency);
+	}
+
+	@Test
+	void testSameEventsAfterRestartWithTransit() {
+		// the files of the scenario are relative to its config
+		String checkpointFile = new File(utils.getOutputDirectory(), "checkpoint.bin.gz").getAbsolutePath();
+		for (double checkpointTime : new double[]{7 * 3600 + 15 * 60, 8 * 3600 + 0.5}) {
+			Config config = createTransitConfig();
+			config.qsim().setCheckpointTime(checkpointTime);
+			config.qsim().setCheckpointFile(checkpointFile);
+			Scenario scenario = ScenarioUtils.loadScenario(config);
+			List<Event> all = runQSim(scenario);
+
+			// passengers are in the vehicles and wait at the stops at the time of the checkpoint
+			Set<Id<Person>> inVehicles = new HashSet<>();
+			Set<Id<Person>> atStops = new HashSet<>();
+			List<String> expected = new ArrayList<>();
+			for (Event event : all) {
+				if (event.getTime() >= checkpointTime) {
+					expected.add(event.toString());
+				} else if (event instanceof AgentWaitingForPtEvent waiting) {
+					atStops.add(waiting.getPersonId());
+				} else if (event instanceof PersonEntersVehicleEvent enters && scenario.getTransitVehicles().getVehicles().containsKey(enters.getVehicleId())
+						&& atStops.remove(enters.getPersonId())) {
+					inVehicles.add(enters.getPersonId());
+				} else if (event instanceof PersonLeavesVehicleEvent leaves) {
+					inVehicles.remove(leaves.getPersonId());
+				}
+			}
+			String message = "checkpoint at " + checkpointTime;
+			Assertions.assertFalse(inVehicles.isEmpty(), message);
+			Assertions.assertFalse(atStops.isEmpty(), message);
+
+			Config restartConfig = createTransitConfig();
+			restartConfig.qsim().setRestartFromCheckpointFile(checkpointFile);
+			List<String> actual = runQSim(ScenarioUtils.loadScenario(restartConfig)).stream().map(Event::toString).toList();
+
+			Assertions.assertTrue(expected.stream().anyMatch(event -> event.contains(VehicleArrivesAtFacilityEvent.EVENT_TYPE)), message);
+			Assertions.assertEquals(expected, actual, message);
+		}
+	}
+
+	private static Config createTransitConfig() {
+		Config config = ConfigUtils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("pt-tutorial"), "0.config.xml"));
+		config.qsim().setTrafficDynamics(TrafficDynamics.withHoles);
+		return config;
+	}
+
+	private static List<Event> runQSim(Scenario scenario) {
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		List<Event> events = new ArrayList<>();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		eventsManager.addHandler((BasicEventHandler) events::add);
+		new QSimBuilder(scenario.getConfig()).useDefaults().build(scenario, eventsManager).run();
+		return events;
+	}
+
+	private static Config createConfig(TrafficDynamics trafficDynamics) {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setEndTime(30 * 3600);
+		config.qsim().setTrafficDynamics(trafficDynamics);
+		config.network().setTimeVariantNetwork(true);
+		return config;
+	}
+
+	private static void runQSim(Config config, List<String> eventsFrom, double fromTime) {
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		createScenario(scenario);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler((BasicEventHandler) event -> {
+			if (event.getTime() >= fromTime) {
+				eventsFrom.add(event.toString());
+			}
+		});
+		new QSimBuilder(config).useDefaults().build(scenario, events).run();
+	}
+
+	/**
+	 * Agents drive or walk to work and back, and the capacity of the middle link is low and changes over the day, so
+	 * that there are queues on the links at the times of the checkpoints.
+	 */
+	private static void createScenario(Scenario scenario) {
+		Network network = scenario.getNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.createNodeId(1), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.createNodeId(2), new Coord(1000, 0));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.createNodeId(3), new Coord(2000, 0));
+		Node node4 = NetworkUtils.createAndAddNode(network, Id.createNodeId(4), new Coord(3000, 0));
+		Link link1 = NetworkUtils.createAndAddLink(network, Id.createLinkId(1), node1, node2, 1000, 10, 3600, 1);
+		Link link2 = NetworkUtils.createAndAddLink(network, Id.createLinkId(2), node2, node3, 200, 10, 60, 1);
+		Link link3 = NetworkUtils.createAndAddLink(network, Id.createLinkId(3), node3, node4, 1000, 10, 3600, 1);
+		Link link4 = NetworkUtils.createAndAddLink(network, Id.createLinkId(4), node4, node1, 3000, 10, 3600, 1);
+
+		NetworkChangeEvent change = new NetworkChangeEvent(7.5 * 3600);
+		change.addLink(link2);
+		change.setFlowCapacityChange(new NetworkChangeEvent.ChangeValue(NetworkChangeEvent.ChangeType.ABSOLUTE_IN_SI_UNITS, 0.25));
+		NetworkUtils.addNetworkChangeEvent(network, change);
+
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		Random random = new Random(4711);
+		for (int i = 0; i < 300; i++) {
+			String mode = i % 3 == 0 ? TransportMode.walk : TransportMode.car;
+			Person person = pf.createPerson(Id.createPersonId(i));
+			Plan plan = pf.createPlan();
+			Activity home = pf.createActivityFromLinkId("home", link1.getId());
+			home.setEndTime(6 * 3600 + 60 * random.nextInt(120));
+			plan.addActivity(home);
+			plan.addLeg(createLeg(pf, mode, link1, List.of(link2, link3), link4));
+			Activity work = pf.createActivityFromLinkId("work", link4.getId());
+			// a few agents are still at work at the end of the simulation
+			work.setEndTime(i == 1 ? 40 * 3600 : 16 * 3600 + 60 * random.nextInt(180));
+			plan.addActivity(work);
+			plan.addLeg(createLeg(pf, mode, link4, List.of(), link1));
+			plan.addActivity(pf.createActivityFromLinkId("home", link1.getId()));
+			person.addPlan(plan);
+			scenario.getPopulation().addPerson(person);
+		}
+	}
+
+	private static Leg createLeg(PopulationFactory pf, String mode, Link from, List<Link> via, Link to) {
+		Leg leg = pf.createLeg(mode);
+		if (mode.equals(TransportMode.car)) {
+			leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(from.getId(), via.stream().map(Link::getId).toList(), to.getId()));
+		} else {
+			GenericRouteImpl route = new GenericRouteImpl(from.getId(), to.getId());
+			route.setTravelTime(3600);
+			route.setDistance(1500);
+			leg.setRoute(route);
+		}
+		return leg;
+	}
+}
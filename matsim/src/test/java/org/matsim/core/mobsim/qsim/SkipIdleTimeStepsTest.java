@@ -0,0 +1,190 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SkipIdleTimeStepsTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.framework.HasNextEventTime;
+import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimAfterSimStepListener;
+import org.matsim.core.network.NetworkChangeEvent;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+
+public class SkipIdleTimeStepsTest {
+
+	@Test
+	void testSameEventsAsWithoutSkipping() {
+		for (double timeStepSize : new double[]{1, 0.7}) {
+			List<String> expected = new ArrayList<>();
+			List<String> actual = new ArrayList<>();
+			runQSim(timeStepSize, false, expected, new StepCounter());
+			runQSim(timeStepSize, true, actual, new StepCounter());
+
+			Assertions.assertTrue(expected.size() > 1000);
+			Assertions.assertTrue(expected.stream().anyMatch(event -> event.contains(PersonStuckEvent.EVENT_TYPE)));
+			Assertions.assertEquals(expected, actual, "time step size " + timeStepSize);
+		}
+	}
+
+	@Test
+	void testIdleTimeStepsAreSkipped() {
+		StepCounter withoutSkipping = new StepCounter();
+		StepCounter withSkipping = new StepCounter();
+		runQSim(1, false, new ArrayList<>(), withoutSkipping);
+		runQSim(1, true, new ArrayList<>(), withSkipping);
+
+		Assertions.assertEquals(30 * 3600, withoutSkipping.lastStep);
+		Assertions.assertTrue(withSkipping.steps < withoutSkipping.steps / 2, "simulated " + withSkipping.steps + " time steps");
+		Assertions.assertEquals(withoutSkipping.lastStep, withSkipping.lastStep);
+	}
+
+	@Test
+	void testNoSkippingWithListenerInEveryTimeStep() {
+		StepCounter withoutSkipping = new StepCounter();
+		StepCounter withSkipping = new StepCounter();
+		runQSim(1, false, new ArrayList<>(), withoutSkipping);
+		runQSim(1, true, new ArrayList<>(), withSkipping, (MobsimAfterSimStepListener) event -> {});
+
+		Assertions.assertEquals(withoutSkipping.steps, withSkipping.steps);
+	}
+
+	private static void runQSim(double timeStepSize, boolean skipIdleTimeSteps, List<String> allEvents, StepCounter stepCounter,
+			MobsimAfterSimStepListener... otherListeners) {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setEndTime(30 * 3600);
+		config.qsim().setTimeStepSize(timeStepSize);
+		config.qsim().setSkipIdleTimeSteps(skipIdleTimeSteps);
+		config.network().setTimeVariantNetwork(true);
+
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		createScenario(scenario);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler((BasicEventHandler) event -> allEvents.add(event.toString()));
+
+		QSim qsim = new QSimBuilder(config).useDefaults().build(scenario, events);
+		qsim.addQueueSimulationListeners(stepCounter);
+		for (MobsimAfterSimStepListener listener : otherListeners) {
+			qsim.addQueueSimulationListeners(listener);
+		}
+		qsim.run();
+	}
+
+	/**
+	 * Counts the simulated time steps without preventing any from being skipped.
+	 */
+	private static class StepCounter implements MobsimAfterSimStepListener, HasNextEventTime {
+		private int steps = 0;
+		private double lastStep;
+
+		@Override
+		public void notifyMobsimAfterSimStep(MobsimAfterSimStepEvent event) {
+			steps++;
+			lastStep = event.getSimulationTime();
+		}
+
+		@Override
+		public double getNextEventTime() {
+			return Double.POSITIVE_INFINITY;
+		}
+	}
+
+	/**
+	 * Agents drive or walk to work and back, with activity ends at whole seconds and in between, and the capacity of the middle
+	 * link changes over the day.
+	 */
+	private static void createScenario(Scenario scenario) {
+		Network network = scenario.getNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.createNodeId(1), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.createNodeId(2), new Coord(1000, 0));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.createNodeId(3), new Coord(2000, 0));
+		Node node4 = NetworkUtils.createAndAddNode(network, Id.createNodeId(4), new Coord(3000, 0));
+		Link link1 = NetworkUtils.createAndAddLink(network, Id.createLinkId(1), node1, node2, 1000, 10, 3600, 1);
+		Link link2 = NetworkUtils.createAndAddLink(network, Id.createLinkId(2), node2, node3, 1000, 10, 600, 1);
+		Link link3 = NetworkUtils.createAndAddLink(network, Id.createLinkId(3), node3, node4, 1000, 10, 3600, 1);
+		Link link4 = NetworkUtils.createAndAddLink(network, Id.createLinkId(4), node4, node1, 3000, 10, 3600, 1);
+
+		NetworkChangeEvent change = new NetworkChangeEvent(7.5 * 3600 + 0.5);
+		change.addLink(link2);
+		change.setFlowCapacityChange(new NetworkChangeEvent.ChangeValue(NetworkChangeEvent.ChangeType.ABSOLUTE_IN_SI_UNITS, 0.05));
+		NetworkUtils.addNetworkChangeEvent(network, change);
+
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		Random random = new Random(4711);
+		for (int i = 0; i < 300; i++) {
+			String mode = i % 3 == 0 ? TransportMode.walk : TransportMode.car;
+			Person person = pf.createPerson(Id.createPersonId(i));
+			Plan plan = pf.createPlan();
+			Activity home = pf.createActivityFromLinkId("home", link1.getId());
+			home.setEndTime(6 * 3600 + 60 * random.nextInt(180) + (i % 10 == 0 ? 0.5 : 0));
+			plan.addActivity(home);
+			plan.addLeg(createLeg(pf, mode, link1, List.of(link2, link3), link4));
+			Activity work = pf.createActivityFromLinkId("work", link4.getId());
+			// a few agents are still at work at the end of the simulation
+			work.setEndTime(i == 1 ? 40 * 3600 : 16 * 3600 + 60 * random.nextInt(180) + random.nextDouble());
+			plan.addActivity(work);
+			plan.addLeg(createLeg(pf, mode, link4, List.of(), link1));
+			plan.addActivity(pf.createActivityFromLinkId("home", link1.getId()));
+			person.addPlan(plan);
+			scenario.getPopulation().addPerson(person);
+		}
+	}
+
+	private static Leg createLeg(PopulationFactory pf, String mode, Link from, List<Link> via, Link to) {
+		Leg leg = pf.createLeg(mode);
+		if (mode.equals(TransportMode.car)) {
+			leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(from.getId(), via.stream().map(Link::getId).toList(), to.getId()));
+		} else {
+			GenericRouteImpl route = new GenericRouteImpl(from.getId(), to.getId());
+			route.setTravelTime(1200);
+			route.setDistance(1500);
+			leg.setRoute(route);
+		}
+		return leg;
+	}
+}
@@ -0,0 +1,60 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HoleRingBufferTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Queue;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class HoleRingBufferTest {
+
+	@Test
+	void testFifoWithWrapAroundAndGrowth() {
+		HoleRingBuffer holes = new HoleRingBuffer();
+		Assertions.assertTrue(holes.isEmpty());
+
+		// add more holes than removed, so the arrays wrap around and grow repeatedly
+		int added = 0;
+		int removed = 0;
+		for (int round = 0; round < 20; round++) {
+			for (int i = 0; i < 3; i++) {
+				holes.add(100 + added, 0.5 * added);
+				added++;
+			}
+			Assertions.assertEquals(100 + removed, holes.peekEarliestLinkExitTime(), 0.0);
+			Assertions.assertEquals(0.5 * removed, holes.pollSizeInEquivalents(), 0.0);
+			removed++;
+			Assertions.assertEquals(added - removed, holes.size());
+		}
+
+		Queue<QueueWithBuffer.Hole> snapshot = holes.toHoles();
+		Assertions.assertEquals(added - removed, snapshot.size());
+		for (int i = removed; i < added; i++) {
+			QueueWithBuffer.Hole hole = snapshot.poll();
+			Assertions.assertEquals(100 + i, hole.getEarliestLinkExitTime(), 0.0);
+			Assertions.assertEquals(0.5 * i, hole.getSizeInEquivalents(), 0.0);
+		}
+
+		holes.clear();
+		Assertions.assertTrue(holes.isEmpty());
+	}
+}
@@ -0,0 +1,214 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetworkPartitioningTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+
+public class QNetworkPartitioningTest {
+
+	private static final int GRID_SIZE = 10;
+
+	@Test
+	void testPartsAreBalancedAndLocal() {
+		Network network = createGridNetwork();
+		QNetworkPartitioning partitioning = new QNetworkPartitioning();
+		partitioning.initialize(network, 4);
+
+		Map<Node, Integer> partOfNode = getPartOfNode(partitioning);
+		Assertions.assertEquals(network.getNodes().size(), partOfNode.size());
+		for (int part = 0; part < 4; part++) {
+			int size = partitioning.getNodes(part).size();
+			Assertions.assertTrue(size >= 20 && size <= 30, "unbalanced part " + part + " with " + size + " nodes");
+		}
+
+		// with round robin, 3/4 of all links would connect nodes of different parts
+		int cutLinks = 0;
+		for (Link link : network.getLinks().values()) {
+			if (!partOfNode.get(link.getFromNode()).equals(partOfNode.get(link.getToNode()))) {
+				cutLinks++;
+			}
+		}
+		Assertions.assertTrue(cutLinks < network.getLinks().size() / 4, "too many links between parts: " + cutLinks);
+	}
+
+	@Test
+	void testRebalance() {
+		Network network = createGridNetwork();
+		QNetworkPartitioning partitioning = new QNetworkPartitioning();
+		partitioning.initialize(network, 4);
+		List<Node> busiestPart = partitioning.getNodes(0);
+
+		Assertions.assertFalse(partitioning.rebalance(new long[] {100, 101, 99, 100}));
+		Assertions.assertTrue(partitioning.rebalance(new long[] {400, 100, 100, 100}));
+
+		List<Node> rebalancedPart = partitioning.getNodes(0);
+		Assertions.assertTrue(rebalancedPart.size() < busiestPart.size());
+		Assertions.assertTrue(busiestPart.containsAll(rebalancedPart));
+		Assertions.assertEquals(network.getNodes().size(), getPartOfNode(partitioning).size());
+
+		// the same network and number of threads keeps the rebalanced parts, e.g. in the next iteration
+		partitioning.initialize(network, 4);
+		Assertions.assertEquals(rebalancedPart, partitioning.getNodes(0));
+		partitioning.initialize(network, 2);
+		Assertions.assertEquals(2, partitioning.getNumberOfParts());
+	}
+
+	@Test
+	void testSameResultsWhenRebalancingDuringSimulation() {
+		List<String> singleThreaded = runQSim(1, false);
+		List<String> rebalanced = runQSim(4, true);
+		Assertions.assertEquals(200, singleThreaded.stream().filter(event -> event.contains(PersonArrivalEvent.EVENT_TYPE)).count());
+		Assertions.assertEquals(singleThreaded, rebalanced);
+	}
+
+	private static List<String> runQSim(int numberOfThreads, boolean rebalance) {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setNumberOfThreads(numberOfThreads);
+		config.qsim().setLoadBalancingInterval(0);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		createGridNetwork(scenario.getNetwork());
+		createPopulation(scenario);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		List<String> allEvents = new ArrayList<>();
+		events.addHandler((BasicEventHandler) event -> allEvents.add(event.toString()));
+
+		QSim qsim = new QSimBuilder(config).useDefaults().build(scenario, events);
+		if (rebalance) {
+			// pretend that alternating runners are slow, so the active nodes and links move between runners
+			AbstractQNetsimEngine<?> engine = (AbstractQNetsimEngine<?>) qsim.getChildInjector().getInstance(QNetsimEngineI.class);
+			qsim.addQueueSimulationListeners((MobsimBeforeSimStepListener) e -> {
+				int step = (int) e.getSimulationTime();
+				if (step > 6 * 3600 && step % 60 == 0) {
+					long[] busyTimes = {100, 100, 100, 100};
+					busyTimes[(step / 60) % 4] = 1000;
+					engine.rebalance(busyTimes);
+				}
+			});
+		}
+		qsim.run();
+
+		// the order of events within a time step depends on the threads
+		Collections.sort(allEvents);
+		return allEvents;
+	}
+
+	private static Map<Node, Integer> getPartOfNode(QNetworkPartitioning partitioning) {
+		Map<Node, Integer> partOfNode = new HashMap<>();
+		for (int part = 0; part < partitioning.getNumberOfParts(); part++) {
+			for (Node node : partitioning.getNodes(part)) {
+				Assertions.assertNull(partOfNode.put(node, part), "node " + node.getId() + " is in two parts");
+			}
+		}
+		return partOfNode;
+	}
+
+	private static Network createGridNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		createGridNetwork(network);
+		return network;
+	}
+
+	private static void createGridNetwork(Network network) {
+		for (int row = 0; row < GRID_SIZE; row++) {
+			for (int col = 0; col < GRID_SIZE; col++) {
+				NetworkUtils.createAndAddNode(network, Id.createNodeId(row + "_" + col), new Coord(col * 500, row * 500));
+			}
+		}
+		for (int row = 0; row < GRID_SIZE; row++) {
+			for (int col = 0; col < GRID_SIZE; col++) {
+				if (col + 1 < GRID_SIZE) {
+					addLinks(network, row + "_" + col, row + "_" + (col + 1));
+				}
+				if (row + 1 < GRID_SIZE) {
+					addLinks(network, row + "_" + col, (row + 1) + "_" + col);
+				}
+			}
+		}
+	}
+
+	private static void addLinks(Network network, String node1, String node2) {
+		Node from = network.getNodes().get(Id.createNodeId(node1));
+		Node to = network.getNodes().get(Id.createNodeId(node2));
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(node1 + "-" + node2), from, to, 500, 10, 600, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(node2 + "-" + node1), to, from, 500, 10, 600, 1);
+	}
+
+	/**
+	 * Agents drive along the rows and columns of the grid, so they compete at the intersections.
+	 */
+	private static void createPopulation(Scenario scenario) {
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		for (int i = 0; i < 200; i++) {
+			int line = i % GRID_SIZE;
+			boolean alongRow = (i / GRID_SIZE) % 2 == 0;
+			List<Id<Link>> route = new ArrayList<>();
+			for (int k = 0; k + 1 < GRID_SIZE; k++) {
+				route.add(alongRow ? Id.createLinkId(line + "_" + k + "-" + line + "_" + (k + 1)) : Id.createLinkId(k + "_" + line + "-" + (k + 1) + "_" + line));
+			}
+
+			Person person = pf.createPerson(Id.createPersonId(i));
+			Plan plan = pf.createPlan();
+			Activity home = pf.createActivityFromLinkId("home", route.get(0));
+			home.setEndTime(6 * 3600 + (i * 7) % 1800);
+			plan.addActivity(home);
+			Leg leg = pf.createLeg(TransportMode.car);
+			leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(route.get(0), route.subList(1, route.size() - 1), route.get(route.size() - 1)));
+			plan.addLeg(leg);
+			plan.addActivity(pf.createActivityFromLinkId("work", route.get(route.size() - 1)));
+			person.addPlan(plan);
+			scenario.getPopulation().addPerson(person);
+		}
+	}
+}
@@ -0,0 +1,69 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * VehicleRingBufferTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleUtils;
+
+public class VehicleRingBufferTest {
+
+	@Test
+	void testFifoWithWrapAroundAndGrowth() {
+		VehicleType type = VehicleUtils.createVehicleType(Id.create("car", VehicleType.class));
+		VehicleRingBuffer buffer = new VehicleRingBuffer();
+		Queue<QVehicle> expected = new ArrayDeque<>();
+		Assertions.assertTrue(buffer.isEmpty());
+		Assertions.assertNull(buffer.peek());
+		Assertions.assertNull(buffer.poll());
+
+		// add more vehicles than removed, so the arrays wrap around and grow repeatedly
+		int id = 0;
+		for (int round = 0; round < 20; round++) {
+			for (int i = 0; i < 3; i++) {
+				QVehicle vehicle = new QVehicleImpl(VehicleUtils.createVehicle(Id.create(id, Vehicle.class), type));
+				buffer.add(vehicle, id);
+				expected.add(vehicle);
+				id++;
+			}
+			Assertions.assertSame(expected.poll(), buffer.poll());
+			Assertions.assertSame(expected.peek(), buffer.peek());
+
+			Assertions.assertEquals(expected.size(), buffer.size());
+			int position = 0;
+			for (QVehicle vehicle : expected) {
+				Assertions.assertSame(vehicle, buffer.getVehicle(position));
+				Assertions.assertEquals(Double.parseDouble(vehicle.getId().toString()), buffer.getFlowConsumption(position), 0.0);
+				position++;
+			}
+		}
+
+		buffer.clear();
+		Assertions.assertTrue(buffer.isEmpty());
+		Assertions.assertNull(buffer.poll());
+	}
+}
@@ -0,0 +1,214 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PlanSpillStoreTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.replanning.inheritance.PlanInheritanceModule;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.vehicles.Vehicle;
+
+public class PlanSpillStoreTest {
+
+	@Test
+	void testSpillAndLoad() {
+		Population expected = createPopulation();
+		Population population = createPopulation();
+		PlanSpillStore store = createStore(population);
+		store.spill(population);
+
+		for (Person person : population.getPersons().values()) {
+			Assertions.assertInstanceOf(PlanImpl.class, person.getSelectedPlan());
+			for (Plan plan : person.getPlans()) {
+				if (plan != person.getSelectedPlan()) {
+					SpilledPlan spilledPlan = (SpilledPlan) plan;
+					Assertions.assertSame(person, spilledPlan.getPerson());
+					Assertions.assertNotNull(spilledPlan.getScore());
+					Assertions.assertFalse(spilledPlan.isLoaded());
+				}
+			}
+		}
+		List<Integer> offsets = getOffsets(population);
+		Assertions.assertTrue(PopulationUtils.equalPopulation(expected, population));
+
+		// spilled again, with the plans read back for the comparison, but unchanged, so not written again
+		store.spill(population);
+		Assertions.assertTrue(population.getPersons().values().stream()
+				.flatMap(person -> person.getPlans().stream())
+				.noneMatch(plan -> plan instanceof SpilledPlan spilledPlan && spilledPlan.isLoaded()));
+		Assertions.assertEquals(offsets, getOffsets(population));
+		Assertions.assertTrue(PopulationUtils.equalPopulation(expected, population));
+	}
+
+	@Test
+	void testChangesAreKept() {
+		Population population = createPopulation();
+		PlanSpillStore store = createStore(population);
+		store.spill(population);
+
+		Person person = population.getPersons().get(Id.createPersonId(1));
+		Plan plan = person.getPlans().get(1);
+		int offset = ((SpilledPlan) plan).getOffset();
+		Activity home = (Activity) plan.getPlanElements().get(0);
+		home.setEndTime(6 * 3600);
+		plan.setScore(42.);
+		person.setSelectedPlan(plan);
+		store.spill(population);
+
+		Assertions.assertSame(plan, person.getSelectedPlan());
+		SpilledPlan previouslySelected = (SpilledPlan) person.getPlans().get(0);
+		Assertions.assertFalse(previouslySelected.isLoaded());
+		Assertions.assertEquals(2, previouslySelected.getScore());
+
+		person.setSelectedPlan(previouslySelected);
+		store.spill(population);
+		Assertions.assertFalse(((SpilledPlan) plan).isLoaded());
+		Assertions.assertNotEquals(offset, ((SpilledPlan) plan).getOffset());
+		Assertions.assertEquals(42., plan.getScore());
+		Assertions.assertEquals(6 * 3600, ((Activity) plan.getPlanElements().get(0)).getEndTime().seconds());
+	}
+
+	@Test
+	void testSmallFieldsAreKeptOnHeap() {
+		Population population = createPopulation();
+		Person person = population.getPersons().get(Id.createPersonId(0));
+		Plan plan = person.getPlans().get(1);
+		plan.setPlanId(Id.create("0_1", Plan.class));
+		plan.setIterationCreated(3);
+		plan.setPlanMutator("ReRoute");
+		plan.getCustomAttributes().put("cache", new Object());
+		PlanSpillStore store = createStore(population);
+		store.spill(population);
+
+		SpilledPlan spilledPlan = (SpilledPlan) person.getPlans().get(1);
+		Assertions.assertEquals(Id.create("0_1", Plan.class), spilledPlan.getId());
+		Assertions.assertEquals(3, spilledPlan.getIterationCreated());
+		Assertions.assertEquals("ReRoute", spilledPlan.getPlanMutator());
+		Assertions.assertEquals(1, spilledPlan.getCustomAttributes().size());
+		Assertions.assertFalse(spilledPlan.isLoaded());
+
+		spilledPlan.setPlanMutator("TimeAllocationMutator");
+		spilledPlan.getAttributes().putAttribute(PlanInheritanceModule.ITERATION_CREATED, 4);
+		store.spill(population);
+		Assertions.assertFalse(spilledPlan.isLoaded());
+		Assertions.assertEquals("TimeAllocationMutator", spilledPlan.getPlanMutator());
+		Assertions.assertEquals(4, spilledPlan.getIterationCreated());
+		Assertions.assertEquals(1, spilledPlan.getCustomAttributes().size());
+		Assertions.assertEquals("TimeAllocationMutator", spilledPlan.getAttributes().getAttribute(PlanInheritanceModule.PLAN_MUTATOR));
+	}
+
+	@Test
+	void testUnconvertibleAttributeStaysOnHeap() {
+		Population population = createPopulation();
+		Person person = population.getPersons().get(Id.createPersonId(0));
+		Plan plan = person.getPlans().get(1);
+		plan.getAttributes().putAttribute("unconvertible", new Object());
+		createStore(population).spill(population);
+
+		Assertions.assertSame(plan, person.getPlans().get(1));
+		Assertions.assertInstanceOf(SpilledPlan.class, person.getPlans().get(2));
+	}
+
+	private static List<Integer> getOffsets(Population population) {
+		return population.getPersons().values().stream()
+				.flatMap(person -> person.getPlans().stream())
+				.filter(plan -> plan instanceof SpilledPlan)
+				.map(plan -> ((SpilledPlan) plan).getOffset())
+				.toList();
+	}
+
+	private static PlanSpillStore createStore(Population population) {
+		return new PlanSpillStore(population.getFactory().getRouteFactories(), Collections.emptyMap());
+	}
+
+	private static Population createPopulation() {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		PopulationFactory pf = population.getFactory();
+		for (int i = 0; i < 3; i++) {
+			Person person = pf.createPerson(Id.createPersonId(i));
+			for (int p = 0; p < 3; p++) {
+				Plan plan = pf.createPlan();
+				plan.setScore(i + p + 1.);
+				plan.setType(p == 2 ? "bike" : null);
+				plan.getAttributes().putAttribute("p", p);
+
+				Activity home = pf.createActivityFromCoord("home", new Coord(i, 10 + p));
+				home.setLinkId(Id.createLinkId("1"));
+				home.setEndTime(7 * 3600 + p * 60);
+				home.getAttributes().putAttribute("size", 2.5);
+				plan.addActivity(home);
+
+				Leg car = pf.createLeg(TransportMode.car);
+				car.setRoutingMode(TransportMode.car);
+				car.setDepartureTime(7 * 3600 + p * 60);
+				car.setTravelTime(600);
+				NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId("1"),
+						List.of(Id.createLinkId("2"), Id.createLinkId("3")), Id.createLinkId("4"));
+				route.setVehicleId(Id.create(i, Vehicle.class));
+				route.setDistance(1234.5);
+				route.setTravelTime(590);
+				car.setRoute(route);
+				plan.addLeg(car);
+
+				Activity interaction = PopulationUtils.createInteractionActivityFromLinkId("car interaction", Id.createLinkId("4"));
+				interaction.setCoord(new Coord(3, 4, 5));
+				plan.addActivity(interaction);
+
+				Leg walk = pf.createLeg(TransportMode.walk);
+				walk.setRoutingMode(TransportMode.car);
+				GenericRouteImpl walkRoute = new GenericRouteImpl(Id.createLinkId("4"), Id.createLinkId("5"));
+				walkRoute.setRouteDescription("along the river");
+				walkRoute.setDistance(100);
+				walk.setRoute(walkRoute);
+				walk.getAttributes().putAttribute("comment", "short");
+				plan.addLeg(walk);
+
+				Activity work = pf.createActivityFromActivityFacilityId("work", Id.create("w" + i, ActivityFacility.class));
+				work.setLinkId(Id.createLinkId("5"));
+				work.setStartTime(8 * 3600);
+				work.setMaximumDuration(8 * 3600);
+				plan.addActivity(work);
+
+				person.addPlan(plan);
+			}
+			person.setSelectedPlan(person.getPlans().get(0));
+			population.addPerson(person);
+		}
+		return population;
+	}
+}
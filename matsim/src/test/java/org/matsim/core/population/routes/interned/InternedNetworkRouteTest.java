@@ -0,0 +1,92 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * InternedNetworkRouteTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.routes.interned;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.AbstractNetworkRouteTest;
+import org.matsim.core.population.routes.NetworkRoute;
+
+public class InternedNetworkRouteTest extends AbstractNetworkRouteTest {
+
+	private final InternedNetworkRouteFactory factory = new InternedNetworkRouteFactory();
+
+	@Override
+	public NetworkRoute getNetworkRouteInstance(final Id<Link> fromLinkId, final Id<Link> toLinkId, final Network network) {
+		return factory.createRoute(fromLinkId, toLinkId);
+	}
+
+	@Test
+	void testSameLinksAreShared() {
+		Network network = createTestNetwork();
+		Id<Link> link1 = Id.create("1", Link.class);
+		Id<Link> link4 = Id.create("4", Link.class);
+		List<Id<Link>> linkIds = List.of(Id.create("22", Link.class), Id.create("12", Link.class), Id.create("13", Link.class));
+
+		InternedNetworkRoute route1 = (InternedNetworkRoute) getNetworkRouteInstance(link1, link4, network);
+		route1.setLinkIds(link1, linkIds, link4);
+		InternedNetworkRoute route2 = (InternedNetworkRoute) getNetworkRouteInstance(link1, link4, network);
+		route2.setLinkIds(link1, new ArrayList<>(linkIds), link4);
+		InternedNetworkRoute route3 = (InternedNetworkRoute) getNetworkRouteInstance(link1, link4, network);
+		route3.setLinkIds(link1, linkIds.subList(0, 2), link4);
+
+		Assertions.assertSame(route1.getLinkSequence(), route2.getLinkSequence());
+		Assertions.assertNotSame(route1.getLinkSequence(), route3.getLinkSequence());
+		Assertions.assertEquals(linkIds, route2.getLinkIds());
+		Assertions.assertEquals(linkIds.subList(0, 2), route3.getLinkIds());
+	}
+
+	@Test
+	void testClone() {
+		Network network = createTestNetwork();
+		Id<Link> link1 = Id.create("1", Link.class);
+		Id<Link> link4 = Id.create("4", Link.class);
+		List<Id<Link>> linkIds = new ArrayList<>(List.of(Id.create("22", Link.class), Id.create("12", Link.class)));
+
+		InternedNetworkRoute route1 = (InternedNetworkRoute) getNetworkRouteInstance(link1, link4, network);
+		route1.setLinkIds(link1, linkIds, link4);
+		InternedNetworkRoute route2 = route1.clone();
+		Assertions.assertSame(route1.getLinkSequence(), route2.getLinkSequence());
+
+		linkIds.add(Id.create("13", Link.class));
+		route2.setLinkIds(link1, linkIds, link4);
+		Assertions.assertEquals(2, route1.getLinkIds().size());
+		Assertions.assertEquals(3, route2.getLinkIds().size());
+	}
+
+	@Test
+	void testSelectedByConfig() {
+		PlansConfigGroup plansConfig = ConfigUtils.createConfig().plans();
+		plansConfig.setNetworkRouteType(PlansConfigGroup.NetworkRouteType.InternedNetworkRoute);
+		NetworkRoute route = PopulationUtils.createPopulation(plansConfig, null).getFactory().getRouteFactories()
+				.createRoute(NetworkRoute.class, Id.create("1", Link.class), Id.create("4", Link.class));
+		Assertions.assertEquals(InternedNetworkRoute.class, route.getClass());
+	}
+}
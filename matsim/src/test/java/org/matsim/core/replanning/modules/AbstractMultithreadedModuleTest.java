@@ -20,14 +20,27 @@
 
 package org.matsim.core.replanning.modules;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.matsim.analysis.IterationStopWatch;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
+import org.matsim.core.replanning.ReplanningContext;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.testcases.MatsimTestUtils;
 
 /**
  * @author mrieser
@@ -36,6 +49,9 @@ public class AbstractMultithreadedModuleTest {
 
 	private final static Logger log = LogManager.getLogger(AbstractMultithreadedModuleTest.class);
 
+	@RegisterExtension
+	private MatsimTestUtils utils = new MatsimTestUtils();
+
 	@Test
 	void testGetNumOfThreads() {
 		Config config = new Config();
@@ -61,6 +77,90 @@ public class AbstractMultithreadedModuleTest {
 
 	}
 
+	@Test
+	void testWorkStealing() throws IOException {
+		GlobalConfigGroup global = new GlobalConfigGroup();
+		global.setNumberOfThreads(2);
+		global.setReplanningThreadScheduling(GlobalConfigGroup.ReplanningThreadScheduling.workStealing);
+
+		List<Plan> plans = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			plans.add(PopulationUtils.createPlan());
+		}
+		Map<Plan, Integer> handled = new ConcurrentHashMap<>();
+		// the first plan blocks the first thread, so the second one has to steal the remaining chunks of the first
+		Plan slowPlan = plans.get(0);
+		CountingModule testee = new CountingModule(global, handled, slowPlan);
+
+		IterationStopWatch stopwatch = new IterationStopWatch();
+		stopwatch.beginIteration(0);
+		testee.prepareReplanning(new ReplanningContext() {
+			@Override
+			public int getIteration() {
+				return 0;
+			}
+			@Override
+			public IterationStopWatch getStopwatch() {
+				return stopwatch;
+			}
+		});
+		plans.forEach(testee::handlePlan);
+		testee.finishReplanning();
+		stopwatch.endIteration();
+
+		Assertions.assertEquals(plans.size(), handled.size());
+		handled.values().forEach(count -> Assertions.assertEquals(1, (int) count));
+
+		String filename = utils.getOutputDirectory() + "stopwatch.csv";
+		stopwatch.writeSeparatedFile(filename, ";");
+		try (BufferedReader reader = IOUtils.getBufferedReader(filename)) {
+			List<String> header = List.of(reader.readLine().split(";", -1));
+			List<String> values = List.of(reader.readLine().split(";", -1));
+			int stolen = header.indexOf("[CountingPlanAlgo] stolen chunks");
+			Assertions.assertTrue(stolen > 0);
+			Assertions.assertTrue(Integer.parseInt(values.get(stolen)) > 0);
+			Assertions.assertTrue(header.contains("[CountingPlanAlgo] longest/mean thread busy time"));
+		}
+	}
+
+	@Test
+	void testRoundRobinRecordsNoStatistics() throws IOException {
+		GlobalConfigGroup global = new GlobalConfigGroup();
+		global.setNumberOfThreads(2);
+
+		List<Plan> plans = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			plans.add(PopulationUtils.createPlan());
+		}
+		Map<Plan, Integer> handled = new ConcurrentHashMap<>();
+		CountingModule testee = new CountingModule(global, handled, null);
+
+		IterationStopWatch stopwatch = new IterationStopWatch();
+		stopwatch.beginIteration(0);
+		testee.prepareReplanning(new ReplanningContext() {
+			@Override
+			public int getIteration() {
+				return 0;
+			}
+			@Override
+			public IterationStopWatch getStopwatch() {
+				return stopwatch;
+			}
+		});
+		plans.forEach(testee::handlePlan);
+		testee.finishReplanning();
+		stopwatch.endIteration();
+
+		Assertions.assertEquals(plans.size(), handled.size());
+		String filename = utils.getOutputDirectory() + "stopwatch.csv";
+		stopwatch.writeSeparatedFile(filename, ";");
+		try (BufferedReader reader = IOUtils.getBufferedReader(filename)) {
+			String header = reader.readLine();
+			Assertions.assertFalse(header.contains("thread busy time"), header);
+			Assertions.assertFalse(header.contains("stolen chunks"), header);
+		}
+	}
+
 	private static class DummyAbstractMultithreadedModule extends AbstractMultithreadedModule {
 		public DummyAbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 			super(globalConfigGroup);
@@ -81,6 +181,40 @@ public class AbstractMultithreadedModuleTest {
 		}
 	}
 
+	private static class CountingModule extends AbstractMultithreadedModule {
+		private final Map<Plan, Integer> handled;
+		private final Plan slowPlan;
+		public CountingModule(final GlobalConfigGroup globalConfigGroup, final Map<Plan, Integer> handled, final Plan slowPlan) {
+			super(globalConfigGroup);
+			this.handled = handled;
+			this.slowPlan = slowPlan;
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			return new CountingPlanAlgo(this.handled, this.slowPlan);
+		}
+	}
+
+	private static class CountingPlanAlgo implements PlanAlgorithm {
+		private final Map<Plan, Integer> handled;
+		private final Plan slowPlan;
+		public CountingPlanAlgo(final Map<Plan, Integer> handled, final Plan slowPlan) {
+			this.handled = handled;
+			this.slowPlan = slowPlan;
+		}
+		@Override
+		public void run(Plan plan) {
+			if (plan == this.slowPlan) {
+				try {
+					Thread.sleep(500);
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+			this.handled.merge(plan, 1, Integer::sum);
+		}
+	}
+
 	private static class CrashingPlanAlgo implements PlanAlgorithm {
 		@Override
 		public void run(Plan plan) {
@@ -22,8 +22,12 @@ package org.matsim.core.replanning.selectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -40,8 +44,10 @@ import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.config.Config;
 import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PlanSpillStore;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.RouteUtils;
@@ -309,6 +315,96 @@ public class PathSizeLogitSelectorTest extends AbstractPlanSelectorTest {
 		assertEquals(2132, cnt3);
 	}
 
+	@Test
+	void testWeightsFollowChangedPlans() {
+		this.network = createNetwork();
+		Person person = PopulationUtils.getFactory().createPerson(Id.create(1, Person.class));
+		Plan p1 = createPlan(person, "1");
+		Plan p2 = createPlan(person, "2", "3");
+		Plan p3 = createPlan(person, "2", "4", "5");
+		PathSizeLogitSelector selector = new PathSizeLogitSelector(this.config.scoring(), network);
+
+		// with equal scores, the weight is the path size to the power of 2
+		Map<Plan, Double> weights = selector.calcWeights(person.getPlans());
+		assertEquals(1.0, weights.get(p1), 1e-10);
+		assertEquals(0.36, weights.get(p2), 1e-10);
+		assertEquals(0.36, weights.get(p3), 1e-10);
+
+		// the route is changed in place
+		NetworkRoute route = (NetworkRoute) ((Leg) p3.getPlanElements().get(1)).getRoute();
+		route.setLinkIds(route.getStartLinkId(), List.of(Id.create("1", Link.class)), route.getEndLinkId());
+		weights = selector.calcWeights(person.getPlans());
+		assertEquals(0.25, weights.get(p1), 1e-10);
+		assertEquals(1.0, weights.get(p2), 1e-10);
+		assertEquals(0.25, weights.get(p3), 1e-10);
+
+		// legs that depart more than an hour apart do not overlap
+		((Leg) p3.getPlanElements().get(1)).setDepartureTime(7200.0);
+		weights = selector.calcWeights(person.getPlans());
+		assertEquals(1.0, weights.get(p1), 1e-10);
+		assertEquals(1.0, weights.get(p3), 1e-10);
+
+		// and without p1, p3 does not overlap with any other plan
+		person.removePlan(p1);
+		((Leg) p3.getPlanElements().get(1)).setDepartureTime(0.0);
+		weights = selector.calcWeights(person.getPlans());
+		assertEquals(1.0, weights.get(p2), 1e-10);
+		assertEquals(1.0, weights.get(p3), 1e-10);
+	}
+
+	@Test
+	void testSpilledPlans() {
+		this.network = createNetwork();
+		Population population = PopulationUtils.createPopulation(this.config, this.network);
+		Person person = PopulationUtils.getFactory().createPerson(Id.create(1, Person.class));
+		population.addPerson(person);
+		createPlan(person, "1");
+		createPlan(person, "2", "3");
+		createPlan(person, "2", "4", "5");
+		person.setSelectedPlan(person.getPlans().get(0));
+		// (as with storingNonSelectedPlansOffHeap, before every mobsim)
+		PlanSpillStore store = new PlanSpillStore(population.getFactory().getRouteFactories(), Collections.emptyMap());
+		store.spill(population);
+		List<? extends Plan> plans = person.getPlans();
+		PathSizeLogitSelector selector = new PathSizeLogitSelector(this.config.scoring(), network);
+
+		Map<Plan, Double> weights = selector.calcWeights(plans);
+		assertEquals(0.36, weights.get(plans.get(1)), 1e-10);
+		assertEquals(0.36, weights.get(plans.get(2)), 1e-10);
+		store.spill(population);
+		weights = selector.calcWeights(plans);
+		assertEquals(0.36, weights.get(plans.get(1)), 1e-10);
+		assertEquals(0.36, weights.get(plans.get(2)), 1e-10);
+
+		// the cached links of a spilled plan which was changed are not used anymore
+		NetworkRoute route = (NetworkRoute) ((Leg) plans.get(2).getPlanElements().get(1)).getRoute();
+		route.setLinkIds(route.getStartLinkId(), List.of(Id.create("1", Link.class)), route.getEndLinkId());
+		store.spill(population);
+		weights = selector.calcWeights(plans);
+		assertEquals(0.25, weights.get(plans.get(0)), 1e-10);
+		assertEquals(1.0, weights.get(plans.get(1)), 1e-10);
+		assertEquals(0.25, weights.get(plans.get(2)), 1e-10);
+		assertTrue(plans.get(1).getCustomAttributes().isEmpty());
+	}
+
+	private Plan createPlan(Person person, String... linkIds) {
+		Plan plan = PopulationUtils.createPlan(person);
+		Leg leg = PopulationUtils.createLeg(TransportMode.car);
+		leg.setDepartureTime(0.0);
+		List<Id<Link>> routeLinkIds = new ArrayList<>();
+		for (String linkId : linkIds) {
+			routeLinkIds.add(Id.create(linkId, Link.class));
+		}
+		NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(Id.create("6", Link.class), routeLinkIds, Id.create("7", Link.class));
+		leg.setRoute(route);
+		plan.addActivity(PopulationUtils.createActivityFromLinkId("h", Id.create("6", Link.class)));
+		plan.addLeg(leg);
+		plan.addActivity(PopulationUtils.createActivityFromLinkId("w", Id.create("7", Link.class)));
+		plan.setScore(-10.0);
+		person.addPlan(plan);
+		return plan;
+	}
+
 	private Network createNetwork() {
 		//we use a simple "red bus / blue bus paradox" network
 		// Sketch of the network
@@ -20,17 +20,37 @@
 
 package org.matsim.core.router.speedy;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.config.groups.ScoringConfigGroup;
+import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.router.AbstractLeastCostPathCalculatorTest;
 import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
 import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
 
 /**
  * @author mrieser
  */
 public class SpeedyALTTest extends AbstractLeastCostPathCalculatorTest {
 
+	@RegisterExtension
+	private MatsimTestUtils testUtils = new MatsimTestUtils();
+
 	@Override
 	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
 		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
@@ -39,4 +59,102 @@ public class SpeedyALTTest extends AbstractLeastCostPathCalculatorTest {
 		return new SpeedyALT(altData, travelTimeCostCalculator, travelTimeCostCalculator);
 	}
 
+	@Test
+	void testWriteAndReadLandmarks() throws IOException {
+		Network network = NetworkUtils.readNetwork("test/scenarios/equil/network.xml");
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+		SpeedyGraph graph = new SpeedyGraph(network);
+		SpeedyALTData altData = new SpeedyALTData(graph, 4, travelTimeCostCalculator);
+		Path file = Paths.get(testUtils.getOutputDirectory(), "landmarks.bin");
+		altData.writeFile(file);
+
+		// mapped as one chunk, and in chunks of 2 nodes as files larger than 2 GB would be
+		for (SpeedyALTData readData : List.of(SpeedyALTData.readFile(graph, file), SpeedyALTData.readFile(graph, file, 3 * 4 * 2 * Double.BYTES))) {
+			Assertions.assertEquals(altData.getLandmarksCount(), readData.getLandmarksCount());
+			Assertions.assertEquals(altData.getMinTravelCostPerLength(), readData.getMinTravelCostPerLength(), 0.0);
+			for (int nodeIdx = 0; nodeIdx < graph.nodeCount; nodeIdx++) {
+				Assertions.assertEquals(altData.getNodeDeadend(nodeIdx), readData.getNodeDeadend(nodeIdx));
+				for (int landmarkIdx = 0; landmarkIdx < altData.getLandmarksCount(); landmarkIdx++) {
+					Assertions.assertEquals(altData.getTravelCostFromLandmark(nodeIdx, landmarkIdx), readData.getTravelCostFromLandmark(nodeIdx, landmarkIdx), 0.0);
+					Assertions.assertEquals(altData.getTravelCostToLandmark(nodeIdx, landmarkIdx), readData.getTravelCostToLandmark(nodeIdx, landmarkIdx), 0.0);
+				}
+			}
+		}
+
+		// landmarks of a different network must not be used
+		Node node1 = network.getNodes().get(Id.createNodeId("1"));
+		Node node15 = network.getNodes().get(Id.createNodeId("15"));
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("shortcut"), node1, node15, 1000, 30, 1000, 1);
+		Assertions.assertNull(SpeedyALTData.readFile(new SpeedyGraph(network), file));
+	}
+
+	@Test
+	void testReuseLandmarks() {
+		Network network = NetworkUtils.readNetwork("test/scenarios/equil/network.xml");
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+		SpeedyGraph graph = new SpeedyGraph(network);
+		SpeedyALTData altData = new SpeedyALTData(graph, 4, travelTimeCostCalculator);
+		double[] linkCosts = SpeedyALTData.calcLinkCosts(graph, travelTimeCostCalculator);
+
+		double[] slightlyLowerCosts = linkCosts.clone();
+		slightlyLowerCosts[0] *= 0.98;
+		SpeedyALTData reused = altData.reuseFor(slightlyLowerCosts, 0.05);
+		Assertions.assertNotNull(reused);
+		// the estimates have to stay a lower bound
+		for (int nodeIdx = 0; nodeIdx < graph.nodeCount; nodeIdx++) {
+			for (int landmarkIdx = 0; landmarkIdx < altData.getLandmarksCount(); landmarkIdx++) {
+				Assertions.assertEquals(0.98 * altData.getTravelCostFromLandmark(nodeIdx, landmarkIdx), reused.getTravelCostFromLandmark(nodeIdx, landmarkIdx), 1e-9);
+			}
+		}
+
+		double[] muchLowerCosts = linkCosts.clone();
+		muchLowerCosts[0] *= 0.5;
+		Assertions.assertNull(altData.reuseFor(muchLowerCosts, 0.05));
+
+		double[] muchHigherCosts = linkCosts.clone();
+		muchHigherCosts[0] *= 2;
+		Assertions.assertNull(altData.reuseFor(muchHigherCosts, 0.05));
+	}
+
+	@Test
+	void testFactoryStoresLandmarks() {
+		Network network = NetworkUtils.readNetwork("test/scenarios/equil/network.xml");
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+		Path directory = Paths.get(testUtils.getOutputDirectory(), "landmarks");
+		Node node12 = network.getNodes().get(Id.createNodeId("12"));
+		Node node15 = network.getNodes().get(Id.createNodeId("15"));
+
+		LeastCostPathCalculator router = new SpeedyALTFactory(0.05, directory, 2).createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		Assertions.assertTrue(Files.isDirectory(directory));
+		Assertions.assertEquals(1, directory.toFile().list().length);
+
+		LeastCostPathCalculator loadedRouter = new SpeedyALTFactory(0.05, directory, 2).createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		Assertions.assertEquals(router.calcLeastCostPath(node12, node15, 8 * 3600, null, null).links,
+				loadedRouter.calcLeastCostPath(node12, node15, 8 * 3600, null, null).links);
+	}
+
+	@Test
+	void testFactoryCalculatesLinkCostsOncePerDisutility() {
+		Network network = NetworkUtils.readNetwork("test/scenarios/equil/network.xml");
+		FreespeedTravelTimeAndDisutility freespeed = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+		int[] calls = { 0 };
+		TravelDisutility travelCosts = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				return freespeed.getLinkTravelDisutility(link, time, person, vehicle);
+			}
+
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				calls[0]++;
+				return freespeed.getLinkMinimumTravelDisutility(link);
+			}
+		};
+		SpeedyALTFactory factory = new SpeedyALTFactory();
+		factory.createPathCalculator(network, travelCosts, freespeed);
+		int callsForFirstRouter = calls[0];
+		factory.createPathCalculator(network, travelCosts, freespeed);
+		Assertions.assertEquals(callsForFirstRouter, calls[0]);
+	}
+
 }
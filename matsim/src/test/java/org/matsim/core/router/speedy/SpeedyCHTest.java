@@ -0,0 +1,259 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.speedy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.ScoringConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.router.AbstractLeastCostPathCalculatorTest;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+public class SpeedyCHTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+		return new SpeedyCHFactory().createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	@Test
+	void testSameCostsAsDijkstra() {
+		Network network = createRandomGrid(new Random(20240601));
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new ScoringConfigGroup());
+		LeastCostPathCalculator ch = new SpeedyCHFactory().createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+		LeastCostPathCalculator dijkstra = new SpeedyDijkstra(new SpeedyGraph(network), travelTimeCostCalculator, travelTimeCostCalculator);
+
+		assertSameCosts(network, ch, dijkstra, travelTimeCostCalculator, 8 * 3600, new Random(42));
+	}
+
+	@Test
+	void testRecustomization() {
+		Network network = createRandomGrid(new Random(20240602));
+		Map<Link, Double> factors = new HashMap<>();
+		TravelTime travelTime = (link, time, person, vehicle) -> link.getLength() / link.getFreespeed() * factors.getOrDefault(link, 1.0);
+		TravelDisutility travelCosts = new TimeDisutility(travelTime);
+		SpeedyCHFactory factory = new SpeedyCHFactory();
+		LeastCostPathCalculator dijkstra = new SpeedyDijkstra(new SpeedyGraph(network), travelTime, travelCosts);
+
+		Node from = network.getNodes().get(Id.createNodeId("ch_0_0"));
+		Node to = network.getNodes().get(Id.createNodeId("ch_9_9"));
+		Path before = factory.createPathCalculator(network, travelCosts, travelTime).calcLeastCostPath(from, to, 0, null, null);
+		assertSameCosts(network, factory.createPathCalculator(network, travelCosts, travelTime), dijkstra, travelCosts, 0, new Random(1));
+
+		// congest the previous route, the customized weights are outdated until reset
+		before.links.forEach(link -> factors.put(link, 10.0));
+		factory.resetCustomization();
+		LeastCostPathCalculator ch = factory.createPathCalculator(network, travelCosts, travelTime);
+		Path after = ch.calcLeastCostPath(from, to, 0, null, null);
+		Assertions.assertNotEquals(before.links, after.links);
+		assertSameCosts(network, ch, dijkstra, travelCosts, 0, new Random(2));
+	}
+
+	@Test
+	void testDisutilitiesOfSameType() {
+		Network network = createRandomGrid(new Random(20240603));
+		TravelTime travelTime = (link, time, person, vehicle) -> link.getLength() / link.getFreespeed();
+		SpeedyCHFactory factory = new SpeedyCHFactory();
+
+		Node from = network.getNodes().get(Id.createNodeId("ch_0_0"));
+		Node to = network.getNodes().get(Id.createNodeId("ch_9_9"));
+		TravelDisutility untolled = new TollDisutility(travelTime, Set.of());
+		Path before = factory.createPathCalculator(network, untolled, travelTime).calcLeastCostPath(from, to, 0, null, null);
+
+		// same type and travel time, but tolls on the previous route; the weights of the first must not be reused
+		TravelDisutility tolled = new TollDisutility(travelTime, new HashSet<>(before.links));
+		LeastCostPathCalculator ch = factory.createPathCalculator(network, tolled, travelTime);
+		Path after = ch.calcLeastCostPath(from, to, 0, null, null);
+		Assertions.assertNotEquals(before.links, after.links);
+		assertSameCosts(network, ch, new SpeedyDijkstra(new SpeedyGraph(network), travelTime, tolled), tolled, 0, new Random(3));
+	}
+
+	@Test
+	void testPersonSpecificDisutility() {
+		Network network = createRandomGrid(new Random(20240603));
+		TravelTime travelTime = (link, time, person, vehicle) -> link.getLength() / link.getFreespeed();
+		Node from = network.getNodes().get(Id.createNodeId("ch_0_0"));
+		Node to = network.getNodes().get(Id.createNodeId("ch_9_9"));
+		Path untolled = new SpeedyCHFactory().createPathCalculator(network, new TimeDisutility(travelTime), travelTime)
+				.calcLeastCostPath(from, to, 0, null, null);
+
+		// only persons pay the tolls, which the customized weights cannot know
+		TravelDisutility personCosts = new PersonTollDisutility(travelTime, new HashSet<>(untolled.links));
+		Person person = PopulationUtils.getFactory().createPerson(Id.createPersonId("p"));
+		LeastCostPathCalculator ch = new SpeedyCHFactory().createPathCalculator(network, personCosts, travelTime);
+		LeastCostPathCalculator dijkstra = new SpeedyDijkstra(new SpeedyGraph(network), travelTime, personCosts);
+		Path expected = dijkstra.calcLeastCostPath(from, to, 0, person, null);
+		Path actual = ch.calcLeastCostPath(from, to, 0, person, null);
+		Assertions.assertNotEquals(untolled.links, actual.links);
+		Assertions.assertEquals(expected.travelCost, actual.travelCost, 1e-6);
+		Assertions.assertEquals(expected.travelCost, ch.calcLeastCostPath(from, to, 0, person, null).travelCost, 1e-6);
+	}
+
+	@Test
+	void testTimeDependent() {
+		Network network = createRandomGrid(new Random(20240603));
+		Random random = new Random(7);
+		Map<Link, Double> peakFactors = new HashMap<>();
+		for (Link link : network.getLinks().values()) {
+			peakFactors.put(link, 1.0 + 4 * random.nextDouble());
+		}
+		// congested from 7:00 to 9:00 only
+		TravelTime travelTime = (link, time, person, vehicle) -> link.getLength() / link.getFreespeed()
+				* (time >= 7 * 3600 && time < 9 * 3600 ? peakFactors.get(link) : 1.0);
+		TravelDisutility travelCosts = new TimeDisutility(travelTime);
+		LeastCostPathCalculator ch = new SpeedyCHFactory(900, 30 * 3600).createPathCalculator(network, travelCosts, travelTime);
+
+		for (double time : new double[] { 3 * 3600, 8 * 3600 + 450 }) {
+			TravelDisutility frozenCosts = new FrozenDisutility(travelCosts, time);
+			LeastCostPathCalculator dijkstra = new SpeedyDijkstra(new SpeedyGraph(network), travelTime, frozenCosts);
+			assertSameCosts(network, ch, dijkstra, frozenCosts, time, new Random(3));
+		}
+	}
+
+	private static void assertSameCosts(Network network, LeastCostPathCalculator ch, LeastCostPathCalculator dijkstra, TravelDisutility costs, double time, Random random) {
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		for (int i = 0; i < 200; i++) {
+			Node from = nodes.get(random.nextInt(nodes.size()));
+			Node to = nodes.get(random.nextInt(nodes.size()));
+			Path expected = dijkstra.calcLeastCostPath(from, to, time, null, null);
+			Path actual = ch.calcLeastCostPath(from, to, time, null, null);
+
+			Assertions.assertEquals(from, actual.nodes.get(0));
+			Assertions.assertEquals(to, actual.nodes.get(actual.nodes.size() - 1));
+			for (int l = 0; l < actual.links.size(); l++) {
+				Assertions.assertEquals(actual.nodes.get(l), actual.links.get(l).getFromNode());
+				Assertions.assertEquals(actual.nodes.get(l + 1), actual.links.get(l).getToNode());
+			}
+			// the hierarchy uses floats, so allow for rounding
+			Assertions.assertEquals(sum(expected, costs, time), sum(actual, costs, time), 1e-4 * sum(expected, costs, time) + 1e-9);
+		}
+	}
+
+	private static double sum(Path path, TravelDisutility costs, double time) {
+		return path.links.stream().mapToDouble(link -> costs.getLinkTravelDisutility(link, time, null, null)).sum();
+	}
+
+	/**
+	 * A 10x10 grid with random link lengths and speeds, some one-way streets, parallel links, loops and diagonals.
+	 */
+	private static Network createRandomGrid(Random random) {
+		Network network = NetworkUtils.createNetwork();
+		int size = 10;
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId("ch_" + x + "_" + y), new Coord(x * 1000, y * 1000));
+			}
+		}
+		int[] linkCount = { 0 };
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) addLinks(network, nodes[x][y], nodes[x + 1][y], random, linkCount);
+				if (y + 1 < size) addLinks(network, nodes[x][y], nodes[x][y + 1], random, linkCount);
+				if (x + 1 < size && y + 1 < size && random.nextDouble() < 0.2) addLinks(network, nodes[x][y], nodes[x + 1][y + 1], random, linkCount);
+				if (random.nextDouble() < 0.05) addLink(network, nodes[x][y], nodes[x][y], random, linkCount);
+			}
+		}
+		return network;
+	}
+
+	private static void addLinks(Network network, Node a, Node b, Random random, int[] linkCount) {
+		double oneWay = random.nextDouble();
+		if (oneWay > 0.1) addLink(network, a, b, random, linkCount);
+		if (oneWay < 0.9) addLink(network, b, a, random, linkCount);
+		if (random.nextDouble() < 0.05) addLink(network, a, b, random, linkCount);
+	}
+
+	private static void addLink(Network network, Node from, Node to, Random random, int[] linkCount) {
+		double length = 1000 + 500 * random.nextDouble();
+		double speed = 5 + 25 * random.nextDouble();
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("ch_" + linkCount[0]++), from, to, length, speed, 1000, 1);
+	}
+
+	private record TimeDisutility(TravelTime travelTime) implements TravelDisutility {
+		@Override
+		public double getLinkTravelDisutility(Link link, double time, org.matsim.api.core.v01.population.Person person, org.matsim.vehicles.Vehicle vehicle) {
+			return this.travelTime.getLinkTravelTime(link, time, person, vehicle);
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(Link link) {
+			return link.getLength() / link.getFreespeed();
+		}
+	}
+
+	private record TollDisutility(TravelTime travelTime, Set<Link> tolledLinks) implements TravelDisutility {
+		@Override
+		public double getLinkTravelDisutility(Link link, double time, org.matsim.api.core.v01.population.Person person, org.matsim.vehicles.Vehicle vehicle) {
+			double toll = this.tolledLinks.contains(link) ? 1000 : 0;
+			return this.travelTime.getLinkTravelTime(link, time, person, vehicle) + toll;
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(Link link) {
+			return link.getLength() / link.getFreespeed();
+		}
+	}
+
+	private record PersonTollDisutility(TravelTime travelTime, Set<Link> tolledLinks) implements TravelDisutility {
+		@Override
+		public double getLinkTravelDisutility(Link link, double time, Person person, org.matsim.vehicles.Vehicle vehicle) {
+			double toll = person != null && this.tolledLinks.contains(link) ? 1000 : 0;
+			return this.travelTime.getLinkTravelTime(link, time, person, vehicle) + toll;
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(Link link) {
+			return link.getLength() / link.getFreespeed();
+		}
+	}
+
+	private record FrozenDisutility(TravelDisutility delegate, double frozenTime) implements TravelDisutility {
+		@Override
+		public double getLinkTravelDisutility(Link link, double time, org.matsim.api.core.v01.population.Person person, org.matsim.vehicles.Vehicle vehicle) {
+			return this.delegate.getLinkTravelDisutility(link, this.frozenTime, person, vehicle);
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(Link link) {
+			return this.delegate.getLinkMinimumTravelDisutility(link);
+		}
+	}
+}
@@ -21,6 +21,11 @@
 
  package org.matsim.core.scoring;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.matsim.api.core.v01.Coord;
@@ -29,6 +34,7 @@ import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
 import org.matsim.api.core.v01.events.PersonScoreEvent;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
@@ -36,12 +42,19 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.PopulationFactory;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.controler.ControlerListenerManagerImpl;
+import org.matsim.core.controler.PrepareForSimUtils;
 import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.router.TripStructureUtils;
 import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.scoring.functions.CharyparNagelScoringFunctionFactory;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
 
 	/**
  * @author mrieser / Simunto GmbH
@@ -134,6 +147,61 @@ public class ScoringFunctionsForPopulationTest {
 		Assertions.assertEquals(1.234+2.345, rsf.separateScoreSum, 1e-7);
 	}
 
+	 @Test
+	 void testScoresDoNotDependOnNumberOfScoringThreads() {
+		Config config = loadPtTutorialConfig();
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		List<Event> events = new ArrayList<>();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		eventsManager.addHandler((BasicEventHandler) events::add);
+		new QSimBuilder(config).useDefaults().build(scenario, eventsManager).run();
+		Assertions.assertTrue(events.stream().anyMatch(event -> event instanceof PersonEntersVehicleEvent enterEvent
+				&& scenario.getPopulation().getPersons().containsKey(enterEvent.getPersonId())
+				&& scenario.getTransitVehicles().getVehicles().containsKey(enterEvent.getVehicleId())));
+
+		Map<Id<Person>, Double> expected = computeScores(scenario, events, 0);
+		Assertions.assertTrue(expected.values().stream().noneMatch(score -> score == null || score.isNaN()));
+		// Double.equals() compares the bits
+		Assertions.assertEquals(expected, computeScores(scenario, events, 1));
+		Assertions.assertEquals(expected, computeScores(scenario, events, 3));
+	}
+
+	private static Config loadPtTutorialConfig() {
+		Config config = ConfigUtils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("pt-tutorial"), "0.config.xml"));
+		// so that the scores depend on the routes reconstructed from the vehicle events
+		config.scoring().getModes().get(TransportMode.car).setMonetaryDistanceRate(-0.0002);
+		config.scoring().getModes().get(TransportMode.pt).setMonetaryDistanceRate(-0.0001);
+		config.scoring().setUtilityOfLineSwitch(-1.0);
+		return config;
+	}
+
+	private static Map<Id<Person>, Double> computeScores(Scenario scenario, List<Event> events, int numberOfScoringThreads) {
+		// the config of the scenario is locked by the mobsim
+		Config config = loadPtTutorialConfig();
+		config.scoring().setNumberOfScoringThreads(numberOfScoringThreads);
+		Scenario scoringScenario = new ScenarioUtils.ScenarioBuilder(config)
+				.setNetwork(scenario.getNetwork())
+				.setPopulation(scenario.getPopulation())
+				.setTransitSchedule(scenario.getTransitSchedule())
+				.build();
+
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		EventsToScore eventsToScore = EventsToScore.createWithoutScoreUpdating(scoringScenario, new CharyparNagelScoringFunctionFactory(scoringScenario), eventsManager);
+		eventsToScore.beginIteration(0, false);
+		eventsManager.initProcessing();
+		events.forEach(eventsManager::processEvent);
+		eventsManager.finishProcessing();
+		eventsToScore.finish();
+
+		Map<Id<Person>, Double> scores = new HashMap<>();
+		for (Id<Person> personId : scenario.getPopulation().getPersons().keySet()) {
+			scores.put(personId, eventsToScore.getAgentScore(personId));
+		}
+		return scores;
+	}
+
 	private static class RecordingScoringFunction implements ScoringFunction {
 
 		int tripCounter = 0;
@@ -27,6 +27,8 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -574,4 +576,66 @@ public class TravelTimeCalculatorTest {
 		Assertions.assertEquals(100.0,
 				ttc.getLinkTravelTimes().getLinkTravelTime(link2, 200, null, null), 1e-8, "Filtering analyzed transport modes is enabled, but no modes set. Therefore, use default (=car)");
 	}
+
+	/**
+	 * Consolidating all links in parallel after the mobsim must give the same travel times as consolidating each link
+	 * when it is requested.
+	 */
+	@Test
+	void testConsolidateAllData() {
+		Network network = NetworkUtils.createNetwork();
+		int numberOfLinks = 5000;
+		Node fromNode = NetworkUtils.createAndAddNode(network, Id.createNodeId(0), new Coord(0, 0));
+		for (int i = 0; i < numberOfLinks; i++) {
+			Node toNode = NetworkUtils.createAndAddNode(network, Id.createNodeId(i + 1), new Coord((i + 1) * 100, 0));
+			NetworkUtils.createAndAddLink(network, Id.createLinkId(i), fromNode, toNode, 100, 10, 1000, 1);
+			fromNode = toNode;
+		}
+
+		TravelTimeCalculatorConfigGroup config = new TravelTimeCalculatorConfigGroup();
+		config.setCalculateLinkToLinkTravelTimes(true);
+		TravelTimeCalculator consolidatedCalculator = new TravelTimeCalculator(network, config);
+		TravelTimeCalculator lazyCalculator = new TravelTimeCalculator(network, config);
+
+		// the vehicle ids are created after the calculators, so these have to grow their per-vehicle arrays
+		for (int v = 0; v < 20; v++) {
+			Id<Vehicle> vehicleId = Id.createVehicleId("consolidation_" + v);
+			double time = v * 1800;
+			List<Event> events = new ArrayList<>();
+			events.add(new VehicleEntersTrafficEvent(time, Id.createPersonId(v), Id.createLinkId(0), vehicleId, TransportMode.car, 1.0));
+			for (int i = 1; i < numberOfLinks; i++) {
+				// every now and then a long travel time, which has to be carried over to the following time bins
+				time += (i + v) % 499 == 0 ? 3000 : 10 + (i * v) % 7;
+				events.add(new LinkLeaveEvent(time, vehicleId, Id.createLinkId(i - 1)));
+				events.add(new LinkEnterEvent(time, vehicleId, Id.createLinkId(i)));
+			}
+			for (Event event : events) {
+				handleEvent(consolidatedCalculator, event);
+				handleEvent(lazyCalculator, event);
+			}
+		}
+		consolidatedCalculator.consolidateAllData(4);
+
+		for (Link link : network.getLinks().values()) {
+			Link nextLink = network.getLinks().get(Id.createLinkId(Integer.parseInt(link.getId().toString()) + 1));
+			for (double time = 0; time < 30 * 3600; time += 450) {
+				assertEquals(lazyCalculator.getLinkTravelTimes().getLinkTravelTime(link, time, null, null),
+						consolidatedCalculator.getLinkTravelTimes().getLinkTravelTime(link, time, null, null), 0.0);
+				if (nextLink != null) {
+					assertEquals(lazyCalculator.getLinkToLinkTravelTimes().getLinkToLinkTravelTime(link, nextLink, time, null, null),
+							consolidatedCalculator.getLinkToLinkTravelTimes().getLinkToLinkTravelTime(link, nextLink, time, null, null), 0.0);
+				}
+			}
+		}
+	}
+
+	private static void handleEvent(TravelTimeCalculator calculator, Event event) {
+		if (event instanceof VehicleEntersTrafficEvent enterTrafficEvent) {
+			calculator.handleEvent(enterTrafficEvent);
+		} else if (event instanceof LinkLeaveEvent linkLeaveEvent) {
+			calculator.handleEvent(linkLeaveEvent);
+		} else {
+			calculator.handleEvent((LinkEnterEvent) event);
+		}
+	}
 }
@@ -0,0 +1,140 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinarySnapshotWriterTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2024 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.vis.snapshotwriters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.matsim.api.core.v01.Id;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vis.snapshotwriters.AgentSnapshotInfo.AgentState;
+
+public class BinarySnapshotWriterTest {
+
+	@RegisterExtension
+	private MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	void testWriteAndRead() {
+		String filename = utils.getOutputDirectory() + "snapshots.bin.gz";
+		BinarySnapshotWriter writer = new BinarySnapshotWriter(filename, 0.5, 0);
+		writer.beginSnapshot(10);
+		writer.addAgent(position("a", 100.2, -50.7, AgentState.PERSON_DRIVING_CAR, 0.3));
+		writer.addAgent(position("b", 3.0, 4.0, AgentState.TRANSIT_DRIVER, 1));
+		writer.addAgent(position("c", 3.0, 4.0, AgentState.PERSON_AT_ACTIVITY, 0));
+		writer.endSnapshot();
+		writer.beginSnapshot(20);
+		writer.addAgent(position("b", 3.1, 4.1, AgentState.TRANSIT_DRIVER, 1));
+		writer.addAgent(position("a", 101.0, -50.7, AgentState.PERSON_DRIVING_CAR, 0.3));
+		writer.endSnapshot();
+		writer.finish();
+
+		List<String> snapshots = read(filename);
+		assertEquals(List.of(
+				"begin 10.0", "a 100.0 -50.5 PERSON_DRIVING_CAR 77", "b 3.0 4.0 TRANSIT_DRIVER 255", "end",
+				"begin 20.0", "b 3.0 4.0 TRANSIT_DRIVER 255", "a 101.0 -50.5 PERSON_DRIVING_CAR 77", "end"), snapshots);
+	}
+
+	@Test
+	void testUnchangedPositionsAreSmaller() {
+		String moving = utils.getOutputDirectory() + "moving.bin";
+		String standing = utils.getOutputDirectory() + "standing.bin";
+		BinarySnapshotWriter movingWriter = new BinarySnapshotWriter(moving, 1, 0);
+		BinarySnapshotWriter standingWriter = new BinarySnapshotWriter(standing, 1, 0);
+		for (int time = 0; time < 100; time++) {
+			movingWriter.beginSnapshot(time);
+			standingWriter.beginSnapshot(time);
+			for (int i = 0; i < 100; i++) {
+				movingWriter.addAgent(position(Integer.toString(i), time * 10, i, AgentState.PERSON_DRIVING_CAR, 0.5));
+				standingWriter.addAgent(position(Integer.toString(i), 0.4 * (time % 2), i, AgentState.PERSON_DRIVING_CAR, 0.5));
+			}
+			movingWriter.endSnapshot();
+			standingWriter.endSnapshot();
+		}
+		movingWriter.finish();
+		standingWriter.finish();
+
+		assertTrue(new File(standing).length() * 2 < new File(moving).length());
+		List<String> snapshots = read(standing);
+		assertEquals(100 * 102, snapshots.size());
+		assertEquals("42 0.0 42.0 PERSON_DRIVING_CAR 128", snapshots.get(snapshots.size() - 59));
+	}
+
+	@Test
+	void testPeriod() {
+		String filename = utils.getOutputDirectory() + "snapshots.bin";
+		BinarySnapshotWriter writer = new BinarySnapshotWriter(filename, 1, 300);
+		for (int time = 0; time <= 1000; time += 100) {
+			writer.beginSnapshot(time);
+			writer.addAgent(position("a", time, 0, AgentState.PERSON_OTHER_MODE, 0));
+			writer.endSnapshot();
+		}
+		writer.finish();
+
+		assertEquals(List.of(
+				"begin 0.0", "a 0.0 0.0 PERSON_OTHER_MODE 0", "end",
+				"begin 300.0", "a 300.0 0.0 PERSON_OTHER_MODE 0", "end",
+				"begin 600.0", "a 600.0 0.0 PERSON_OTHER_MODE 0", "end",
+				"begin 900.0", "a 900.0 0.0 PERSON_OTHER_MODE 0", "end"), read(filename));
+	}
+
+	private static AgentSnapshotInfo position(String id, double easting, double northing, AgentState state, double color) {
+		return new PositionInfo.DirectBuilder()
+				.setPersonId(Id.createPersonId(id))
+				.setEasting(easting)
+				.setNorthing(northing)
+				.setAgentState(state)
+				.setColorValue(color)
+				.build();
+	}
+
+	private static List<String> read(String filename) {
+		List<String> snapshots = new ArrayList<>();
+		new BinarySnapshotReader(new SnapshotWriter() {
+			@Override
+			public void beginSnapshot(double time) {
+				snapshots.add("begin " + time);
+			}
+
+			@Override
+			public void endSnapshot() {
+				snapshots.add("end");
+			}
+
+			@Override
+			public void addAgent(AgentSnapshotInfo position) {
+				snapshots.add(position.getId() + " " + position.getEasting() + " " + position.getNorthing() + " "
+						+ position.getAgentState() + " " + Math.round(position.getColorValueBetweenZeroAndOne() * 255));
+			}
+
+			@Override
+			public void finish() {
+			}
+		}).readFile(filename);
+		return snapshots;
+	}
+}